@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.arjuna.ats.internal.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import jakarta.transaction.Transaction;
+
+/**
+ * Access to the transaction association, enlistment and pool state of {@link ConnectionImple}, which Narayana only
+ * exposes within this package.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class ConnectionTransactions {
+
+    private ConnectionTransactions() {
+    }
+
+    /**
+     * Get the transaction the connection is currently used by.
+     *
+     * @param connection transactional driver connection
+     * @return transaction, or {@code null} if the connection has not been used in a transaction since it was acquired
+     */
+    public static Transaction getTransaction(ConnectionImple connection) {
+        return connection.connectionControl().transaction();
+    }
+
+    /**
+     * Associate the connection with the transaction without enlisting it, as {@link ConnectionImple} does when it
+     * enlists. {@link ConnectionManager} and the transaction's later requests then share the connection.
+     *
+     * @param connection  transactional driver connection
+     * @param transaction transaction to associate the connection with
+     * @return {@code true} if the connection is associated with the transaction, {@code false} if it is used by
+     * another transaction
+     */
+    public static boolean associate(ConnectionImple connection, Transaction transaction) {
+        return connection.connectionControl() instanceof TransactionalDriverXAConnection xaConnection
+                && xaConnection.setTransaction(transaction);
+    }
+
+    /**
+     * Set a listener called when the last handle of a pooled connection is closed and it becomes idle. It is called
+     * while the connection is locked, so it must not block.
+     *
+     * @param connection transactional driver connection
+     * @param listener   listener to call, or {@code null} to remove it
+     * @return {@code true} if the listener was set, {@code false} if the connection was not created from a provided
+     * {@link javax.sql.XADataSource} and its release cannot be observed
+     */
+    public static boolean setReleaseListener(ConnectionImple connection, Runnable listener) {
+        if (connection.connectionControl() instanceof ProvidedXADataSourceConnection providedConnection) {
+            providedConnection.setReleaseListener(listener);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the physical connection without enlisting it in the current transaction.
+     *
+     * @param connection transactional driver connection
+     * @return physical connection
+     * @throws SQLException if the connection is used by another transaction, or cannot be opened
+     */
+    public static Connection getPhysicalConnection(ConnectionImple connection) throws SQLException {
+        connection.checkTransaction();
+        return connection.getConnection();
+    }
+
+    /**
+     * Enlist the connection in the current transaction, as {@link ConnectionImple} does whenever a statement is
+     * created. Nothing is enlisted if there is no transaction.
+     *
+     * @param connection transactional driver connection
+     * @throws SQLException if the connection is used by another transaction, or cannot be enlisted
+     */
+    public static void enlist(ConnectionImple connection) throws SQLException {
+        connection.checkTransaction();
+        connection.registerDatabase();
+    }
+}
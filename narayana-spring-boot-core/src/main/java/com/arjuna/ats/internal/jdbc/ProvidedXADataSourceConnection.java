@@ -33,6 +33,8 @@ public class ProvidedXADataSourceConnection implements ConnectionControl, Transa
     private final BaseTransactionalDriverXAConnection delegate = new BaseTransactionalDriverXAConnection() {
     };
 
+    private volatile Runnable releaseListener;
+
     public ProvidedXADataSourceConnection(String dbName, String user, String passwd, XADataSource xaDatasource, ConnectionImple conn) {
         if (jdbcLogger.logger.isTraceEnabled()) {
             jdbcLogger.logger.trace("ProvidedXADataSourceConnection.ProvidedXADataSourceConnection( " + dbName + ", " + user + ", " + passwd + ", " + xaDatasource + " )");
@@ -109,11 +111,21 @@ public class ProvidedXADataSourceConnection implements ConnectionControl, Transa
 
     @Override
     public boolean setTransaction(Transaction tx) {
-        return this.delegate.setTransaction(tx);
+        boolean result = this.delegate.setTransaction(tx);
+        // ConnectionImple only clears the transaction when the last handle of a pooled connection is closed
+        Runnable listener = this.releaseListener;
+        if (tx == null && listener != null) {
+            listener.run();
+        }
+        return result;
     }
 
     @Override
     public boolean validTransaction(Transaction tx) {
         return this.delegate.validTransaction(tx);
     }
+
+    void setReleaseListener(Runnable releaseListener) {
+        this.releaseListener = releaseListener;
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.actuate;
+
+import java.util.List;
+
+import dev.snowdrop.boot.narayana.core.diagnostics.TransactionAuditLog;
+import org.springframework.boot.actuate.endpoint.OperationResponseBody;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@link Endpoint @Endpoint} exposing the most recent transaction events kept by a {@link TransactionAuditLog}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Endpoint(id = "narayanaaudit")
+public class NarayanaAuditEndpoint {
+
+    private final TransactionAuditLog auditLog;
+
+    public NarayanaAuditEndpoint(TransactionAuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @ReadOperation
+    public AuditDescriptor records() {
+        return new AuditDescriptor(this.auditLog.getCapacity(), this.auditLog.getRecordedCount(),
+                this.auditLog.getRecords());
+    }
+
+    /**
+     * Description of the audit trail.
+     */
+    public static final class AuditDescriptor implements OperationResponseBody {
+
+        private final int capacity;
+
+        private final long recorded;
+
+        private final List<TransactionAuditLog.AuditRecord> records;
+
+        AuditDescriptor(int capacity, long recorded, List<TransactionAuditLog.AuditRecord> records) {
+            this.capacity = capacity;
+            this.recorded = recorded;
+            this.records = records;
+        }
+
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        /**
+         * Get the number of events recorded since startup, including the ones which were overwritten.
+         *
+         * @return number of recorded events
+         */
+        public long getRecorded() {
+            return this.recorded;
+        }
+
+        public List<TransactionAuditLog.AuditRecord> getRecords() {
+            return this.records;
+        }
+    }
+}
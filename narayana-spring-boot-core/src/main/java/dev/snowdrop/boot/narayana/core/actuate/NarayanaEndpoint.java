@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.actuate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.transaction.xa.XAResource;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.SystemException;
+import jakarta.transaction.Transaction;
+
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import org.jboss.tm.XAResourceWrapper;
+import org.springframework.boot.actuate.endpoint.OperationResponseBody;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@link Endpoint @Endpoint} listing in-flight transactions together with their age, status and participants.
+ * <p>
+ * The listing is a snapshot of Narayana's map of active transactions, which is read without locking and without
+ * touching the object store. Transaction age is derived from the transaction reaper, i.e. from the transaction timeout
+ * and the time remaining until it expires. It is unknown for transactions without a timeout.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Endpoint(id = "narayana")
+public class NarayanaEndpoint {
+
+    @ReadOperation
+    public NarayanaDescriptor transactions() {
+        List<TransactionDescriptor> transactions = new ArrayList<>();
+        for (Transaction transaction : TransactionImple.getTransactions().values()) {
+            if (transaction instanceof TransactionImple transactionImple) {
+                transactions.add(describe(transactionImple));
+            }
+        }
+        transactions.sort(Comparator.comparing(TransactionDescriptor::getAgeMillis,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        Long oldestAgeMillis = transactions.isEmpty() ? null : transactions.get(0).getAgeMillis();
+        return new NarayanaDescriptor(oldestAgeMillis, transactions);
+    }
+
+    private TransactionDescriptor describe(TransactionImple transaction) {
+        List<String> participants = new ArrayList<>();
+        // Enlisted resources are kept in a Hashtable, toArray copies them while holding its lock
+        for (Object resource : transaction.getResources().keySet().toArray()) {
+            participants.add(participantName((XAResource) resource));
+        }
+        return new TransactionDescriptor(transaction.get_uid().stringForm(), ageMillis(transaction),
+                status(transaction), participants);
+    }
+
+    private Long ageMillis(TransactionImple transaction) {
+        int timeout = transaction.getTimeout();
+        if (timeout <= 0) {
+            return null;
+        }
+        long remainingMillis = transaction.getRemainingTimeoutMills();
+        if (remainingMillis == 0) {
+            // Transaction is no longer tracked by the reaper
+            return null;
+        }
+        return Math.max(0, timeout * 1000L - remainingMillis);
+    }
+
+    private String status(TransactionImple transaction) {
+        try {
+            return switch (transaction.getStatus()) {
+                case Status.STATUS_ACTIVE -> "ACTIVE";
+                case Status.STATUS_MARKED_ROLLBACK -> "MARKED_ROLLBACK";
+                case Status.STATUS_PREPARED -> "PREPARED";
+                case Status.STATUS_COMMITTED -> "COMMITTED";
+                case Status.STATUS_ROLLEDBACK -> "ROLLEDBACK";
+                case Status.STATUS_NO_TRANSACTION -> "NO_TRANSACTION";
+                case Status.STATUS_PREPARING -> "PREPARING";
+                case Status.STATUS_COMMITTING -> "COMMITTING";
+                case Status.STATUS_ROLLING_BACK -> "ROLLING_BACK";
+                default -> "UNKNOWN";
+            };
+        } catch (SystemException e) {
+            return "UNKNOWN";
+        }
+    }
+
+    private String participantName(XAResource xaResource) {
+        if (xaResource instanceof XAResourceWrapper xaResourceWrapper && xaResourceWrapper.getJndiName() != null) {
+            return xaResourceWrapper.getJndiName();
+        }
+        return xaResource.getClass().getName();
+    }
+
+    /**
+     * Description of in-flight transactions.
+     */
+    public static final class NarayanaDescriptor implements OperationResponseBody {
+
+        private final Long oldestAgeMillis;
+
+        private final List<TransactionDescriptor> transactions;
+
+        NarayanaDescriptor(Long oldestAgeMillis, List<TransactionDescriptor> transactions) {
+            this.oldestAgeMillis = oldestAgeMillis;
+            this.transactions = transactions;
+        }
+
+        public int getCount() {
+            return this.transactions.size();
+        }
+
+        public Long getOldestAgeMillis() {
+            return this.oldestAgeMillis;
+        }
+
+        public List<TransactionDescriptor> getTransactions() {
+            return this.transactions;
+        }
+    }
+
+    /**
+     * Description of an in-flight transaction.
+     */
+    public static final class TransactionDescriptor {
+
+        private final String uid;
+
+        private final Long ageMillis;
+
+        private final String status;
+
+        private final List<String> participants;
+
+        TransactionDescriptor(String uid, Long ageMillis, String status, List<String> participants) {
+            this.uid = uid;
+            this.ageMillis = ageMillis;
+            this.status = status;
+            this.participants = participants;
+        }
+
+        public String getUid() {
+            return this.uid;
+        }
+
+        public Long getAgeMillis() {
+            return this.ageMillis;
+        }
+
+        public String getStatus() {
+            return this.status;
+        }
+
+        public List<String> getParticipants() {
+            return this.participants;
+        }
+    }
+}
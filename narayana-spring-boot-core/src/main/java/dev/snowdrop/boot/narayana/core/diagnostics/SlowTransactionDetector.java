@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.diagnostics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import org.jboss.logging.Logger;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * {@link TransactionExecutionListener} flagging transactions which are still running after a warn threshold. Slow
+ * transactions are counted, and logged together with the stack of the thread which began them. Logging is rate
+ * limited, and the stack is only captured for transactions which are logged.
+ * <p>
+ * Begun transactions are placed on a single hashed timer wheel, which is advanced by one daemon thread. All
+ * transactions have the same threshold, so one rotation of the wheel covers it and no per-transaction task is
+ * scheduled. Completed transactions are not removed from the wheel, they are dropped once their slot is reached.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SlowTransactionDetector implements TransactionExecutionListener, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowTransactionDetector.class);
+
+    private static final int TICKS_PER_THRESHOLD = 64;
+
+    private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long MAX_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long warnThresholdNanos;
+
+    private final long logIntervalNanos;
+
+    private final long tickNanos;
+
+    private final long startNanos = System.nanoTime();
+
+    private final List<Queue<Entry>> wheel;
+
+    private final LongAdder slowTransactions = new LongAdder();
+
+    private long processedTicks;
+
+    private long nextLogNanos = this.startNanos;
+
+    private int suppressedLogs;
+
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Create a new {@link SlowTransactionDetector} instance.
+     *
+     * @param warnThreshold time after which a running transaction is flagged
+     * @param logInterval   minimum time between two logged slow transactions
+     */
+    public SlowTransactionDetector(Duration warnThreshold, Duration logInterval) {
+        if (warnThreshold.isNegative() || warnThreshold.isZero()) {
+            throw new IllegalArgumentException("Warn threshold must be positive, but was " + warnThreshold);
+        }
+        this.warnThresholdNanos = warnThreshold.toNanos();
+        this.logIntervalNanos = logInterval.toNanos();
+        this.tickNanos = Math.min(MAX_TICK_NANOS, Math.max(MIN_TICK_NANOS, this.warnThresholdNanos / TICKS_PER_THRESHOLD));
+        int slots = (int) ((this.warnThresholdNanos + this.tickNanos - 1) / this.tickNanos) + 1;
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            this.wheel.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Start advancing the timer wheel.
+     */
+    public synchronized void start() {
+        if (this.ticker != null) {
+            return;
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "narayana-slow-transaction-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::tick, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.ticker != null) {
+            this.ticker.shutdownNow();
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Get the number of transactions which ran past the warn threshold.
+     *
+     * @return number of slow transactions
+     */
+    public long getSlowTransactionCount() {
+        return this.slowTransactions.sum();
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            return;
+        }
+        TransactionImple transactionImple = TransactionImple.getTransaction();
+        if (transactionImple == null) {
+            return;
+        }
+        long deadlineNanos = System.nanoTime() + this.warnThresholdNanos;
+        long dueTick = (deadlineNanos - this.startNanos + this.tickNanos - 1) / this.tickNanos;
+        this.wheel.get((int) (dueTick % this.wheel.size())).add(new Entry(transactionImple, Thread.currentThread(),
+                transaction.getTransactionName(), deadlineNanos));
+    }
+
+    void tick() {
+        long now = System.nanoTime();
+        long currentTick = (now - this.startNanos) / this.tickNanos;
+        // A late ticker catches up, but never processes a slot twice in one go
+        long tick = Math.max(this.processedTicks, currentTick - this.wheel.size() + 1);
+        for (; tick <= currentTick; tick++) {
+            Iterator<Entry> entries = this.wheel.get((int) (tick % this.wheel.size())).iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.deadlineNanos - now > 0) {
+                    continue;
+                }
+                entries.remove();
+                if (entry.transaction.isAlive()) {
+                    report(entry, now);
+                }
+            }
+        }
+        this.processedTicks = currentTick + 1;
+    }
+
+    private void report(Entry entry, long now) {
+        this.slowTransactions.increment();
+        if (now - this.nextLogNanos < 0) {
+            this.suppressedLogs++;
+            return;
+        }
+        this.nextLogNanos = now + this.logIntervalNanos;
+        String message = String.format("Transaction %s%s has been running for more than %d ms on thread %s",
+                entry.transaction.get_uid().stringForm(), entry.name == null ? "" : " (" + entry.name + ")",
+                TimeUnit.NANOSECONDS.toMillis(this.warnThresholdNanos), entry.thread.getName());
+        if (this.suppressedLogs > 0) {
+            message += ", " + this.suppressedLogs + " other slow transactions were not logged";
+            this.suppressedLogs = 0;
+        }
+        LOGGER.warn(message, new ThreadStack(entry.thread.getStackTrace()));
+    }
+
+    private static final class Entry {
+
+        private final TransactionImple transaction;
+
+        private final Thread thread;
+
+        private final String name;
+
+        private final long deadlineNanos;
+
+        Entry(TransactionImple transaction, Thread thread, String name, long deadlineNanos) {
+            this.transaction = transaction;
+            this.thread = thread;
+            this.name = name;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Stack of the thread running a slow transaction, captured when it was flagged.
+     */
+    private static final class ThreadStack extends Throwable {
+
+        private static final long serialVersionUID = 1L;
+
+        ThreadStack(StackTraceElement[] stackTrace) {
+            super("Stack of the thread running the transaction", null, false, true);
+            setStackTrace(stackTrace);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.diagnostics;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.transaction.xa.Xid;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import com.arjuna.ats.jta.utils.XAHelper;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import org.jboss.logging.Logger;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * In-memory trail of the most recent transaction events: begin, commit and rollback of transactions demarcated through
+ * Spring, and the XA calls made through the named resource wrappers, i.e. enlistment, delistment, prepare votes, commit
+ * and rollback of each participant.
+ * <p>
+ * Events are kept in a ring buffer preallocated for a fixed number of events, so the oldest events are overwritten once
+ * it is full. Recording claims a slot with a single atomic increment and only stores primitives and references to
+ * objects which already exist, so it takes no lock and allocates nothing. Uids, Xids and failures are only formatted
+ * when the trail is read. A slot overwritten while it is being read is skipped, so the trail is a best-effort snapshot.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TransactionAuditLog implements TransactionExecutionListener, XAResourceListener, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionAuditLog.class);
+
+    private static final String TRANSACTION = "transaction";
+
+    private static final String XA_RESOURCE = "xa.resource";
+
+    private static final String BEGIN = "begin";
+
+    private static final String COMMIT = "commit";
+
+    private static final String ROLLBACK = "rollback";
+
+    private static final String[] XA_OPERATIONS = new String[XAOperation.values().length];
+
+    private static final long UNKNOWN_DURATION = -1;
+
+    static {
+        for (XAOperation operation : XAOperation.values()) {
+            XA_OPERATIONS[operation.ordinal()] = operation.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final int mask;
+
+    private final boolean dumpOnClose;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLongArray stamps;
+
+    private final long[] timestamps;
+
+    private final long[] durations;
+
+    private final String[] kinds;
+
+    private final String[] operations;
+
+    private final Object[] transactions;
+
+    private final String[] names;
+
+    private final String[] resources;
+
+    private final int[] votes;
+
+    private final Throwable[] failures;
+
+    private final ThreadLocal<Timings> timings = ThreadLocal.withInitial(Timings::new);
+
+    /**
+     * Create a new {@link TransactionAuditLog} instance.
+     *
+     * @param capacity    number of events to keep, rounded up to a power of two
+     * @param dumpOnClose whether to log the trail when closed, e.g. on shutdown
+     */
+    public TransactionAuditLog(int capacity, boolean dumpOnClose) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.dumpOnClose = dumpOnClose;
+        this.stamps = new AtomicLongArray(size);
+        this.timestamps = new long[size];
+        this.durations = new long[size];
+        this.kinds = new String[size];
+        this.operations = new String[size];
+        this.transactions = new Object[size];
+        this.names = new String[size];
+        this.resources = new String[size];
+        this.votes = new int[size];
+        this.failures = new Throwable[size];
+    }
+
+    /**
+     * Start receiving the XA calls made through the named resource wrappers.
+     */
+    public void start() {
+        XAResourceListeners.register(this);
+    }
+
+    @Override
+    public void close() {
+        XAResourceListeners.unregister(this);
+        if (this.dumpOnClose) {
+            dump();
+        }
+    }
+
+    /**
+     * Get the number of events the trail can hold.
+     *
+     * @return capacity of the ring buffer
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Get the number of events recorded since the trail was created, including overwritten ones.
+     *
+     * @return number of recorded events
+     */
+    public long getRecordedCount() {
+        return this.sequence.get();
+    }
+
+    /**
+     * Get a snapshot of the trail.
+     *
+     * @return retained events, oldest first
+     */
+    public List<AuditRecord> getRecords() {
+        long end = this.sequence.get();
+        long start = Math.max(0, end - this.mask - 1);
+        List<AuditRecord> records = new ArrayList<>((int) (end - start));
+        for (long current = start; current < end; current++) {
+            int slot = (int) (current & this.mask);
+            long stamp = this.stamps.get(slot);
+            if (stamp != current + 1) {
+                continue;
+            }
+            AuditRecord record = new AuditRecord(current, this.timestamps[slot], this.durations[slot],
+                    this.kinds[slot], this.operations[slot], this.transactions[slot], this.names[slot],
+                    this.resources[slot], this.votes[slot], this.failures[slot]);
+            VarHandle.loadLoadFence();
+            if (this.stamps.get(slot) == stamp) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Log the trail at INFO level.
+     */
+    public void dump() {
+        List<AuditRecord> records = getRecords();
+        StringBuilder message = new StringBuilder("Last ").append(records.size()).append(" transaction events:");
+        for (AuditRecord record : records) {
+            message.append(System.lineSeparator()).append(record);
+        }
+        LOGGER.info(message);
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        this.timings.get().push();
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        recordTransaction(BEGIN, transaction, beginFailure);
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        // Uid is read before completion disassociates the transaction from the thread
+        this.timings.get().push(currentUid());
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        recordTransaction(COMMIT, transaction, commitFailure);
+    }
+
+    @Override
+    public void beforeRollback(TransactionExecution transaction) {
+        this.timings.get().push(currentUid());
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        recordTransaction(ROLLBACK, transaction, rollbackFailure);
+    }
+
+    @Override
+    public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+            int vote, Throwable failure) {
+        if (operation != XAOperation.RECOVER) {
+            record(XA_RESOURCE, XA_OPERATIONS[operation.ordinal()], xid, null, resourceName, durationNanos, vote,
+                    failure);
+        }
+    }
+
+    private void recordTransaction(String operation, TransactionExecution transaction, Throwable failure) {
+        Timings threadTimings = this.timings.get();
+        long durationNanos = UNKNOWN_DURATION;
+        Uid uid = null;
+        // Nothing was pushed if the listener was applied while the operation was in progress
+        if (threadTimings.depth > 0) {
+            threadTimings.depth--;
+            if (threadTimings.depth < Timings.MAX_DEPTH) {
+                durationNanos = System.nanoTime() - threadTimings.starts[threadTimings.depth];
+                uid = threadTimings.uids[threadTimings.depth];
+                threadTimings.uids[threadTimings.depth] = null;
+            }
+        }
+        if (BEGIN.equals(operation)) {
+            uid = currentUid();
+        }
+        record(TRANSACTION, operation, uid, transaction.getTransactionName(), null, durationNanos, 0, failure);
+    }
+
+    private void record(String kind, String operation, Object transaction, String name, String resource,
+            long durationNanos, int vote, Throwable failure) {
+        long current = this.sequence.getAndIncrement();
+        int slot = (int) (current & this.mask);
+        this.stamps.set(slot, 0);
+        VarHandle.storeStoreFence();
+        this.timestamps[slot] = System.currentTimeMillis();
+        this.durations[slot] = durationNanos;
+        this.kinds[slot] = kind;
+        this.operations[slot] = operation;
+        this.transactions[slot] = transaction;
+        this.names[slot] = name;
+        this.resources[slot] = resource;
+        this.votes[slot] = vote;
+        this.failures[slot] = failure;
+        this.stamps.setRelease(slot, current + 1);
+    }
+
+    private static Uid currentUid() {
+        TransactionImple transaction = TransactionImple.getTransaction();
+        return transaction == null ? null : transaction.get_uid();
+    }
+
+    /**
+     * Event of the trail.
+     */
+    public static final class AuditRecord {
+
+        private final long sequence;
+
+        private final long timestamp;
+
+        private final long durationNanos;
+
+        private final String kind;
+
+        private final String operation;
+
+        private final Object transaction;
+
+        private final String name;
+
+        private final String resource;
+
+        private final int vote;
+
+        private final Throwable failure;
+
+        AuditRecord(long sequence, long timestamp, long durationNanos, String kind, String operation,
+                Object transaction, String name, String resource, int vote, Throwable failure) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.durationNanos = durationNanos;
+            this.kind = kind;
+            this.operation = operation;
+            this.transaction = transaction;
+            this.name = name;
+            this.resource = resource;
+            this.vote = vote;
+            this.failure = failure;
+        }
+
+        public long getSequence() {
+            return this.sequence;
+        }
+
+        public Instant getTimestamp() {
+            return Instant.ofEpochMilli(this.timestamp);
+        }
+
+        public Long getDurationNanos() {
+            return this.durationNanos == UNKNOWN_DURATION ? null : this.durationNanos;
+        }
+
+        /**
+         * Get what the event is about.
+         *
+         * @return {@code transaction} or {@code xa.resource}
+         */
+        public String getKind() {
+            return this.kind;
+        }
+
+        public String getOperation() {
+            return this.operation;
+        }
+
+        /**
+         * Get the transaction of the event.
+         *
+         * @return Uid of a transaction or Xid of a transaction branch, or {@code null} if unknown
+         */
+        public String getTransaction() {
+            if (this.transaction instanceof Uid uid) {
+                return uid.stringForm();
+            }
+            if (this.transaction instanceof Xid xid) {
+                return XAHelper.xidToString(xid);
+            }
+            return null;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getResource() {
+            return this.resource;
+        }
+
+        /**
+         * Get the outcome of the event.
+         *
+         * @return XA return code of an XA call, e.g. {@code XA_RDONLY} for a read-only prepare vote, outcome of a
+         * transaction, or class name of the failure
+         */
+        public String getOutcome() {
+            if (XA_RESOURCE.equals(this.kind)) {
+                return XAResourceListeners.outcome(this.vote, this.failure);
+            }
+            if (this.failure != null) {
+                return this.failure.getClass().getName();
+            }
+            return switch (this.operation) {
+                case BEGIN -> "begun";
+                case COMMIT -> "committed";
+                default -> "rolled back";
+            };
+        }
+
+        @Override
+        public String toString() {
+            Long duration = getDurationNanos();
+            return getTimestamp() + " " + this.kind + " " + this.operation + " " + getOutcome()
+                    + (this.resource == null ? "" : " resource=" + this.resource)
+                    + (this.name == null ? "" : " name=" + this.name)
+                    + " transaction=" + getTransaction()
+                    + (duration == null ? "" : " duration=" + duration / 1000 + "us");
+        }
+    }
+
+    /**
+     * Start times of the transaction operations in progress on a thread, reused across operations.
+     */
+    private static final class Timings {
+
+        private static final int MAX_DEPTH = 8;
+
+        private final long[] starts = new long[MAX_DEPTH];
+
+        private final Uid[] uids = new Uid[MAX_DEPTH];
+
+        private int depth;
+
+        void push() {
+            push(null);
+        }
+
+        void push(Uid uid) {
+            if (this.depth < MAX_DEPTH) {
+                this.starts[this.depth] = System.nanoTime();
+                this.uids[this.depth] = uid;
+            }
+            this.depth++;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.health;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.RecoveryStore;
+import com.arjuna.ats.arjuna.objectstore.StoreManager;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import org.jboss.logging.Logger;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+
+/**
+ * {@link HealthIndicator} reporting whether the object store directories are writable, how much space is left on the
+ * fullest of them, and how many in-doubt transactions wait for recovery in the object store. Transactions of every type derived from
+ * {@code BasicAction} are counted, participant records are not.
+ * <p>
+ * Checking the object store means scanning its directories or querying its database, so checks run on a background
+ * thread and probes get the result of the last check. A directory which is not created yet is checked through its
+ * closest existing parent, as Narayana creates it on the first write. Records kept in a database by a JDBC object
+ * store are checked by the query counting them only.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ObjectStoreHealthIndicator implements HealthIndicator, AutoCloseable {
+
+    static final String ATOMIC_ACTION_TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private static final String BASIC_ACTION_TYPE = "StateManager/BasicAction";
+
+    private static final Logger LOGGER = Logger.getLogger(ObjectStoreHealthIndicator.class);
+
+    private final List<Path> logDirs;
+
+    private final long minFreeBytes;
+
+    private final Duration refreshInterval;
+
+    private volatile Health health = Health.unknown().withDetail("reason", "Not checked yet").build();
+
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Create a new {@link ObjectStoreHealthIndicator} instance.
+     *
+     * @param logDirs         object store directories
+     * @param minFreeBytes    free space below which the object store is reported down
+     * @param refreshInterval delay between two checks
+     */
+    public ObjectStoreHealthIndicator(List<Path> logDirs, long minFreeBytes, Duration refreshInterval) {
+        this.logDirs = logDirs.stream().distinct().toList();
+        this.minFreeBytes = minFreeBytes;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Start checking the object store in the background.
+     */
+    public synchronized void start() {
+        if (this.refresher != null) {
+            return;
+        }
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "narayana-object-store-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(this::refresh, 0, this.refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.refresher != null) {
+            this.refresher.shutdownNow();
+            this.refresher = null;
+        }
+    }
+
+    @Override
+    public Health health() {
+        return this.health;
+    }
+
+    void refresh() {
+        try {
+            this.health = check();
+        } catch (Exception e) {
+            LOGGER.debug("Object store health check failed", e);
+            this.health = Health.down(e).build();
+        }
+    }
+
+    private Health check() throws IOException, ObjectStoreException {
+        boolean writable = true;
+        long freeBytes = Long.MAX_VALUE;
+        for (Path logDir : this.logDirs) {
+            Path existing = logDir.toAbsolutePath();
+            while (!Files.isDirectory(existing) && existing.getParent() != null) {
+                existing = existing.getParent();
+            }
+            writable &= Files.isWritable(existing);
+            freeBytes = Math.min(freeBytes, Files.getFileStore(existing).getUsableSpace());
+        }
+        Health.Builder builder = writable && freeBytes >= this.minFreeBytes ? Health.up() : Health.down();
+        return builder.withDetail("logDirs", this.logDirs.stream().map(Path::toString).toList())
+                .withDetail("writable", writable)
+                .withDetail("free", freeBytes)
+                .withDetail("threshold", this.minFreeBytes)
+                .withDetail("inDoubtTransactions", countInDoubtTransactions())
+                .build();
+    }
+
+    private int countInDoubtTransactions() throws IOException, ObjectStoreException {
+        RecoveryStore recoveryStore = StoreManager.getRecoveryStore();
+        InputObjectState types = new InputObjectState();
+        if (!recoveryStore.allTypes(types)) {
+            throw new ObjectStoreException("Failed to list record types");
+        }
+        int count = 0;
+        // Stores that have not been written to yet return an empty buffer
+        if (!types.notempty()) {
+            return count;
+        }
+        for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+            // File system stores list types without the leading separator
+            String name = type.startsWith("/") ? type.substring(1) : type;
+            if (name.equals(BASIC_ACTION_TYPE) || name.startsWith(BASIC_ACTION_TYPE + "/")) {
+                count += countRecords(recoveryStore, type);
+            }
+        }
+        return count;
+    }
+
+    private int countRecords(RecoveryStore recoveryStore, String type) throws IOException, ObjectStoreException {
+        InputObjectState uids = new InputObjectState();
+        if (!recoveryStore.allObjUids(type, uids)) {
+            throw new ObjectStoreException("Failed to list " + type + " records");
+        }
+        int count = 0;
+        for (Uid uid = UidHelper.unpackFrom(uids); uid.notEquals(Uid.nullUid()); uid = UidHelper.unpackFrom(uids)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.health;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import com.arjuna.ats.arjuna.recovery.RecoveryManager;
+import com.arjuna.ats.arjuna.recovery.RecoveryModule;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+
+/**
+ * {@link HealthIndicator} reporting whether periodic recovery is making progress.
+ * <p>
+ * Narayana has no callback for recovery passes, so the indicator registers itself as the last recovery module and
+ * notes when its second pass runs, i.e. when a recovery pass finishes. The recovery manager is reported down once no
+ * pass has finished for longer than the stall threshold, e.g. because it has been stopped or a recovery module hangs.
+ * Health is computed from the noted time only, so probes never wait for recovery or touch the object store.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class RecoveryHealthIndicator implements HealthIndicator, RecoveryModule, AutoCloseable {
+
+    private final long stallThresholdMillis;
+
+    private volatile long startedMillis;
+
+    private volatile long lastPassMillis;
+
+    private volatile long passes;
+
+    private RecoveryManager recoveryManager;
+
+    /**
+     * Create a new {@link RecoveryHealthIndicator} instance.
+     *
+     * @param stallThreshold time without a finished recovery pass after which recovery is reported down
+     */
+    public RecoveryHealthIndicator(Duration stallThreshold) {
+        this.stallThresholdMillis = stallThreshold.toMillis();
+    }
+
+    /**
+     * Register with the recovery manager, which has to be initialized already.
+     */
+    public synchronized void start() {
+        if (this.recoveryManager == null) {
+            this.startedMillis = System.currentTimeMillis();
+            this.recoveryManager = RecoveryManager.manager();
+            this.recoveryManager.addModule(this);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.recoveryManager != null) {
+            try {
+                this.recoveryManager.removeModule(this, false);
+            } catch (IllegalStateException e) {
+                // Recovery manager has already been terminated
+            }
+            this.recoveryManager = null;
+        }
+    }
+
+    @Override
+    public Health health() {
+        long started = this.startedMillis;
+        if (started == 0) {
+            return Health.unknown().withDetail("reason", "Not registered with the recovery manager").build();
+        }
+        long lastPass = this.lastPassMillis;
+        long sincePass = System.currentTimeMillis() - (lastPass == 0 ? started : lastPass);
+        Health.Builder builder = sincePass > this.stallThresholdMillis ? Health.down() : Health.up();
+        if (lastPass != 0) {
+            builder.withDetail("lastPassFinished", Instant.ofEpochMilli(lastPass));
+        }
+        return builder.withDetail("passes", this.passes)
+                .withDetail("stallThreshold", Duration.ofMillis(this.stallThresholdMillis).toString())
+                .build();
+    }
+
+    @Override
+    public void periodicWorkFirstPass() {
+    }
+
+    @Override
+    public void periodicWorkSecondPass() {
+        // Only the periodic recovery thread writes, so the increment does not need to be atomic
+        this.passes++;
+        this.lastPassMillis = System.currentTimeMillis();
+    }
+}
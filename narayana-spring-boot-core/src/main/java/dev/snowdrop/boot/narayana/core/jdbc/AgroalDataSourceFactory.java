@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.XADataSource;
+
+import com.arjuna.ats.jta.common.jtaPropertyManager;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.AgroalDataSourceListener;
+import io.agroal.api.configuration.AgroalConnectionPoolConfiguration.ConnectionValidator;
+import io.agroal.api.configuration.supplier.AgroalDataSourceConfigurationSupplier;
+import io.agroal.narayana.NarayanaTransactionIntegration;
+import org.jboss.logging.Logger;
+
+/**
+ * Creates Agroal pools for {@link XADataSource}s. Connections are enlisted with the Narayana transaction manager,
+ * while recovery stays with the helper registered by {@link GenericXADataSourceWrapper}. Kept apart from the wrapper so
+ * that Agroal is only loaded when the Agroal pool type is configured.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class AgroalDataSourceFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(AgroalDataSourceFactory.class);
+
+    private AgroalDataSourceFactory() {
+    }
+
+    /**
+     * Create a new Agroal pool.
+     *
+     * @param xaDataSource                  data source to pool connections of
+     * @param transactionalDriverProperties transactional driver properties with the pool configuration
+     * @return started pool
+     * @throws SQLException in case the pool could not be created
+     */
+    static AgroalDataSource create(XADataSource xaDataSource, TransactionalDriverProperties transactionalDriverProperties)
+            throws SQLException {
+        String name = transactionalDriverProperties.getName();
+        // Agroal creates its XA data sources eagerly, the registration is not needed once the pool exists
+        String key = ProvidedXADataSource.register(xaDataSource, name);
+        try {
+            return AgroalDataSource.from(getConfiguration(key, name, transactionalDriverProperties.getPool()),
+                    new LoggingListener(name));
+        } finally {
+            ProvidedXADataSource.unregister(key);
+        }
+    }
+
+    private static AgroalDataSourceConfigurationSupplier getConfiguration(String key, String name,
+            TransactionalDriverProperties.Pool pool) {
+        NarayanaTransactionIntegration transactionIntegration = new NarayanaTransactionIntegration(
+                com.arjuna.ats.jta.TransactionManager.transactionManager(),
+                jtaPropertyManager.getJTAEnvironmentBean().getTransactionSynchronizationRegistry(), name, false);
+        boolean validate = pool.isValidateOnBorrow() || isPositive(pool.getValidationTimeout());
+        return new AgroalDataSourceConfigurationSupplier()
+                .metricsEnabled(true)
+                .connectionPoolConfiguration(poolConfiguration -> poolConfiguration
+                        .minSize(pool.getMinIdle())
+                        .maxSize(pool.getMaxConnections())
+                        .acquisitionTimeout(pool.getAcquisitionTimeout())
+                        .validateOnBorrow(pool.isValidateOnBorrow())
+                        .validationTimeout(pool.getValidationTimeout())
+                        .connectionValidator(validate ? ConnectionValidator.defaultValidator()
+                                : ConnectionValidator.emptyValidator())
+                        .leakTimeout(pool.getLeakTimeout())
+                        .transactionIntegration(transactionIntegration)
+                        .connectionFactoryConfiguration(connectionFactoryConfiguration -> connectionFactoryConfiguration
+                                .connectionProviderClass(ProvidedXADataSource.class)
+                                .xaProperty("key", key)));
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return duration != null && !duration.isZero() && !duration.isNegative();
+    }
+
+    private static class LoggingListener implements AgroalDataSourceListener {
+
+        private final String name;
+
+        LoggingListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onConnectionLeak(Connection connection, Thread thread) {
+            LOGGER.warnf("Connection of %s data source pool was held by thread %s longer than the leak timeout",
+                    this.name, thread == null ? "unknown" : thread.getName());
+        }
+
+        @Override
+        public void onWarning(String message) {
+            LOGGER.warnf("%s data source pool: %s", this.name, message);
+        }
+
+        @Override
+        public void onWarning(Throwable throwable) {
+            LOGGER.warnf(throwable, "%s data source pool warning", this.name);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
+import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import com.arjuna.ats.internal.jdbc.ConnectionTransactions;
+
+/**
+ * Bounds the number of pooled connections a {@link NarayanaDataSource} has in use at once.
+ * <p>
+ * {@link ConnectionManager} counts pooled connections of all data sources against a single limit, and when it is reached
+ * parks callers on a global monitor without a timeout, waking an arbitrary waiter on release. This limiter replaces
+ * that limit with one per data source: waiters are served in arrival order and give up with a
+ * {@link SQLTransientConnectionException} after the acquisition timeout. A permit is held from the moment a connection
+ * is handed out until its last handle is closed, so a connection shared by calls made in the same transaction only
+ * takes one.
+ * <p>
+ * Connections handed out are tracked weakly, so that the ones {@link ConnectionManager} drops from its pool are
+ * forgotten once they are garbage collected.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConnectionPoolLimiter {
+
+    private final String name;
+
+    private final int maxConnections;
+
+    private final Duration acquisitionTimeout;
+
+    private final Semaphore permits;
+
+    private final Set<ConnectionImple> activeConnections = ConcurrentHashMap.newKeySet();
+
+    private final Map<ConnectionImple, Boolean> connections = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder waitTimeNanos = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Create a new {@link ConnectionPoolLimiter} instance.
+     *
+     * @param name               data source name used in error messages
+     * @param maxConnections     maximum number of connections in use at once
+     * @param acquisitionTimeout how long to wait for a connection, zero or negative to wait indefinitely
+     */
+    public ConnectionPoolLimiter(String name, int maxConnections, Duration acquisitionTimeout) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+        this.acquisitionTimeout = acquisitionTimeout;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Wait for a connection to become available.
+     *
+     * @throws SQLTransientConnectionException if none became available within the acquisition timeout
+     * @throws SQLException                    if the waiting thread was interrupted
+     */
+    public void acquire() throws SQLException {
+        long start = System.nanoTime();
+        this.pending.incrementAndGet();
+        boolean acquired;
+        try {
+            if (this.acquisitionTimeout == null || this.acquisitionTimeout.isZero() || this.acquisitionTimeout.isNegative()) {
+                this.permits.acquire();
+                acquired = true;
+            } else {
+                acquired = this.permits.tryAcquire(this.acquisitionTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection of data source " + this.name, e);
+        } finally {
+            this.pending.decrementAndGet();
+            this.waitTimeNanos.add(System.nanoTime() - start);
+            this.acquisitions.increment();
+        }
+        if (!acquired) {
+            this.timeouts.increment();
+            throw new SQLTransientConnectionException(String.format(
+                    "Timed out after %d ms waiting for a connection of data source %s: %d of %d connections are in use "
+                            + "and %d threads are waiting", this.acquisitionTimeout.toMillis(), this.name, getActive(),
+                    this.maxConnections, getPending()));
+        }
+    }
+
+    /**
+     * Track the connection handed out for an acquired permit. If the connection was already in use, e.g. shared within
+     * a transaction, the permit is given back straight away.
+     *
+     * @param connection connection returned by {@link ConnectionManager}
+     */
+    public void acquired(ConnectionImple connection) {
+        // Remember whether the release of each connection can be observed, the ones which cannot must not hold a permit
+        boolean observed = this.connections.computeIfAbsent(connection,
+                c -> ConnectionTransactions.setReleaseListener(c, () -> released(c)));
+        if (!observed || !this.activeConnections.add(connection)) {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Give back a permit which did not result in a connection, e.g. because the connection could not be opened.
+     */
+    public void release() {
+        this.permits.release();
+    }
+
+    public int getMaxConnections() {
+        return this.maxConnections;
+    }
+
+    public int getActive() {
+        return this.maxConnections - this.permits.availablePermits();
+    }
+
+    public int getIdle() {
+        return Math.max(0, this.connections.size() - this.activeConnections.size());
+    }
+
+    public int getPending() {
+        return this.pending.get();
+    }
+
+    public long getAcquisitions() {
+        return this.acquisitions.sum();
+    }
+
+    public Duration getWaitTime() {
+        return Duration.ofNanos(this.waitTimeNanos.sum());
+    }
+
+    public long getTimeouts() {
+        return this.timeouts.sum();
+    }
+
+    private void released(ConnectionImple connection) {
+        if (this.activeConnections.remove(connection)) {
+            this.permits.release();
+        }
+    }
+}
@@ -16,27 +16,22 @@
 
 package dev.snowdrop.boot.narayana.core.jdbc;
 
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
-
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
 
-import com.arjuna.ats.internal.jdbc.drivers.modifiers.IsSameRMModifier;
-import com.arjuna.ats.internal.jdbc.drivers.modifiers.ModifierFactory;
-import com.arjuna.ats.internal.jdbc.drivers.modifiers.SupportsMultipleConnectionsModifier;
 import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
 import com.arjuna.ats.jta.recovery.XAResourceRecoveryHelper;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
 import dev.snowdrop.boot.narayana.core.properties.RecoveryCredentialsProperties;
 import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
 import org.springframework.boot.jdbc.DatabaseDriver;
 import org.springframework.boot.jdbc.XADataSourceWrapper;
-import org.springframework.jdbc.support.JdbcUtils;
 
 /**
  * An {@link XADataSourceWrapper} implementation which handles {@link XAResourceRecoveryHelper} creation and
- * registration. It delegates the actual {@link XADataSource} wrapping to its subclass {@link NarayanaDataSource}.
+ * registration. It delegates the actual {@link XADataSource} wrapping to its subclass {@link NarayanaDataSource}, or to
+ * an Agroal pool when the {@link TransactionalDriverProperties.Pool.Type#AGROAL} pool type is enabled. Pools with
+ * pre-warming enabled get their idle connections opened in the background by a {@link PoolPrewarmer}.
  *
  * @author <a href="mailto:gytis@redhat.com">Gytis Trikleris</a>
  */
@@ -45,6 +40,7 @@ public class GenericXADataSourceWrapper implements XADataSourceWrapper {
     private final XARecoveryModule xaRecoveryModule;
     private final TransactionalDriverProperties transactionalDriverProperties;
     private final RecoveryCredentialsProperties recoveryCredentials;
+    private final PoolPrewarmer poolPrewarmer;
 
     /**
      * Create a new {@link GenericXADataSourceWrapper} instance.
@@ -84,9 +80,23 @@ public class GenericXADataSourceWrapper implements XADataSourceWrapper {
      */
     public GenericXADataSourceWrapper(XARecoveryModule xaRecoveryModule, TransactionalDriverProperties transactionalDriverProperties,
                                       RecoveryCredentialsProperties recoveryCredentials) {
+        this(xaRecoveryModule, transactionalDriverProperties, recoveryCredentials, new PoolPrewarmer());
+    }
+
+    /**
+     * Create a new {@link GenericXADataSourceWrapper} instance.
+     *
+     * @param xaRecoveryModule              recovery module to register data source with.
+     * @param transactionalDriverProperties Transactional driver properties
+     * @param recoveryCredentials           credentials for recovery helper
+     * @param poolPrewarmer                 pre-warmer opening idle pool connections
+     */
+    public GenericXADataSourceWrapper(XARecoveryModule xaRecoveryModule, TransactionalDriverProperties transactionalDriverProperties,
+                                      RecoveryCredentialsProperties recoveryCredentials, PoolPrewarmer poolPrewarmer) {
         this.xaRecoveryModule = xaRecoveryModule;
         this.transactionalDriverProperties = transactionalDriverProperties;
         this.recoveryCredentials = recoveryCredentials;
+        this.poolPrewarmer = poolPrewarmer;
     }
 
     /**
@@ -98,10 +108,35 @@ public class GenericXADataSourceWrapper implements XADataSourceWrapper {
      */
     @Override
     public DataSource wrapDataSource(XADataSource dataSource) throws Exception {
+        return wrapDataSource(dataSource, this.transactionalDriverProperties.getDatabaseProduct());
+    }
+
+    /**
+     * Register newly created recovery helper with the {@link XARecoveryModule} and delegate data source wrapping. The
+     * connection modifier is picked for the given database product rather than for the one reported by the driver.
+     * Agroal pools do not use connection modifiers.
+     *
+     * @param dataSource      {@link XADataSource} that needs to be wrapped.
+     * @param databaseProduct database product of the data source, or {@code null} to detect it
+     * @return wrapped data source
+     * @throws Exception in case data source wrapping has failed
+     */
+    public DataSource wrapDataSource(XADataSource dataSource, DatabaseDriver databaseProduct) throws Exception {
         XAResourceRecoveryHelper recoveryHelper = getRecoveryHelper(dataSource);
         this.xaRecoveryModule.addXAResourceRecoveryHelper(recoveryHelper);
-        registerModifier(dataSource);
-        return new NarayanaDataSource(dataSource, this.transactionalDriverProperties);
+        TransactionalDriverProperties.Pool pool = this.transactionalDriverProperties.getPool();
+        DataSource wrappedDataSource;
+        if (pool.isEnabled() && pool.getType() == TransactionalDriverProperties.Pool.Type.AGROAL) {
+            wrappedDataSource = AgroalDataSourceFactory.create(dataSource, this.transactionalDriverProperties);
+        } else {
+            wrappedDataSource = new NarayanaDataSource(dataSource, this.transactionalDriverProperties, databaseProduct);
+        }
+        if (pool.isEnabled() && pool.isPrewarm() && pool.getMinIdle() > 0) {
+            // Connections are held until all of them are open, so more than the pool maximum would never complete
+            this.poolPrewarmer.prewarm(this.transactionalDriverProperties.getName(),
+                    Math.min(pool.getMinIdle(), pool.getMaxConnections()), wrappedDataSource::getConnection);
+        }
+        return wrappedDataSource;
     }
 
     private XAResourceRecoveryHelper getRecoveryHelper(XADataSource dataSource) {
@@ -111,23 +146,4 @@ public class GenericXADataSourceWrapper implements XADataSourceWrapper {
         }
         return new DataSourceXAResourceRecoveryHelper(dataSource, this.transactionalDriverProperties.getName());
     }
-
-    private void registerModifier(XADataSource dataSource) throws SQLException {
-        try (Connection conn = dataSource.getXAConnection().getConnection()) {
-            DatabaseMetaData metaData = conn.getMetaData();
-            String driver = metaData.getDriverName();
-            int major = metaData.getDriverMajorVersion();
-            int minor = metaData.getDriverMinorVersion();
-            switch (this.transactionalDriverProperties.getModifier()) {
-                case DEFAULT -> {
-                    switch (DatabaseDriver.fromProductName(JdbcUtils.commonDatabaseName(metaData.getDatabaseProductName()))) {
-                        case DB2, H2, MYSQL, ORACLE, SQLSERVER -> ModifierFactory.putModifier(driver, major, minor, IsSameRMModifier.class.getName());
-                        case POSTGRESQL -> ModifierFactory.putModifier(driver, major, minor, SupportsMultipleConnectionsModifier.class.getName());
-                    }
-                }
-                case IS_SAME_RM -> ModifierFactory.putModifier(driver, major, minor, IsSameRMModifier.class.getName());
-                case SUPPORTS_MULTIPLE_CONNECTIONS -> ModifierFactory.putModifier(driver, major, minor, SupportsMultipleConnectionsModifier.class.getName());
-            }
-        }
-    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+/**
+ * Creates the HikariCP pool dedicated to the JDBC object store. Kept apart from {@link ObjectStoreDataSource} so that
+ * HikariCP is only loaded when the dedicated pool is enabled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class HikariDataSourceFactory {
+
+    private HikariDataSourceFactory() {
+    }
+
+    /**
+     * Create a new HikariCP pool connecting the same way as the given data source.
+     *
+     * @param dataSource     data source to derive the connection settings from
+     * @param poolName       name of the pool
+     * @param maxConnections maximum and minimum number of connections of the pool
+     * @return pool, which is {@link java.io.Closeable}
+     */
+    static DataSource create(DataSource dataSource, String poolName, int maxConnections) {
+        HikariDataSource hikariDataSource = DataSourceBuilder.derivedFrom(dataSource)
+                .type(HikariDataSource.class)
+                .build();
+        hikariDataSource.setPoolName(poolName);
+        hikariDataSource.setMaximumPoolSize(maxConnections);
+        hikariDataSource.setMinimumIdle(maxConnections);
+        return hikariDataSource;
+    }
+}
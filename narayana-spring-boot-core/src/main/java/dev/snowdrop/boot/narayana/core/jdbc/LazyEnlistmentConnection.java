@@ -0,0 +1,383 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import jakarta.transaction.SystemException;
+import jakarta.transaction.Transaction;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
+import com.arjuna.ats.internal.jdbc.ConnectionTransactions;
+import com.arjuna.ats.jta.TransactionManager;
+
+/**
+ * Connection handle enlisting its transactional driver connection in the current transaction only when one of its
+ * statements is first executed. {@link ConnectionImple} enlists as soon as a statement is created, and also when
+ * metadata such as the catalog or validity is read, so a connection that is obtained but never used to execute SQL
+ * would otherwise take part in the two-phase commit.
+ * <p>
+ * Statements are created on the physical connection and returned wrapped in a {@link LazyEnlistmentStatement}
+ * that enlists before any {@code execute} method. Methods through which {@link ConnectionImple} would enlist, such as
+ * the catalog and validity checks, go to the physical connection too, as do the schema and network timeout, which
+ * {@link ConnectionImple} rejects. Everything else is delegated to the transactional driver connection.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LazyEnlistmentConnection implements Connection {
+
+    private final ConnectionImple delegate;
+
+    private Transaction enlistedTransaction;
+
+    LazyEnlistmentConnection(ConnectionImple delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return new LazyEnlistmentStatement(this, physical().createStatement());
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new LazyEnlistmentStatement(this, physical().createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+            throws SQLException {
+        return new LazyEnlistmentStatement(this,
+                physical().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this, physical().prepareStatement(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+            throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this,
+                physical().prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this,
+                physical().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this, physical().prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this, physical().prepareStatement(sql, columnIndexes));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new LazyEnlistmentPreparedStatement(this, physical().prepareStatement(sql, columnNames));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return new LazyEnlistmentCallableStatement(this, physical().prepareCall(sql));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new LazyEnlistmentCallableStatement(this,
+                physical().prepareCall(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+        return new LazyEnlistmentCallableStatement(this,
+                physical().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return physical().nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        this.delegate.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return this.delegate.getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        this.delegate.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        this.delegate.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        this.delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return this.delegate.isClosed();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return this.delegate.getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        this.delegate.setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return this.delegate.isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        physical().setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return physical().getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        this.delegate.setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return this.delegate.getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return this.delegate.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        this.delegate.clearWarnings();
+    }
+
+    // ConnectionImple declares a raw Map
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return this.delegate.getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        this.delegate.setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        physical().setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return this.delegate.getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return this.delegate.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return this.delegate.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        this.delegate.rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        this.delegate.releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return physical().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return physical().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return physical().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return physical().createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return physical().isValid(timeout);
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        this.delegate.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        this.delegate.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return this.delegate.getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return this.delegate.getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return physical().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return physical().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        physical().setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return physical().getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        this.delegate.abort(executor);
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        physical().setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return physical().getNetworkTimeout();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface != null && iface.isInstance(this)) {
+            return (T) this;
+        }
+        return this.delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        if (iface != null && iface.isInstance(this)) {
+            return true;
+        }
+        return this.delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return this.delegate.toString();
+    }
+
+    private Connection physical() throws SQLException {
+        return ConnectionTransactions.getPhysicalConnection(this.delegate);
+    }
+
+    /**
+     * Enlist the connection unless this handle has already done so in the current transaction, which is the case for
+     * every execution after the first one. The connection is associated with the transaction as soon as it is handed
+     * out, so the association does not tell whether it has been enlisted. Enlisting again through another handle of
+     * the same connection is a no-op.
+     */
+    void enlist() throws SQLException {
+        Transaction transaction;
+        try {
+            transaction = TransactionManager.transactionManager().getTransaction();
+        } catch (SystemException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        if (transaction != null && !transaction.equals(this.enlistedTransaction)) {
+            ConnectionTransactions.enlist(this.delegate);
+            this.enlistedTransaction = transaction;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import javax.sql.ConnectionEventListener;
+import javax.sql.StatementEventListener;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.IsSameRMModifier;
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.ModifierFactory;
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.SupportsMultipleConnectionsModifier;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * {@link XADataSource} wrapper registering the Narayana connection modifier of its JDBC driver with
+ * {@link ModifierFactory}. The modifier is decided from the metadata of the first connection opened through the
+ * transactional driver, before the driver looks the modifier up, so no connection is opened only to detect it.
+ * <p>
+ * Decisions are cached per driver name and version, so data sources sharing a driver register its modifier once.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class ModifierDetectingXADataSource implements XADataSource {
+
+    private static final ConcurrentMap<String, String> REGISTERED_MODIFIERS = new ConcurrentHashMap<>();
+
+    private final XADataSource delegate;
+    private final TransactionalDriverProperties.Modifier modifier;
+    private final DatabaseDriver databaseProduct;
+    private volatile boolean detected;
+
+    /**
+     * Create a new {@link ModifierDetectingXADataSource} instance.
+     *
+     * @param delegate        XA data source to open connections with
+     * @param modifier        modifier to register, or {@link TransactionalDriverProperties.Modifier#DEFAULT} to pick
+     *                        one for the database product
+     * @param databaseProduct database product, or {@code null} to read it from the connection metadata
+     */
+    ModifierDetectingXADataSource(XADataSource delegate, TransactionalDriverProperties.Modifier modifier,
+            DatabaseDriver databaseProduct) {
+        this.delegate = delegate;
+        this.modifier = modifier;
+        this.databaseProduct = databaseProduct;
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException {
+        return detecting(this.delegate.getXAConnection());
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException {
+        return detecting(this.delegate.getXAConnection(user, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.delegate.getParentLogger();
+    }
+
+    private XAConnection detecting(XAConnection xaConnection) {
+        if (this.detected || xaConnection == null) {
+            return xaConnection;
+        }
+        return new DetectingXAConnection(xaConnection);
+    }
+
+    private void register(DatabaseMetaData metaData) throws SQLException {
+        String modifierClass = switch (this.modifier) {
+            case DEFAULT -> switch (getDatabaseProduct(metaData)) {
+                case DB2, H2, MYSQL, ORACLE, SQLSERVER -> IsSameRMModifier.class.getName();
+                case POSTGRESQL -> SupportsMultipleConnectionsModifier.class.getName();
+                default -> null;
+            };
+            case IS_SAME_RM -> IsSameRMModifier.class.getName();
+            case SUPPORTS_MULTIPLE_CONNECTIONS -> SupportsMultipleConnectionsModifier.class.getName();
+        };
+        if (modifierClass != null) {
+            String driver = metaData.getDriverName();
+            int major = metaData.getDriverMajorVersion();
+            int minor = metaData.getDriverMinorVersion();
+            // ModifierFactory instantiates the modifier on every registration
+            REGISTERED_MODIFIERS.compute(driver + "_" + major + "_" + minor, (key, registered) -> {
+                if (!modifierClass.equals(registered)) {
+                    ModifierFactory.putModifier(driver, major, minor, modifierClass);
+                }
+                return modifierClass;
+            });
+        }
+        this.detected = true;
+    }
+
+    private DatabaseDriver getDatabaseProduct(DatabaseMetaData metaData) throws SQLException {
+        if (this.databaseProduct != null) {
+            return this.databaseProduct;
+        }
+        return DatabaseDriver.fromProductName(JdbcUtils.commonDatabaseName(metaData.getDatabaseProductName()));
+    }
+
+    private final class DetectingXAConnection implements XAConnection {
+
+        private final XAConnection delegate;
+
+        DetectingXAConnection(XAConnection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = this.delegate.getConnection();
+            if (!ModifierDetectingXADataSource.this.detected) {
+                try {
+                    register(connection.getMetaData());
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        connection.close();
+                    } catch (SQLException closeException) {
+                        e.addSuppressed(closeException);
+                    }
+                    throw e;
+                }
+            }
+            return connection;
+        }
+
+        @Override
+        public XAResource getXAResource() throws SQLException {
+            return this.delegate.getXAResource();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            this.delegate.close();
+        }
+
+        @Override
+        public void addConnectionEventListener(ConnectionEventListener listener) {
+            this.delegate.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public void removeConnectionEventListener(ConnectionEventListener listener) {
+            this.delegate.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public void addStatementEventListener(StatementEventListener listener) {
+            this.delegate.addStatementEventListener(listener);
+        }
+
+        @Override
+        public void removeStatementEventListener(StatementEventListener listener) {
+            this.delegate.removeStatementEventListener(listener);
+        }
+    }
+}
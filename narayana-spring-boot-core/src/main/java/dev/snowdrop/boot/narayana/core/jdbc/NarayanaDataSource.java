@@ -21,25 +21,43 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
 
+import jakarta.transaction.SystemException;
+import jakarta.transaction.Transaction;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
 import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import com.arjuna.ats.internal.jdbc.ConnectionTransactions;
 import com.arjuna.ats.jdbc.TransactionalDriver;
 import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
 
 /**
  * {@link DataSource} implementation wrapping {@link XADataSource} and using
- * {@link ConnectionManager} to acquire connections.
+ * {@link ConnectionManager} to acquire connections. The connection modifier of the JDBC driver is registered when the
+ * first connection is opened. With lazy enlistment, connections are enlisted in the current transaction only when a
+ * statement is first executed, but they are associated with it, and shared by its later requests, as soon as they are
+ * handed out.
  *
  * @author <a href="mailto:gytis@redhat.com">Gytis Trikleris</a>
  */
 public class NarayanaDataSource implements DataSource {
 
+    private static final int MAX_CACHED_CREDENTIALS = 16;
+
     private final XADataSource xaDataSource;
+    private final XADataSource modifierDetectingXaDataSource;
     private final TransactionalDriverProperties transactionalDriverProperties;
+    private final ConcurrentMap<String, Properties> credentialsProperties = new ConcurrentHashMap<>();
+    private final TransactionalConnectionRegistry connectionRegistry = new TransactionalConnectionRegistry();
+    private volatile Properties properties;
+    private volatile ConnectionPoolLimiter poolLimiter;
 
     /**
      * Create a new {@link NarayanaDataSource} instance.
@@ -48,29 +66,153 @@ public class NarayanaDataSource implements DataSource {
      * @param transactionalDriverProperties   Transactional driver pool properties
      */
     public NarayanaDataSource(XADataSource xaDataSource, TransactionalDriverProperties transactionalDriverProperties) {
+        this(xaDataSource, transactionalDriverProperties, transactionalDriverProperties.getDatabaseProduct());
+    }
+
+    /**
+     * Create a new {@link NarayanaDataSource} instance.
+     *
+     * @param xaDataSource                    the XA DataSource
+     * @param transactionalDriverProperties   Transactional driver pool properties
+     * @param databaseProduct                 database product used to pick a connection modifier, or {@code null}
+     *                                        to read it from the metadata of the first connection
+     */
+    public NarayanaDataSource(XADataSource xaDataSource, TransactionalDriverProperties transactionalDriverProperties,
+            DatabaseDriver databaseProduct) {
         this.xaDataSource = xaDataSource;
+        this.modifierDetectingXaDataSource = new ModifierDetectingXADataSource(xaDataSource,
+                transactionalDriverProperties.getModifier(), databaseProduct);
         this.transactionalDriverProperties = transactionalDriverProperties;
     }
 
     private Properties createProperties() {
         Properties properties = new Properties();
-        properties.put(TransactionalDriver.XADataSource, this.xaDataSource);
+        properties.put(TransactionalDriver.XADataSource, this.modifierDetectingXaDataSource);
         properties.put(TransactionalDriver.poolConnections, String.valueOf(this.transactionalDriverProperties.getPool().isEnabled()));
-        properties.put(TransactionalDriver.maxConnections, this.transactionalDriverProperties.getPool().getMaxConnections());
+        // The pool limiter bounds connections per data source and times out, ConnectionManager would wait on a global
+        // limit indefinitely. It reads the limit with getProperty, which ignores non-string values.
+        properties.put(TransactionalDriver.maxConnections, String.valueOf(Integer.MAX_VALUE));
+        return properties;
+    }
+
+    private Properties createProperties(String username, String password) {
+        Properties properties = createProperties();
+        properties.put(TransactionalDriver.userName, username);
+        properties.put(TransactionalDriver.password, password);
+        return properties;
+    }
+
+    /**
+     * Connection properties are only read by {@link ConnectionManager}, so they are created once, when the first
+     * connection is requested, and shared by all later requests. Pool settings changed afterwards are not applied.
+     */
+    private Properties getProperties() {
+        Properties properties = this.properties;
+        if (properties == null) {
+            properties = createProperties();
+            this.properties = properties;
+        }
+        return properties;
+    }
+
+    private Properties getProperties(String username, String password) {
+        Properties properties = this.credentialsProperties.get(username);
+        if (properties != null && password.equals(properties.get(TransactionalDriver.password))) {
+            return properties;
+        }
+        properties = createProperties(username, password);
+        // Keep the cache bounded if credentials are generated per request
+        if (this.credentialsProperties.size() < MAX_CACHED_CREDENTIALS
+                || this.credentialsProperties.containsKey(username)) {
+            this.credentialsProperties.put(username, properties);
+        }
         return properties;
     }
 
+    private Connection getConnection(Properties properties) throws SQLException {
+        boolean pooled = "true".equals(properties.get(TransactionalDriver.poolConnections));
+        // ConnectionManager only shares connections between calls made in the same transaction if they are pooled
+        Transaction transaction = pooled ? getTransaction() : null;
+        if (transaction != null) {
+            ConnectionImple connection = this.connectionRegistry.acquire(transaction, properties);
+            if (connection != null) {
+                return handle(connection);
+            }
+        }
+        ConnectionPoolLimiter limiter = pooled ? getPoolLimiter() : null;
+        if (limiter != null) {
+            limiter.acquire();
+        }
+        Connection connection;
+        try {
+            connection = ConnectionManager.create(this.transactionalDriverProperties.getName(), properties);
+        } catch (SQLException | RuntimeException e) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            throw e;
+        }
+        if (connection instanceof ConnectionImple connectionImple) {
+            if (limiter != null) {
+                limiter.acquired(connectionImple);
+            }
+            if (transaction != null) {
+                if (this.transactionalDriverProperties.isLazyEnlistment()) {
+                    // Otherwise the connection is only associated with the transaction once it executes a statement,
+                    // and the transaction's next request would acquire another one
+                    ConnectionTransactions.associate(connectionImple, transaction);
+                }
+                this.connectionRegistry.register(transaction, properties, connectionImple);
+            }
+            return handle(connectionImple);
+        }
+        return connection;
+    }
+
+    private Connection handle(ConnectionImple connection) {
+        if (this.transactionalDriverProperties.isLazyEnlistment()) {
+            return new LazyEnlistmentConnection(connection);
+        }
+        return connection;
+    }
+
+    private Transaction getTransaction() throws SQLException {
+        try {
+            return com.arjuna.ats.jta.TransactionManager.transactionManager().getTransaction();
+        } catch (SystemException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the limiter of the pooled connections in use, created when first needed like the connection properties.
+     *
+     * @return limiter, or {@code null} if connections are not pooled
+     */
+    public ConnectionPoolLimiter getPoolLimiter() {
+        ConnectionPoolLimiter limiter = this.poolLimiter;
+        if (limiter == null && this.transactionalDriverProperties.getPool().isEnabled()) {
+            synchronized (this) {
+                limiter = this.poolLimiter;
+                if (limiter == null) {
+                    TransactionalDriverProperties.Pool pool = this.transactionalDriverProperties.getPool();
+                    limiter = new ConnectionPoolLimiter(this.transactionalDriverProperties.getName(),
+                            pool.getMaxConnections(), pool.getAcquisitionTimeout());
+                    this.poolLimiter = limiter;
+                }
+            }
+        }
+        return limiter;
+    }
+
     @Override
     public Connection getConnection() throws SQLException {
-        return ConnectionManager.create(this.transactionalDriverProperties.getName(), createProperties());
+        return getConnection(getProperties());
     }
 
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        Properties properties = createProperties();
-        properties.put(TransactionalDriver.userName, username);
-        properties.put(TransactionalDriver.password, password);
-        return ConnectionManager.create(this.transactionalDriverProperties.getName(), properties);
+        return getConnection(getProperties(username, password));
     }
 
     @Override
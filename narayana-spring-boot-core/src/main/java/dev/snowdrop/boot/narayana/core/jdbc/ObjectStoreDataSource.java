@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.sql.DataSource;
+
+import dev.snowdrop.boot.narayana.core.properties.ObjectStoreProperties;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Holder of the {@link DataSource} used by the JDBC object store. Unless disabled, transaction log records are written
+ * through a small dedicated pool derived from the configured data source, so that they never wait for a connection
+ * used by the application. HikariCP is only needed on the classpath when the dedicated pool is enabled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ObjectStoreDataSource implements AutoCloseable {
+
+    private static final String POOL_NAME = "narayana-object-store";
+
+    private final DataSource dataSource;
+
+    private final Closeable dedicatedPool;
+
+    /**
+     * Create a new {@link ObjectStoreDataSource} instance.
+     *
+     * @param dataSource non-XA data source pointing to the database where transaction logs are stored
+     * @param pool       dedicated pool properties
+     */
+    public ObjectStoreDataSource(DataSource dataSource, ObjectStoreProperties.Jdbc.Pool pool) {
+        if (pool.isEnabled()) {
+            DataSource dedicatedPool = createDedicatedPool(dataSource, pool.getMaxConnections());
+            this.dedicatedPool = (Closeable) dedicatedPool;
+            this.dataSource = dedicatedPool;
+        } else {
+            this.dedicatedPool = null;
+            this.dataSource = dataSource;
+        }
+    }
+
+    public DataSource getDataSource() {
+        return this.dataSource;
+    }
+
+    @Override
+    public void close() {
+        if (this.dedicatedPool != null) {
+            try {
+                this.dedicatedPool.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private DataSource createDedicatedPool(DataSource dataSource, int maxConnections) {
+        if (!ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource", getClass().getClassLoader())) {
+            throw new IllegalStateException("Dedicated JDBC object store pool requires HikariCP, "
+                    + "add it to the classpath or set narayana.object-store.jdbc.pool.enabled=false");
+        }
+        return HikariDataSourceFactory.create(dataSource, POOL_NAME, maxConnections);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import javax.sql.ConnectionEventListener;
+import javax.sql.StatementEventListener;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+
+/**
+ * {@link XADataSource} handed to Agroal, which only accepts a provider class and instantiates it itself. Each instance
+ * delegates to an already configured {@link XADataSource} registered under the key set through {@link #setKey(String)}
+ * and names the {@link XAResource} of its connections the same way as {@link DataSourceXAResourceRecoveryHelper}, so
+ * that resources enlisted by the pool and resources found during recovery are reported under the same name.
+ * <p>
+ * This class is an implementation detail of the Agroal pool mode and is public only so that Agroal can instantiate it.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ProvidedXADataSource implements XADataSource {
+
+    private static final Map<String, ProvidedXADataSource> PROVIDED = new ConcurrentHashMap<>();
+
+    private XADataSource xaDataSource;
+
+    private String name;
+
+    public ProvidedXADataSource() {
+    }
+
+    private ProvidedXADataSource(XADataSource xaDataSource, String name) {
+        this.xaDataSource = xaDataSource;
+        this.name = name;
+    }
+
+    /**
+     * Register a data source to be picked up by the next instance created with the returned key.
+     *
+     * @param xaDataSource data source to delegate to
+     * @param name         name of the enlisted {@link XAResource}s
+     * @return key to pass to {@link #setKey(String)}
+     */
+    static String register(XADataSource xaDataSource, String name) {
+        String key = UUID.randomUUID().toString();
+        PROVIDED.put(key, new ProvidedXADataSource(xaDataSource, name));
+        return key;
+    }
+
+    static void unregister(String key) {
+        PROVIDED.remove(key);
+    }
+
+    public void setKey(String key) {
+        ProvidedXADataSource provided = PROVIDED.get(key);
+        if (provided == null) {
+            throw new IllegalStateException("No XA data source registered with key " + key);
+        }
+        this.xaDataSource = provided.xaDataSource;
+        this.name = provided.name;
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException {
+        return new NamedXAConnection(getXaDataSource().getXAConnection(), this.name);
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException {
+        return new NamedXAConnection(getXaDataSource().getXAConnection(user, password), this.name);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return getXaDataSource().getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        // Set by Agroal before the key, the delegate keeps its own configuration
+        if (this.xaDataSource != null) {
+            this.xaDataSource.setLogWriter(out);
+        }
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        // Set by Agroal before the key, the delegate keeps its own configuration
+        if (this.xaDataSource != null) {
+            this.xaDataSource.setLoginTimeout(seconds);
+        }
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return getXaDataSource().getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return getXaDataSource().getParentLogger();
+    }
+
+    private XADataSource getXaDataSource() {
+        return Objects.requireNonNull(this.xaDataSource, "XA data source key was not set");
+    }
+
+    private static class NamedXAConnection implements XAConnection {
+
+        private final XAConnection xaConnection;
+
+        private final String name;
+
+        NamedXAConnection(XAConnection xaConnection, String name) {
+            this.xaConnection = xaConnection;
+            this.name = name;
+        }
+
+        @Override
+        public XAResource getXAResource() throws SQLException {
+            XAResource xaResource = this.xaConnection.getXAResource();
+            return xaResource == null ? null : new NamedXAResource(xaResource, this.name);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return this.xaConnection.getConnection();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            this.xaConnection.close();
+        }
+
+        @Override
+        public void addConnectionEventListener(ConnectionEventListener listener) {
+            this.xaConnection.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public void removeConnectionEventListener(ConnectionEventListener listener) {
+            this.xaConnection.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public void addStatementEventListener(StatementEventListener listener) {
+            this.xaConnection.addStatementEventListener(listener);
+        }
+
+        @Override
+        public void removeStatementEventListener(StatementEventListener listener) {
+            this.xaConnection.removeStatementEventListener(listener);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jakarta.transaction.RollbackException;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.SystemException;
+import jakarta.transaction.Transaction;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
+import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import com.arjuna.ats.internal.jdbc.ConnectionTransactions;
+
+/**
+ * Index of the pooled connections used by each transaction, keyed by transaction and data source.
+ * <p>
+ * {@link ConnectionManager} finds the connection already used by the current transaction by walking all pooled
+ * connections under a global lock. This registry answers the same question with a hash lookup, so only the first
+ * connection of a transaction goes through {@link ConnectionManager}. A connection is only handed out again while it is
+ * still open and associated with the transaction, which is the condition {@link ConnectionManager} applies, and entries
+ * are released when the transaction completes.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TransactionalConnectionRegistry {
+
+    private final ConcurrentMap<Key, ConnectionImple> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Get the connection registered for the transaction and data source, if it can be used again.
+     *
+     * @param transaction   current transaction
+     * @param dataSourceKey object identifying the data source and its credentials, compared by identity
+     * @return connection with its use count incremented, or {@code null} if a new one has to be acquired
+     * @throws SQLException if the connection state cannot be checked
+     */
+    public ConnectionImple acquire(Transaction transaction, Object dataSourceKey) throws SQLException {
+        ConnectionImple connection = this.connections.get(new Key(transaction, dataSourceKey));
+        if (connection == null) {
+            return null;
+        }
+        // Closing a connection decrements its use count and clears its transaction while holding the same lock
+        synchronized (connection) {
+            if (connection.inUse() && !connection.isClosed()
+                    && transaction.equals(ConnectionTransactions.getTransaction(connection))) {
+                connection.incrementUseCount();
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a connection acquired for the transaction and data source.
+     *
+     * @param transaction   current transaction
+     * @param dataSourceKey object identifying the data source and its credentials, compared by identity
+     * @param connection    connection acquired from {@link ConnectionManager}
+     */
+    public void register(Transaction transaction, Object dataSourceKey, ConnectionImple connection) {
+        Key key = new Key(transaction, dataSourceKey);
+        if (this.connections.put(key, connection) != null) {
+            return;
+        }
+        try {
+            transaction.registerSynchronization(new Release(key));
+        } catch (RollbackException | IllegalStateException | SystemException e) {
+            // Transaction is already completing, so there is nothing to reuse the connection for
+            this.connections.remove(key, connection);
+        }
+    }
+
+    /**
+     * Get the number of registered connections, i.e. of transactions and data sources pairs which have not completed.
+     *
+     * @return number of registered connections
+     */
+    public int size() {
+        return this.connections.size();
+    }
+
+    private static final class Key {
+
+        private final Transaction transaction;
+
+        private final Object dataSourceKey;
+
+        Key(Transaction transaction, Object dataSourceKey) {
+            this.transaction = transaction;
+            this.dataSourceKey = dataSourceKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && this.dataSourceKey == key.dataSourceKey
+                    && this.transaction.equals(key.transaction);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.transaction.hashCode() + System.identityHashCode(this.dataSourceKey);
+        }
+    }
+
+    private final class Release implements Synchronization {
+
+        private final Key key;
+
+        Release(Key key) {
+            this.key = key;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionalConnectionRegistry.this.connections.remove(this.key);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jfr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arjuna.ats.arjuna.recovery.RecoveryModule;
+
+/**
+ * Emits a flight recorder event for every periodic recovery pass. Narayana has no callback for recovery passes, so the
+ * configured recovery modules are surrounded by two marker modules: {@link Start} is called first in the first pass and
+ * {@link End} is called last in the second pass. Both run on the single periodic recovery thread.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class RecoveryPassEvents {
+
+    private static volatile RecoveryPassEvent current;
+
+    private RecoveryPassEvents() {
+    }
+
+    /**
+     * Surround recovery module class names with the marker modules.
+     *
+     * @param recoveryModuleClassNames configured recovery module class names
+     * @return recovery module class names including the marker modules
+     */
+    public static List<String> surround(List<String> recoveryModuleClassNames) {
+        List<String> classNames = new ArrayList<>(recoveryModuleClassNames.size() + 2);
+        classNames.add(Start.class.getName());
+        classNames.addAll(recoveryModuleClassNames);
+        classNames.add(End.class.getName());
+        return classNames;
+    }
+
+    /**
+     * Recovery module starting a recovery pass event.
+     */
+    public static class Start implements RecoveryModule {
+
+        @Override
+        public void periodicWorkFirstPass() {
+            RecoveryPassEvent event = new RecoveryPassEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                current = event;
+            } else {
+                current = null;
+            }
+        }
+
+        @Override
+        public void periodicWorkSecondPass() {
+        }
+    }
+
+    /**
+     * Recovery module completing a recovery pass event.
+     */
+    public static class End implements RecoveryModule {
+
+        @Override
+        public void periodicWorkFirstPass() {
+        }
+
+        @Override
+        public void periodicWorkSecondPass() {
+            RecoveryPassEvent event = current;
+            current = null;
+            if (event != null) {
+                event.end();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a transaction begin, commit or rollback.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Name("narayana.Transaction")
+@Label("Transaction")
+@Category({ "Narayana", "Transaction" })
+@Description("Transaction begin, commit or rollback")
+class TransactionEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Transaction Name")
+    String name;
+
+    @Label("Uid")
+    String uid;
+
+    @Label("Outcome")
+    @Description("committed, rolled back or the class name of the failure")
+    String outcome;
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jfr;
+
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * {@link TransactionExecutionListener} emitting a flight recorder event for every begin, commit and rollback of a
+ * transaction managed by Spring. Without a recording the listener only checks whether the event is enabled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TransactionEvents implements TransactionExecutionListener {
+
+    private static final String COMMITTED = "committed";
+
+    private static final String ROLLED_BACK = "rolled back";
+
+    private final ThreadLocal<Frame> frames = new ThreadLocal<>();
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        push(transaction, "begin");
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        pop(transaction, beginFailure, "begun");
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        push(transaction, "commit");
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        pop(transaction, commitFailure, COMMITTED);
+    }
+
+    @Override
+    public void beforeRollback(TransactionExecution transaction) {
+        push(transaction, "rollback");
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        // A commit can end with a rollback, in which case the commit event is completed here
+        pop(transaction, rollbackFailure, ROLLED_BACK);
+    }
+
+    private void push(TransactionExecution transaction, String operation) {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.operation = operation;
+        event.uid = currentUid();
+        event.begin();
+        this.frames.set(new Frame(transaction, event, this.frames.get()));
+    }
+
+    private void pop(TransactionExecution transaction, Throwable failure, String outcome) {
+        Frame frame = this.frames.get();
+        // Frames left behind by executions which never completed are dropped together with the matching one
+        while (frame != null && frame.transaction != transaction) {
+            frame = frame.previous;
+        }
+        if (frame == null) {
+            return;
+        }
+        if (frame.previous == null) {
+            this.frames.remove();
+        } else {
+            this.frames.set(frame.previous);
+        }
+        TransactionEvent event = frame.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.name = transaction.getTransactionName();
+            if (event.uid == null) {
+                event.uid = currentUid();
+            }
+            event.outcome = failure == null ? outcome : failure.getClass().getName();
+            event.commit();
+        }
+    }
+
+    private static String currentUid() {
+        TransactionImple transaction = TransactionImple.getTransaction();
+        return transaction == null ? null : transaction.get_uid().stringForm();
+    }
+
+    private static final class Frame {
+
+        private final TransactionExecution transaction;
+
+        private final TransactionEvent event;
+
+        private final Frame previous;
+
+        Frame(TransactionExecution transaction, TransactionEvent event, Frame previous) {
+            this.transaction = transaction;
+            this.event = event;
+            this.previous = previous;
+        }
+    }
+}
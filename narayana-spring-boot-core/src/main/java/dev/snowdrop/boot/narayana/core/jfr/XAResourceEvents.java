@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jfr;
+
+import java.util.Locale;
+
+import javax.transaction.xa.Xid;
+
+import com.arjuna.ats.jta.utils.XAHelper;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+
+/**
+ * {@link XAResourceListener} emitting a flight recorder event for every XA call made through the named resource
+ * wrappers. Without a recording the listener only checks whether the event is enabled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class XAResourceEvents implements XAResourceListener, AutoCloseable {
+
+    private XAResourceEvents() {
+    }
+
+    /**
+     * Create a listener and register it with {@link XAResourceListeners}.
+     *
+     * @return registered listener, to be closed once events are no longer needed
+     */
+    public static XAResourceEvents register() {
+        XAResourceEvents xaResourceEvents = new XAResourceEvents();
+        XAResourceListeners.register(xaResourceEvents);
+        return xaResourceEvents;
+    }
+
+    @Override
+    public Object before(String resourceName, XAOperation operation, Xid xid) {
+        XAResourceEvent event = new XAResourceEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+            int vote, Throwable failure) {
+        if (context instanceof XAResourceEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.resource = resourceName;
+                event.operation = operation.name().toLowerCase(Locale.ROOT);
+                event.xid = xid == null ? null : XAHelper.xidToString(xid);
+                event.outcome = XAResourceListeners.outcome(vote, failure);
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        XAResourceListeners.unregister(this);
+    }
+}
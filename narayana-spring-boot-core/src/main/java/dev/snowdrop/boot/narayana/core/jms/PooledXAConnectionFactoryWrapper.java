@@ -24,6 +24,7 @@ import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
 import com.arjuna.ats.jta.recovery.XAResourceRecoveryHelper;
 import dev.snowdrop.boot.narayana.core.jms.pool.JmsPoolNarayanaConnectionFactory;
 import dev.snowdrop.boot.narayana.core.jms.pool.NamedJmsXAResourceRecoveryHelper;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
 import dev.snowdrop.boot.narayana.core.properties.MessagingHubConnectionFactoryProperties;
 import dev.snowdrop.boot.narayana.core.properties.RecoveryCredentialsProperties;
 
@@ -31,6 +32,7 @@ public class PooledXAConnectionFactoryWrapper extends AbstractXAConnectionFactor
 
     private final MessagingHubConnectionFactoryProperties properties;
     private final TransactionManager transactionManager;
+    private final PoolPrewarmer poolPrewarmer;
 
     /**
      * Create a new {@link PooledXAConnectionFactoryWrapper} instance.
@@ -54,9 +56,25 @@ public class PooledXAConnectionFactoryWrapper extends AbstractXAConnectionFactor
      */
     public PooledXAConnectionFactoryWrapper(TransactionManager transactionManager, XARecoveryModule xaRecoveryModule,
             MessagingHubConnectionFactoryProperties properties, RecoveryCredentialsProperties recoveryCredentials) {
+        this(transactionManager, xaRecoveryModule, properties, recoveryCredentials, new PoolPrewarmer());
+    }
+
+    /**
+     * Create a new {@link PooledXAConnectionFactoryWrapper} instance.
+     *
+     * @param transactionManager  underlying transaction manager
+     * @param xaRecoveryModule    recovery module to register data source with.
+     * @param properties          MessagingHub properties
+     * @param recoveryCredentials Credentials for recovery helper
+     * @param poolPrewarmer       pre-warmer opening idle pool connections
+     */
+    public PooledXAConnectionFactoryWrapper(TransactionManager transactionManager, XARecoveryModule xaRecoveryModule,
+            MessagingHubConnectionFactoryProperties properties, RecoveryCredentialsProperties recoveryCredentials,
+            PoolPrewarmer poolPrewarmer) {
         super(xaRecoveryModule, recoveryCredentials);
         this.properties = properties;
         this.transactionManager = transactionManager;
+        this.poolPrewarmer = poolPrewarmer;
     }
 
     @Override
@@ -78,6 +96,12 @@ public class PooledXAConnectionFactoryWrapper extends AbstractXAConnectionFactor
         pooledConnectionFactory.setBlockIfSessionPoolIsFull(this.properties.isBlockIfSessionPoolIsFull());
         pooledConnectionFactory.setBlockIfSessionPoolIsFullTimeout(this.properties.getBlockIfSessionPoolIsFullTimeout().toMillis());
         pooledConnectionFactory.setUseAnonymousProducers(this.properties.isUseAnonymousProducers());
+        if (this.properties.isPrewarm() && this.properties.getMinIdle() > 0) {
+            // The pool has no minimum of its own, it creates a new connection per request until the maximum is reached
+            this.poolPrewarmer.prewarm(this.properties.getName(),
+                    Math.min(this.properties.getMinIdle(), this.properties.getMaxConnections()),
+                    pooledConnectionFactory::createConnection);
+        }
         return pooledConnectionFactory;
     }
 
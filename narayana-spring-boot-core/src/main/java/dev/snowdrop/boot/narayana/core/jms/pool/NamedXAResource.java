@@ -20,6 +20,9 @@ import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
 import org.jboss.tm.XAResourceWrapper;
 
 public class NamedXAResource implements XAResourceWrapper {
@@ -57,12 +60,28 @@ public class NamedXAResource implements XAResourceWrapper {
 
     @Override
     public void commit(Xid xid, boolean onePhase) throws XAException {
-        getResource().commit(xid, onePhase);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            getResource().commit(xid, onePhase);
+            return;
+        }
+        XAResourceListeners.invoke(listener, this.name, XAOperation.COMMIT, xid, () -> {
+            getResource().commit(xid, onePhase);
+            return null;
+        });
     }
 
     @Override
     public void end(Xid xid, int flags) throws XAException {
-        getResource().end(xid, flags);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            getResource().end(xid, flags);
+            return;
+        }
+        XAResourceListeners.invoke(listener, this.name, XAOperation.END, xid, () -> {
+            getResource().end(xid, flags);
+            return null;
+        });
     }
 
     @Override
@@ -85,17 +104,35 @@ public class NamedXAResource implements XAResourceWrapper {
 
     @Override
     public int prepare(Xid xid) throws XAException {
-        return getResource().prepare(xid);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            return getResource().prepare(xid);
+        }
+        return XAResourceListeners.invoke(listener, this.name, XAOperation.PREPARE, xid,
+                () -> getResource().prepare(xid));
     }
 
     @Override
     public Xid[] recover(int flag) throws XAException {
-        return getResource().recover(flag);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            return getResource().recover(flag);
+        }
+        return XAResourceListeners.invoke(listener, this.name, XAOperation.RECOVER, null,
+                () -> getResource().recover(flag));
     }
 
     @Override
     public void rollback(Xid xid) throws XAException {
-        getResource().rollback(xid);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            getResource().rollback(xid);
+            return;
+        }
+        XAResourceListeners.invoke(listener, this.name, XAOperation.ROLLBACK, xid, () -> {
+            getResource().rollback(xid);
+            return null;
+        });
     }
 
     @Override
@@ -105,6 +142,14 @@ public class NamedXAResource implements XAResourceWrapper {
 
     @Override
     public void start(Xid xid, int flags) throws XAException {
-        getResource().start(xid, flags);
+        XAResourceListener listener = XAResourceListeners.getListener();
+        if (listener == null) {
+            getResource().start(xid, flags);
+            return;
+        }
+        XAResourceListeners.invoke(listener, this.name, XAOperation.START, xid, () -> {
+            getResource().start(xid, flags);
+            return null;
+        });
     }
 }
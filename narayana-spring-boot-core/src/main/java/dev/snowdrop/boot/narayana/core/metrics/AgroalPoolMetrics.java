@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.sql.DataSource;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.AgroalDataSourceMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+
+/**
+ * {@link MeterBinder} publishing the metrics of the Agroal pools created by
+ * {@link dev.snowdrop.boot.narayana.core.jdbc.GenericXADataSourceWrapper}. Meters are tagged by the name of the data
+ * source bean. Data sources are resolved when binding, so that they are not created early only to be measured, and the
+ * ones which are not Agroal pools are skipped.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class AgroalPoolMetrics implements MeterBinder {
+
+    private final Supplier<Map<String, DataSource>> dataSources;
+
+    /**
+     * Create a new {@link AgroalPoolMetrics} instance.
+     *
+     * @param dataSources data sources by bean name
+     */
+    public AgroalPoolMetrics(Supplier<Map<String, DataSource>> dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.dataSources.get().forEach((name, dataSource) -> {
+            AgroalDataSource agroalDataSource = DataSourceUnwrapper.unwrap(dataSource, AgroalDataSource.class);
+            if (agroalDataSource != null) {
+                bindTo(registry, name, agroalDataSource.getMetrics());
+            }
+        });
+    }
+
+    private void bindTo(MeterRegistry registry, String name, AgroalDataSourceMetrics metrics) {
+        gauge(registry, name, metrics, "active", "Connections in use", AgroalDataSourceMetrics::activeCount);
+        gauge(registry, name, metrics, "available", "Idle connections ready to be acquired",
+                AgroalDataSourceMetrics::availableCount);
+        gauge(registry, name, metrics, "max.used", "Maximum number of connections in use at the same time",
+                AgroalDataSourceMetrics::maxUsedCount);
+        gauge(registry, name, metrics, "pending", "Threads waiting for a connection",
+                AgroalDataSourceMetrics::awaitingCount);
+        counter(registry, name, metrics, "created", "Connections opened", AgroalDataSourceMetrics::creationCount);
+        counter(registry, name, metrics, "destroyed", "Connections closed", AgroalDataSourceMetrics::destroyCount);
+        counter(registry, name, metrics, "leaked", "Connections held longer than the leak timeout",
+                AgroalDataSourceMetrics::leakDetectionCount);
+        counter(registry, name, metrics, "invalid", "Connections which failed validation",
+                AgroalDataSourceMetrics::invalidCount);
+        counter(registry, name, metrics, "flushed", "Connections removed by a flush",
+                AgroalDataSourceMetrics::flushCount);
+        counter(registry, name, metrics, "reaped", "Idle connections removed by the reaper",
+                AgroalDataSourceMetrics::reapCount);
+        FunctionTimer.builder("narayana.jdbc.connections.acquire", metrics, AgroalDataSourceMetrics::acquireCount,
+                        m -> m.blockingTimeTotal().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Time spent blocked waiting for a connection")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, AgroalDataSourceMetrics metrics, String suffix,
+            String description, ToDoubleFunction<AgroalDataSourceMetrics> value) {
+        Gauge.builder("narayana.jdbc.connections." + suffix, metrics, value)
+                .description(description)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, AgroalDataSourceMetrics metrics, String suffix,
+            String description, ToLongFunction<AgroalDataSourceMetrics> value) {
+        FunctionCounter.builder("narayana.jdbc.connections." + suffix, metrics, m -> value.applyAsLong(m))
+                .description(description)
+                .tag("name", name)
+                .register(registry);
+    }
+}
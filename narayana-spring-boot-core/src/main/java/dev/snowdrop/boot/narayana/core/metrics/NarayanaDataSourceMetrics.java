@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import javax.sql.DataSource;
+
+import dev.snowdrop.boot.narayana.core.jdbc.ConnectionPoolLimiter;
+import dev.snowdrop.boot.narayana.core.jdbc.NarayanaDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+
+/**
+ * {@link MeterBinder} publishing the saturation of the transactional driver pools of {@link NarayanaDataSource}s. Meters
+ * share their names with {@link AgroalPoolMetrics}, so dashboards work with either pool type, and are tagged by the name
+ * of the data source bean. Data sources without pooling are skipped.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class NarayanaDataSourceMetrics implements MeterBinder {
+
+    private final Supplier<Map<String, DataSource>> dataSources;
+
+    /**
+     * Create a new {@link NarayanaDataSourceMetrics} instance.
+     *
+     * @param dataSources data sources by bean name
+     */
+    public NarayanaDataSourceMetrics(Supplier<Map<String, DataSource>> dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.dataSources.get().forEach((name, dataSource) -> {
+            NarayanaDataSource narayanaDataSource = DataSourceUnwrapper.unwrap(dataSource, NarayanaDataSource.class);
+            ConnectionPoolLimiter limiter = narayanaDataSource == null ? null : narayanaDataSource.getPoolLimiter();
+            if (limiter != null) {
+                bindTo(registry, name, limiter);
+            }
+        });
+    }
+
+    private void bindTo(MeterRegistry registry, String name, ConnectionPoolLimiter limiter) {
+        gauge(registry, name, limiter, "active", "Connections in use", ConnectionPoolLimiter::getActive);
+        gauge(registry, name, limiter, "available", "Idle connections ready to be acquired",
+                ConnectionPoolLimiter::getIdle);
+        gauge(registry, name, limiter, "pending", "Threads waiting for a connection", ConnectionPoolLimiter::getPending);
+        gauge(registry, name, limiter, "max", "Maximum number of connections in use at once",
+                ConnectionPoolLimiter::getMaxConnections);
+        FunctionCounter.builder("narayana.jdbc.connections.timeouts", limiter, ConnectionPoolLimiter::getTimeouts)
+                .description("Acquisitions which gave up waiting for a connection")
+                .tag("name", name)
+                .register(registry);
+        FunctionTimer.builder("narayana.jdbc.connections.acquire", limiter, ConnectionPoolLimiter::getAcquisitions,
+                        l -> l.getWaitTime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Time spent blocked waiting for a connection")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String name, ConnectionPoolLimiter limiter, String suffix,
+            String description, ToDoubleFunction<ConnectionPoolLimiter> value) {
+        Gauge.builder("narayana.jdbc.connections." + suffix, limiter, value)
+                .description(description)
+                .tag("name", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import com.arjuna.ats.arjuna.coordinator.TxStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} publishing Narayana transaction statistics.
+ * <p>
+ * Binding turns on {@link com.arjuna.ats.arjuna.common.CoordinatorEnvironmentBean#setEnableStatistics(boolean)}, so
+ * that Narayana starts counting transactions. Meters read the counters kept by {@link TxStats} when they are published,
+ * so no work is added to the transactions themselves apart from Narayana's own counting. The commit timer is derived from
+ * the number of committed transactions and their average commit time, and therefore has no percentiles.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class NarayanaTransactionMetrics implements MeterBinder {
+
+    private final TxStats txStats = TxStats.getInstance();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        arjPropertyManager.getCoordinatorEnvironmentBean().setEnableStatistics(true);
+
+        counter(registry, "narayana.transactions.created", "Transactions begun",
+                TxStats::getNumberOfTransactions);
+        counter(registry, "narayana.transactions.committed", "Transactions committed",
+                TxStats::getNumberOfCommittedTransactions);
+        counter(registry, "narayana.transactions.aborted", "Transactions rolled back",
+                TxStats::getNumberOfAbortedTransactions);
+        counter(registry, "narayana.transactions.timed.out", "Transactions rolled back by the reaper",
+                TxStats::getNumberOfTimedOutTransactions);
+        counter(registry, "narayana.transactions.heuristics", "Transactions with a heuristic outcome",
+                TxStats::getNumberOfHeuristics);
+        rollbacks(registry, "application", TxStats::getNumberOfApplicationRollbacks);
+        rollbacks(registry, "resource", TxStats::getNumberOfResourceRollbacks);
+        rollbacks(registry, "system", TxStats::getNumberOfSystemRollbacks);
+        Gauge.builder("narayana.transactions.inflight", this.txStats, TxStats::getNumberOfInflightTransactions)
+                .description("Transactions begun and not yet completed")
+                .register(registry);
+        FunctionTimer.builder("narayana.transactions.commit", this.txStats,
+                        TxStats::getNumberOfCommittedTransactions,
+                        stats -> (double) stats.getAverageCommitTime() * stats.getNumberOfCommittedTransactions(),
+                        TimeUnit.NANOSECONDS)
+                .description("Time to complete the commit of a transaction, including both phases")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, ToDoubleFunction<TxStats> count) {
+        FunctionCounter.builder(name, this.txStats, count)
+                .description(description)
+                .register(registry);
+    }
+
+    private void rollbacks(MeterRegistry registry, String cause, ToDoubleFunction<TxStats> count) {
+        FunctionCounter.builder("narayana.transactions.rollbacks", this.txStats, count)
+                .description("Transactions rolled back, by the party which requested it")
+                .tag("cause", cause)
+                .register(registry);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.Locale;
+
+import javax.transaction.xa.Xid;
+
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * {@link MeterBinder} describing the shape of committed transactions: how many participants they enlist, whether they
+ * take the one-phase or the two-phase commit path, how participants vote on prepare, and how heuristic outcomes are
+ * distributed.
+ * <p>
+ * Participants are counted when Spring is about to commit a transaction, so transactions have to be demarcated through
+ * the {@link org.springframework.transaction.jta.JtaTransactionManager} this listener is applied to. Prepare votes are
+ * collected from the named resource wrappers, so only XA resources of wrapped data sources and connection factories are
+ * included.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ParticipantMetrics implements MeterBinder, TransactionExecutionListener, XAResourceListener,
+        AutoCloseable {
+
+    private boolean commitOnePhase;
+
+    private DistributionSummary participants;
+
+    private Counter onePhaseCommits;
+
+    private Counter twoPhaseCommits;
+
+    private Meter.MeterProvider<Counter> votes;
+
+    private Meter.MeterProvider<Counter> heuristics;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.commitOnePhase = arjPropertyManager.getCoordinatorEnvironmentBean().isCommitOnePhase();
+        this.participants = DistributionSummary.builder("narayana.transactions.participants")
+                .description("XA resources enlisted in a transaction being committed")
+                .register(registry);
+        this.onePhaseCommits = commits(registry, "one.phase");
+        this.twoPhaseCommits = commits(registry, "two.phase");
+        this.votes = Counter.builder("narayana.xa.resource.votes")
+                .description("Prepare votes of a resource")
+                .withRegistry(registry);
+        this.heuristics = Counter.builder("narayana.transactions.heuristic.outcomes")
+                .description("Transactions which completed heuristically, by outcome")
+                .withRegistry(registry);
+        XAResourceListeners.register(this);
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        TransactionImple transactionImple = TransactionImple.getTransaction();
+        if (transactionImple == null) {
+            return;
+        }
+        int count = transactionImple.getResources().size();
+        this.participants.record(count);
+        if (count == 1 && this.commitOnePhase) {
+            this.onePhaseCommits.increment();
+        } else if (count > 0) {
+            this.twoPhaseCommits.increment();
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        countHeuristic(commitFailure);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        countHeuristic(rollbackFailure);
+    }
+
+    @Override
+    public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+            int vote, Throwable failure) {
+        if (operation == XAOperation.PREPARE) {
+            this.votes.withTags("resource", String.valueOf(resourceName), "vote", XAResourceListeners.outcome(vote,
+                    failure)).increment();
+        }
+    }
+
+    @Override
+    public void close() {
+        XAResourceListeners.unregister(this);
+    }
+
+    private void countHeuristic(Throwable failure) {
+        if (failure instanceof HeuristicCompletionException heuristicCompletionException) {
+            String outcome = HeuristicCompletionException.getStateString(heuristicCompletionException.getOutcomeState());
+            this.heuristics.withTags("outcome", outcome.replace(' ', '.').toLowerCase(Locale.ROOT)).increment();
+        }
+    }
+
+    private Counter commits(MeterRegistry registry, String protocol) {
+        return Counter.builder("narayana.transactions.commit.protocol")
+                .description("Transactions entering commit, by commit protocol")
+                .tag("protocol", protocol)
+                .register(registry);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.coordinator.TransactionReaper;
+import com.arjuna.ats.arjuna.coordinator.listener.ReaperMonitor;
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link MeterBinder} publishing the activity of the Narayana {@link TransactionReaper}.
+ * <p>
+ * Cancellations are counted by outcome: {@code rolled.back} when the reaper rolled the timed out transaction back, and
+ * {@code marked.rollback.only} when the rollback did not complete in time and the transaction was only prevented from
+ * committing. The cancellation latency is how long after its timeout the reaper got to a transaction, which grows when
+ * the reaper is configured with a long check period or falls behind. Zombies are reaper worker threads which got stuck
+ * cancelling a transaction and were abandoned.
+ * <p>
+ * The reaper forgets a transaction once it has given up on cancelling it, so the timeout of transactions begun through
+ * Spring is recorded when they begin and dropped when they complete. Other transactions are looked up when they are
+ * cancelled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ReaperMetrics implements MeterBinder, ReaperMonitor, TransactionExecutionListener, AutoCloseable {
+
+    private static final Field ZOMBIE_COUNT = findZombieCount();
+
+    // Absolute timeout in milliseconds of the running transactions begun through Spring
+    private final Map<Uid, Long> deadlines = new ConcurrentHashMap<>();
+
+    private TransactionReaper reaper;
+
+    private Counter rolledBack;
+
+    private Counter markedRollbackOnly;
+
+    private Timer cancellationLatency;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.reaper = TransactionReaper.transactionReaper();
+        this.rolledBack = cancellations(registry, "rolled.back");
+        this.markedRollbackOnly = cancellations(registry, "marked.rollback.only");
+        this.cancellationLatency = Timer.builder("narayana.reaper.cancellation.latency")
+                .description("Time between the timeout of a transaction and its cancellation by the reaper")
+                .register(registry);
+        Gauge.builder("narayana.reaper.transactions", this.reaper, TransactionReaper::numberOfTransactions)
+                .description("Transactions with a timeout tracked by the reaper")
+                .register(registry);
+        if (ZOMBIE_COUNT != null) {
+            Gauge.builder("narayana.reaper.zombies", ZOMBIE_COUNT, field -> (int) ReflectionUtils.getField(field, null))
+                    .description("Reaper worker threads abandoned while cancelling a transaction")
+                    .register(registry);
+        }
+        this.reaper.addListener(this);
+    }
+
+    @Override
+    public void rolledBack(Uid uid) {
+        this.rolledBack.increment();
+        recordLatency(uid);
+    }
+
+    @Override
+    public void markedRollbackOnly(Uid uid) {
+        this.markedRollbackOnly.increment();
+        recordLatency(uid);
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            return;
+        }
+        TransactionImple transactionImple = TransactionImple.getTransaction();
+        if (transactionImple != null && transactionImple.getTimeout() > 0) {
+            this.deadlines.put(transactionImple.get_uid(),
+                    System.currentTimeMillis() + transactionImple.getRemainingTimeoutMills());
+        }
+    }
+
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        complete();
+    }
+
+    @Override
+    public void beforeRollback(TransactionExecution transaction) {
+        complete();
+    }
+
+    @Override
+    public void close() {
+        if (this.reaper != null) {
+            this.reaper.removeListener(this);
+        }
+        this.deadlines.clear();
+    }
+
+    private void complete() {
+        // The transaction is still associated with the thread before it completes
+        TransactionImple transactionImple = TransactionImple.getTransaction();
+        if (transactionImple != null) {
+            this.deadlines.remove(transactionImple.get_uid());
+        }
+    }
+
+    private void recordLatency(Uid uid) {
+        long now = System.currentTimeMillis();
+        Long deadline = this.deadlines.remove(uid);
+        if (deadline == null) {
+            TransactionImple transaction = TransactionImple.getTransaction(uid);
+            // The reaper stops tracking a transaction after a failed cancellation, the latency is unknown then
+            if (transaction == null || transaction.getTimeout() <= 0) {
+                return;
+            }
+            long remainingMillis = transaction.getRemainingTimeoutMills();
+            if (remainingMillis == 0) {
+                return;
+            }
+            deadline = now + remainingMillis;
+        }
+        this.cancellationLatency.record(Math.max(0, now - deadline), TimeUnit.MILLISECONDS);
+    }
+
+    private Counter cancellations(MeterRegistry registry, String outcome) {
+        return Counter.builder("narayana.reaper.cancellations")
+                .description("Timed out transactions cancelled by the reaper")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Field findZombieCount() {
+        Field field = ReflectionUtils.findField(TransactionReaper.class, "_zombieCount", int.class);
+        if (field != null) {
+            ReflectionUtils.makeAccessible(field);
+        }
+        return field;
+    }
+}
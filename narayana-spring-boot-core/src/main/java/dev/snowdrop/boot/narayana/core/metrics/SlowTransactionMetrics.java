@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import dev.snowdrop.boot.narayana.core.diagnostics.SlowTransactionDetector;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} publishing the number of transactions flagged by a {@link SlowTransactionDetector}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SlowTransactionMetrics implements MeterBinder {
+
+    private final SlowTransactionDetector detector;
+
+    public SlowTransactionMetrics(SlowTransactionDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("narayana.transactions.slow", this.detector,
+                        SlowTransactionDetector::getSlowTransactionCount)
+                .description("Transactions still running after the slow transaction warn threshold")
+                .register(registry);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.xa.Xid;
+
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} timing the XA calls made through the named resource wrappers. Timers are tagged by resource name,
+ * XA operation and outcome. The outcome is the XA return code, i.e. {@code XA_OK}, {@code XA_RDONLY} for a read-only
+ * prepare vote, or the error code of a failed call such as {@code XAER_RMFAIL}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class XAResourceMetrics implements MeterBinder, XAResourceListener, AutoCloseable {
+
+    private Meter.MeterProvider<Timer> timers;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.timers = Timer.builder("narayana.xa.resource")
+                .description("Time of XA calls made to a resource")
+                .withRegistry(registry);
+        XAResourceListeners.register(this);
+    }
+
+    @Override
+    public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+            int vote, Throwable failure) {
+        this.timers.withTags("resource", String.valueOf(resourceName), "operation", operation.name().toLowerCase(Locale.ROOT),
+                "outcome", XAResourceListeners.outcome(vote, failure)).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        XAResourceListeners.unregister(this);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.common.internal.util.ClassloadingUtility;
+
+/**
+ * Object store which Narayana instantiates in place of the configured one. It creates the store configured in
+ * {@link DecoratingObjectStoreEnvironmentBean} and wraps it with the configured {@link ObjectStoreDecorator}s.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class DecoratingObjectStore extends DelegatingObjectStore {
+
+    public DecoratingObjectStore(DecoratingObjectStoreEnvironmentBean environmentBean) {
+        super(decorate(environmentBean));
+    }
+
+    private static ObjectStoreAPI decorate(DecoratingObjectStoreEnvironmentBean environmentBean) {
+        ObjectStoreAPI objectStore = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                environmentBean.getObjectStoreType(), environmentBean.getStoreName());
+        if (objectStore == null) {
+            throw new IllegalStateException("Failed to create object store " + environmentBean.getObjectStoreType());
+        }
+        for (ObjectStoreDecorator decorator : environmentBean.getDecorators()) {
+            objectStore = decorator.decorate(objectStore);
+        }
+        return objectStore;
+    }
+}
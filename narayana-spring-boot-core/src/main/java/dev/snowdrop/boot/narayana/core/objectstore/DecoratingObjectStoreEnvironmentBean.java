@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.util.List;
+
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+
+/**
+ * Configuration of the {@link DecoratingObjectStore}. Narayana looks it up by the same name as the store it configures,
+ * the default instance is used by the action store.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class DecoratingObjectStoreEnvironmentBean {
+
+    private volatile String storeName;
+
+    private volatile String objectStoreType = ShadowNoFileLockStore.class.getName();
+
+    private volatile List<ObjectStoreDecorator> decorators = List.of();
+
+    /**
+     * Returns the name of the store, {@code null} for the action store.
+     *
+     * @return the name of the store
+     */
+    public String getStoreName() {
+        return this.storeName;
+    }
+
+    /**
+     * Sets the name of the store, used to look up the delegate store configuration.
+     *
+     * @param storeName the name of the store
+     */
+    public void setStoreName(String storeName) {
+        this.storeName = storeName;
+    }
+
+    /**
+     * Returns the class name of the decorated object store.
+     *
+     * @return the class name of the decorated object store
+     */
+    public String getObjectStoreType() {
+        return this.objectStoreType;
+    }
+
+    /**
+     * Sets the class name of the decorated object store.
+     *
+     * @param objectStoreType the class name of the decorated object store
+     */
+    public void setObjectStoreType(String objectStoreType) {
+        this.objectStoreType = objectStoreType;
+    }
+
+    /**
+     * Returns the decorators, applied in order.
+     *
+     * @return the decorators
+     */
+    public List<ObjectStoreDecorator> getDecorators() {
+        return this.decorators;
+    }
+
+    /**
+     * Sets the decorators, applied in order, so that the last one is called first.
+     *
+     * @param decorators the decorators
+     */
+    public void setDecorators(List<ObjectStoreDecorator> decorators) {
+        this.decorators = List.copyOf(decorators);
+    }
+}
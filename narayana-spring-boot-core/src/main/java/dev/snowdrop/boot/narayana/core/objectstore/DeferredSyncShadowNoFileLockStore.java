@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+
+/**
+ * {@link ShadowNoFileLockStore} which does not sync each record as it is written. Files written since the previous
+ * {@link #sync()} are forced to disk by the next one, so that a single call covers the records of many transactions.
+ * Records are only durable once {@link #sync()} returns, so this store has to be used with
+ * {@link GroupCommitObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class DeferredSyncShadowNoFileLockStore extends ShadowNoFileLockStore {
+
+    private final Set<String> unsyncedFiles = ConcurrentHashMap.newKeySet();
+
+    public DeferredSyncShadowNoFileLockStore(ObjectStoreEnvironmentBean objectStoreEnvironmentBean)
+            throws ObjectStoreException {
+        super(objectStoreEnvironmentBean);
+        this.syncWrites = false;
+    }
+
+    @Override
+    protected boolean write_state(Uid objUid, String tName, OutputObjectState state, int ft)
+            throws ObjectStoreException {
+        boolean written = super.write_state(objUid, tName, state, ft);
+        if (written) {
+            this.unsyncedFiles.add(genPathName(objUid, tName, ft));
+        }
+        return written;
+    }
+
+    @Override
+    public void sync() throws SyncFailedException, ObjectStoreException {
+        for (String file : this.unsyncedFiles) {
+            // Removed before forcing it, so that a concurrent rewrite of the same file is synced again next time
+            this.unsyncedFiles.remove(file);
+            force(file);
+        }
+    }
+
+    private void force(String file) throws SyncFailedException {
+        try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (NoSuchFileException ignored) {
+            // Record has already been removed or committed
+        } catch (IOException e) {
+            SyncFailedException syncFailedException = new SyncFailedException("Failed to sync " + file);
+            syncFailedException.initCause(e);
+            throw syncFailedException;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.SyncFailedException;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+
+/**
+ * {@link ObjectStoreAPI} implementation forwarding all calls to a delegate. Decorators extend it and override only the
+ * operations they are interested in.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class DelegatingObjectStore implements ObjectStoreAPI {
+
+    private final ObjectStoreAPI delegate;
+
+    public DelegatingObjectStore(ObjectStoreAPI delegate) {
+        this.delegate = delegate;
+    }
+
+    public ObjectStoreAPI getDelegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public boolean commit_state(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.commit_state(u, tn);
+    }
+
+    @Override
+    public InputObjectState read_committed(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.read_committed(u, tn);
+    }
+
+    @Override
+    public InputObjectState read_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.read_uncommitted(u, tn);
+    }
+
+    @Override
+    public boolean remove_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.remove_uncommitted(u, tn);
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return this.delegate.write_uncommitted(u, tn, buff);
+    }
+
+    @Override
+    public boolean fullCommitNeeded() {
+        return this.delegate.fullCommitNeeded();
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff, int m) throws ObjectStoreException {
+        return this.delegate.allObjUids(s, buff, m);
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff) throws ObjectStoreException {
+        return this.delegate.allObjUids(s, buff);
+    }
+
+    @Override
+    public boolean allTypes(InputObjectState buff) throws ObjectStoreException {
+        return this.delegate.allTypes(buff);
+    }
+
+    @Override
+    public int currentState(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.currentState(u, tn);
+    }
+
+    @Override
+    public boolean hide_state(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.hide_state(u, tn);
+    }
+
+    @Override
+    public boolean reveal_state(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.reveal_state(u, tn);
+    }
+
+    @Override
+    public boolean isType(Uid u, String tn, int st) throws ObjectStoreException {
+        return this.delegate.isType(u, tn, st);
+    }
+
+    @Override
+    public boolean remove_committed(Uid u, String tn) throws ObjectStoreException {
+        return this.delegate.remove_committed(u, tn);
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return this.delegate.write_committed(u, tn, buff);
+    }
+
+    @Override
+    public void sync() throws SyncFailedException, ObjectStoreException {
+        this.delegate.sync();
+    }
+
+    @Override
+    public String getStoreName() {
+        return this.delegate.getStoreName();
+    }
+
+    @Override
+    public void start() {
+        this.delegate.start();
+    }
+
+    @Override
+    public void stop() {
+        this.delegate.stop();
+    }
+}
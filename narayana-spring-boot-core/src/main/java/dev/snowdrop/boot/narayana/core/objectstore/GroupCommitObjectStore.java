@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.SyncFailedException;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+
+/**
+ * Object store decorator which makes concurrent record writes durable with a single {@link ObjectStoreAPI#sync()}
+ * call per batch.
+ * <p>
+ * Records are written to the delegate by the calling threads. The first caller to finish its write becomes the leader
+ * of the current batch: while other writes are still in progress, it waits for them until the batch is full or the
+ * maximum wait time has elapsed, and then syncs the delegate once for the whole batch. Writes finishing while the
+ * leader syncs form the next batch. No caller returns before the sync covering its record has completed, and all
+ * callers of a batch get an exception if that sync fails.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class GroupCommitObjectStore extends DelegatingObjectStore {
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = this.lock.newCondition();
+
+    private Batch currentBatch = new Batch();
+
+    private boolean syncing;
+
+    private int writesInProgress;
+
+    /**
+     * Create a new {@link GroupCommitObjectStore} instance.
+     *
+     * @param delegate     object store whose {@link ObjectStoreAPI#sync()} makes all previous writes durable
+     * @param maxBatchSize maximum number of records made durable by a single sync
+     * @param maxWait      maximum time to wait for writes in progress before syncing
+     */
+    public GroupCommitObjectStore(ObjectStoreAPI delegate, int maxBatchSize, Duration maxWait) {
+        super(delegate);
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Max wait must not be negative: " + maxWait);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        startWrite();
+        boolean written = false;
+        try {
+            written = super.write_committed(u, tn, buff);
+        } finally {
+            finishWrite(written);
+        }
+        return written;
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        startWrite();
+        boolean written = false;
+        try {
+            written = super.write_uncommitted(u, tn, buff);
+        } finally {
+            finishWrite(written);
+        }
+        return written;
+    }
+
+    private void startWrite() {
+        this.lock.lock();
+        try {
+            this.writesInProgress++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void finishWrite(boolean written) throws ObjectStoreException {
+        this.lock.lock();
+        try {
+            this.writesInProgress--;
+            if (!written) {
+                // Nothing to sync, but a leader could be waiting for this write
+                this.changed.signalAll();
+                return;
+            }
+            Batch batch = this.currentBatch;
+            batch.size++;
+            if (batch.size >= this.maxBatchSize || this.writesInProgress == 0) {
+                this.changed.signalAll();
+            }
+            awaitDurable(batch);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void awaitDurable(Batch batch) throws ObjectStoreException {
+        boolean interrupted = false;
+        while (!batch.durable) {
+            if (!this.syncing) {
+                syncAsLeader(batch);
+            } else {
+                try {
+                    this.changed.await();
+                } catch (InterruptedException e) {
+                    // The record has been written already, so keep waiting until it is durable
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (batch.failure != null) {
+            throw new ObjectStoreException("Failed to sync " + batch.size + " records", batch.failure);
+        }
+    }
+
+    private void syncAsLeader(Batch batch) {
+        this.syncing = true;
+        boolean synced = false;
+        try {
+            awaitWritesInProgress(batch);
+            this.currentBatch = new Batch();
+            this.lock.unlock();
+            try {
+                getDelegate().sync();
+                synced = true;
+            } catch (Exception e) {
+                batch.failure = e;
+            } finally {
+                this.lock.lock();
+            }
+        } finally {
+            if (!synced && batch.failure == null) {
+                batch.failure = new SyncFailedException("Sync did not complete");
+            }
+            batch.durable = true;
+            this.syncing = false;
+            this.changed.signalAll();
+        }
+    }
+
+    private void awaitWritesInProgress(Batch batch) {
+        long remainingNanos = this.maxWaitNanos;
+        while (batch.size < this.maxBatchSize && this.writesInProgress > 0 && remainingNanos > 0) {
+            try {
+                remainingNanos = this.changed.awaitNanos(remainingNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records written since the previous sync. Guarded by the store lock.
+     */
+    private static final class Batch {
+
+        private int size;
+
+        private boolean durable;
+
+        private Exception failure;
+    }
+}
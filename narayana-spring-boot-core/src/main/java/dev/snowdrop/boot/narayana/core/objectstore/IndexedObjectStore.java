@@ -0,0 +1,430 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import org.jboss.logging.Logger;
+
+/**
+ * Object store decorator which keeps the identifiers of all stored records in memory, so that recovery does not have to
+ * scan the delegate.
+ * <p>
+ * The index is loaded from the delegate on start and is then updated by every write and removal made through this
+ * store. Listing record types and identifiers, as done by every recovery pass, is answered from memory. Reads and state
+ * checks of records missing from the index, as done by orphan filters for every in-doubt Xid, return without accessing
+ * the delegate. A record is added to the index before it is written and dropped only once it has been removed, so that
+ * the index never misses a record held by the delegate, and added again once it has been written, so that a
+ * reconciliation scanning the delegate in the meantime cannot drop it. Records changed behind the back of this store, e.g. by another
+ * process sharing the log directory, are picked up by a periodic reconciliation with the delegate.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class IndexedObjectStore extends DelegatingObjectStore {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexedObjectStore.class);
+
+    // Record loaded from the delegate whose state has not been checked
+    private static final int LOADED = 8;
+
+    private final ConcurrentMap<String, TypeIndex> index = new ConcurrentHashMap<>();
+
+    private final Duration reconcileInterval;
+
+    private volatile boolean indexed;
+
+    private ScheduledExecutorService reconciler;
+
+    /**
+     * Create a new {@link IndexedObjectStore} instance.
+     *
+     * @param delegate          object store holding the records
+     * @param reconcileInterval interval between reconciliations of the index with the delegate, or zero to only load
+     *                          the index on start
+     */
+    public IndexedObjectStore(ObjectStoreAPI delegate, Duration reconcileInterval) {
+        super(delegate);
+        if (reconcileInterval.isNegative()) {
+            throw new IllegalArgumentException("Reconcile interval must not be negative: " + reconcileInterval);
+        }
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        try {
+            reconcile();
+        } catch (ObjectStoreException e) {
+            throw new IllegalStateException("Failed to load the record index of " + getStoreName(), e);
+        }
+        if (!this.reconcileInterval.isZero()) {
+            this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "narayana-object-store-index");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = this.reconcileInterval.toNanos();
+            this.reconciler.scheduleWithFixedDelay(this::reconcileQuietly, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (this.reconciler != null) {
+            this.reconciler.shutdownNow();
+            this.reconciler = null;
+        }
+        this.indexed = false;
+        super.stop();
+    }
+
+    /**
+     * Bring the index in line with the records held by the delegate. Records written or removed through this store
+     * while the delegate is scanned keep their indexed state.
+     *
+     * @throws ObjectStoreException if the delegate cannot list its records
+     */
+    public synchronized void reconcile() throws ObjectStoreException {
+        InputObjectState types = new InputObjectState();
+        if (!getDelegate().allTypes(types)) {
+            throw new ObjectStoreException("Failed to list record types of " + getStoreName());
+        }
+        try {
+            // Stores that have not been written to yet return an empty buffer
+            if (types.notempty()) {
+                for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+                    this.index.putIfAbsent(key(type), new TypeIndex(type));
+                }
+            }
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to read record types of " + getStoreName(), e);
+        }
+        for (TypeIndex typeIndex : this.index.values()) {
+            typeIndex.startReconciliation();
+            try {
+                typeIndex.reconcile(listUids(typeIndex.type));
+            } finally {
+                typeIndex.endReconciliation();
+            }
+        }
+        this.indexed = true;
+    }
+
+    @Override
+    public boolean commit_state(Uid u, String tn) throws ObjectStoreException {
+        TypeIndex typeIndex = getOrCreate(tn);
+        int previous = typeIndex.add(u, StateStatus.OS_COMMITTED);
+        boolean committed = false;
+        try {
+            committed = super.commit_state(u, tn);
+        } finally {
+            if (committed) {
+                // A reconciliation may have scanned the delegate while the state was being committed
+                typeIndex.add(u, StateStatus.OS_COMMITTED);
+                clear(typeIndex, u, tn, StateStatus.OS_UNCOMMITTED);
+            } else {
+                typeIndex.set(u, previous);
+            }
+        }
+        return committed;
+    }
+
+    @Override
+    public InputObjectState read_committed(Uid u, String tn) throws ObjectStoreException {
+        if (isMissing(u, tn, StateStatus.OS_COMMITTED)) {
+            return null;
+        }
+        return super.read_committed(u, tn);
+    }
+
+    @Override
+    public InputObjectState read_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        if (isMissing(u, tn, StateStatus.OS_UNCOMMITTED)) {
+            return null;
+        }
+        return super.read_uncommitted(u, tn);
+    }
+
+    @Override
+    public boolean remove_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        boolean removed = super.remove_uncommitted(u, tn);
+        if (removed) {
+            clear(getOrCreate(tn), u, tn, StateStatus.OS_UNCOMMITTED);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return write(u, tn, StateStatus.OS_UNCOMMITTED, () -> super.write_uncommitted(u, tn, buff));
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff, int m) throws ObjectStoreException {
+        if (!this.indexed || m != StateStatus.OS_UNKNOWN) {
+            return super.allObjUids(s, buff, m);
+        }
+        TypeIndex typeIndex = this.index.get(key(s));
+        OutputObjectState uids = new OutputObjectState();
+        try {
+            if (typeIndex != null) {
+                for (Uid uid : typeIndex.uids()) {
+                    UidHelper.packInto(uid, uids);
+                }
+            }
+            UidHelper.packInto(Uid.nullUid(), uids);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to pack record identifiers of type " + s, e);
+        }
+        buff.setBuffer(uids.buffer());
+        return true;
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff) throws ObjectStoreException {
+        return allObjUids(s, buff, StateStatus.OS_UNKNOWN);
+    }
+
+    @Override
+    public boolean allTypes(InputObjectState buff) throws ObjectStoreException {
+        if (!this.indexed) {
+            return super.allTypes(buff);
+        }
+        // Listed like file system stores list their directories, with every parent of a type, but without the types
+        // whose records have all been removed. Their entries are kept, as writers may still hold them.
+        Set<String> types = new TreeSet<>();
+        for (Map.Entry<String, TypeIndex> entry : this.index.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            String type = entry.getKey();
+            for (int separator = type.indexOf('/'); separator > 0; separator = type.indexOf('/', separator + 1)) {
+                types.add(type.substring(0, separator));
+            }
+            types.add(type);
+        }
+        OutputObjectState packedTypes = new OutputObjectState();
+        try {
+            for (String type : types) {
+                packedTypes.packString(type);
+            }
+            packedTypes.packString("");
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to pack record types", e);
+        }
+        buff.setBuffer(packedTypes.buffer());
+        return true;
+    }
+
+    @Override
+    public int currentState(Uid u, String tn) throws ObjectStoreException {
+        if (isMissing(u, tn, StateStatus.OS_COMMITTED | StateStatus.OS_UNCOMMITTED)) {
+            return StateStatus.OS_UNKNOWN;
+        }
+        return super.currentState(u, tn);
+    }
+
+    @Override
+    public boolean remove_committed(Uid u, String tn) throws ObjectStoreException {
+        boolean removed = super.remove_committed(u, tn);
+        if (removed) {
+            clear(getOrCreate(tn), u, tn, StateStatus.OS_COMMITTED);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return write(u, tn, StateStatus.OS_COMMITTED, () -> super.write_committed(u, tn, buff));
+    }
+
+    private boolean write(Uid u, String tn, int state, Write write) throws ObjectStoreException {
+        TypeIndex typeIndex = getOrCreate(tn);
+        int previous = typeIndex.add(u, state);
+        boolean written = false;
+        try {
+            written = write.write();
+        } finally {
+            if (written) {
+                // A reconciliation may have scanned the delegate while the record was being written
+                typeIndex.add(u, state);
+            } else {
+                typeIndex.set(u, previous);
+            }
+        }
+        return written;
+    }
+
+    private void clear(TypeIndex typeIndex, Uid u, String tn, int state) throws ObjectStoreException {
+        if ((typeIndex.clear(u, state) & LOADED) != 0) {
+            // Only the delegate knows whether a loaded record had both states
+            typeIndex.set(u, toFlags(super.currentState(u, tn)));
+        }
+    }
+
+    private boolean isMissing(Uid u, String tn, int states) {
+        if (!this.indexed) {
+            return false;
+        }
+        TypeIndex typeIndex = this.index.get(key(tn));
+        return typeIndex == null || !typeIndex.contains(u, states | LOADED);
+    }
+
+    private TypeIndex getOrCreate(String tn) {
+        return this.index.computeIfAbsent(key(tn), key -> new TypeIndex(tn));
+    }
+
+    private Set<Uid> listUids(String type) throws ObjectStoreException {
+        InputObjectState uids = new InputObjectState();
+        if (!getDelegate().allObjUids(type, uids)) {
+            throw new ObjectStoreException("Failed to list records of type " + type);
+        }
+        Set<Uid> result = new HashSet<>();
+        try {
+            for (Uid uid = UidHelper.unpackFrom(uids); uid.notEquals(Uid.nullUid()); uid = UidHelper.unpackFrom(uids)) {
+                result.add(uid);
+            }
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to read records of type " + type, e);
+        }
+        return result;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (ObjectStoreException | RuntimeException e) {
+            LOGGER.warnf(e, "Failed to reconcile the record index of %s", getStoreName());
+        }
+    }
+
+    private static String key(String type) {
+        // Stores differ in whether they report types with a leading separator
+        if (type == null) {
+            return "";
+        }
+        return type.startsWith("/") ? type.substring(1) : type;
+    }
+
+    private static int toFlags(int state) {
+        if (state == StateStatus.OS_UNKNOWN) {
+            return 0;
+        }
+        return state & (StateStatus.OS_COMMITTED | StateStatus.OS_UNCOMMITTED);
+    }
+
+    @FunctionalInterface
+    private interface Write {
+
+        boolean write() throws ObjectStoreException;
+    }
+
+    private static final class TypeIndex {
+
+        private final String type;
+
+        private final Map<Uid, Integer> states = new HashMap<>();
+
+        // Records changed while the delegate is scanned, whose indexed state must be kept
+        private Set<Uid> touched;
+
+        private TypeIndex(String type) {
+            this.type = type;
+        }
+
+        private synchronized int add(Uid uid, int state) {
+            Integer previous = this.states.get(uid);
+            int flags = previous == null ? 0 : previous;
+            this.states.put(uid, flags | state);
+            touch(uid);
+            return flags;
+        }
+
+        private synchronized int clear(Uid uid, int state) {
+            Integer current = this.states.get(uid);
+            int flags = current == null ? 0 : current & ~state;
+            set(uid, flags);
+            return flags;
+        }
+
+        private synchronized void set(Uid uid, int flags) {
+            if (flags == 0) {
+                this.states.remove(uid);
+            } else {
+                this.states.put(uid, flags);
+            }
+            touch(uid);
+        }
+
+        private synchronized void touch(Uid uid) {
+            if (this.touched != null) {
+                this.touched.add(uid);
+            }
+        }
+
+        private synchronized boolean contains(Uid uid, int states) {
+            Integer flags = this.states.get(uid);
+            return flags != null && (flags & states) != 0;
+        }
+
+        private synchronized boolean isEmpty() {
+            return this.states.isEmpty();
+        }
+
+        private synchronized List<Uid> uids() {
+            return new ArrayList<>(this.states.keySet());
+        }
+
+        private synchronized void startReconciliation() {
+            this.touched = new HashSet<>();
+        }
+
+        private synchronized void reconcile(Set<Uid> stored) {
+            this.states.keySet().removeIf(uid -> !stored.contains(uid) && !this.touched.contains(uid));
+            for (Uid uid : stored) {
+                if (!this.touched.contains(uid)) {
+                    this.states.putIfAbsent(uid, LOADED);
+                }
+            }
+        }
+
+        private synchronized void endReconciliation() {
+            this.touched = null;
+        }
+    }
+}
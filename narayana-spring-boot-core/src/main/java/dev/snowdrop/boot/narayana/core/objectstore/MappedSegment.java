@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Preallocated, memory-mapped file to which {@link MappedSegmentObjectStore} appends records.
+ * <p>
+ * Each record is framed by its length and CRC32C checksum. The unused rest of the file is zero-filled, so the first
+ * zero length marks the end of the appended records, and a checksum mismatch marks a record which was not completely
+ * written before a crash. Appends are serialized by the store, while forces may run concurrently with them.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class MappedSegment {
+
+    private static final String FILE_PREFIX = "segment-";
+
+    private static final String FILE_SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final int PREALLOCATION_CHUNK_SIZE = 64 * 1024;
+
+    private final long id;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private volatile int position;
+
+    private volatile int forcedPosition;
+
+    private int liveRecords;
+
+    private MappedSegment(long id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create a new zero-filled segment file and map it.
+     *
+     * @param directory directory of the segment files
+     * @param id        sequence number of the new segment
+     * @param size      size of the segment file in bytes
+     * @return the new segment
+     * @throws IOException if the file cannot be created
+     */
+    static MappedSegment create(Path directory, long id, int size) throws IOException {
+        Path path = directory.resolve(FILE_PREFIX + String.format("%020d", id) + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Writing the zeros allocates the disk blocks up front, so that forces do not have to update file metadata
+            ByteBuffer zeros = ByteBuffer.allocate(PREALLOCATION_CHUNK_SIZE);
+            for (long written = 0; written < size; ) {
+                zeros.clear().limit((int) Math.min(PREALLOCATION_CHUNK_SIZE, size - written));
+                written += channel.write(zeros, written);
+            }
+            channel.force(true);
+            return new MappedSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Map an existing segment file, as left by a previous run.
+     *
+     * @param path segment file
+     * @return the segment, with nothing appended until its records are recovered
+     * @throws IOException if the file cannot be mapped
+     */
+    static MappedSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new MappedSegment(parseId(path), path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Check whether the path names a segment file.
+     *
+     * @param path file to check
+     * @return whether the file is a segment file
+     */
+    static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) && Files.isRegularFile(path);
+    }
+
+    /**
+     * Parse the sequence number of a segment file.
+     *
+     * @param path segment file
+     * @return the sequence number
+     */
+    static long parseId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    int getPosition() {
+        return this.position;
+    }
+
+    int getLiveRecords() {
+        return this.liveRecords;
+    }
+
+    void addLiveRecord() {
+        this.liveRecords++;
+    }
+
+    void removeLiveRecord() {
+        this.liveRecords--;
+    }
+
+    /**
+     * Check whether a record body of the given size fits into an empty segment of the given size.
+     *
+     * @param bodySize    size of the record body
+     * @param segmentSize size of the segment
+     * @return whether the record fits
+     */
+    static boolean fits(int bodySize, int segmentSize) {
+        return (long) HEADER_SIZE + bodySize <= segmentSize;
+    }
+
+    /**
+     * Append a record. Callers must serialize appends.
+     *
+     * @param body record body
+     * @return whether the record has been appended, {@code false} if the segment is full
+     */
+    boolean append(byte[] body) {
+        int start = this.position;
+        if ((long) start + HEADER_SIZE + body.length > this.buffer.capacity()) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        this.buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        this.buffer.put(start + HEADER_SIZE, body);
+        this.buffer.putInt(start, body.length);
+        this.position = start + HEADER_SIZE + body.length;
+        return true;
+    }
+
+    /**
+     * Force the appended records up to the given position to disk. Concurrent callers are covered by a single force
+     * of all records appended so far.
+     *
+     * @param upTo position up to which records have to be durable
+     * @throws IOException if the records cannot be forced
+     */
+    void force(int upTo) throws IOException {
+        if (this.forcedPosition >= upTo) {
+            return;
+        }
+        this.forceLock.lock();
+        try {
+            int from = this.forcedPosition;
+            if (from >= upTo) {
+                return;
+            }
+            int to = this.position;
+            this.buffer.force(from, to - from);
+            this.forcedPosition = to;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.forceLock.unlock();
+        }
+    }
+
+    /**
+     * Read the records appended by a previous run, stopping at the end of the appended records or at the first
+     * incomplete record. Following appends go after the last complete record.
+     *
+     * @param consumer consumer of the record bodies
+     * @return whether the segment ended with an incomplete record
+     */
+    boolean recover(Consumer<byte[]> consumer) {
+        int current = 0;
+        boolean truncated = false;
+        CRC32C crc = new CRC32C();
+        while (current + HEADER_SIZE <= this.buffer.capacity()) {
+            int length = this.buffer.getInt(current);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || (long) current + HEADER_SIZE + length > this.buffer.capacity()) {
+                truncated = true;
+                break;
+            }
+            byte[] body = new byte[length];
+            this.buffer.get(current + HEADER_SIZE, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != this.buffer.getInt(current + Integer.BYTES)) {
+                truncated = true;
+                break;
+            }
+            consumer.accept(body);
+            current += HEADER_SIZE + length;
+        }
+        this.position = current;
+        this.forcedPosition = current;
+        return truncated;
+    }
+
+    /**
+     * Delete the segment file. The mapping is released once the segment is no longer referenced.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(this.path);
+    }
+
+    @Override
+    public String toString() {
+        return this.path.toString();
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputBuffer;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputBuffer;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import org.jboss.logging.Logger;
+
+/**
+ * Object store which appends records to preallocated, memory-mapped segment files, instead of creating and renaming a
+ * file per record.
+ * <p>
+ * Writes and removals are appended to the current segment and forced to disk together with all other records appended
+ * in the meantime, so that concurrent transactions share a single force. Once a segment is full, appends roll over to
+ * a new one. Segments whose records have all been removed are deleted, and when too many segments are kept because the
+ * oldest one still holds records in use, these records are copied to the current segment first. All records in use are
+ * kept in memory and recovered from the segment files on start.
+ * <p>
+ * Like the journal store, it only supports committed states, which is all the action store needs.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MappedSegmentObjectStore implements ObjectStoreAPI {
+
+    private static final Logger LOGGER = Logger.getLogger(MappedSegmentObjectStore.class);
+
+    private static final byte WRITE = 1;
+
+    private static final byte REMOVE = 2;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean syncWrites;
+
+    private final boolean syncDeletes;
+
+    private final int compactMinSegments;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, Map<Uid, StoredRecord>> content = new ConcurrentHashMap<>();
+
+    private final Deque<MappedSegment> segments = new ArrayDeque<>();
+
+    private boolean started;
+
+    public MappedSegmentObjectStore(MappedSegmentObjectStoreEnvironmentBean environmentBean) {
+        if (environmentBean.getSegmentSize() <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + environmentBean.getSegmentSize());
+        }
+        this.directory = Paths.get(environmentBean.getStoreDir()).toAbsolutePath();
+        this.segmentSize = environmentBean.getSegmentSize();
+        this.syncWrites = environmentBean.isSyncWrites();
+        this.syncDeletes = environmentBean.isSyncDeletes();
+        this.compactMinSegments = environmentBean.getCompactMinSegments();
+    }
+
+    @Override
+    public void start() {
+        this.lock.lock();
+        try {
+            if (this.started) {
+                return;
+            }
+            Files.createDirectories(this.directory);
+            for (Path path : listSegmentFiles()) {
+                recover(MappedSegment.open(path));
+            }
+            long nextId = this.segments.isEmpty() ? 0 : this.segments.getLast().getId() + 1;
+            // Recovered segments may end with an incomplete record, so appends always continue in a new segment
+            this.segments.addLast(MappedSegment.create(this.directory, nextId, this.segmentSize));
+            compact();
+            this.started = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start object store in " + this.directory, e);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        this.lock.lock();
+        try {
+            if (!this.started) {
+                return;
+            }
+            forceAll();
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Failed to force object store in %s on stop", this.directory);
+        } finally {
+            this.started = false;
+            this.segments.clear();
+            this.content.clear();
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        String typeName = ensureTypenamePrefix(tn);
+        byte[] body = encode(WRITE, u, typeName, buff.buffer());
+        MappedSegment segment;
+        int position;
+        this.lock.lock();
+        try {
+            segment = append(body);
+            position = segment.getPosition();
+            setRecord(u, typeName, new StoredRecord(body, segment));
+        } finally {
+            this.lock.unlock();
+        }
+        if (this.syncWrites) {
+            force(segment, position);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove_committed(Uid u, String tn) throws ObjectStoreException {
+        String typeName = ensureTypenamePrefix(tn);
+        byte[] body = encode(REMOVE, u, typeName, null);
+        MappedSegment segment;
+        int position;
+        this.lock.lock();
+        try {
+            if (!getContentForType(typeName).containsKey(u)) {
+                return false;
+            }
+            segment = append(body);
+            position = segment.getPosition();
+            setRecord(u, typeName, null);
+        } finally {
+            this.lock.unlock();
+        }
+        if (this.syncDeletes) {
+            force(segment, position);
+        }
+        return true;
+    }
+
+    @Override
+    public InputObjectState read_committed(Uid u, String tn) throws ObjectStoreException {
+        String typeName = ensureTypenamePrefix(tn);
+        StoredRecord record = getContentForType(typeName).get(u);
+        if (record == null) {
+            return null;
+        }
+        try {
+            InputBuffer inputBuffer = new InputBuffer(record.body);
+            inputBuffer.unpackByte();
+            UidHelper.unpackFrom(inputBuffer);
+            inputBuffer.unpackString();
+            return new InputObjectState(u, typeName, inputBuffer.unpackBytes());
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to read record " + u + " of type " + typeName, e);
+        }
+    }
+
+    @Override
+    public int currentState(Uid u, String tn) throws ObjectStoreException {
+        return getContentForType(ensureTypenamePrefix(tn)).containsKey(u) ? StateStatus.OS_COMMITTED
+                : StateStatus.OS_UNKNOWN;
+    }
+
+    @Override
+    public boolean isType(Uid u, String tn, int st) throws ObjectStoreException {
+        return currentState(u, tn) == st;
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff, int m) throws ObjectStoreException {
+        OutputObjectState uids = new OutputObjectState();
+        try {
+            if (m == StateStatus.OS_UNKNOWN || m == StateStatus.OS_COMMITTED) {
+                for (Uid uid : getContentForType(ensureTypenamePrefix(s)).keySet()) {
+                    UidHelper.packInto(uid, uids);
+                }
+            }
+            UidHelper.packInto(Uid.nullUid(), uids);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to list records of type " + s, e);
+        }
+        buff.setBuffer(uids.buffer());
+        return true;
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff) throws ObjectStoreException {
+        return allObjUids(s, buff, StateStatus.OS_UNKNOWN);
+    }
+
+    @Override
+    public boolean allTypes(InputObjectState buff) throws ObjectStoreException {
+        // Recovery looks types up level by level, so every parent of a type is listed as well
+        Set<String> types = new LinkedHashSet<>();
+        for (Map.Entry<String, Map<Uid, StoredRecord>> entry : this.content.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            String parent = "";
+            for (String part : entry.getKey().substring(1).split("/")) {
+                parent = parent.isEmpty() ? part : parent + "/" + part;
+                types.add(parent);
+            }
+        }
+        OutputObjectState packedTypes = new OutputObjectState();
+        try {
+            for (String type : types) {
+                packedTypes.packString(type);
+            }
+            packedTypes.packString("");
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to list record types", e);
+        }
+        buff.setBuffer(packedTypes.buffer());
+        return true;
+    }
+
+    @Override
+    public void sync() throws SyncFailedException, ObjectStoreException {
+        this.lock.lock();
+        try {
+            forceAll();
+        } catch (IOException e) {
+            throw toSyncFailedException(e);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public String getStoreName() {
+        return getClass().getSimpleName() + ":" + this.directory;
+    }
+
+    @Override
+    public boolean fullCommitNeeded() {
+        return false;
+    }
+
+    @Override
+    public InputObjectState read_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        throw unsupported("read_uncommitted");
+    }
+
+    @Override
+    public boolean remove_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        throw unsupported("remove_uncommitted");
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        throw unsupported("write_uncommitted");
+    }
+
+    @Override
+    public boolean commit_state(Uid u, String tn) throws ObjectStoreException {
+        throw unsupported("commit_state");
+    }
+
+    @Override
+    public boolean hide_state(Uid u, String tn) throws ObjectStoreException {
+        throw unsupported("hide_state");
+    }
+
+    @Override
+    public boolean reveal_state(Uid u, String tn) throws ObjectStoreException {
+        throw unsupported("reveal_state");
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(MappedSegment::isSegmentFile)
+                    .sorted(Comparator.comparingLong(MappedSegment::parseId))
+                    .toList();
+        }
+    }
+
+    private void recover(MappedSegment segment) throws IOException {
+        this.segments.addLast(segment);
+        boolean truncated = segment.recover(body -> {
+            try {
+                InputBuffer inputBuffer = new InputBuffer(body);
+                byte operation = inputBuffer.unpackByte();
+                Uid uid = UidHelper.unpackFrom(inputBuffer);
+                String typeName = inputBuffer.unpackString();
+                setRecord(uid, typeName, operation == WRITE ? new StoredRecord(body, segment) : null);
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupted record in " + segment, e);
+            }
+        });
+        if (truncated) {
+            // Only records which have never been reported as durable can be incomplete
+            LOGGER.debugf("Ignoring incomplete record at the end of %s", segment);
+        }
+    }
+
+    private void setRecord(Uid uid, String typeName, StoredRecord record) {
+        StoredRecord previous = record == null ? getContentForType(typeName).remove(uid)
+                : getContentForType(typeName).put(uid, record);
+        if (previous != null) {
+            previous.segment.removeLiveRecord();
+        }
+        if (record != null) {
+            record.segment.addLiveRecord();
+        }
+    }
+
+    private MappedSegment append(byte[] body) throws ObjectStoreException {
+        if (!this.started) {
+            throw new ObjectStoreException("Object store in " + this.directory + " is not started");
+        }
+        if (!MappedSegment.fits(body.length, this.segmentSize)) {
+            throw new ObjectStoreException("Record of " + body.length + " bytes does not fit into a segment of "
+                    + this.segmentSize + " bytes");
+        }
+        try {
+            return appendOrRollOver(body);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to append record to object store in " + this.directory, e);
+        }
+    }
+
+    private MappedSegment appendOrRollOver(byte[] body) throws IOException {
+        MappedSegment current = this.segments.getLast();
+        if (current.append(body)) {
+            return current;
+        }
+        this.segments.addLast(MappedSegment.create(this.directory, current.getId() + 1, this.segmentSize));
+        // Compacting first, so that the copy of a record never follows the record which replaces or removes it
+        compact();
+        current = this.segments.getLast();
+        if (!current.append(body)) {
+            current = MappedSegment.create(this.directory, current.getId() + 1, this.segmentSize);
+            this.segments.addLast(current);
+            current.append(body);
+        }
+        return current;
+    }
+
+    private void compact() throws IOException {
+        // A removal only refers to records in its own or older segments, so segments are deleted oldest first
+        while (this.segments.size() > 1) {
+            MappedSegment oldest = this.segments.getFirst();
+            if (oldest.getLiveRecords() > 0) {
+                if (this.segments.size() < this.compactMinSegments) {
+                    return;
+                }
+                relocate(oldest);
+            }
+            oldest.force(oldest.getPosition());
+            this.segments.removeFirst();
+            oldest.delete();
+        }
+    }
+
+    private void relocate(MappedSegment segment) throws IOException {
+        for (Map<Uid, StoredRecord> records : this.content.values()) {
+            for (Map.Entry<Uid, StoredRecord> entry : records.entrySet()) {
+                StoredRecord record = entry.getValue();
+                if (record.segment == segment) {
+                    MappedSegment current = this.segments.getLast();
+                    if (!current.append(record.body)) {
+                        current = MappedSegment.create(this.directory, current.getId() + 1, this.segmentSize);
+                        this.segments.addLast(current);
+                        current.append(record.body);
+                    }
+                    entry.setValue(new StoredRecord(record.body, current));
+                    segment.removeLiveRecord();
+                    current.addLiveRecord();
+                }
+            }
+        }
+        // Copies have to be durable before the original segment is deleted
+        forceAll();
+    }
+
+    private void forceAll() throws IOException {
+        for (MappedSegment segment : this.segments) {
+            segment.force(segment.getPosition());
+        }
+    }
+
+    private void force(MappedSegment segment, int position) throws ObjectStoreException {
+        try {
+            segment.force(position);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to force " + segment, toSyncFailedException(e));
+        }
+    }
+
+    private Map<Uid, StoredRecord> getContentForType(String typeName) {
+        return this.content.computeIfAbsent(typeName, key -> new ConcurrentHashMap<>());
+    }
+
+    private ObjectStoreException unsupported(String operation) {
+        return new ObjectStoreException(operation + " is not supported by " + getClass().getSimpleName());
+    }
+
+    private static byte[] encode(byte operation, Uid uid, String typeName, byte[] state) throws ObjectStoreException {
+        try {
+            OutputBuffer outputBuffer = new OutputBuffer();
+            outputBuffer.packByte(operation);
+            UidHelper.packInto(uid, outputBuffer);
+            outputBuffer.packString(typeName);
+            if (state != null) {
+                outputBuffer.packBytes(state);
+            }
+            return outputBuffer.buffer();
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to encode record " + uid + " of type " + typeName, e);
+        }
+    }
+
+    private static String ensureTypenamePrefix(String typeName) {
+        return typeName.startsWith("/") ? typeName : "/" + typeName;
+    }
+
+    private static SyncFailedException toSyncFailedException(IOException e) {
+        SyncFailedException syncFailedException = new SyncFailedException(e.getMessage());
+        syncFailedException.initCause(e);
+        return syncFailedException;
+    }
+
+    private static final class StoredRecord {
+
+        private final byte[] body;
+
+        private final MappedSegment segment;
+
+        private StoredRecord(byte[] body, MappedSegment segment) {
+            this.body = body;
+            this.segment = segment;
+        }
+    }
+}
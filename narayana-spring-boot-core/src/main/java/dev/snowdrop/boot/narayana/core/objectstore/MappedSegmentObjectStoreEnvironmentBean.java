@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.File;
+
+/**
+ * Configuration of the {@link MappedSegmentObjectStore}. Narayana looks it up by the same name as the store it
+ * configures, the default instance is used by the action store.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MappedSegmentObjectStoreEnvironmentBean {
+
+    private volatile String storeDir = System.getProperty("user.dir") + File.separator + "MappedSegmentStore";
+
+    private volatile int segmentSize = 8 * 1024 * 1024;
+
+    private volatile boolean syncWrites = true;
+
+    private volatile boolean syncDeletes = true;
+
+    private volatile int compactMinSegments = 4;
+
+    /**
+     * Returns the directory of the segment files.
+     *
+     * @return the directory of the segment files
+     */
+    public String getStoreDir() {
+        return this.storeDir;
+    }
+
+    /**
+     * Sets the directory of the segment files.
+     *
+     * @param storeDir the directory of the segment files
+     */
+    public void setStoreDir(String storeDir) {
+        this.storeDir = storeDir;
+    }
+
+    /**
+     * Returns the size of a segment file in bytes.
+     *
+     * @return the size of a segment file in bytes
+     */
+    public int getSegmentSize() {
+        return this.segmentSize;
+    }
+
+    /**
+     * Sets the size of a segment file in bytes. It limits the size of a single record.
+     *
+     * @param segmentSize the size of a segment file in bytes
+     */
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Returns whether a write returns only after the record has been forced to disk.
+     *
+     * @return whether writes are forced to disk
+     */
+    public boolean isSyncWrites() {
+        return this.syncWrites;
+    }
+
+    /**
+     * Sets whether a write returns only after the record has been forced to disk.
+     *
+     * @param syncWrites whether writes are forced to disk
+     */
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Returns whether a removal returns only after it has been forced to disk.
+     *
+     * @return whether removals are forced to disk
+     */
+    public boolean isSyncDeletes() {
+        return this.syncDeletes;
+    }
+
+    /**
+     * Sets whether a removal returns only after it has been forced to disk.
+     *
+     * @param syncDeletes whether removals are forced to disk
+     */
+    public void setSyncDeletes(boolean syncDeletes) {
+        this.syncDeletes = syncDeletes;
+    }
+
+    /**
+     * Returns the number of segments from which the records still in use are moved out of the oldest segment.
+     *
+     * @return the number of segments triggering compaction of the oldest segment
+     */
+    public int getCompactMinSegments() {
+        return this.compactMinSegments;
+    }
+
+    /**
+     * Sets the number of segments from which the records still in use are moved out of the oldest segment, so that it
+     * can be deleted. Segments without records in use are deleted regardless of this setting.
+     *
+     * @param compactMinSegments the number of segments triggering compaction of the oldest segment
+     */
+    public void setCompactMinSegments(int compactMinSegments) {
+        this.compactMinSegments = compactMinSegments;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.jboss.logging.Logger;
+
+/**
+ * Object store decorator which records Micrometer metrics for the operations of its delegate.
+ * <p>
+ * Writes, removals and reads are timed per record type. When the delegate syncs on write, which is the case for all
+ * stores in their default configuration, the write timer includes the time spent waiting for the disk. The size of the
+ * written records is recorded as a histogram, and the size of each object store directory is exposed as a gauge tagged
+ * by the directory. Walking a large store is expensive, so the sizes are computed on a background thread and scrapes
+ * read the last computed value.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MeteredObjectStore extends DelegatingObjectStore {
+
+    private static final String TYPE_TAG = "type";
+
+    private static final Logger LOGGER = Logger.getLogger(MeteredObjectStore.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final Meter.MeterProvider<Timer> writeTimer;
+
+    private final Meter.MeterProvider<Timer> removeTimer;
+
+    private final Meter.MeterProvider<Timer> readTimer;
+
+    private final Meter.MeterProvider<DistributionSummary> recordSize;
+
+    private final Map<Path, AtomicLong> directorySizes = new LinkedHashMap<>();
+
+    private final List<Gauge> directorySizeGauges = new ArrayList<>();
+
+    private final Duration sizeRefreshInterval;
+
+    private ScheduledExecutorService sizeRefresher;
+
+    /**
+     * Create a new {@link MeteredObjectStore} instance.
+     *
+     * @param delegate            object store to be measured
+     * @param meterRegistry       registry to record metrics to
+     * @param directories         object store directories whose size is exposed, directories nested in another one are
+     *                            counted as part of it
+     * @param sizeRefreshInterval delay between two computations of the directory sizes
+     */
+    public MeteredObjectStore(ObjectStoreAPI delegate, MeterRegistry meterRegistry, Collection<Path> directories,
+            Duration sizeRefreshInterval) {
+        super(delegate);
+        if (sizeRefreshInterval.isNegative() || sizeRefreshInterval.isZero()) {
+            throw new IllegalArgumentException("Size refresh interval must be positive: " + sizeRefreshInterval);
+        }
+        this.meterRegistry = meterRegistry;
+        this.writeTimer = Timer.builder("narayana.object.store.write")
+                .description("Time taken to write a transaction log record, including the sync to disk")
+                .withRegistry(meterRegistry);
+        this.removeTimer = Timer.builder("narayana.object.store.remove")
+                .description("Time taken to remove a transaction log record")
+                .withRegistry(meterRegistry);
+        this.readTimer = Timer.builder("narayana.object.store.read")
+                .description("Time taken to read a transaction log record")
+                .withRegistry(meterRegistry);
+        this.recordSize = DistributionSummary.builder("narayana.object.store.record.size")
+                .description("Size of the written transaction log records")
+                .baseUnit(BaseUnits.BYTES)
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        this.sizeRefreshInterval = sizeRefreshInterval;
+        for (Path directory : outermost(directories)) {
+            // Unknown until the first refresh
+            AtomicLong size = new AtomicLong(-1);
+            this.directorySizes.put(directory, size);
+            this.directorySizeGauges.add(Gauge.builder("narayana.object.store.directory.size", size,
+                            value -> value.get() < 0 ? Double.NaN : value.get())
+                    .description("Size of the object store directory")
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("directory", directory.toString())
+                    .strongReference(true)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        synchronized (this) {
+            if (this.sizeRefresher == null && !this.directorySizes.isEmpty()) {
+                this.sizeRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "narayana-object-store-size");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                this.sizeRefresher.scheduleWithFixedDelay(this::refreshDirectorySizes, 0,
+                        this.sizeRefreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.write_committed(u, tn, buff);
+        } finally {
+            recordWrite(tn, buff, start);
+        }
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.write_uncommitted(u, tn, buff);
+        } finally {
+            recordWrite(tn, buff, start);
+        }
+    }
+
+    @Override
+    public boolean remove_committed(Uid u, String tn) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.remove_committed(u, tn);
+        } finally {
+            record(this.removeTimer, tn, start);
+        }
+    }
+
+    @Override
+    public boolean remove_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.remove_uncommitted(u, tn);
+        } finally {
+            record(this.removeTimer, tn, start);
+        }
+    }
+
+    @Override
+    public InputObjectState read_committed(Uid u, String tn) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.read_committed(u, tn);
+        } finally {
+            record(this.readTimer, tn, start);
+        }
+    }
+
+    @Override
+    public InputObjectState read_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        long start = System.nanoTime();
+        try {
+            return super.read_uncommitted(u, tn);
+        } finally {
+            record(this.readTimer, tn, start);
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            super.stop();
+        } finally {
+            synchronized (this) {
+                if (this.sizeRefresher != null) {
+                    this.sizeRefresher.shutdownNow();
+                    this.sizeRefresher = null;
+                }
+            }
+            // A store started again registers new gauges, which must not be shadowed by these ones
+            this.directorySizeGauges.forEach(this.meterRegistry::remove);
+        }
+    }
+
+    void refreshDirectorySizes() {
+        this.directorySizes.forEach((directory, size) -> {
+            try {
+                size.set(sizeOf(directory));
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to compute the size of %s", directory);
+                size.set(-1);
+            }
+        });
+    }
+
+    private void recordWrite(String tn, OutputObjectState buff, long start) {
+        record(this.writeTimer, tn, start);
+        if (buff != null) {
+            this.recordSize.withTags(TYPE_TAG, tn).record(buff.length());
+        }
+    }
+
+    private void record(Meter.MeterProvider<Timer> timer, String tn, long start) {
+        timer.withTags(TYPE_TAG, tn).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static List<Path> outermost(Collection<Path> directories) {
+        List<Path> normalized = directories.stream()
+                .map(directory -> directory.toAbsolutePath().normalize())
+                .distinct()
+                .toList();
+        return normalized.stream()
+                .filter(directory -> normalized.stream()
+                        .noneMatch(other -> !other.equals(directory) && directory.startsWith(other)))
+                .toList();
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            // Narayana creates the directory on the first write
+            return 0;
+        }
+        AtomicLong size = new AtomicLong();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                size.addAndGet(attributes.size());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Records are removed concurrently
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size.get();
+    }
+}
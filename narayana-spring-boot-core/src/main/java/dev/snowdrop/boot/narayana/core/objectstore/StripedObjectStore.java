@@ -0,0 +1,426 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import org.jboss.logging.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Object store which spreads records across several stores, e.g. one per disk, by the hash of their {@link Uid}.
+ * <p>
+ * Each stripe is a separate store located in one of the directories configured in
+ * {@link StripedObjectStoreEnvironmentBean}, and otherwise configured like the store this one replaces. Operations on
+ * a single record go to its stripe only, while listings used by recovery merge the results of all stripes.
+ * <p>
+ * The stripe of a record depends on the number and order of the directories. When the store is started, records found
+ * in another stripe than theirs, because directories were added or reordered since they were written, are moved to
+ * their stripe. Records in a directory that is no longer configured cannot be found. To report them, each directory
+ * keeps a list of the directories of the store, and a warning is logged on start for every listed directory which is
+ * no longer configured but still holds records.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class StripedObjectStore implements ObjectStoreAPI {
+
+    static final String STRIPE_DIRS_FILE_SUFFIX = ".stripes";
+
+    private static final Logger LOGGER = Logger.getLogger(StripedObjectStore.class);
+
+    private final List<ObjectStoreAPI> stripes;
+
+    private final List<Path> stripeDirs;
+
+    private final Function<Path, ObjectStoreAPI> stripeFactory;
+
+    public StripedObjectStore(StripedObjectStoreEnvironmentBean environmentBean) {
+        this(createStripeFactory(environmentBean), environmentBean.getObjectStoreDirs().stream()
+                .map(dir -> Path.of(dir).toAbsolutePath().normalize())
+                .toList());
+    }
+
+    private StripedObjectStore(Function<Path, ObjectStoreAPI> stripeFactory, List<Path> stripeDirs) {
+        this(stripeDirs.stream().map(stripeFactory).toList(), stripeDirs, stripeFactory);
+    }
+
+    /**
+     * Create a new {@link StripedObjectStore} instance.
+     *
+     * @param stripes stores to spread records across, in a stable order
+     */
+    public StripedObjectStore(List<ObjectStoreAPI> stripes) {
+        this(stripes, List.of(), null);
+    }
+
+    private StripedObjectStore(List<ObjectStoreAPI> stripes, List<Path> stripeDirs,
+            Function<Path, ObjectStoreAPI> stripeFactory) {
+        if (stripes.isEmpty()) {
+            throw new IllegalArgumentException("Striped object store requires at least one stripe");
+        }
+        this.stripes = List.copyOf(stripes);
+        this.stripeDirs = stripeDirs;
+        this.stripeFactory = stripeFactory;
+    }
+
+    public List<ObjectStoreAPI> getStripes() {
+        return this.stripes;
+    }
+
+    @Override
+    public boolean commit_state(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).commit_state(u, tn);
+    }
+
+    @Override
+    public InputObjectState read_committed(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).read_committed(u, tn);
+    }
+
+    @Override
+    public InputObjectState read_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).read_uncommitted(u, tn);
+    }
+
+    @Override
+    public boolean remove_uncommitted(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).remove_uncommitted(u, tn);
+    }
+
+    @Override
+    public boolean write_uncommitted(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return getStripe(u).write_uncommitted(u, tn, buff);
+    }
+
+    @Override
+    public boolean fullCommitNeeded() {
+        return this.stripes.get(0).fullCommitNeeded();
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff, int m) throws ObjectStoreException {
+        OutputObjectState merged = new OutputObjectState();
+        try {
+            for (ObjectStoreAPI stripe : this.stripes) {
+                InputObjectState uids = new InputObjectState();
+                if (!stripe.allObjUids(s, uids, m)) {
+                    return false;
+                }
+                Uid uid = UidHelper.unpackFrom(uids);
+                while (uid.notEquals(Uid.nullUid())) {
+                    UidHelper.packInto(uid, merged);
+                    uid = UidHelper.unpackFrom(uids);
+                }
+            }
+            UidHelper.packInto(Uid.nullUid(), merged);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to merge record identifiers of type " + s, e);
+        }
+        buff.setBuffer(merged.buffer());
+        return true;
+    }
+
+    @Override
+    public boolean allObjUids(String s, InputObjectState buff) throws ObjectStoreException {
+        return allObjUids(s, buff, StateStatus.OS_UNKNOWN);
+    }
+
+    @Override
+    public boolean allTypes(InputObjectState buff) throws ObjectStoreException {
+        Set<String> types = new LinkedHashSet<>();
+        boolean result = true;
+        try {
+            for (ObjectStoreAPI stripe : this.stripes) {
+                InputObjectState stripeTypes = new InputObjectState();
+                result &= stripe.allTypes(stripeTypes);
+                // Stripes that have not been written to yet return an empty buffer
+                if (stripeTypes.notempty()) {
+                    for (String type = stripeTypes.unpackString(); !type.isEmpty(); type = stripeTypes.unpackString()) {
+                        types.add(type);
+                    }
+                }
+            }
+            OutputObjectState merged = new OutputObjectState();
+            for (String type : types) {
+                merged.packString(type);
+            }
+            merged.packString("");
+            buff.setBuffer(merged.buffer());
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to merge record types", e);
+        }
+        return result;
+    }
+
+    @Override
+    public int currentState(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).currentState(u, tn);
+    }
+
+    @Override
+    public boolean hide_state(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).hide_state(u, tn);
+    }
+
+    @Override
+    public boolean reveal_state(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).reveal_state(u, tn);
+    }
+
+    @Override
+    public boolean isType(Uid u, String tn, int st) throws ObjectStoreException {
+        return getStripe(u).isType(u, tn, st);
+    }
+
+    @Override
+    public boolean remove_committed(Uid u, String tn) throws ObjectStoreException {
+        return getStripe(u).remove_committed(u, tn);
+    }
+
+    @Override
+    public boolean write_committed(Uid u, String tn, OutputObjectState buff) throws ObjectStoreException {
+        return getStripe(u).write_committed(u, tn, buff);
+    }
+
+    @Override
+    public void sync() throws SyncFailedException, ObjectStoreException {
+        for (ObjectStoreAPI stripe : this.stripes) {
+            stripe.sync();
+        }
+    }
+
+    @Override
+    public String getStoreName() {
+        return this.stripes.get(0).getStoreName();
+    }
+
+    @Override
+    public void start() {
+        this.stripes.forEach(ObjectStoreAPI::start);
+        Set<Path> droppedStripeDirs = findDroppedStripeDirs();
+        try {
+            int moved = restripe();
+            if (moved > 0) {
+                LOGGER.infof("Moved %d records of %s to their stripes", moved, getStoreName());
+            }
+        } catch (IOException | ObjectStoreException e) {
+            throw new IllegalStateException("Failed to move records of " + getStoreName() + " to their stripes", e);
+        }
+        writeStripeDirs(droppedStripeDirs);
+    }
+
+    @Override
+    public void stop() {
+        this.stripes.forEach(ObjectStoreAPI::stop);
+    }
+
+    /**
+     * Find the directories listed by the configured ones which are no longer configured, and still hold records.
+     */
+    private Set<Path> findDroppedStripeDirs() {
+        Set<Path> listedStripeDirs = new LinkedHashSet<>();
+        for (Path stripeDir : this.stripeDirs) {
+            Path stripeDirsFile = getStripeDirsFile(stripeDir);
+            try {
+                if (Files.isRegularFile(stripeDirsFile)) {
+                    Files.readAllLines(stripeDirsFile, StandardCharsets.UTF_8).stream()
+                            .filter(line -> !line.isBlank())
+                            .forEach(line -> listedStripeDirs.add(Path.of(line)));
+                }
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Failed to read the directories of %s from %s", getStoreName(), stripeDirsFile);
+            }
+        }
+        listedStripeDirs.removeAll(this.stripeDirs);
+        Set<Path> droppedStripeDirs = new LinkedHashSet<>();
+        for (Path stripeDir : listedStripeDirs) {
+            if (!Files.isDirectory(stripeDir)) {
+                continue;
+            }
+            ObjectStoreAPI stripe = this.stripeFactory.apply(stripeDir);
+            stripe.start();
+            try {
+                int records = countRecords(stripe);
+                if (records > 0) {
+                    LOGGER.warnf("%d records of %s are in %s, which is no longer a striping directory. They cannot "
+                            + "be recovered unless the directory is configured again", records, getStoreName(),
+                            stripeDir);
+                    droppedStripeDirs.add(stripeDir);
+                }
+            } catch (IOException | ObjectStoreException | RuntimeException e) {
+                LOGGER.warnf(e, "Failed to check %s for records of %s", stripeDir, getStoreName());
+                droppedStripeDirs.add(stripeDir);
+            } finally {
+                stripe.stop();
+            }
+        }
+        return droppedStripeDirs;
+    }
+
+    /**
+     * List the directories of the store in each of them. Dropped directories holding records stay listed, so that they
+     * are reported on every start until they are configured again or emptied.
+     */
+    private void writeStripeDirs(Set<Path> droppedStripeDirs) {
+        List<String> lines = new ArrayList<>();
+        this.stripeDirs.forEach(stripeDir -> lines.add(stripeDir.toString()));
+        droppedStripeDirs.forEach(stripeDir -> lines.add(stripeDir.toString()));
+        for (Path stripeDir : this.stripeDirs) {
+            Path stripeDirsFile = getStripeDirsFile(stripeDir);
+            try {
+                Files.createDirectories(stripeDir);
+                Files.write(stripeDirsFile, lines, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Failed to write the directories of %s to %s", getStoreName(), stripeDirsFile);
+            }
+        }
+    }
+
+    private Path getStripeDirsFile(Path stripeDir) {
+        return stripeDir.resolve(getStoreName() + STRIPE_DIRS_FILE_SUFFIX);
+    }
+
+    private static int countRecords(ObjectStoreAPI stripe) throws IOException, ObjectStoreException {
+        InputObjectState types = new InputObjectState();
+        if (!stripe.allTypes(types)) {
+            throw new ObjectStoreException("Failed to list record types of " + stripe.getStoreName());
+        }
+        int count = 0;
+        // Stripes that have not been written to yet return an empty buffer
+        if (!types.notempty()) {
+            return count;
+        }
+        for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+            InputObjectState uids = new InputObjectState();
+            if (!stripe.allObjUids(type, uids)) {
+                throw new ObjectStoreException("Failed to list records of type " + type);
+            }
+            for (Uid uid = UidHelper.unpackFrom(uids); uid.notEquals(Uid.nullUid()); uid = UidHelper.unpackFrom(uids)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ObjectStoreAPI getStripe(Uid uid) {
+        return this.stripes.get(Math.floorMod(uid.hashCode(), this.stripes.size()));
+    }
+
+    private int restripe() throws IOException, ObjectStoreException {
+        int moved = 0;
+        for (ObjectStoreAPI stripe : this.stripes) {
+            InputObjectState types = new InputObjectState();
+            if (!stripe.allTypes(types)) {
+                throw new ObjectStoreException("Failed to list record types of " + stripe.getStoreName());
+            }
+            // Stripes that have not been written to yet return an empty buffer
+            if (!types.notempty()) {
+                continue;
+            }
+            for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+                InputObjectState uids = new InputObjectState();
+                if (!stripe.allObjUids(type, uids)) {
+                    throw new ObjectStoreException("Failed to list records of type " + type);
+                }
+                Uid uid = UidHelper.unpackFrom(uids);
+                while (uid.notEquals(Uid.nullUid())) {
+                    ObjectStoreAPI target = getStripe(uid);
+                    if (target != stripe && move(uid, type, stripe, target)) {
+                        moved++;
+                    }
+                    uid = UidHelper.unpackFrom(uids);
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Move a record to another stripe. It is written to the target before it is removed from the source, so a record
+     * found in both after a crash is moved again on the next start.
+     */
+    private boolean move(Uid uid, String type, ObjectStoreAPI source, ObjectStoreAPI target)
+            throws ObjectStoreException {
+        boolean moved = false;
+        // A shadowing store reports one of the committed and uncommitted states at a time
+        for (int state = source.currentState(uid, type); state != StateStatus.OS_UNKNOWN;
+                state = source.currentState(uid, type)) {
+            boolean hidden = state == StateStatus.OS_COMMITTED_HIDDEN || state == StateStatus.OS_UNCOMMITTED_HIDDEN;
+            if (hidden && !source.reveal_state(uid, type)) {
+                throw new ObjectStoreException("Failed to reveal record " + uid + " of type " + type);
+            }
+            boolean committed = state == StateStatus.OS_COMMITTED || state == StateStatus.OS_COMMITTED_HIDDEN;
+            InputObjectState record = committed ? source.read_committed(uid, type) : source.read_uncommitted(uid, type);
+            if (record == null) {
+                throw new ObjectStoreException("Failed to read record " + uid + " of type " + type);
+            }
+            OutputObjectState copy = new OutputObjectState(record);
+            boolean written = committed ? target.write_committed(uid, type, copy)
+                    : target.write_uncommitted(uid, type, copy);
+            if (!written || hidden && !target.hide_state(uid, type)) {
+                throw new ObjectStoreException("Failed to write record " + uid + " of type " + type);
+            }
+            boolean removed = committed ? source.remove_committed(uid, type) : source.remove_uncommitted(uid, type);
+            if (!removed) {
+                throw new ObjectStoreException("Failed to remove moved record " + uid + " of type " + type);
+            }
+            moved = true;
+        }
+        return moved;
+    }
+
+    private static Function<Path, ObjectStoreAPI> createStripeFactory(
+            StripedObjectStoreEnvironmentBean environmentBean) {
+        ObjectStoreEnvironmentBean template =
+                BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, environmentBean.getStoreName());
+        Constructor<? extends ObjectStoreAPI> constructor;
+        try {
+            constructor = ClassUtils.forName(environmentBean.getObjectStoreType(),
+                    StripedObjectStore.class.getClassLoader()).asSubclass(ObjectStoreAPI.class)
+                    .getConstructor(ObjectStoreEnvironmentBean.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("Failed to create object store " + environmentBean.getObjectStoreType(), e);
+        }
+        return objectStoreDir -> {
+            ObjectStoreEnvironmentBean stripeEnvironmentBean = new ObjectStoreEnvironmentBean();
+            BeanUtils.copyProperties(template, stripeEnvironmentBean);
+            stripeEnvironmentBean.setObjectStoreDir(objectStoreDir.toString());
+            return BeanUtils.instantiateClass(constructor, stripeEnvironmentBean);
+        };
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.util.List;
+
+import com.arjuna.ats.internal.arjuna.objectstore.HashedStore;
+
+/**
+ * Configuration of the {@link StripedObjectStore}. Narayana looks it up by the same name as the store it configures,
+ * the default instance is used by the action store.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class StripedObjectStoreEnvironmentBean {
+
+    private volatile String storeName;
+
+    private volatile String objectStoreType = HashedStore.class.getName();
+
+    private volatile List<String> objectStoreDirs = List.of();
+
+    /**
+     * Returns the name of the store, {@code null} for the action store.
+     *
+     * @return the name of the store
+     */
+    public String getStoreName() {
+        return this.storeName;
+    }
+
+    /**
+     * Sets the name of the store, used to look up the configuration shared by all stripes.
+     *
+     * @param storeName the name of the store
+     */
+    public void setStoreName(String storeName) {
+        this.storeName = storeName;
+    }
+
+    /**
+     * Returns the class name of the object store used for each stripe.
+     *
+     * @return the class name of the object store used for each stripe
+     */
+    public String getObjectStoreType() {
+        return this.objectStoreType;
+    }
+
+    /**
+     * Sets the class name of the object store used for each stripe. It must have a public constructor accepting
+     * {@link com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean}.
+     *
+     * @param objectStoreType the class name of the object store used for each stripe
+     */
+    public void setObjectStoreType(String objectStoreType) {
+        this.objectStoreType = objectStoreType;
+    }
+
+    /**
+     * Returns the directories of the stripes.
+     *
+     * @return the directories of the stripes
+     */
+    public List<String> getObjectStoreDirs() {
+        return this.objectStoreDirs;
+    }
+
+    /**
+     * Sets the directories of the stripes. Records are assigned to a stripe by their position in this list, so it must
+     * not be reordered while there are records in the stores.
+     *
+     * @param objectStoreDirs the directories of the stripes
+     */
+    public void setObjectStoreDirs(List<String> objectStoreDirs) {
+        this.objectStoreDirs = List.copyOf(objectStoreDirs);
+    }
+}
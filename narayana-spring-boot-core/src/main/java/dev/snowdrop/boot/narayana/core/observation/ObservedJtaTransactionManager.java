@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.observation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.transaction.TransactionManager;
+import jakarta.transaction.UserTransaction;
+
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.transaction.jta.JtaTransactionObject;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * {@link JtaTransactionManager} creating {@link Observation}s around transaction begin, commit and rollback. While a
+ * transaction is committed or rolled back, prepare, commit and rollback calls made through the named resource wrappers
+ * are observed as its children, which breaks a slow commit down by resource and phase.
+ * <p>
+ * Whether a transaction is observed is decided once when it begins, using the sampling probability. Transactions which
+ * are not sampled only pay for a random number.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ObservedJtaTransactionManager extends JtaTransactionManager implements DisposableBean {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String BEGIN = "narayana.transaction.begin";
+
+    static final String COMMIT = "narayana.transaction.commit";
+
+    static final String ROLLBACK = "narayana.transaction.rollback";
+
+    private static final String TRANSACTION_NAME = "transaction.name";
+
+    private final transient ObservationRegistry observationRegistry;
+
+    private final double samplingProbability;
+
+    private final transient XAResourceObservations xaResourceObservations;
+
+    /**
+     * Create a new {@link ObservedJtaTransactionManager} instance.
+     *
+     * @param userTransaction     JTA user transaction
+     * @param transactionManager  JTA transaction manager
+     * @param observationRegistry registry to create observations with
+     * @param samplingProbability probability between 0 and 1 of a transaction being observed
+     */
+    public ObservedJtaTransactionManager(UserTransaction userTransaction, TransactionManager transactionManager,
+            ObservationRegistry observationRegistry, double samplingProbability) {
+        super(userTransaction, transactionManager);
+        if (samplingProbability < 0 || samplingProbability > 1) {
+            throw new IllegalArgumentException("Sampling probability must be between 0 and 1, but was "
+                    + samplingProbability);
+        }
+        this.observationRegistry = observationRegistry;
+        this.samplingProbability = samplingProbability;
+        this.xaResourceObservations = new XAResourceObservations(observationRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws TransactionSystemException {
+        super.afterPropertiesSet();
+        XAResourceListeners.register(this.xaResourceObservations);
+    }
+
+    @Override
+    public void destroy() {
+        XAResourceListeners.unregister(this.xaResourceObservations);
+    }
+
+    @Override
+    protected JtaTransactionObject doGetJtaTransaction(UserTransaction userTransaction) {
+        return new ObservedTransactionObject(userTransaction);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (!(transaction instanceof ObservedTransactionObject txObject) || !isSampled()) {
+            super.doBegin(transaction, definition);
+            return;
+        }
+        txObject.sampled = true;
+        txObject.name = definition.getName();
+        observation(BEGIN, "narayana begin", txObject).observe(() -> super.doBegin(transaction, definition));
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        if (!(status.getTransaction() instanceof ObservedTransactionObject txObject) || !txObject.sampled) {
+            super.doCommit(status);
+            return;
+        }
+        observation(COMMIT, "narayana commit", txObject).observe(() -> super.doCommit(status));
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        if (!(status.getTransaction() instanceof ObservedTransactionObject txObject) || !txObject.sampled) {
+            super.doRollback(status);
+            return;
+        }
+        observation(ROLLBACK, "narayana rollback", txObject).observe(() -> super.doRollback(status));
+    }
+
+    private boolean isSampled() {
+        if (this.observationRegistry.isNoop() || this.samplingProbability == 0) {
+            return false;
+        }
+        return this.samplingProbability == 1 || ThreadLocalRandom.current().nextDouble() < this.samplingProbability;
+    }
+
+    private Observation observation(String name, String contextualName, ObservedTransactionObject txObject) {
+        Observation observation = Observation.createNotStarted(name, TransactionContext::new, this.observationRegistry)
+                .contextualName(contextualName);
+        if (txObject.name != null) {
+            observation.highCardinalityKeyValue(TRANSACTION_NAME, txObject.name);
+        }
+        return observation;
+    }
+
+    /**
+     * Context of transaction begin, commit and rollback observations.
+     */
+    static class TransactionContext extends Observation.Context {
+    }
+
+    /**
+     * Transaction object remembering whether a transaction was sampled when it began.
+     */
+    private static class ObservedTransactionObject extends JtaTransactionObject {
+
+        private boolean sampled;
+
+        private String name;
+
+        ObservedTransactionObject(UserTransaction userTransaction) {
+            super(userTransaction);
+        }
+    }
+}
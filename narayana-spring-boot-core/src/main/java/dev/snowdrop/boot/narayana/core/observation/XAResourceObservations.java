@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.observation;
+
+import java.util.Locale;
+
+import javax.transaction.xa.Xid;
+
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListener;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * {@link XAResourceListener} observing prepare, commit and rollback calls made while an observed transaction is
+ * committed or rolled back. Calls made outside of such an observation, e.g. by the recovery manager, the transaction
+ * reaper or asynchronous prepare threads, are not observed.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class XAResourceObservations implements XAResourceListener {
+
+    static final String NAME = "narayana.transaction.participant";
+
+    private final ObservationRegistry observationRegistry;
+
+    XAResourceObservations(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object before(String resourceName, XAOperation operation, Xid xid) {
+        if (operation != XAOperation.PREPARE && operation != XAOperation.COMMIT && operation != XAOperation.ROLLBACK) {
+            return null;
+        }
+        Observation parent = this.observationRegistry.getCurrentObservation();
+        if (parent == null || !(parent.getContext() instanceof ObservedJtaTransactionManager.TransactionContext)) {
+            return null;
+        }
+        String operationName = operation.name().toLowerCase(Locale.ROOT);
+        return Observation.createNotStarted(NAME, this.observationRegistry)
+                .parentObservation(parent)
+                .contextualName("narayana " + operationName + " " + resourceName)
+                .lowCardinalityKeyValue("resource", String.valueOf(resourceName))
+                .lowCardinalityKeyValue("operation", operationName)
+                .start();
+    }
+
+    @Override
+    public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+            int vote, Throwable failure) {
+        if (context instanceof Observation observation) {
+            observation.lowCardinalityKeyValue("outcome", XAResourceListeners.outcome(vote, failure));
+            if (failure != null) {
+                observation.error(failure);
+            }
+            observation.stop();
+        }
+    }
+}
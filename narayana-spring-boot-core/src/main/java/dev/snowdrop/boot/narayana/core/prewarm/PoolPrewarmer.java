@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.prewarm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Opens connections of a pool on background threads, so that the first transactions after startup do not pay for
+ * connection creation. All requested connections are opened in parallel and kept open until the last one is opened,
+ * so that a pool cannot hand the same idle connection out twice. Then they are closed, which returns them to the pool.
+ * <p>
+ * Pre-warming never fails the pool it warms up: connections which could not be opened are logged and left to be
+ * created on demand.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class PoolPrewarmer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(PoolPrewarmer.class);
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "narayana-prewarm-" + this.threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Queue<CompletableFuture<Void>> warmUps = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Open connections of a pool in the background.
+     *
+     * @param name        pool name used in log messages
+     * @param connections number of connections to open
+     * @param opener      opener of a single pooled connection
+     * @return future completed once all connections were opened and returned to the pool, or failed to open
+     */
+    public CompletableFuture<Void> prewarm(String name, int connections, Opener opener) {
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<AutoCloseable>> opened = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            opened.add(CompletableFuture.supplyAsync(() -> open(opener), this.executor));
+        }
+        CompletableFuture<Void> warmUp = CompletableFuture.allOf(opened.toArray(CompletableFuture[]::new))
+                .handle((ignored, failure) -> {
+                    release(name, opened, startNanos);
+                    return null;
+                });
+        this.warmUps.add(warmUp);
+        return warmUp;
+    }
+
+    /**
+     * Wait until all pools requested so far are warmed up.
+     *
+     * @param timeout maximum time to wait
+     * @return {@code true} if all pools are warmed up, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public boolean awaitCompletion(Duration timeout) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(this.warmUps.toArray(CompletableFuture[]::new))
+                    .get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            LOGGER.warnf("Connection pools were not warmed up within %s", timeout);
+            return false;
+        } catch (ExecutionException e) {
+            // Warm-ups handle their own failures
+            return true;
+        }
+    }
+
+    /**
+     * Check whether all pools requested so far are warmed up.
+     *
+     * @return {@code true} if no warm-up is in progress
+     */
+    public boolean isComplete() {
+        return this.warmUps.stream().allMatch(Future::isDone);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    private AutoCloseable open(Opener opener) {
+        try {
+            return opener.open();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void release(String name, List<CompletableFuture<AutoCloseable>> opened, long startNanos) {
+        int warmed = 0;
+        Throwable failure = null;
+        for (CompletableFuture<AutoCloseable> future : opened) {
+            try {
+                AutoCloseable connection = future.join();
+                if (connection != null) {
+                    connection.close();
+                    warmed++;
+                }
+            } catch (CompletionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            } catch (Exception e) {
+                LOGGER.debugf(e, "Failed to return a pre-warmed connection to pool %s", name);
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (failure != null) {
+            LOGGER.warnf(failure, "Pre-warmed %d of %d connections of pool %s in %d ms", warmed, opened.size(), name,
+                    elapsedMillis);
+        } else {
+            LOGGER.infof("Pre-warmed %d connections of pool %s in %d ms", warmed, name, elapsedMillis);
+        }
+    }
+
+    /**
+     * Opener of a single pooled connection. Closing the opened connection must return it to its pool.
+     */
+    @FunctionalInterface
+    public interface Opener {
+
+        /**
+         * Open a pooled connection.
+         *
+         * @return opened connection
+         * @throws Exception if the connection could not be opened
+         */
+        AutoCloseable open() throws Exception;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+public class AuditProperties {
+
+    /**
+     * Keep the most recent transaction events in memory.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of events kept, rounded up to a power of two.
+     */
+    private int capacity = 4096;
+
+    /**
+     * Log the kept events when the application shuts down.
+     */
+    private boolean dumpOnShutdown = false;
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public boolean isDumpOnShutdown() {
+        return this.dumpOnShutdown;
+    }
+
+    public void setDumpOnShutdown(boolean dumpOnShutdown) {
+        this.dumpOnShutdown = dumpOnShutdown;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+
+import org.springframework.util.unit.DataSize;
+
+public class HealthProperties {
+
+    /**
+     * Interval between object store checks, whose last result is reported by health probes.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(10);
+
+    /**
+     * Free space below which an object store directory is reported down.
+     */
+    private DataSize minFreeSpace = DataSize.ofMegabytes(10);
+
+    public Duration getRefreshInterval() {
+        return this.refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public DataSize getMinFreeSpace() {
+        return this.minFreeSpace;
+    }
+
+    public void setMinFreeSpace(DataSize minFreeSpace) {
+        this.minFreeSpace = minFreeSpace;
+    }
+}
@@ -24,7 +24,9 @@ public class MessagingHubConnectionFactoryProperties {
     private String name = "jms";
     private boolean firstResource = false;
     private boolean lastResource = false;
+    private int minIdle = 0;
     private int maxConnections = 1;
+    private boolean prewarm = false;
     private Duration connectionIdleTimeout = Duration.ofSeconds(30);
     private Duration connectionCheckInterval = Duration.ofMillis(-1);
     private boolean useProviderJMSContext = false;
@@ -65,6 +67,14 @@ public class MessagingHubConnectionFactoryProperties {
         this.lastResource = lastResource;
     }
 
+    public int getMinIdle() {
+        return this.minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
     public int getMaxConnections() {
         return this.maxConnections;
     }
@@ -73,6 +83,14 @@ public class MessagingHubConnectionFactoryProperties {
         this.maxConnections = maxConnections;
     }
 
+    public boolean isPrewarm() {
+        return this.prewarm;
+    }
+
+    public void setPrewarm(boolean prewarm) {
+        this.prewarm = prewarm;
+    }
+
     public Duration getConnectionIdleTimeout() {
         return this.connectionIdleTimeout;
     }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+
+public class MetricsProperties {
+
+    /**
+     * Time every XA call made to wrapped data sources and connection factories.
+     */
+    private boolean xaResources = false;
+
+    /**
+     * Record the number and kinds of participants of transactions managed by Spring.
+     */
+    private boolean participants = false;
+
+    /**
+     * Interval between object store size measurements, whose last result is published.
+     */
+    private Duration objectStoreSizeRefreshInterval = Duration.ofMinutes(1);
+
+    public boolean isXaResources() {
+        return this.xaResources;
+    }
+
+    public void setXaResources(boolean xaResources) {
+        this.xaResources = xaResources;
+    }
+
+    public boolean isParticipants() {
+        return this.participants;
+    }
+
+    public void setParticipants(boolean participants) {
+        this.participants = participants;
+    }
+
+    public Duration getObjectStoreSizeRefreshInterval() {
+        return this.objectStoreSizeRefreshInterval;
+    }
+
+    public void setObjectStoreSizeRefreshInterval(Duration objectStoreSizeRefreshInterval) {
+        this.objectStoreSizeRefreshInterval = objectStoreSizeRefreshInterval;
+    }
+}
@@ -129,6 +129,12 @@ public class NarayanaProperties {
     @NestedConfigurationProperty
     private final TransactionalDriverProperties transactionalDriver = new TransactionalDriverProperties();
 
+    /**
+     * Object store specific properties.
+     */
+    @NestedConfigurationProperty
+    private final ObjectStoreProperties objectStore = new ObjectStoreProperties();
+
     /**
      * MessagingHub specific properties used if pooled connection factory wrapper is enabled.
      * See <a href="https://github.com/messaginghub/pooled-jms/blob/master/pooled-jms-docs/Configuration.md">...</a> for the list of supported properties.
@@ -136,6 +142,54 @@ public class NarayanaProperties {
     @NestedConfigurationProperty
     private final MessagingHubConnectionFactoryProperties messaginghub = new MessagingHubConnectionFactoryProperties();
 
+    /**
+     * Transaction reaper specific properties.
+     */
+    @NestedConfigurationProperty
+    private final ReaperProperties reaper = new ReaperProperties();
+
+    /**
+     * Micrometer metrics specific properties.
+     */
+    @NestedConfigurationProperty
+    private final MetricsProperties metrics = new MetricsProperties();
+
+    /**
+     * Micrometer observation specific properties.
+     */
+    @NestedConfigurationProperty
+    private final ObservationProperties observation = new ObservationProperties();
+
+    /**
+     * JDK Flight Recorder specific properties.
+     */
+    @NestedConfigurationProperty
+    private final JfrProperties jfr = new JfrProperties();
+
+    /**
+     * Slow transaction detection specific properties.
+     */
+    @NestedConfigurationProperty
+    private final SlowTransactionProperties slowTransactions = new SlowTransactionProperties();
+
+    /**
+     * Transaction audit trail specific properties.
+     */
+    @NestedConfigurationProperty
+    private final AuditProperties audit = new AuditProperties();
+
+    /**
+     * Health indicator specific properties.
+     */
+    @NestedConfigurationProperty
+    private final HealthProperties health = new HealthProperties();
+
+    /**
+     * Connection pool pre-warming specific properties.
+     */
+    @NestedConfigurationProperty
+    private final PrewarmProperties prewarm = new PrewarmProperties();
+
     /**
      * XA recovery nodes.
      */
@@ -273,10 +327,46 @@ public class NarayanaProperties {
         return this.transactionalDriver;
     }
 
+    public ObjectStoreProperties getObjectStore() {
+        return this.objectStore;
+    }
+
     public MessagingHubConnectionFactoryProperties getMessaginghub() {
         return this.messaginghub;
     }
 
+    public ReaperProperties getReaper() {
+        return this.reaper;
+    }
+
+    public MetricsProperties getMetrics() {
+        return this.metrics;
+    }
+
+    public ObservationProperties getObservation() {
+        return this.observation;
+    }
+
+    public JfrProperties getJfr() {
+        return this.jfr;
+    }
+
+    public SlowTransactionProperties getSlowTransactions() {
+        return this.slowTransactions;
+    }
+
+    public AuditProperties getAudit() {
+        return this.audit;
+    }
+
+    public HealthProperties getHealth() {
+        return this.health;
+    }
+
+    public PrewarmProperties getPrewarm() {
+        return this.prewarm;
+    }
+
     public List<String> getXaRecoveryNodes() {
         return this.xaRecoveryNodes;
     }
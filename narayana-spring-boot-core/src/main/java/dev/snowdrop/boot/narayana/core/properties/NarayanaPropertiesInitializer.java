@@ -16,22 +16,47 @@
 
 package dev.snowdrop.boot.narayana.core.properties;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
 
 import com.arjuna.ats.arjuna.common.CoordinatorEnvironmentBean;
 import com.arjuna.ats.arjuna.common.CoreEnvironmentBean;
 import com.arjuna.ats.arjuna.common.CoreEnvironmentBeanException;
 import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
 import com.arjuna.ats.arjuna.common.RecoveryEnvironmentBean;
+import com.arjuna.ats.internal.arjuna.objectstore.NullActionStore;
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+import com.arjuna.ats.internal.arjuna.objectstore.TwoPhaseVolatileStore;
+import com.arjuna.ats.internal.arjuna.objectstore.VolatileStore;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqJournalEnvironmentBean;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqObjectStoreAdaptor;
+import com.arjuna.ats.internal.arjuna.objectstore.jdbc.JDBCStore;
 import com.arjuna.ats.jdbc.common.JDBCEnvironmentBean;
 import com.arjuna.ats.jta.common.JTAEnvironmentBean;
 import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import dev.snowdrop.boot.narayana.core.jfr.RecoveryPassEvents;
+import dev.snowdrop.boot.narayana.core.objectstore.DecoratingObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.DecoratingObjectStoreEnvironmentBean;
+import dev.snowdrop.boot.narayana.core.objectstore.DeferredSyncShadowNoFileLockStore;
+import dev.snowdrop.boot.narayana.core.objectstore.GroupCommitObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.IndexedObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.MappedSegmentObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.MappedSegmentObjectStoreEnvironmentBean;
+import dev.snowdrop.boot.narayana.core.objectstore.ObjectStoreDecorator;
+import dev.snowdrop.boot.narayana.core.objectstore.StripedObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.StripedObjectStoreEnvironmentBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.ClassUtils;
 
 /**
  * Bean that configures Narayana transaction manager.
@@ -42,19 +67,50 @@ public class NarayanaPropertiesInitializer implements InitializingBean {
 
     private static final String HASH_ALGORITHM_FOR_SHORTENING = "SHA-224";
 
+    private static final Set<String> NON_PERSISTENT_STORE_TYPES = Set.of(VolatileStore.class.getName(),
+            TwoPhaseVolatileStore.class.getName(), NullActionStore.class.getName());
+
     private final NarayanaProperties properties;
 
+    private DataSource objectStoreDataSource;
+
+    private List<ObjectStoreDecorator> objectStoreDecorators = List.of();
+
     public NarayanaPropertiesInitializer(NarayanaProperties narayanaProperties) {
         this.properties = narayanaProperties;
     }
 
+    /**
+     * Set a data source to be used by the JDBC object store.
+     *
+     * @param objectStoreDataSource non-XA data source dedicated to transaction logs
+     */
+    public void setObjectStoreDataSource(DataSource objectStoreDataSource) {
+        this.objectStoreDataSource = objectStoreDataSource;
+    }
+
+    /**
+     * Set decorators to be applied to the action store, in addition to the ones enabled by properties.
+     *
+     * @param objectStoreDecorators decorators applied in order, so that the last one is called first
+     */
+    public void setObjectStoreDecorators(List<ObjectStoreDecorator> objectStoreDecorators) {
+        this.objectStoreDecorators = objectStoreDecorators;
+    }
+
     @Override
     public void afterPropertiesSet() {
         setNodeIdentifier(this.properties.getNodeIdentifier(), this.properties.isShortenNodeIdentifierIfNecessary());
         setXARecoveryNodes(this.properties.getXaRecoveryNodes());
         setObjectStoreDir(this.properties.getLogDir());
+        setStore("communicationStore", this.properties.getObjectStore().getCommunicationStore(),
+                this.properties.getLogDir());
+        setStore("stateStore", this.properties.getObjectStore().getStateStore(), this.properties.getLogDir());
+        setObjectStore(this.properties.getObjectStore(), this.properties.getLogDir());
+        setObjectStoreDecorators(this.properties.getObjectStore());
         setCommitOnePhase(this.properties.isOnePhaseCommit());
         setDefaultTimeout(this.properties.getDefaultTimeout());
+        setReaper(this.properties.getReaper());
         setPeriodicRecoveryPeriod(this.properties.getPeriodicRecoveryPeriod());
         setRecoveryBackoffPeriod(this.properties.getRecoveryBackoffPeriod());
         setExpiryScanInterval(this.properties.getExpiryScanInterval());
@@ -62,7 +118,7 @@ public class NarayanaPropertiesInitializer implements InitializingBean {
         setXAResourceRecordWrappingPlugin(this.properties.getXaResourceRecordWrappingPlugin());
         setLastResourceOptimisationInterface(this.properties.getLastResourceOptimisationInterface());
         setCommitMarkableResourceJNDINames(this.properties.getCommitMarkableResourceJNDINames());
-        setRecoveryModules(this.properties.getRecoveryModules());
+        setRecoveryModules(this.properties.getRecoveryModules(), this.properties.getJfr());
         setExpiryScanners(this.properties.getExpiryScanners());
         setDefaultIsolationLevel(this.properties.getTransactionalDriver().getDefaultIsolationLevel().getLevel());
         setDefaultIsSameRMOverride(this.properties.getTransactionalDriver().isDefaultIsSameRMOverride());
@@ -101,11 +157,151 @@ public class NarayanaPropertiesInitializer implements InitializingBean {
     private void setObjectStoreDir(String objectStoreDir) {
         if (objectStoreDir != null) {
             getPopulator(ObjectStoreEnvironmentBean.class).setObjectStoreDir(objectStoreDir);
-            getPopulator(ObjectStoreEnvironmentBean.class, "communicationStore").setObjectStoreDir(objectStoreDir);
-            getPopulator(ObjectStoreEnvironmentBean.class, "stateStore").setObjectStoreDir(objectStoreDir);
         }
     }
 
+    private void setStore(String name, ObjectStoreProperties.Store store, String objectStoreDir) {
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean = getPopulator(ObjectStoreEnvironmentBean.class, name);
+        String storeDir = store.getDir() != null ? store.getDir() : objectStoreDir;
+        if (storeDir != null) {
+            objectStoreEnvironmentBean.setObjectStoreDir(storeDir);
+        }
+        if (store.getType() == ObjectStoreProperties.StoreType.VOLATILE) {
+            objectStoreEnvironmentBean.setObjectStoreType(VolatileStore.class.getName());
+        } else if (store.getType() == ObjectStoreProperties.StoreType.TWO_PHASE_VOLATILE) {
+            objectStoreEnvironmentBean.setObjectStoreType(TwoPhaseVolatileStore.class.getName());
+        }
+        if (store.getSupportAllObjUids() != null) {
+            objectStoreEnvironmentBean.setVolatileStoreSupportAllObjUids(store.getSupportAllObjUids());
+        }
+    }
+
+    private void setObjectStore(ObjectStoreProperties objectStore, String objectStoreDir) {
+        if (objectStore.getType() != ObjectStoreProperties.Type.DEFAULT
+                && !objectStore.getStriping().getLogDirs().isEmpty()) {
+            throw new IllegalArgumentException("Striping is only supported by the default object store, "
+                    + "but " + objectStore.getType() + " is configured");
+        }
+        switch (objectStore.getType()) {
+            case DEFAULT -> setStripedObjectStore(objectStore.getStriping());
+            case JOURNAL -> setJournalObjectStore(objectStore.getJournal(), objectStoreDir);
+            case JDBC -> setJdbcObjectStore(objectStore.getJdbc());
+            case MAPPED -> setMappedObjectStore(objectStore.getMapped(), objectStoreDir);
+        }
+    }
+
+    private void setObjectStoreDecorators(ObjectStoreProperties objectStore) {
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean = getPopulator(ObjectStoreEnvironmentBean.class);
+        DecoratingObjectStoreEnvironmentBean decoratingEnvironmentBean =
+                getPopulator(DecoratingObjectStoreEnvironmentBean.class);
+        String objectStoreType = objectStoreEnvironmentBean.getObjectStoreType();
+        if (DecoratingObjectStore.class.getName().equals(objectStoreType)) {
+            // Already decorated by a previous initialization
+            objectStoreType = decoratingEnvironmentBean.getObjectStoreType();
+        }
+        if (DeferredSyncShadowNoFileLockStore.class.getName().equals(objectStoreType)) {
+            objectStoreType = ShadowNoFileLockStore.class.getName();
+        }
+        if (NON_PERSISTENT_STORE_TYPES.contains(objectStoreType)) {
+            throw new IllegalArgumentException("The action store must be persistent for transactions to be recovered, "
+                    + "but " + objectStoreType + " is configured");
+        }
+        List<ObjectStoreDecorator> decorators = new ArrayList<>();
+        ObjectStoreProperties.GroupCommit groupCommit = objectStore.getGroupCommit();
+        if (groupCommit.isEnabled()) {
+            if (!ShadowNoFileLockStore.class.getName().equals(objectStoreType)) {
+                throw new IllegalArgumentException("Group commit is only supported by the default object store, "
+                        + "but " + objectStoreType + " is configured");
+            }
+            objectStoreType = DeferredSyncShadowNoFileLockStore.class.getName();
+            decorators.add(store -> new GroupCommitObjectStore(store, groupCommit.getMaxBatchSize(),
+                    groupCommit.getMaxWait()));
+        }
+        ObjectStoreProperties.Index index = objectStore.getIndex();
+        if (index.isEnabled()) {
+            decorators.add(store -> new IndexedObjectStore(store, index.getReconcileInterval()));
+        }
+        decorators.addAll(this.objectStoreDecorators);
+        if (decorators.isEmpty()) {
+            objectStoreEnvironmentBean.setObjectStoreType(objectStoreType);
+            return;
+        }
+        decoratingEnvironmentBean.setObjectStoreType(objectStoreType);
+        decoratingEnvironmentBean.setDecorators(decorators);
+        objectStoreEnvironmentBean.setObjectStoreType(DecoratingObjectStore.class.getName());
+    }
+
+    private void setStripedObjectStore(ObjectStoreProperties.Striping striping) {
+        if (striping.getLogDirs().isEmpty()) {
+            return;
+        }
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean = getPopulator(ObjectStoreEnvironmentBean.class);
+        // Read once by HashedStore when the first store is created
+        objectStoreEnvironmentBean.setHashedDirectories(striping.getHashedDirectories());
+        getPopulator(StripedObjectStoreEnvironmentBean.class).setObjectStoreDirs(striping.getLogDirs());
+        objectStoreEnvironmentBean.setObjectStoreType(StripedObjectStore.class.getName());
+    }
+
+    private void setJournalObjectStore(ObjectStoreProperties.Journal journal, String objectStoreDir) {
+        if (!ClassUtils.isPresent("org.apache.activemq.artemis.core.journal.Journal", getClass().getClassLoader())) {
+            throw new IllegalStateException("Journal object store requires Artemis journal, "
+                    + "add org.apache.activemq:artemis-journal to the classpath");
+        }
+        HornetqJournalEnvironmentBean journalEnvironmentBean = getPopulator(HornetqJournalEnvironmentBean.class);
+        if (objectStoreDir != null) {
+            journalEnvironmentBean.setStoreDir(objectStoreDir + File.separator + "HornetqJournalStore");
+        }
+        journalEnvironmentBean.setFileSize(Math.toIntExact(journal.getFileSize().toBytes()));
+        journalEnvironmentBean.setMinFiles(journal.getMinFiles());
+        journalEnvironmentBean.setPoolSize(journal.getPoolSize());
+        journalEnvironmentBean.setCompactMinFiles(journal.getCompactMinFiles());
+        journalEnvironmentBean.setCompactPercentage(journal.getCompactPercentage());
+        journalEnvironmentBean.setBufferSize(Math.toIntExact(journal.getBufferSize().toBytes()));
+        journalEnvironmentBean.setBufferFlushesPerSecond(toFlushesPerSecond(journal.getBufferTimeout()));
+        // Async IO has to be set first, because Narayana adjusts max IO for AIO
+        journalEnvironmentBean.setAsyncIO(journal.isAsyncIo());
+        journalEnvironmentBean.setMaxIO(journal.getMaxIo());
+        journalEnvironmentBean.setSyncWrites(journal.isSyncWrites());
+        journalEnvironmentBean.setSyncDeletes(journal.isSyncDeletes());
+        journalEnvironmentBean.setLogRates(journal.isLogRates());
+        // Only the action store is moved to the journal, communication and state stores keep their own settings
+        getPopulator(ObjectStoreEnvironmentBean.class).setObjectStoreType(HornetqObjectStoreAdaptor.class.getName());
+    }
+
+    private void setJdbcObjectStore(ObjectStoreProperties.Jdbc jdbc) {
+        if (this.objectStoreDataSource == null) {
+            throw new IllegalArgumentException("JDBC object store requires a data source, "
+                    + "set narayana.object-store.jdbc.data-source to the name of a non-XA DataSource bean");
+        }
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean = getPopulator(ObjectStoreEnvironmentBean.class);
+        objectStoreEnvironmentBean.setObjectStoreType(JDBCStore.class.getName());
+        objectStoreEnvironmentBean.setJdbcDataSource(this.objectStoreDataSource);
+        objectStoreEnvironmentBean.setTablePrefix(jdbc.getTablePrefix());
+        objectStoreEnvironmentBean.setCreateTable(jdbc.isCreateTable());
+        objectStoreEnvironmentBean.setDropTable(jdbc.isDropTable());
+    }
+
+    private void setMappedObjectStore(ObjectStoreProperties.Mapped mapped, String objectStoreDir) {
+        MappedSegmentObjectStoreEnvironmentBean mappedEnvironmentBean =
+                getPopulator(MappedSegmentObjectStoreEnvironmentBean.class);
+        if (objectStoreDir != null) {
+            mappedEnvironmentBean.setStoreDir(objectStoreDir + File.separator + "MappedSegmentStore");
+        }
+        mappedEnvironmentBean.setSegmentSize(Math.toIntExact(mapped.getSegmentSize().toBytes()));
+        mappedEnvironmentBean.setSyncWrites(mapped.isSyncWrites());
+        mappedEnvironmentBean.setSyncDeletes(mapped.isSyncDeletes());
+        mappedEnvironmentBean.setCompactMinSegments(mapped.getCompactMinSegments());
+        // Only the action store is moved to the segments, communication and state stores need uncommitted states
+        getPopulator(ObjectStoreEnvironmentBean.class).setObjectStoreType(MappedSegmentObjectStore.class.getName());
+    }
+
+    private int toFlushesPerSecond(Duration bufferTimeout) {
+        if (bufferTimeout.isNegative() || bufferTimeout.isZero()) {
+            throw new IllegalArgumentException("Journal buffer timeout must be positive: " + bufferTimeout);
+        }
+        return (int) Math.max(1, Duration.ofSeconds(1).toNanos() / bufferTimeout.toNanos());
+    }
+
     private void setCommitOnePhase(boolean isCommitOnePhase) {
         getPopulator(CoordinatorEnvironmentBean.class).setCommitOnePhase(isCommitOnePhase);
     }
@@ -114,6 +310,15 @@ public class NarayanaPropertiesInitializer implements InitializingBean {
         getPopulator(CoordinatorEnvironmentBean.class).setDefaultTimeout(defaultTimeout);
     }
 
+    private void setReaper(ReaperProperties reaper) {
+        CoordinatorEnvironmentBean coordinatorEnvironmentBean = getPopulator(CoordinatorEnvironmentBean.class);
+        coordinatorEnvironmentBean.setTxReaperMode(reaper.getMode().name());
+        coordinatorEnvironmentBean.setTxReaperTimeout(reaper.getCheckPeriod().toMillis());
+        coordinatorEnvironmentBean.setTxReaperCancelWaitPeriod(reaper.getCancelWaitPeriod().toMillis());
+        coordinatorEnvironmentBean.setTxReaperCancelFailWaitPeriod(reaper.getCancelFailWaitPeriod().toMillis());
+        coordinatorEnvironmentBean.setTxReaperZombieMax(reaper.getZombieMax());
+    }
+
     private void setPeriodicRecoveryPeriod(int periodicRecoveryPeriod) {
         getPopulator(RecoveryEnvironmentBean.class).setPeriodicRecoveryPeriod(periodicRecoveryPeriod);
     }
@@ -142,8 +347,9 @@ public class NarayanaPropertiesInitializer implements InitializingBean {
         getPopulator(JTAEnvironmentBean.class).setCommitMarkableResourceJNDINames(commitMarkableResourceJNDINames);
     }
 
-    private void setRecoveryModules(List<String> recoveryModules) {
-        getPopulator(RecoveryEnvironmentBean.class).setRecoveryModuleClassNames(recoveryModules);
+    private void setRecoveryModules(List<String> recoveryModules, JfrProperties jfr) {
+        getPopulator(RecoveryEnvironmentBean.class).setRecoveryModuleClassNames(
+                jfr.isEnabled() ? RecoveryPassEvents.surround(recoveryModules) : recoveryModules);
     }
 
     private void setExpiryScanners(List<String> expiryScanners) {
@@ -0,0 +1,631 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.util.unit.DataSize;
+
+public class ObjectStoreProperties {
+
+    /**
+     * Type of the action store, which holds the transaction log.
+     */
+    private Type type = Type.DEFAULT;
+
+    /**
+     * Journal store settings.
+     */
+    private final Journal journal = new Journal();
+
+    /**
+     * JDBC store settings.
+     */
+    private final Jdbc jdbc = new Jdbc();
+
+    /**
+     * Mapped segment store settings.
+     */
+    private final Mapped mapped = new Mapped();
+
+    /**
+     * Group commit settings of the default store.
+     */
+    private final GroupCommit groupCommit = new GroupCommit();
+
+    /**
+     * Striping settings of the default store.
+     */
+    private final Striping striping = new Striping();
+
+    /**
+     * In-memory index settings of the action store.
+     */
+    private final Index index = new Index();
+
+    /**
+     * Communication store settings. There are no such settings for the action store, which is configured by the type
+     * and the log dir, and must be durable.
+     */
+    private final Store communicationStore = new Store();
+
+    /**
+     * State store settings. There are no such settings for the action store, which is configured by the type and the
+     * log dir, and must be durable.
+     */
+    private final Store stateStore = new Store();
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Journal getJournal() {
+        return this.journal;
+    }
+
+    public Jdbc getJdbc() {
+        return this.jdbc;
+    }
+
+    public Mapped getMapped() {
+        return this.mapped;
+    }
+
+    public GroupCommit getGroupCommit() {
+        return this.groupCommit;
+    }
+
+    public Striping getStriping() {
+        return this.striping;
+    }
+
+    public Index getIndex() {
+        return this.index;
+    }
+
+    public Store getCommunicationStore() {
+        return this.communicationStore;
+    }
+
+    public Store getStateStore() {
+        return this.stateStore;
+    }
+
+    public enum Type {
+        /**
+         * Use {@link com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore} which writes a file per record.
+         */
+        DEFAULT,
+        /**
+         * Use {@link com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqObjectStoreAdaptor} which appends records
+         * to an Artemis journal. Requires {@code org.apache.activemq:artemis-journal} on the classpath.
+         */
+        JOURNAL,
+        /**
+         * Use {@link com.arjuna.ats.internal.arjuna.objectstore.jdbc.JDBCStore} which keeps records in a database table.
+         * Requires a non-XA {@link javax.sql.DataSource} bean named by {@code narayana.object-store.jdbc.data-source}.
+         */
+        JDBC,
+        /**
+         * Use {@link dev.snowdrop.boot.narayana.core.objectstore.MappedSegmentObjectStore} which appends records to
+         * preallocated memory-mapped segment files.
+         */
+        MAPPED;
+    }
+
+    /**
+     * Journal store settings, passed to the Artemis journal.
+     */
+    public static class Journal {
+
+        /**
+         * Size of each journal file.
+         */
+        private DataSize fileSize = DataSize.ofBytes(2 * 1024 * 1024);
+
+        /**
+         * Number of journal files created on start.
+         */
+        private int minFiles = 4;
+
+        /**
+         * Number of reclaimed journal files kept for reuse.
+         */
+        private int poolSize = 20;
+
+        /**
+         * Number of journal files below which the journal is not compacted.
+         */
+        private int compactMinFiles = 10;
+
+        /**
+         * Percentage of live data below which the journal is compacted.
+         */
+        private int compactPercentage = 30;
+
+        /**
+         * Size of the write buffer.
+         */
+        private DataSize bufferSize = DataSize.ofBytes(490 * 1024);
+
+        /**
+         * Time after which the write buffer is flushed even if it is not full.
+         */
+        private Duration bufferTimeout = Duration.ofMillis(2);
+
+        /**
+         * Maximum number of write requests in flight with asynchronous IO.
+         */
+        private int maxIo = 2;
+
+        /**
+         * Use AIO on Linux when libaio is available, NIO otherwise.
+         */
+        private boolean asyncIo = true;
+
+        /**
+         * Force each record to disk before the write returns.
+         */
+        private boolean syncWrites = true;
+
+        /**
+         * Force each removal to disk before it returns.
+         */
+        private boolean syncDeletes = true;
+
+        /**
+         * Log the journal write rates.
+         */
+        private boolean logRates = false;
+
+        public DataSize getFileSize() {
+            return this.fileSize;
+        }
+
+        public void setFileSize(DataSize fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        public int getMinFiles() {
+            return this.minFiles;
+        }
+
+        public void setMinFiles(int minFiles) {
+            this.minFiles = minFiles;
+        }
+
+        public int getPoolSize() {
+            return this.poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getCompactMinFiles() {
+            return this.compactMinFiles;
+        }
+
+        public void setCompactMinFiles(int compactMinFiles) {
+            this.compactMinFiles = compactMinFiles;
+        }
+
+        public int getCompactPercentage() {
+            return this.compactPercentage;
+        }
+
+        public void setCompactPercentage(int compactPercentage) {
+            this.compactPercentage = compactPercentage;
+        }
+
+        public DataSize getBufferSize() {
+            return this.bufferSize;
+        }
+
+        public void setBufferSize(DataSize bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getBufferTimeout() {
+            return this.bufferTimeout;
+        }
+
+        public void setBufferTimeout(Duration bufferTimeout) {
+            this.bufferTimeout = bufferTimeout;
+        }
+
+        public int getMaxIo() {
+            return this.maxIo;
+        }
+
+        public void setMaxIo(int maxIo) {
+            this.maxIo = maxIo;
+        }
+
+        public boolean isAsyncIo() {
+            return this.asyncIo;
+        }
+
+        public void setAsyncIo(boolean asyncIo) {
+            this.asyncIo = asyncIo;
+        }
+
+        public boolean isSyncWrites() {
+            return this.syncWrites;
+        }
+
+        public void setSyncWrites(boolean syncWrites) {
+            this.syncWrites = syncWrites;
+        }
+
+        public boolean isSyncDeletes() {
+            return this.syncDeletes;
+        }
+
+        public void setSyncDeletes(boolean syncDeletes) {
+            this.syncDeletes = syncDeletes;
+        }
+
+        public boolean isLogRates() {
+            return this.logRates;
+        }
+
+        public void setLogRates(boolean logRates) {
+            this.logRates = logRates;
+        }
+    }
+
+    /**
+     * JDBC object store settings. Records are inserted, updated and deleted one statement at a time, because Narayana's
+     * JDBC store has no batching hook.
+     */
+    public static class Jdbc {
+
+        /**
+         * Name of the non-XA DataSource bean holding the transaction log table.
+         */
+        private String dataSource;
+
+        /**
+         * Prefix of the transaction log table name.
+         */
+        private String tablePrefix;
+
+        /**
+         * Create the transaction log table on startup if it does not exist.
+         */
+        private boolean createTable = true;
+
+        /**
+         * Drop the transaction log table on startup, losing all records in it.
+         */
+        private boolean dropTable = false;
+
+        /**
+         * Dedicated connection pool used to write the transaction log.
+         */
+        private Pool pool = new Pool();
+
+        public String getDataSource() {
+            return this.dataSource;
+        }
+
+        public void setDataSource(String dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        public String getTablePrefix() {
+            return this.tablePrefix;
+        }
+
+        public void setTablePrefix(String tablePrefix) {
+            this.tablePrefix = tablePrefix;
+        }
+
+        public boolean isCreateTable() {
+            return this.createTable;
+        }
+
+        public void setCreateTable(boolean createTable) {
+            this.createTable = createTable;
+        }
+
+        public boolean isDropTable() {
+            return this.dropTable;
+        }
+
+        public void setDropTable(boolean dropTable) {
+            this.dropTable = dropTable;
+        }
+
+        public Pool getPool() {
+            return this.pool;
+        }
+
+        public void setPool(Pool pool) {
+            this.pool = pool;
+        }
+
+        public static class Pool {
+
+            /**
+             * Write the transaction log through a dedicated HikariCP pool derived from the data source, instead of
+             * the data source itself. Requires HikariCP on the classpath.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Number of connections of the dedicated pool.
+             */
+            private int maxConnections = 2;
+
+            public boolean isEnabled() {
+                return this.enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxConnections() {
+                return this.maxConnections;
+            }
+
+            public void setMaxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+            }
+        }
+    }
+
+    /**
+     * Mapped segment store settings.
+     */
+    public static class Mapped {
+
+        /**
+         * Size of each segment file. A record must fit in a single segment.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(8);
+
+        /**
+         * Force each record to disk before the write returns.
+         */
+        private boolean syncWrites = true;
+
+        /**
+         * Force each removal to disk before it returns.
+         */
+        private boolean syncDeletes = true;
+
+        /**
+         * Number of segments from which the records in use of the oldest one are copied forward, so it can be deleted.
+         */
+        private int compactMinSegments = 4;
+
+        public DataSize getSegmentSize() {
+            return this.segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public boolean isSyncWrites() {
+            return this.syncWrites;
+        }
+
+        public void setSyncWrites(boolean syncWrites) {
+            this.syncWrites = syncWrites;
+        }
+
+        public boolean isSyncDeletes() {
+            return this.syncDeletes;
+        }
+
+        public void setSyncDeletes(boolean syncDeletes) {
+            this.syncDeletes = syncDeletes;
+        }
+
+        public int getCompactMinSegments() {
+            return this.compactMinSegments;
+        }
+
+        public void setCompactMinSegments(int compactMinSegments) {
+            this.compactMinSegments = compactMinSegments;
+        }
+    }
+
+    /**
+     * Group commit settings. Only apply to the default store, and not together with striping.
+     */
+    public static class GroupCommit {
+
+        /**
+         * Share a single disk sync between concurrent transactions.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of records after which a batch is synced.
+         */
+        private int maxBatchSize = 64;
+
+        /**
+         * Time after which a batch is synced even if other writes are still in progress.
+         */
+        private Duration maxWait = Duration.ofMillis(2);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return this.maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getMaxWait() {
+            return this.maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * Settings of the default store spreading its records over several directories.
+     */
+    public static class Striping {
+
+        /**
+         * Directories the transaction log is spread over, by the hash of the transaction id. Do not remove a directory
+         * while it holds pending transactions.
+         */
+        private List<String> logDirs = new ArrayList<>();
+
+        /**
+         * Number of sub-directories per record type in each directory.
+         */
+        private int hashedDirectories = 255;
+
+        public List<String> getLogDirs() {
+            return this.logDirs;
+        }
+
+        public void setLogDirs(List<String> logDirs) {
+            this.logDirs = logDirs;
+        }
+
+        public int getHashedDirectories() {
+            return this.hashedDirectories;
+        }
+
+        public void setHashedDirectories(int hashedDirectories) {
+            this.hashedDirectories = hashedDirectories;
+        }
+    }
+
+    /**
+     * Settings of the in-memory index of the action store record identifiers.
+     */
+    public static class Index {
+
+        /**
+         * Keep the record identifiers of the action store in memory, so that recovery does not scan the store.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Interval between reconciliations of the index with the store, which pick up records changed by another
+         * process sharing it, or 0 to disable them.
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getReconcileInterval() {
+            return this.reconcileInterval;
+        }
+
+        public void setReconcileInterval(Duration reconcileInterval) {
+            this.reconcileInterval = reconcileInterval;
+        }
+    }
+
+    /**
+     * Settings of the communication or state store.
+     */
+    public static class Store {
+
+        /**
+         * Type of the store.
+         */
+        private StoreType type = StoreType.DEFAULT;
+
+        /**
+         * Directory of the store, by default the log dir.
+         */
+        private String dir;
+
+        /**
+         * Let a volatile store list its records, which tools browsing the store need. Kept as configured for Narayana if
+         * not set.
+         */
+        private Boolean supportAllObjUids;
+
+        public StoreType getType() {
+            return this.type;
+        }
+
+        public void setType(StoreType type) {
+            this.type = type;
+        }
+
+        public String getDir() {
+            return this.dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public Boolean getSupportAllObjUids() {
+            return this.supportAllObjUids;
+        }
+
+        public void setSupportAllObjUids(Boolean supportAllObjUids) {
+            this.supportAllObjUids = supportAllObjUids;
+        }
+    }
+
+    public enum StoreType {
+        /**
+         * Keep the store type configured for Narayana, by default
+         * {@link com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore} in {@code narayana.log-dir}.
+         */
+        DEFAULT,
+        /**
+         * Use {@link com.arjuna.ats.internal.arjuna.objectstore.VolatileStore} which keeps committed states in memory.
+         */
+        VOLATILE,
+        /**
+         * Use {@link com.arjuna.ats.internal.arjuna.objectstore.TwoPhaseVolatileStore} which keeps committed and
+         * uncommitted states in memory.
+         */
+        TWO_PHASE_VOLATILE;
+    }
+}
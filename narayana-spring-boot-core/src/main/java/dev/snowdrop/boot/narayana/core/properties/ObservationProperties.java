@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+public class ObservationProperties {
+
+    /**
+     * Create Micrometer observations for transactions managed by Spring. Requires an ObservationRegistry bean.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Probability, between 0 and 1, that a transaction is observed, decided when it begins.
+     */
+    private double samplingProbability = 0.1;
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSamplingProbability() {
+        return this.samplingProbability;
+    }
+
+    public void setSamplingProbability(double samplingProbability) {
+        this.samplingProbability = samplingProbability;
+    }
+}
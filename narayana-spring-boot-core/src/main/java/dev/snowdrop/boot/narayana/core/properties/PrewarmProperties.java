@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+
+public class PrewarmProperties {
+
+    /**
+     * Report readiness only once connection pools have been warmed up.
+     */
+    private boolean delayReadiness = false;
+
+    /**
+     * Time after which readiness is reported even if warm-up has not completed.
+     */
+    private Duration readinessTimeout = Duration.ofSeconds(60);
+
+    public boolean isDelayReadiness() {
+        return this.delayReadiness;
+    }
+
+    public void setDelayReadiness(boolean delayReadiness) {
+        this.delayReadiness = delayReadiness;
+    }
+
+    public Duration getReadinessTimeout() {
+        return this.readinessTimeout;
+    }
+
+    public void setReadinessTimeout(Duration readinessTimeout) {
+        this.readinessTimeout = readinessTimeout;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+
+public class ReaperProperties {
+
+    /**
+     * When the reaper wakes up to roll back timed out transactions.
+     */
+    private Mode mode = Mode.DYNAMIC;
+
+    /**
+     * Period between checks in periodic mode.
+     */
+    private Duration checkPeriod = Duration.ofMinutes(2);
+
+    /**
+     * Time given to a rollback before the reaper interrupts it.
+     */
+    private Duration cancelWaitPeriod = Duration.ofMillis(500);
+
+    /**
+     * Time given to an interrupted rollback before its worker is abandoned as a zombie.
+     */
+    private Duration cancelFailWaitPeriod = Duration.ofMillis(500);
+
+    /**
+     * Number of zombie workers after which an error is logged.
+     */
+    private int zombieMax = 8;
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Duration getCheckPeriod() {
+        return this.checkPeriod;
+    }
+
+    public void setCheckPeriod(Duration checkPeriod) {
+        this.checkPeriod = checkPeriod;
+    }
+
+    public Duration getCancelWaitPeriod() {
+        return this.cancelWaitPeriod;
+    }
+
+    public void setCancelWaitPeriod(Duration cancelWaitPeriod) {
+        this.cancelWaitPeriod = cancelWaitPeriod;
+    }
+
+    public Duration getCancelFailWaitPeriod() {
+        return this.cancelFailWaitPeriod;
+    }
+
+    public void setCancelFailWaitPeriod(Duration cancelFailWaitPeriod) {
+        this.cancelFailWaitPeriod = cancelFailWaitPeriod;
+    }
+
+    public int getZombieMax() {
+        return this.zombieMax;
+    }
+
+    public void setZombieMax(int zombieMax) {
+        this.zombieMax = zombieMax;
+    }
+
+    public enum Mode {
+        /**
+         * Wake the reaper up when the earliest transaction times out.
+         */
+        DYNAMIC,
+        /**
+         * Wake the reaper up every {@code narayana.reaper.check-period}, so transactions are rolled back up to one period
+         * after they time out.
+         */
+        PERIODIC;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.properties;
+
+import java.time.Duration;
+
+public class SlowTransactionProperties {
+
+    /**
+     * Flag transactions managed by Spring which run longer than the warn threshold.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Age after which a transaction is slow. Must be below the default timeout.
+     */
+    private Duration warnThreshold = Duration.ofSeconds(10);
+
+    /**
+     * Minimum interval between two logged slow transactions.
+     */
+    private Duration logInterval = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWarnThreshold() {
+        return this.warnThreshold;
+    }
+
+    public void setWarnThreshold(Duration warnThreshold) {
+        this.warnThreshold = warnThreshold;
+    }
+
+    public Duration getLogInterval() {
+        return this.logInterval;
+    }
+
+    public void setLogInterval(Duration logInterval) {
+        this.logInterval = logInterval;
+    }
+}
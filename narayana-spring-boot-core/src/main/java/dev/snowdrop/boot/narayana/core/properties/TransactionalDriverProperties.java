@@ -17,13 +17,18 @@
 package dev.snowdrop.boot.narayana.core.properties;
 
 import java.sql.Connection;
+import java.time.Duration;
+
+import org.springframework.boot.jdbc.DatabaseDriver;
 
 public class TransactionalDriverProperties {
 
     private String name = "jdbc";
     private Modifier modifier = Modifier.DEFAULT;
+    private DatabaseDriver databaseProduct;
     private IsolationLevel defaultIsolationLevel = IsolationLevel.TRANSACTION_SERIALIZABLE;
     private boolean defaultIsSameRMOverride = false;
+    private boolean lazyEnlistment = false;
     private Pool pool = new Pool();
 
     public String getName() {
@@ -42,6 +47,14 @@ public class TransactionalDriverProperties {
         this.modifier = modifier;
     }
 
+    public DatabaseDriver getDatabaseProduct() {
+        return this.databaseProduct;
+    }
+
+    public void setDatabaseProduct(DatabaseDriver databaseProduct) {
+        this.databaseProduct = databaseProduct;
+    }
+
     public IsolationLevel getDefaultIsolationLevel() {
         return this.defaultIsolationLevel;
     }
@@ -58,6 +71,14 @@ public class TransactionalDriverProperties {
         this.defaultIsSameRMOverride = defaultIsSameRMOverride;
     }
 
+    public boolean isLazyEnlistment() {
+        return this.lazyEnlistment;
+    }
+
+    public void setLazyEnlistment(boolean lazyEnlistment) {
+        this.lazyEnlistment = lazyEnlistment;
+    }
+
     public Pool getPool() {
         return this.pool;
     }
@@ -118,7 +139,14 @@ public class TransactionalDriverProperties {
     public static class Pool {
 
         private boolean enabled = false;
+        private Type type = Type.NARAYANA;
+        private int minIdle = 0;
         private int maxConnections = 10;
+        private boolean prewarm = false;
+        private Duration acquisitionTimeout = Duration.ofSeconds(30);
+        private boolean validateOnBorrow = false;
+        private Duration validationTimeout = Duration.ZERO;
+        private Duration leakTimeout = Duration.ZERO;
 
         public boolean isEnabled() {
             return this.enabled;
@@ -128,6 +156,22 @@ public class TransactionalDriverProperties {
             this.enabled = enabled;
         }
 
+        public Type getType() {
+            return this.type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public int getMinIdle() {
+            return this.minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+
         public int getMaxConnections() {
             return this.maxConnections;
         }
@@ -135,5 +179,58 @@ public class TransactionalDriverProperties {
         public void setMaxConnections(int maxConnections) {
             this.maxConnections = maxConnections;
         }
+
+        public boolean isPrewarm() {
+            return this.prewarm;
+        }
+
+        public void setPrewarm(boolean prewarm) {
+            this.prewarm = prewarm;
+        }
+
+        public Duration getAcquisitionTimeout() {
+            return this.acquisitionTimeout;
+        }
+
+        public void setAcquisitionTimeout(Duration acquisitionTimeout) {
+            this.acquisitionTimeout = acquisitionTimeout;
+        }
+
+        public boolean isValidateOnBorrow() {
+            return this.validateOnBorrow;
+        }
+
+        public void setValidateOnBorrow(boolean validateOnBorrow) {
+            this.validateOnBorrow = validateOnBorrow;
+        }
+
+        public Duration getValidationTimeout() {
+            return this.validationTimeout;
+        }
+
+        public void setValidationTimeout(Duration validationTimeout) {
+            this.validationTimeout = validationTimeout;
+        }
+
+        public Duration getLeakTimeout() {
+            return this.leakTimeout;
+        }
+
+        public void setLeakTimeout(Duration leakTimeout) {
+            this.leakTimeout = leakTimeout;
+        }
+
+        public enum Type {
+            /**
+             * Pool connections with the Narayana transactional driver, reusing a connection within the same
+             * transaction.
+             */
+            NARAYANA,
+            /**
+             * Pool connections with Agroal, enlisting them with the Narayana transaction manager. Requires
+             * {@code io.agroal:agroal-pool} and {@code io.agroal:agroal-narayana} on the classpath.
+             */
+            AGROAL;
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.xa;
+
+/**
+ * XA calls reported to {@link XAResourceListener}s.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public enum XAOperation {
+    /**
+     * {@link javax.transaction.xa.XAResource#start(javax.transaction.xa.Xid, int)}.
+     */
+    START,
+    /**
+     * {@link javax.transaction.xa.XAResource#end(javax.transaction.xa.Xid, int)}.
+     */
+    END,
+    /**
+     * {@link javax.transaction.xa.XAResource#prepare(javax.transaction.xa.Xid)}.
+     */
+    PREPARE,
+    /**
+     * {@link javax.transaction.xa.XAResource#commit(javax.transaction.xa.Xid, boolean)}.
+     */
+    COMMIT,
+    /**
+     * {@link javax.transaction.xa.XAResource#rollback(javax.transaction.xa.Xid)}.
+     */
+    ROLLBACK,
+    /**
+     * {@link javax.transaction.xa.XAResource#recover(int)}.
+     */
+    RECOVER;
+}
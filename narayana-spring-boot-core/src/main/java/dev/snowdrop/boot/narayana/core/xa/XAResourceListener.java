@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.xa;
+
+import javax.transaction.xa.Xid;
+
+/**
+ * Listener of the XA calls made through the named resource wrappers of the JDBC and JMS integrations. Listeners are
+ * registered with {@link XAResourceListeners} and are called on the thread making the XA call, so they have to be
+ * cheap.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface XAResourceListener {
+
+    /**
+     * Called before an XA call is passed to the resource.
+     *
+     * @param resourceName name of the resource
+     * @param operation    XA call
+     * @param xid          transaction branch, or {@code null} for {@link XAOperation#RECOVER}
+     * @return context handed back to {@link #after}, e.g. a started span
+     */
+    default Object before(String resourceName, XAOperation operation, Xid xid) {
+        return null;
+    }
+
+    /**
+     * Called once an XA call has returned or failed.
+     *
+     * @param resourceName  name of the resource
+     * @param operation     XA call
+     * @param xid           transaction branch, or {@code null} for {@link XAOperation#RECOVER}
+     * @param context       context returned by {@link #before}
+     * @param durationNanos duration of the call in nanoseconds
+     * @param vote          vote of a successful prepare, {@link javax.transaction.xa.XAResource#XA_OK} otherwise
+     * @param failure       exception thrown by the resource, or {@code null}
+     */
+    void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos, int vote,
+            Throwable failure);
+}
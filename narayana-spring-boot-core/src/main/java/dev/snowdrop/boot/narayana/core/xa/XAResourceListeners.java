@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.xa;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Registry of the {@link XAResourceListener}s called by the named resource wrappers. Resources are wrapped deep inside
+ * Narayana and the pooling libraries, so the registry is global. Without registered listeners the wrappers only read a
+ * single volatile field per XA call.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class XAResourceListeners {
+
+    private static final Logger LOGGER = Logger.getLogger(XAResourceListeners.class);
+
+    private static final List<XAResourceListener> LISTENERS = new ArrayList<>();
+
+    private static volatile XAResourceListener listener;
+
+    private XAResourceListeners() {
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param xaResourceListener listener to be called for every XA call
+     */
+    public static synchronized void register(XAResourceListener xaResourceListener) {
+        LISTENERS.add(xaResourceListener);
+        update();
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param xaResourceListener previously registered listener
+     */
+    public static synchronized void unregister(XAResourceListener xaResourceListener) {
+        LISTENERS.remove(xaResourceListener);
+        update();
+    }
+
+    /**
+     * Get the listener combining all registered ones.
+     *
+     * @return listener, or {@code null} if none is registered
+     */
+    public static XAResourceListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Make an XA call and report it to a listener. A failing listener is logged and does not change the result of the
+     * call.
+     *
+     * @param xaResourceListener listener obtained from {@link #getListener()}
+     * @param resourceName       name of the resource
+     * @param operation          XA call
+     * @param xid                transaction branch, or {@code null} for {@link XAOperation#RECOVER}
+     * @param call               XA call to make
+     * @param <T>                result type of the call
+     * @return result of the call
+     * @throws XAException if the call fails
+     */
+    public static <T> T invoke(XAResourceListener xaResourceListener, String resourceName, XAOperation operation,
+            Xid xid, XACall<T> call) throws XAException {
+        Object context = before(xaResourceListener, resourceName, operation, xid);
+        long start = System.nanoTime();
+        T result = null;
+        Throwable failure = null;
+        try {
+            result = call.call();
+            return result;
+        } catch (XAException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            int vote = result instanceof Integer prepareVote ? prepareVote : XAResource.XA_OK;
+            after(xaResourceListener, resourceName, operation, xid, context, System.nanoTime() - start, vote, failure);
+        }
+    }
+
+    /**
+     * Describe the outcome of an XA call with its XA return code, i.e. {@code XA_OK}, {@code XA_RDONLY} for a read-only
+     * prepare vote, or the error code of a failed call such as {@code XAER_RMFAIL}.
+     *
+     * @param vote    vote reported to {@link XAResourceListener#after}
+     * @param failure failure reported to {@link XAResourceListener#after}
+     * @return outcome of the call
+     */
+    public static String outcome(int vote, Throwable failure) {
+        if (failure == null) {
+            return vote == XAResource.XA_RDONLY ? "XA_RDONLY" : "XA_OK";
+        }
+        if (failure instanceof XAException xaException) {
+            return errorCode(xaException.errorCode);
+        }
+        return failure.getClass().getSimpleName();
+    }
+
+    private static String errorCode(int errorCode) {
+        return switch (errorCode) {
+            case XAException.XA_RBROLLBACK -> "XA_RBROLLBACK";
+            case XAException.XA_RBCOMMFAIL -> "XA_RBCOMMFAIL";
+            case XAException.XA_RBDEADLOCK -> "XA_RBDEADLOCK";
+            case XAException.XA_RBINTEGRITY -> "XA_RBINTEGRITY";
+            case XAException.XA_RBOTHER -> "XA_RBOTHER";
+            case XAException.XA_RBPROTO -> "XA_RBPROTO";
+            case XAException.XA_RBTIMEOUT -> "XA_RBTIMEOUT";
+            case XAException.XA_RBTRANSIENT -> "XA_RBTRANSIENT";
+            case XAException.XA_NOMIGRATE -> "XA_NOMIGRATE";
+            case XAException.XA_HEURHAZ -> "XA_HEURHAZ";
+            case XAException.XA_HEURCOM -> "XA_HEURCOM";
+            case XAException.XA_HEURRB -> "XA_HEURRB";
+            case XAException.XA_HEURMIX -> "XA_HEURMIX";
+            case XAException.XA_RETRY -> "XA_RETRY";
+            case XAException.XA_RDONLY -> "XA_RDONLY";
+            case XAException.XAER_ASYNC -> "XAER_ASYNC";
+            case XAException.XAER_RMERR -> "XAER_RMERR";
+            case XAException.XAER_NOTA -> "XAER_NOTA";
+            case XAException.XAER_INVAL -> "XAER_INVAL";
+            case XAException.XAER_PROTO -> "XAER_PROTO";
+            case XAException.XAER_RMFAIL -> "XAER_RMFAIL";
+            case XAException.XAER_DUPID -> "XAER_DUPID";
+            case XAException.XAER_OUTSIDE -> "XAER_OUTSIDE";
+            default -> String.valueOf(errorCode);
+        };
+    }
+
+    private static Object before(XAResourceListener xaResourceListener, String resourceName, XAOperation operation,
+            Xid xid) {
+        try {
+            return xaResourceListener.before(resourceName, operation, xid);
+        } catch (RuntimeException e) {
+            LOGGER.warnf(e, "XA resource listener %s failed before %s on %s", xaResourceListener, operation,
+                    resourceName);
+            return null;
+        }
+    }
+
+    private static void after(XAResourceListener xaResourceListener, String resourceName, XAOperation operation,
+            Xid xid, Object context, long durationNanos, int vote, Throwable failure) {
+        try {
+            xaResourceListener.after(resourceName, operation, xid, context, durationNanos, vote, failure);
+        } catch (RuntimeException e) {
+            LOGGER.warnf(e, "XA resource listener %s failed after %s on %s", xaResourceListener, operation,
+                    resourceName);
+        }
+    }
+
+    private static void update() {
+        if (LISTENERS.isEmpty()) {
+            listener = null;
+        } else if (LISTENERS.size() == 1) {
+            listener = LISTENERS.get(0);
+        } else {
+            listener = new CompositeXAResourceListener(LISTENERS.toArray(new XAResourceListener[0]));
+        }
+    }
+
+    /**
+     * XA call made through {@link #invoke}.
+     *
+     * @param <T> result type of the call
+     */
+    @FunctionalInterface
+    public interface XACall<T> {
+
+        T call() throws XAException;
+    }
+
+    private static final class CompositeXAResourceListener implements XAResourceListener {
+
+        private final XAResourceListener[] listeners;
+
+        private CompositeXAResourceListener(XAResourceListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public Object before(String resourceName, XAOperation operation, Xid xid) {
+            Object[] contexts = new Object[this.listeners.length];
+            for (int i = 0; i < this.listeners.length; i++) {
+                contexts[i] = XAResourceListeners.before(this.listeners[i], resourceName, operation, xid);
+            }
+            return contexts;
+        }
+
+        @Override
+        public void after(String resourceName, XAOperation operation, Xid xid, Object context, long durationNanos,
+                int vote, Throwable failure) {
+            Object[] contexts = (Object[]) context;
+            for (int i = 0; i < this.listeners.length; i++) {
+                XAResourceListeners.after(this.listeners[i], resourceName, operation, xid, contexts[i], durationNanos,
+                        vote, failure);
+            }
+        }
+    }
+}
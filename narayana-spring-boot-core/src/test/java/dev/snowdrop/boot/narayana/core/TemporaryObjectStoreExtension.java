@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * JUnit extension pointing the action, communication and state stores to a temporary directory for each test, so that
+ * tests running transactions do not write to the working directory. The directory is deleted after the test.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TemporaryObjectStoreExtension implements BeforeEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(TemporaryObjectStoreExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws IOException {
+        Path objectStoreDir = Files.createTempDirectory("narayana-object-store");
+        context.getStore(NAMESPACE).put(objectStoreDir, new TemporaryDirectory(objectStoreDir));
+        BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class).setObjectStoreDir(objectStoreDir.toString());
+        BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .setObjectStoreDir(objectStoreDir.toString());
+        BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "stateStore")
+                .setObjectStoreDir(objectStoreDir.toString());
+    }
+
+    private static final class TemporaryDirectory implements AutoCloseable {
+
+        private final Path path;
+
+        private TemporaryDirectory(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            FileSystemUtils.deleteRecursively(this.path);
+        }
+    }
+}
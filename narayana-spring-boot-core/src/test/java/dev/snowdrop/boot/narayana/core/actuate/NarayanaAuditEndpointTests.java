@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.actuate;
+
+import javax.transaction.xa.XAResource;
+
+import dev.snowdrop.boot.narayana.core.diagnostics.TransactionAuditLog;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NarayanaAuditEndpoint}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class NarayanaAuditEndpointTests {
+
+    @Test
+    void shouldDescribeAuditTrail() {
+        TransactionAuditLog auditLog = new TransactionAuditLog(2, false);
+        for (int i = 0; i < 3; i++) {
+            auditLog.after("orders", XAOperation.PREPARE, null, null, 1000, XAResource.XA_RDONLY, null);
+        }
+
+        NarayanaAuditEndpoint.AuditDescriptor descriptor = new NarayanaAuditEndpoint(auditLog).records();
+
+        assertThat(descriptor.getCapacity()).isEqualTo(2);
+        assertThat(descriptor.getRecorded()).isEqualTo(3);
+        assertThat(descriptor.getRecords()).hasSize(2).allSatisfy(record -> {
+            assertThat(record.getOperation()).isEqualTo("prepare");
+            assertThat(record.getOutcome()).isEqualTo("XA_RDONLY");
+            assertThat(record.getDurationNanos()).isEqualTo(1000);
+        });
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.actuate;
+
+import javax.transaction.xa.XAResource;
+
+import jakarta.transaction.Transaction;
+import jakarta.transaction.TransactionManager;
+
+import com.arjuna.ats.internal.jta.transaction.arjunacore.TransactionImple;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link NarayanaEndpoint}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class NarayanaEndpointTests {
+
+    private TransactionManager transactionManager;
+
+    private final NarayanaEndpoint endpoint = new NarayanaEndpoint();
+
+    @BeforeEach
+    void before() {
+        this.transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        if (this.transactionManager.getTransaction() != null) {
+            this.transactionManager.rollback();
+        }
+    }
+
+    @Test
+    void shouldListActiveTransactionWithParticipants() throws Exception {
+        this.transactionManager.setTransactionTimeout(60);
+        this.transactionManager.begin();
+        Transaction transaction = this.transactionManager.getTransaction();
+        transaction.enlistResource(new NamedXAResource(mock(XAResource.class), "orders"));
+        transaction.enlistResource(new NamedXAResource(mock(XAResource.class), "payments"));
+        Thread.sleep(20);
+
+        NarayanaEndpoint.NarayanaDescriptor descriptor = this.endpoint.transactions();
+
+        NarayanaEndpoint.TransactionDescriptor transactionDescriptor = find(descriptor, transaction);
+        assertThat(transactionDescriptor.getStatus()).isEqualTo("ACTIVE");
+        assertThat(transactionDescriptor.getParticipants()).containsExactlyInAnyOrder("orders", "payments");
+        assertThat(transactionDescriptor.getAgeMillis()).isBetween(0L, 60_000L);
+        assertThat(descriptor.getCount()).isPositive();
+        assertThat(descriptor.getOldestAgeMillis()).isGreaterThanOrEqualTo(transactionDescriptor.getAgeMillis());
+    }
+
+    @Test
+    void shouldReportRollbackOnlyStatus() throws Exception {
+        this.transactionManager.begin();
+        Transaction transaction = this.transactionManager.getTransaction();
+        transaction.setRollbackOnly();
+
+        assertThat(find(this.endpoint.transactions(), transaction).getStatus()).isEqualTo("MARKED_ROLLBACK");
+    }
+
+    @Test
+    void shouldNotListCompletedTransaction() throws Exception {
+        this.transactionManager.begin();
+        Transaction transaction = this.transactionManager.getTransaction();
+        String uid = ((TransactionImple) transaction).get_uid().stringForm();
+        this.transactionManager.rollback();
+
+        assertThat(this.endpoint.transactions().getTransactions())
+                .noneMatch(transactionDescriptor -> transactionDescriptor.getUid().equals(uid));
+    }
+
+    private NarayanaEndpoint.TransactionDescriptor find(NarayanaEndpoint.NarayanaDescriptor descriptor,
+            Transaction transaction) {
+        String uid = ((TransactionImple) transaction).get_uid().stringForm();
+        return descriptor.getTransactions().stream()
+                .filter(transactionDescriptor -> transactionDescriptor.getUid().equals(uid))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.diagnostics;
+
+import java.time.Duration;
+import java.util.List;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link SlowTransactionDetector}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class SlowTransactionDetectorTests {
+
+    private static final Duration WARN_THRESHOLD = Duration.ofMillis(50);
+
+    private SlowTransactionDetector detector;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void before() {
+        this.detector = new SlowTransactionDetector(WARN_THRESHOLD, Duration.ofHours(1));
+        this.detector.start();
+        JtaTransactionManager transactionManager = new JtaTransactionManager(
+                com.arjuna.ats.jta.UserTransaction.userTransaction(),
+                com.arjuna.ats.jta.TransactionManager.transactionManager());
+        transactionManager.setTransactionExecutionListeners(List.of(this.detector));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void after() {
+        this.detector.close();
+    }
+
+    @Test
+    void shouldCountSlowTransactions() {
+        for (int i = 0; i < 2; i++) {
+            this.transactionTemplate.executeWithoutResult(status -> sleep(WARN_THRESHOLD.multipliedBy(6)));
+        }
+
+        assertThat(this.detector.getSlowTransactionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIgnoreTransactionsCompletedBeforeThreshold() {
+        for (int i = 0; i < 10; i++) {
+            this.transactionTemplate.executeWithoutResult(status -> { });
+        }
+        sleep(WARN_THRESHOLD.multipliedBy(4));
+
+        assertThat(this.detector.getSlowTransactionCount()).isZero();
+    }
+
+    @Test
+    void shouldRejectNonPositiveThreshold() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new SlowTransactionDetector(Duration.ZERO, Duration.ofSeconds(1)));
+    }
+
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.diagnostics;
+
+import java.util.List;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link TransactionAuditLog}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class TransactionAuditLogTests {
+
+    private TransactionAuditLog auditLog;
+
+    private JtaTransactionManager transactionManager;
+
+    @BeforeEach
+    void before() {
+        this.auditLog = new TransactionAuditLog(1000, true);
+        this.auditLog.start();
+        this.transactionManager = new JtaTransactionManager(com.arjuna.ats.jta.UserTransaction.userTransaction(),
+                com.arjuna.ats.jta.TransactionManager.transactionManager());
+        this.transactionManager.setTransactionExecutionListeners(List.of(this.auditLog));
+    }
+
+    @AfterEach
+    void after() {
+        this.auditLog.close();
+    }
+
+    @Test
+    void shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(this.auditLog.getCapacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void shouldRecordTransactionAndXACalls() throws XAException {
+        XAResource readOnlyResource = mock(XAResource.class);
+        given(readOnlyResource.prepare(any(Xid.class))).willReturn(XAResource.XA_RDONLY);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.setName("order");
+        transactionTemplate.executeWithoutResult(status -> {
+            enlist(new NamedXAResource(mock(XAResource.class), "orders"));
+            enlist(new NamedXAResource(readOnlyResource, "payments"));
+        });
+
+        List<TransactionAuditLog.AuditRecord> records = this.auditLog.getRecords();
+        assertThat(records).extracting(record -> record.getOperation() + " " + record.getResource() + " "
+                + record.getOutcome()).containsSubsequence("begin null begun", "start orders XA_OK",
+                "start payments XA_OK", "prepare orders XA_OK", "prepare payments XA_RDONLY", "commit orders XA_OK",
+                "commit null committed");
+        TransactionAuditLog.AuditRecord begin = records.get(0);
+        TransactionAuditLog.AuditRecord commit = records.get(records.size() - 1);
+        assertThat(begin.getKind()).isEqualTo("transaction");
+        assertThat(begin.getName()).isEqualTo("order");
+        assertThat(begin.getTransaction()).isNotNull().isEqualTo(commit.getTransaction());
+        assertThat(commit.getDurationNanos()).isNotNull().isNotNegative();
+        assertThat(records).filteredOn(record -> "xa.resource".equals(record.getKind()))
+                .allSatisfy(record -> assertThat(record.getTransaction()).isNotNull());
+    }
+
+    @Test
+    void shouldKeepMostRecentEvents() {
+        TransactionAuditLog smallAuditLog = new TransactionAuditLog(4, false);
+        for (int i = 0; i < 10; i++) {
+            smallAuditLog.after("resource-" + i, XAOperation.COMMIT, null, null, 1000, XAResource.XA_OK, null);
+        }
+
+        assertThat(smallAuditLog.getRecordedCount()).isEqualTo(10);
+        assertThat(smallAuditLog.getRecords()).extracting(TransactionAuditLog.AuditRecord::getResource)
+                .containsExactly("resource-6", "resource-7", "resource-8", "resource-9");
+    }
+
+    private void enlist(XAResource xaResource) {
+        try {
+            this.transactionManager.getTransactionManager().getTransaction().enlistResource(xaResource);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
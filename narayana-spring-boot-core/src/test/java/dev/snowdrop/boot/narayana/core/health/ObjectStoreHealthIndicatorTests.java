@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.health;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.objectstore.RecoveryStore;
+import com.arjuna.ats.arjuna.objectstore.StoreManager;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ObjectStoreHealthIndicator}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class ObjectStoreHealthIndicatorTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldBeUnknownBeforeFirstCheck() {
+        ObjectStoreHealthIndicator healthIndicator = new ObjectStoreHealthIndicator(List.of(this.tempDir), 0,
+                Duration.ofMinutes(1));
+
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void shouldReportWritableLogDirAndInDoubtTransactions() throws Exception {
+        ObjectStoreHealthIndicator healthIndicator = new ObjectStoreHealthIndicator(
+                List.of(this.tempDir.resolve("not-created-yet")), 0, Duration.ofMinutes(1));
+        healthIndicator.refresh();
+        int inDoubtTransactions = (int) healthIndicator.health().getDetails().get("inDoubtTransactions");
+
+        RecoveryStore recoveryStore = StoreManager.getRecoveryStore();
+        Uid uid = new Uid();
+        assertThat(recoveryStore.write_committed(uid, ObjectStoreHealthIndicator.ATOMIC_ACTION_TYPE,
+                new OutputObjectState(uid, ObjectStoreHealthIndicator.ATOMIC_ACTION_TYPE))).isTrue();
+        try {
+            healthIndicator.refresh();
+
+            Health health = healthIndicator.health();
+            assertThat(health.getStatus()).isEqualTo(Status.UP);
+            assertThat(health.getDetails())
+                    .containsEntry("writable", true)
+                    .containsEntry("inDoubtTransactions", inDoubtTransactions + 1)
+                    .containsKey("free");
+        } finally {
+            recoveryStore.remove_committed(uid, ObjectStoreHealthIndicator.ATOMIC_ACTION_TYPE);
+        }
+    }
+
+    @Test
+    void shouldCountInDoubtTransactionsOfEveryType() throws Exception {
+        ObjectStoreHealthIndicator healthIndicator = new ObjectStoreHealthIndicator(List.of(this.tempDir), 0,
+                Duration.ofMinutes(1));
+        healthIndicator.refresh();
+        int inDoubtTransactions = (int) healthIndicator.health().getDetails().get("inDoubtTransactions");
+
+        RecoveryStore recoveryStore = StoreManager.getRecoveryStore();
+        String subordinateType = ObjectStoreHealthIndicator.ATOMIC_ACTION_TYPE + "/SubordinateAtomicAction/JCA";
+        String participantType = "/CosTransactions/XAResourceRecord";
+        Uid subordinateUid = new Uid();
+        Uid participantUid = new Uid();
+        assertThat(recoveryStore.write_committed(subordinateUid, subordinateType,
+                new OutputObjectState(subordinateUid, subordinateType))).isTrue();
+        assertThat(recoveryStore.write_committed(participantUid, participantType,
+                new OutputObjectState(participantUid, participantType))).isTrue();
+        try {
+            healthIndicator.refresh();
+
+            assertThat(healthIndicator.health().getDetails())
+                    .containsEntry("inDoubtTransactions", inDoubtTransactions + 1);
+        } finally {
+            recoveryStore.remove_committed(subordinateUid, subordinateType);
+            recoveryStore.remove_committed(participantUid, participantType);
+        }
+    }
+
+    @Test
+    void shouldCheckEveryLogDir() {
+        Path stripe = this.tempDir.resolve("stripe");
+        ObjectStoreHealthIndicator healthIndicator = new ObjectStoreHealthIndicator(
+                List.of(this.tempDir, stripe, this.tempDir), 0, Duration.ofMinutes(1));
+        healthIndicator.refresh();
+
+        Health health = healthIndicator.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry("logDirs", List.of(this.tempDir.toString(), stripe.toString()))
+                .containsEntry("writable", true);
+    }
+
+    @Test
+    void shouldBeDownWhenFreeSpaceIsBelowThreshold() {
+        ObjectStoreHealthIndicator healthIndicator = new ObjectStoreHealthIndicator(List.of(this.tempDir), Long.MAX_VALUE,
+                Duration.ofMinutes(1));
+        healthIndicator.refresh();
+
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.health;
+
+import java.time.Duration;
+
+import com.arjuna.ats.arjuna.recovery.RecoveryManager;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link RecoveryHealthIndicator}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class RecoveryHealthIndicatorTests {
+
+    @BeforeEach
+    void before() {
+        RecoveryManager.delayRecoveryManagerThread();
+        RecoveryManager.manager().initialize();
+    }
+
+    @AfterEach
+    void after() {
+        RecoveryManager.manager().terminate();
+    }
+
+    @Test
+    void shouldBeUnknownBeforeStart() {
+        RecoveryHealthIndicator healthIndicator = new RecoveryHealthIndicator(Duration.ofMinutes(1));
+
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UNKNOWN);
+    }
+
+    @Test
+    void shouldReportFinishedPasses() {
+        try (RecoveryHealthIndicator healthIndicator = new RecoveryHealthIndicator(Duration.ofMinutes(1))) {
+            healthIndicator.start();
+            assertThat(RecoveryManager.manager().getModules()).contains(healthIndicator);
+            assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+
+            healthIndicator.periodicWorkFirstPass();
+            healthIndicator.periodicWorkSecondPass();
+
+            Health health = healthIndicator.health();
+            assertThat(health.getStatus()).isEqualTo(Status.UP);
+            assertThat(health.getDetails()).containsEntry("passes", 1L).containsKey("lastPassFinished");
+        }
+        assertThat(RecoveryManager.manager().getModules()).noneMatch(RecoveryHealthIndicator.class::isInstance);
+    }
+
+    @Test
+    void shouldBeDownWhenRecoveryStalls() throws InterruptedException {
+        try (RecoveryHealthIndicator healthIndicator = new RecoveryHealthIndicator(Duration.ofMillis(1))) {
+            healthIndicator.start();
+            Thread.sleep(20);
+
+            assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+        }
+    }
+}
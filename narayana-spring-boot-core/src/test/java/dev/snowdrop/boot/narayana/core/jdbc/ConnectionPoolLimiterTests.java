@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
+import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ConnectionPoolLimiter}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class ConnectionPoolLimiterTests {
+
+    @Test
+    void shouldTimeOutWhenAllConnectionsAreInUse() throws SQLException {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter("test", 1, Duration.ofMillis(50));
+        limiter.acquire();
+
+        assertThatExceptionOfType(SQLTransientConnectionException.class)
+                .isThrownBy(limiter::acquire)
+                .withMessageContaining("data source test: 1 of 1 connections are in use");
+        assertThat(limiter.getActive()).isOne();
+        assertThat(limiter.getPending()).isZero();
+        assertThat(limiter.getTimeouts()).isOne();
+        assertThat(limiter.getAcquisitions()).isEqualTo(2);
+        assertThat(limiter.getWaitTime()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+
+        limiter.release();
+        limiter.acquire();
+        assertThat(limiter.getTimeouts()).isOne();
+    }
+
+    @Test
+    void shouldServeWaitersInArrivalOrder() throws Exception {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter("test", 1, Duration.ofSeconds(10));
+        List<String> served = new CopyOnWriteArrayList<>();
+        limiter.acquire();
+        Thread first = startWaiter(limiter, "first", served);
+        Thread second = startWaiter(limiter, "second", served);
+        assertThat(limiter.getPending()).isEqualTo(2);
+
+        limiter.release();
+        first.join(10_000);
+        assertThat(served).containsExactly("first");
+        limiter.release();
+        second.join(10_000);
+        assertThat(served).containsExactly("first", "second");
+    }
+
+    @Test
+    void shouldForgetConnectionsDroppedFromPool() throws Exception {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(metaData.getDriverName()).willReturn("mock");
+        Connection physicalConnection = mock(Connection.class);
+        given(physicalConnection.getMetaData()).willReturn(metaData);
+        XAConnection xaConnection = mock(XAConnection.class);
+        given(xaConnection.getConnection()).willReturn(physicalConnection);
+        XADataSource xaDataSource = mock(XADataSource.class);
+        given(xaDataSource.getXAConnection()).willReturn(xaConnection);
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        NarayanaDataSource dataSource = new NarayanaDataSource(xaDataSource, transactionalDriverProperties);
+        ConnectionPoolLimiter limiter = dataSource.getPoolLimiter();
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        assertThat(limiter.getIdle()).isOne();
+
+        ConnectionManager.remove((ConnectionImple) connection);
+        connection = null;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (limiter.getIdle() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(limiter.getIdle()).isZero();
+        assertThat(limiter.getActive()).isZero();
+    }
+
+    private Thread startWaiter(ConnectionPoolLimiter limiter, String name, List<String> served) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            try {
+                limiter.acquire();
+                served.add(name);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }, name);
+        thread.start();
+        // Start the next waiter only once this one is queued
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+}
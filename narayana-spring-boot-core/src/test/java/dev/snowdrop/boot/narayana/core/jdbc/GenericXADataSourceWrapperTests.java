@@ -17,15 +17,17 @@
 package dev.snowdrop.boot.narayana.core.jdbc;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
 
 import javax.sql.DataSource;
 import javax.sql.XAConnection;
 import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
 
 import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
 import dev.snowdrop.boot.narayana.core.properties.RecoveryCredentialsProperties;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import io.agroal.api.AgroalDataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,8 +36,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 /**
  * Tests for {@link GenericXADataSourceWrapper}.
@@ -55,7 +59,7 @@ class GenericXADataSourceWrapperTests {
     private Connection mockConnection;
 
     @Mock
-    private DatabaseMetaData mockDatabaseMetaData;
+    private XAResource mockXaResource;
 
     @Mock
     private XARecoveryModule mockXaRecoveryModule;
@@ -63,14 +67,13 @@ class GenericXADataSourceWrapperTests {
     @Mock
     private RecoveryCredentialsProperties mockRecoveryCredentialsProperties;
 
+    @Mock
+    private PoolPrewarmer mockPoolPrewarmer;
+
     private GenericXADataSourceWrapper wrapper;
 
     @BeforeEach
-    void before() throws SQLException {
-        given(this.mockXaDataSource.getXAConnection()).willReturn(this.mockXaConnection);
-        given(this.mockXaConnection.getConnection()).willReturn(this.mockConnection);
-        given(this.mockConnection.getMetaData()).willReturn(this.mockDatabaseMetaData);
-        given(this.mockDatabaseMetaData.getDatabaseProductName()).willReturn("");
+    void before() {
         this.wrapper = new GenericXADataSourceWrapper(this.mockXaRecoveryModule, this.mockRecoveryCredentialsProperties);
     }
 
@@ -81,6 +84,8 @@ class GenericXADataSourceWrapperTests {
         assertThat(wrapped).isInstanceOf(NarayanaDataSource.class);
         verify(this.mockXaRecoveryModule).addXAResourceRecoveryHelper(any(DataSourceXAResourceRecoveryHelper.class));
         verify(this.mockRecoveryCredentialsProperties).isValid();
+        // Connection modifier is detected when the first connection is opened
+        verifyNoInteractions(this.mockXaDataSource);
     }
 
     @Test
@@ -94,4 +99,41 @@ class GenericXADataSourceWrapperTests {
         verify(this.mockRecoveryCredentialsProperties).getUser();
         verify(this.mockRecoveryCredentialsProperties).getPassword();
     }
+
+    @Test
+    void wrapWithAgroalPool() throws Exception {
+        given(this.mockXaDataSource.getXAConnection()).willReturn(this.mockXaConnection);
+        given(this.mockXaConnection.getConnection()).willReturn(this.mockConnection);
+        given(this.mockXaConnection.getXAResource()).willReturn(this.mockXaResource);
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        transactionalDriverProperties.getPool().setType(TransactionalDriverProperties.Pool.Type.AGROAL);
+        transactionalDriverProperties.getPool().setMaxConnections(2);
+        GenericXADataSourceWrapper agroalWrapper = new GenericXADataSourceWrapper(this.mockXaRecoveryModule,
+                transactionalDriverProperties, this.mockRecoveryCredentialsProperties);
+        DataSource wrapped = agroalWrapper.wrapDataSource(this.mockXaDataSource);
+        try (AgroalDataSource agroalDataSource = (AgroalDataSource) wrapped) {
+            verify(this.mockXaRecoveryModule).addXAResourceRecoveryHelper(any(DataSourceXAResourceRecoveryHelper.class));
+            try (Connection connection = agroalDataSource.getConnection()) {
+                assertThat(connection).isNotSameAs(this.mockConnection);
+                assertThat(agroalDataSource.getMetrics().activeCount()).isOne();
+            }
+            assertThat(agroalDataSource.getMetrics().availableCount()).isOne();
+            assertThat(agroalDataSource.getConfiguration().connectionPoolConfiguration().maxSize()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void wrapWithPrewarmedPool() throws Exception {
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        transactionalDriverProperties.getPool().setPrewarm(true);
+        transactionalDriverProperties.getPool().setMinIdle(5);
+        transactionalDriverProperties.getPool().setMaxConnections(3);
+        GenericXADataSourceWrapper prewarmingWrapper = new GenericXADataSourceWrapper(this.mockXaRecoveryModule,
+                transactionalDriverProperties, this.mockRecoveryCredentialsProperties, this.mockPoolPrewarmer);
+        DataSource wrapped = prewarmingWrapper.wrapDataSource(this.mockXaDataSource);
+        assertThat(wrapped).isInstanceOf(NarayanaDataSource.class);
+        verify(this.mockPoolPrewarmer).prewarm(eq("jdbc"), eq(3), any(PoolPrewarmer.Opener.class));
+    }
 }
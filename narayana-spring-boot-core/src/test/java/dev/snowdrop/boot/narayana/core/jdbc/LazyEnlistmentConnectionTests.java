@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+
+import jakarta.transaction.TransactionManager;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link LazyEnlistmentConnection}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class LazyEnlistmentConnectionTests {
+
+    private TransactionManager transactionManager;
+
+    private Connection physicalConnection;
+
+    private XAResource xaResource;
+
+    private XADataSource xaDataSource;
+
+    private NarayanaDataSource dataSource;
+
+    @BeforeEach
+    void before() throws SQLException {
+        this.transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(metaData.getDriverName()).willReturn("mock");
+        this.physicalConnection = mock(Connection.class);
+        given(this.physicalConnection.getMetaData()).willReturn(metaData);
+        this.xaResource = mock(XAResource.class);
+        XAConnection xaConnection = mock(XAConnection.class);
+        given(xaConnection.getConnection()).willReturn(this.physicalConnection);
+        given(xaConnection.getXAResource()).willReturn(this.xaResource);
+        this.xaDataSource = mock(XADataSource.class);
+        given(this.xaDataSource.getXAConnection()).willReturn(xaConnection);
+
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        transactionalDriverProperties.setLazyEnlistment(true);
+        this.dataSource = new NarayanaDataSource(this.xaDataSource, transactionalDriverProperties);
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        if (this.transactionManager.getTransaction() != null) {
+            this.transactionManager.rollback();
+        }
+    }
+
+    @Test
+    void shouldEnlistOnFirstExecution() throws Exception {
+        given(this.physicalConnection.createStatement()).willReturn(mock(Statement.class));
+        this.transactionManager.begin();
+        Connection connection = this.dataSource.getConnection();
+        assertThat(connection).isInstanceOf(LazyEnlistmentConnection.class);
+
+        Statement statement = connection.createStatement();
+        verify(this.xaResource, never()).start(any(), anyInt());
+
+        statement.execute("UPDATE test SET value = 1");
+        statement.executeUpdate("UPDATE test SET value = 2");
+        verify(this.xaResource).start(any(), anyInt());
+
+        connection.close();
+        this.transactionManager.commit();
+        verify(this.xaResource).commit(any(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotEnlistWithoutExecution() throws Exception {
+        given(this.physicalConnection.prepareStatement("SELECT 1")).willReturn(mock(PreparedStatement.class));
+        given(this.physicalConnection.isValid(1)).willReturn(true);
+        this.transactionManager.begin();
+        Connection connection = this.dataSource.getConnection();
+
+        assertThat(connection.isValid(1)).isTrue();
+        connection.getCatalog();
+        connection.prepareStatement("SELECT 1").close();
+        connection.close();
+        this.transactionManager.commit();
+
+        verify(this.xaResource, never()).start(any(), anyInt());
+        verify(this.xaResource, never()).commit(any(), anyBoolean());
+    }
+
+    @Test
+    void shouldShareConnectionWithinTransaction() throws Exception {
+        given(this.physicalConnection.createStatement()).willReturn(mock(Statement.class));
+        this.transactionManager.begin();
+        Connection first = this.dataSource.getConnection();
+        Connection second = this.dataSource.getConnection();
+
+        assertThat(this.dataSource.getPoolLimiter().getActive()).isEqualTo(1);
+        first.createStatement().execute("UPDATE test SET value = 1");
+        second.createStatement().execute("UPDATE test SET value = 2");
+        second.close();
+        first.close();
+        this.transactionManager.commit();
+
+        verify(this.xaDataSource).getXAConnection();
+        verify(this.xaResource).start(any(), anyInt());
+        verify(this.xaResource).commit(any(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotEnlistWhenReadingNetworkTimeoutAndSchema() throws Exception {
+        given(this.physicalConnection.getNetworkTimeout()).willReturn(5000);
+        given(this.physicalConnection.getSchema()).willReturn("test");
+        this.transactionManager.begin();
+        Connection connection = this.dataSource.getConnection();
+
+        assertThat(connection.getNetworkTimeout()).isEqualTo(5000);
+        assertThat(connection.getSchema()).isEqualTo("test");
+        connection.close();
+        this.transactionManager.commit();
+
+        verify(this.xaResource, never()).start(any(), anyInt());
+    }
+
+    @Test
+    void shouldReturnHandleFromStatement() throws Exception {
+        given(this.physicalConnection.prepareStatement("SELECT 1")).willReturn(mock(PreparedStatement.class));
+        Connection connection = this.dataSource.getConnection();
+
+        PreparedStatement statement = connection.prepareStatement("SELECT 1");
+
+        assertThat(statement.getConnection()).isSameAs(connection);
+        assertThat(statement).isEqualTo(statement).isNotEqualTo(connection.prepareStatement("SELECT 1"));
+        statement.executeQuery();
+        verify(this.xaResource, never()).start(any(), anyInt());
+        connection.close();
+    }
+
+    @Test
+    void shouldUnwrapToStatementHandle() throws Exception {
+        PreparedStatement physicalStatement = mock(PreparedStatement.class);
+        given(physicalStatement.unwrap(String.class)).willReturn("vendor");
+        given(this.physicalConnection.prepareStatement("SELECT 1")).willReturn(physicalStatement);
+        Connection connection = this.dataSource.getConnection();
+
+        PreparedStatement statement = connection.prepareStatement("SELECT 1");
+
+        assertThat(statement.unwrap(Statement.class)).isSameAs(statement);
+        assertThat(statement.unwrap(PreparedStatement.class)).isSameAs(statement);
+        assertThat(statement.isWrapperFor(PreparedStatement.class)).isTrue();
+        assertThat(statement.unwrap(String.class)).isEqualTo("vendor");
+        connection.close();
+    }
+
+    @Test
+    void shouldReturnStatementHandleFromResultSet() throws Exception {
+        Statement physicalStatement = mock(Statement.class);
+        given(physicalStatement.executeQuery("SELECT 1")).willReturn(mock(ResultSet.class));
+        given(this.physicalConnection.createStatement()).willReturn(physicalStatement);
+        Connection connection = this.dataSource.getConnection();
+
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT 1");
+
+        assertThat(resultSet.getStatement()).isSameAs(statement);
+        assertThat(statement.getResultSet()).isNull();
+        connection.close();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link LazyEnlistmentStatement} and its subclasses, and for {@link LazyEnlistmentResultSet}. Every method of
+ * the JDBC interfaces is called through reflection, so that a method added to the wrappers or to the interfaces is
+ * checked too.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class LazyEnlistmentStatementTests {
+
+    private LazyEnlistmentConnection connection;
+
+    @BeforeEach
+    void before() {
+        this.connection = mock(LazyEnlistmentConnection.class);
+    }
+
+    @Test
+    void shouldDelegateStatementAndEnlistOnExecution() throws Exception {
+        Statement statement = mock(Statement.class);
+
+        assertDelegates(Statement.class, new LazyEnlistmentStatement(this.connection, statement), statement,
+                Set.of("getConnection"));
+    }
+
+    @Test
+    void shouldDelegatePreparedStatementAndEnlistOnExecution() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+
+        assertDelegates(PreparedStatement.class, new LazyEnlistmentPreparedStatement(this.connection, statement),
+                statement, Set.of("getConnection"));
+    }
+
+    @Test
+    void shouldDelegateCallableStatementAndEnlistOnExecution() throws Exception {
+        CallableStatement statement = mock(CallableStatement.class);
+
+        assertDelegates(CallableStatement.class, new LazyEnlistmentCallableStatement(this.connection, statement),
+                statement, Set.of("getConnection"));
+    }
+
+    @Test
+    void shouldDelegateResultSetWithoutEnlisting() throws Exception {
+        LazyEnlistmentStatement statement = new LazyEnlistmentStatement(this.connection, mock(Statement.class));
+        ResultSet resultSet = mock(ResultSet.class);
+
+        LazyEnlistmentResultSet wrapper = new LazyEnlistmentResultSet(statement, resultSet);
+
+        assertDelegates(ResultSet.class, wrapper, resultSet, Set.of("getStatement"));
+        assertThat(wrapper.getStatement()).isSameAs(statement);
+    }
+
+    private <T> void assertDelegates(Class<T> type, T wrapper, T delegate, Set<String> excluded) throws Exception {
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || excluded.contains(method.getName())) {
+                continue;
+            }
+            Object[] arguments = getArguments(method);
+            clearInvocations(this.connection, delegate);
+
+            method.invoke(wrapper, arguments);
+
+            method.invoke(verify(delegate), arguments);
+            if (method.getName().startsWith("execute")) {
+                verify(this.connection).enlist();
+            } else {
+                verify(this.connection, never()).enlist();
+            }
+        }
+    }
+
+    private static Object[] getArguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = getArgument(types[i]);
+        }
+        return arguments;
+    }
+
+    private static Object getArgument(Class<?> type) {
+        if (type == boolean.class) {
+            return true;
+        } else if (type == byte.class) {
+            return (byte) 1;
+        } else if (type == short.class) {
+            return (short) 1;
+        } else if (type == int.class) {
+            return 1;
+        } else if (type == long.class) {
+            return 1L;
+        } else if (type == float.class) {
+            return 1F;
+        } else if (type == double.class) {
+            return 1D;
+        } else if (type == String.class) {
+            return "value";
+        } else if (type == Class.class) {
+            // Not implemented by the wrappers, so unwrap and isWrapperFor delegate
+            return String.class;
+        } else if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.IsSameRMModifier;
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.ModifierFactory;
+import com.arjuna.ats.internal.jdbc.drivers.modifiers.SupportsMultipleConnectionsModifier;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ModifierDetectingXADataSource}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class ModifierDetectingXADataSourceTests {
+
+    @Mock
+    private XADataSource mockXaDataSource;
+
+    @Mock
+    private XAConnection mockXaConnection;
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private DatabaseMetaData mockMetaData;
+
+    @BeforeEach
+    void before() throws SQLException {
+        given(this.mockXaDataSource.getXAConnection()).willReturn(this.mockXaConnection);
+        given(this.mockXaConnection.getConnection()).willReturn(this.mockConnection);
+    }
+
+    @Test
+    void shouldRegisterModifierOfDetectedProductWithFirstConnection() throws SQLException {
+        given(this.mockConnection.getMetaData()).willReturn(this.mockMetaData);
+        given(this.mockMetaData.getDatabaseProductName()).willReturn("PostgreSQL");
+        givenDriver("detected-driver");
+        ModifierDetectingXADataSource xaDataSource = new ModifierDetectingXADataSource(this.mockXaDataSource,
+                TransactionalDriverProperties.Modifier.DEFAULT, null);
+
+        assertThat(xaDataSource.getXAConnection().getConnection()).isSameAs(this.mockConnection);
+        assertThat(ModifierFactory.getModifier("detected-driver", 1, 2))
+                .isInstanceOf(SupportsMultipleConnectionsModifier.class);
+        assertThat(xaDataSource.getXAConnection()).isSameAs(this.mockXaConnection);
+    }
+
+    @Test
+    void shouldRegisterModifierOfProductHintWithoutReadingProduct() throws SQLException {
+        given(this.mockConnection.getMetaData()).willReturn(this.mockMetaData);
+        givenDriver("hinted-driver");
+        ModifierDetectingXADataSource xaDataSource = new ModifierDetectingXADataSource(this.mockXaDataSource,
+                TransactionalDriverProperties.Modifier.DEFAULT, DatabaseDriver.MYSQL);
+
+        xaDataSource.getXAConnection().getConnection();
+        assertThat(ModifierFactory.getModifier("hinted-driver", 1, 2)).isInstanceOf(IsSameRMModifier.class);
+        verify(this.mockMetaData, never()).getDatabaseProductName();
+    }
+
+    @Test
+    void shouldCloseConnectionAndDetectAgainIfMetaDataFails() throws SQLException {
+        willThrow(new SQLException("Connection reset")).given(this.mockConnection).getMetaData();
+        ModifierDetectingXADataSource xaDataSource = new ModifierDetectingXADataSource(this.mockXaDataSource,
+                TransactionalDriverProperties.Modifier.IS_SAME_RM, null);
+
+        assertThatExceptionOfType(SQLException.class)
+                .isThrownBy(() -> xaDataSource.getXAConnection().getConnection())
+                .withMessage("Connection reset");
+        verify(this.mockConnection).close();
+        assertThat(xaDataSource.getXAConnection()).isNotSameAs(this.mockXaConnection);
+    }
+
+    private void givenDriver(String name) throws SQLException {
+        given(this.mockMetaData.getDriverName()).willReturn(name);
+        given(this.mockMetaData.getDriverMajorVersion()).willReturn(1);
+        given(this.mockMetaData.getDriverMinorVersion()).willReturn(2);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.util.Collection;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link NarayanaDataSourceBenchmark} with the GC profiler and logs the bytes allocated per connection
+ * acquisition. Results are logged rather than asserted, because they depend on the JVM the build runs on.
+ * <p>
+ * Only run by the {@code benchmark} profile.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Tag("benchmark")
+class NarayanaDataSourceAllocationIT {
+
+    private static final Logger LOGGER = Logger.getLogger(NarayanaDataSourceAllocationIT.class);
+
+    private static final String ALLOCATION_RATE = "gc.alloc.rate.norm";
+
+    @Test
+    void measureAllocationPerAcquisition() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(NarayanaDataSourceBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        assertThat(results).hasSize(3);
+
+        for (RunResult result : results) {
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RATE);
+            LOGGER.infof("%s: %.0f ns and %.0f bytes allocated per acquisition", result.getParams().getBenchmark(),
+                    result.getPrimaryResult().getScore(), allocation.getScore());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import com.arjuna.ats.jdbc.TransactionalDriver;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures acquiring and closing a pooled connection through {@link NarayanaDataSource}, compared with building the
+ * connection properties on every call. Run by {@link NarayanaDataSourceAllocationIT}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NarayanaDataSourceBenchmark {
+
+    private XADataSource xaDataSource;
+
+    private TransactionalDriverProperties transactionalDriverProperties;
+
+    private NarayanaDataSource dataSource;
+
+    @Setup
+    public void setup() throws SQLException {
+        // Stub-only mocks do not record invocations, so they do not grow or allocate while measuring
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class, withSettings().stubOnly());
+        given(metaData.getDriverName()).willReturn("benchmark");
+        Connection connection = mock(Connection.class, withSettings().stubOnly());
+        given(connection.getMetaData()).willReturn(metaData);
+        XAConnection xaConnection = mock(XAConnection.class, withSettings().stubOnly());
+        given(xaConnection.getConnection()).willReturn(connection);
+        this.xaDataSource = mock(XADataSource.class, withSettings().stubOnly());
+        given(this.xaDataSource.getXAConnection()).willReturn(xaConnection);
+        given(this.xaDataSource.getXAConnection(anyString(), anyString())).willReturn(xaConnection);
+
+        this.transactionalDriverProperties = new TransactionalDriverProperties();
+        this.transactionalDriverProperties.getPool().setEnabled(true);
+        this.dataSource = new NarayanaDataSource(this.xaDataSource, this.transactionalDriverProperties);
+    }
+
+    @Benchmark
+    public void perCallProperties() throws SQLException {
+        Properties properties = new Properties();
+        properties.put(TransactionalDriver.XADataSource, this.xaDataSource);
+        properties.put(TransactionalDriver.poolConnections,
+                String.valueOf(this.transactionalDriverProperties.getPool().isEnabled()));
+        properties.put(TransactionalDriver.maxConnections,
+                String.valueOf(this.transactionalDriverProperties.getPool().getMaxConnections()));
+        ConnectionManager.create(this.transactionalDriverProperties.getName(), properties).close();
+    }
+
+    @Benchmark
+    public void cachedProperties() throws SQLException {
+        this.dataSource.getConnection().close();
+    }
+
+    @Benchmark
+    public void cachedCredentialsProperties() throws SQLException {
+        this.dataSource.getConnection("benchmark", "benchmark").close();
+    }
+}
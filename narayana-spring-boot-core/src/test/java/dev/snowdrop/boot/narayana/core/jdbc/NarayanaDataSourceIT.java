@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import com.arjuna.ats.internal.jdbc.ConnectionManager;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+
+/**
+ * Integration tests for {@link NarayanaDataSource} acquiring connections through the transactional driver.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class NarayanaDataSourceIT {
+
+    private static final int ACQUISITIONS = 5;
+
+    private XADataSource xaDataSource;
+
+    private TransactionalDriverProperties transactionalDriverProperties;
+
+    @BeforeEach
+    void before() throws SQLException {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(metaData.getDriverName()).willReturn("mock");
+        Connection physicalConnection = mock(Connection.class);
+        given(physicalConnection.getMetaData()).willReturn(metaData);
+        XAConnection xaConnection = mock(XAConnection.class);
+        given(xaConnection.getConnection()).willReturn(physicalConnection);
+        this.xaDataSource = mock(XADataSource.class);
+        given(this.xaDataSource.getXAConnection()).willReturn(xaConnection);
+        given(this.xaDataSource.getXAConnection("user", "password")).willReturn(xaConnection);
+        this.transactionalDriverProperties = new TransactionalDriverProperties();
+        this.transactionalDriverProperties.setName("narayana-data-source-it");
+        this.transactionalDriverProperties.getPool().setEnabled(true);
+    }
+
+    @Test
+    void shouldCreatePropertiesOncePerDataSource() throws SQLException {
+        NarayanaDataSource dataSource = new NarayanaDataSource(this.xaDataSource, this.transactionalDriverProperties);
+
+        Properties first = acquire(() -> dataSource.getConnection());
+        Properties second = acquire(() -> dataSource.getConnection());
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void shouldCreatePropertiesOncePerUser() throws SQLException {
+        NarayanaDataSource dataSource = new NarayanaDataSource(this.xaDataSource, this.transactionalDriverProperties);
+
+        Properties first = acquire(() -> dataSource.getConnection("user", "password"));
+        Properties second = acquire(() -> dataSource.getConnection("user", "password"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getProperty("user")).isEqualTo("user");
+    }
+
+    /**
+     * Acquire and release connections several times, and return the properties handed to the transactional driver,
+     * which must have been the same instance for every acquisition.
+     */
+    private Properties acquire(ConnectionSupplier connectionSupplier) throws SQLException {
+        ArgumentCaptor<Properties> properties = ArgumentCaptor.forClass(Properties.class);
+        try (MockedStatic<ConnectionManager> connectionManager = mockStatic(ConnectionManager.class,
+                CALLS_REAL_METHODS)) {
+            for (int i = 0; i < ACQUISITIONS; i++) {
+                connectionSupplier.get().close();
+            }
+            connectionManager.verify(() -> ConnectionManager.create(eq("narayana-data-source-it"), properties.capture()),
+                    times(ACQUISITIONS));
+        }
+        assertThat(properties.getAllValues()).hasSize(ACQUISITIONS).allSatisfy(
+                value -> assertThat(value).isSameAs(properties.getValue()));
+        return properties.getValue();
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+
+        Connection get() throws SQLException;
+    }
+}
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
 import java.util.Properties;
 
 import javax.sql.DataSource;
@@ -35,6 +37,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -91,6 +94,32 @@ class NarayanaDataSourceTests {
         assertThat(connection2).isSameAs(connection1);
     }
 
+    @Test
+    void shouldTimeOutWhenPoolIsExhausted() throws SQLException {
+        this.transactionalDriverProperties.getPool().setEnabled(true);
+        this.transactionalDriverProperties.getPool().setMaxConnections(1);
+        this.transactionalDriverProperties.getPool().setAcquisitionTimeout(Duration.ofMillis(50));
+        Connection connection = this.dataSourceBean.getConnection();
+
+        assertThatExceptionOfType(SQLTransientConnectionException.class)
+                .isThrownBy(() -> this.dataSourceBean.getConnection());
+        ConnectionPoolLimiter limiter = this.dataSourceBean.getPoolLimiter();
+        assertThat(limiter.getTimeouts()).isOne();
+        assertThat(limiter.getActive()).isOne();
+        assertThat(limiter.getIdle()).isZero();
+
+        connection.close();
+        assertThat(limiter.getActive()).isZero();
+        assertThat(limiter.getIdle()).isOne();
+        assertThat(this.dataSourceBean.getConnection()).isSameAs(connection);
+    }
+
+    @Test
+    void shouldNotLimitConnectionsWithoutPool() {
+        this.transactionalDriverProperties.getPool().setEnabled(false);
+        assertThat(this.dataSourceBean.getPoolLimiter()).isNull();
+    }
+
     @Test
     void shouldNotGetSameConnection() throws SQLException {
         this.transactionalDriverProperties.getPool().setEnabled(false);
@@ -150,4 +179,22 @@ class NarayanaDataSourceTests {
         verify(mockXaConnection, times(1)).getConnection();
         verify(mockConnection, times(1)).commit();
     }
+
+    @Test
+    void shouldGetConnectionWithChangedPassword() throws SQLException {
+        DatabaseMetaData mockMetaData = mock(DatabaseMetaData.class);
+        Connection mockConnection = mock(Connection.class);
+        XAConnection mockXaConnection = mock(XAConnection.class);
+        given(mockMetaData.getDriverName()).willReturn("mock");
+        given(mockConnection.getMetaData()).willReturn(mockMetaData);
+        given(mockXaConnection.getConnection()).willReturn(mockConnection);
+        given(this.mockXaDataSource.getXAConnection("user", "old")).willReturn(mockXaConnection);
+        given(this.mockXaDataSource.getXAConnection("user", "new")).willReturn(mockXaConnection);
+
+        this.dataSourceBean.getConnection("user", "old").close();
+        this.dataSourceBean.getConnection("user", "new").close();
+
+        verify(this.mockXaDataSource, times(1)).getXAConnection("user", "old");
+        verify(this.mockXaDataSource, times(1)).getXAConnection("user", "new");
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.snowdrop.boot.narayana.core.properties.ObjectStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ObjectStoreDataSource}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class ObjectStoreDataSourceTests {
+
+    @Mock
+    private DataSource mockDataSource;
+
+    @Test
+    void shouldUseDataSourceAsIsWithoutDedicatedPool() {
+        ObjectStoreProperties.Jdbc.Pool pool = new ObjectStoreProperties.Jdbc.Pool();
+        pool.setEnabled(false);
+        try (ObjectStoreDataSource objectStoreDataSource = new ObjectStoreDataSource(this.mockDataSource, pool)) {
+            assertThat(objectStoreDataSource.getDataSource()).isSameAs(this.mockDataSource);
+        }
+    }
+
+    @Test
+    void shouldCreateDedicatedPool() {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
+        dataSource.setUrl("jdbc:test:objectstore");
+        dataSource.setUsername("test-user");
+        dataSource.setPassword("test-password");
+        ObjectStoreProperties.Jdbc.Pool pool = new ObjectStoreProperties.Jdbc.Pool();
+        pool.setMaxConnections(3);
+
+        ObjectStoreDataSource objectStoreDataSource = new ObjectStoreDataSource(dataSource, pool);
+        assertThat(objectStoreDataSource.getDataSource()).isInstanceOf(HikariDataSource.class);
+        HikariDataSource hikariDataSource = (HikariDataSource) objectStoreDataSource.getDataSource();
+        assertThat(hikariDataSource.getJdbcUrl()).isEqualTo("jdbc:test:objectstore");
+        assertThat(hikariDataSource.getUsername()).isEqualTo("test-user");
+        assertThat(hikariDataSource.getPassword()).isEqualTo("test-password");
+        assertThat(hikariDataSource.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(hikariDataSource.getPoolName()).isEqualTo("narayana-object-store");
+
+        objectStoreDataSource.close();
+        assertThat(hikariDataSource.isClosed()).isTrue();
+    }
+
+    @Test
+    void shouldLoadWithoutHikari() throws Exception {
+        ClassLoader classLoader = new HikariHidingClassLoader(getClass().getClassLoader());
+        Class<?> objectStoreDataSourceClass = classLoader.loadClass(ObjectStoreDataSource.class.getName());
+        assertThat(objectStoreDataSourceClass.getClassLoader()).isSameAs(classLoader);
+        // Resolves the types of all fields and method signatures, as Spring does when it introspects the bean
+        assertThat(objectStoreDataSourceClass.getDeclaredFields()).isNotEmpty();
+        assertThat(objectStoreDataSourceClass.getDeclaredMethods()).isNotEmpty();
+
+        Object objectStoreDataSource = newObjectStoreDataSource(classLoader, false);
+        assertThat(objectStoreDataSourceClass.getMethod("getDataSource").invoke(objectStoreDataSource))
+                .isSameAs(this.mockDataSource);
+        objectStoreDataSourceClass.getMethod("close").invoke(objectStoreDataSource);
+    }
+
+    @Test
+    void shouldRequireHikariForDedicatedPool() {
+        ClassLoader classLoader = new HikariHidingClassLoader(getClass().getClassLoader());
+
+        assertThatThrownBy(() -> newObjectStoreDataSource(classLoader, true))
+                .isInstanceOf(InvocationTargetException.class)
+                .cause()
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("requires HikariCP");
+    }
+
+    private Object newObjectStoreDataSource(ClassLoader classLoader, boolean poolEnabled) throws Exception {
+        Class<?> poolClass = classLoader.loadClass(ObjectStoreProperties.Jdbc.Pool.class.getName());
+        Object pool = poolClass.getConstructor().newInstance();
+        poolClass.getMethod("setEnabled", boolean.class).invoke(pool, poolEnabled);
+        return classLoader.loadClass(ObjectStoreDataSource.class.getName())
+                .getConstructor(DataSource.class, poolClass)
+                .newInstance(this.mockDataSource, pool);
+    }
+
+    /**
+     * Class loader without HikariCP, defining the classes of this project itself so that they link against it.
+     */
+    private static final class HikariHidingClassLoader extends ClassLoader {
+
+        private static final String PROJECT_PACKAGE = "dev.snowdrop.boot.narayana.";
+
+        HikariHidingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("com.zaxxer.hikari.")) {
+                throw new ClassNotFoundException(name);
+            }
+            if (!name.startsWith(PROJECT_PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    type = defineProjectClass(name);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        private Class<?> defineProjectClass(String name) throws ClassNotFoundException {
+            try (InputStream inputStream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (inputStream == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                byte[] bytes = inputStream.readAllBytes();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}
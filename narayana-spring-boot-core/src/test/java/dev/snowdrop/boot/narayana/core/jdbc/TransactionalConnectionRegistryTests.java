@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+
+import jakarta.transaction.TransactionManager;
+
+import com.arjuna.ats.internal.jdbc.ConnectionImple;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link TransactionalConnectionRegistry}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class TransactionalConnectionRegistryTests {
+
+    private static final Object DATA_SOURCE_KEY = new Object();
+
+    private TransactionManager transactionManager;
+
+    private NarayanaDataSource dataSource;
+
+    private TransactionalConnectionRegistry registry;
+
+    @BeforeEach
+    void before() throws SQLException {
+        this.transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        given(metaData.getDriverName()).willReturn("mock");
+        Connection connection = mock(Connection.class);
+        given(connection.getMetaData()).willReturn(metaData);
+        XAConnection xaConnection = mock(XAConnection.class);
+        given(xaConnection.getConnection()).willReturn(connection);
+        given(xaConnection.getXAResource()).willReturn(mock(XAResource.class));
+        XADataSource xaDataSource = mock(XADataSource.class);
+        given(xaDataSource.getXAConnection()).willReturn(xaConnection);
+
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        this.dataSource = new NarayanaDataSource(xaDataSource, transactionalDriverProperties);
+        this.registry = new TransactionalConnectionRegistry();
+    }
+
+    @AfterEach
+    void after() throws Exception {
+        if (this.transactionManager.getTransaction() != null) {
+            this.transactionManager.rollback();
+        }
+    }
+
+    @Test
+    void shouldReuseConnectionUsedByTransaction() throws Exception {
+        this.transactionManager.begin();
+        ConnectionImple connection = (ConnectionImple) this.dataSource.getConnection();
+        this.registry.register(this.transactionManager.getTransaction(), DATA_SOURCE_KEY, connection);
+        assertThat(this.registry.acquire(this.transactionManager.getTransaction(), DATA_SOURCE_KEY)).isNull();
+
+        connection.createStatement();
+
+        assertThat(this.registry.acquire(this.transactionManager.getTransaction(), DATA_SOURCE_KEY))
+                .isSameAs(connection);
+        assertThat(this.registry.acquire(this.transactionManager.getTransaction(), new Object())).isNull();
+        connection.close();
+        assertThat(connection.inUse()).isTrue();
+        connection.close();
+
+        assertThat(this.registry.acquire(this.transactionManager.getTransaction(), DATA_SOURCE_KEY)).isNull();
+        this.transactionManager.commit();
+    }
+
+    @Test
+    void shouldReleaseConnectionsOnCompletion() throws Exception {
+        this.transactionManager.begin();
+        ConnectionImple connection = (ConnectionImple) this.dataSource.getConnection();
+        this.registry.register(this.transactionManager.getTransaction(), DATA_SOURCE_KEY, connection);
+        assertThat(this.registry.size()).isOne();
+
+        this.transactionManager.rollback();
+
+        assertThat(this.registry.size()).isZero();
+        connection.close();
+    }
+
+    @Test
+    void shouldGetSameConnectionInTransaction() throws Exception {
+        this.transactionManager.begin();
+        Connection connection1 = this.dataSource.getConnection();
+        connection1.createStatement();
+        Connection connection2 = this.dataSource.getConnection();
+        assertThat(connection2).isSameAs(connection1);
+        connection2.close();
+        connection1.close();
+        this.transactionManager.commit();
+
+        this.transactionManager.begin();
+        Connection connection3 = this.dataSource.getConnection();
+        connection3.createStatement();
+        assertThat(this.dataSource.getConnection()).isSameAs(connection3);
+        this.transactionManager.rollback();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.jfr;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.transaction.xa.XAResource;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import dev.snowdrop.boot.narayana.core.xa.XAOperation;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link TransactionEvents}, {@link XAResourceEvents} and {@link RecoveryPassEvents}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class FlightRecorderEventsTests {
+
+    @TempDir
+    Path tempDir;
+
+    private JtaTransactionManager transactionManager;
+
+    private XAResourceEvents xaResourceEvents;
+
+    @BeforeEach
+    void before() {
+        this.transactionManager = new JtaTransactionManager(com.arjuna.ats.jta.UserTransaction.userTransaction(),
+                com.arjuna.ats.jta.TransactionManager.transactionManager());
+        this.transactionManager.setTransactionExecutionListeners(List.of(new TransactionEvents()));
+        this.xaResourceEvents = XAResourceEvents.register();
+    }
+
+    @AfterEach
+    void after() {
+        this.xaResourceEvents.close();
+    }
+
+    @Test
+    void shouldRecordCommittedTransactionAndXACalls() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+            transactionTemplate.setName("order");
+            transactionTemplate.executeWithoutResult(status -> {
+                enlist(new NamedXAResource(mock(XAResource.class), "orders"));
+                enlist(new NamedXAResource(mock(XAResource.class), "payments"));
+            });
+        });
+
+        List<RecordedEvent> transactionEvents = events("narayana.Transaction", events);
+        assertThat(transactionEvents).extracting(event -> event.getString("operation") + " "
+                + event.getString("outcome")).containsExactly("begin begun", "commit committed");
+        assertThat(transactionEvents).allSatisfy(event -> {
+            assertThat(event.getString("name")).isEqualTo("order");
+            assertThat(event.getString("uid")).isNotNull();
+        });
+        List<RecordedEvent> xaResourceEvents = events("narayana.XAResource", events);
+        assertThat(xaResourceEvents).extracting(event -> event.getString("operation") + " "
+                + event.getString("resource")).contains("prepare orders", "prepare payments", "commit orders",
+                "commit payments");
+        assertThat(xaResourceEvents).allSatisfy(event -> {
+            assertThat(event.getString("outcome")).isEqualTo("XA_OK");
+            assertThat(event.getString("xid")).isNotNull();
+        });
+    }
+
+    @Test
+    void shouldRecordRolledBackTransaction() throws Exception {
+        List<RecordedEvent> events = record(() -> new TransactionTemplate(this.transactionManager)
+                .executeWithoutResult(status -> {
+                    enlist(new NamedXAResource(mock(XAResource.class), "orders"));
+                    status.setRollbackOnly();
+                }));
+
+        assertThat(events("narayana.Transaction", events)).extracting(event -> event.getString("operation") + " "
+                + event.getString("outcome")).containsExactly("begin begun", "rollback rolled back");
+        assertThat(events("narayana.XAResource", events)).extracting(event -> event.getString("operation"))
+                .contains("rollback");
+    }
+
+    @Test
+    void shouldRecordRecoveryPass() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            new RecoveryPassEvents.Start().periodicWorkFirstPass();
+            new RecoveryPassEvents.Start().periodicWorkSecondPass();
+            new RecoveryPassEvents.End().periodicWorkFirstPass();
+            new RecoveryPassEvents.End().periodicWorkSecondPass();
+        });
+
+        assertThat(events("narayana.RecoveryPass", events)).hasSize(1);
+    }
+
+    @Test
+    void shouldNotCreateEventsWithoutRecording() {
+        assertThat(this.xaResourceEvents.before("orders", XAOperation.PREPARE, null)).isNull();
+    }
+
+    private List<RecordedEvent> record(Runnable runnable) throws Exception {
+        Path file = this.tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("narayana.Transaction");
+            recording.enable("narayana.XAResource");
+            recording.enable("narayana.RecoveryPass");
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private List<RecordedEvent> events(String name, List<RecordedEvent> events) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+    }
+
+    private void enlist(XAResource xaResource) {
+        try {
+            this.transactionManager.getTransactionManager().getTransaction().enlistResource(xaResource);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import jakarta.transaction.Transaction;
 import jakarta.transaction.TransactionManager;
 
 import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
 import dev.snowdrop.boot.narayana.core.properties.MessagingHubConnectionFactoryProperties;
 import dev.snowdrop.boot.narayana.core.properties.RecoveryCredentialsProperties;
 import org.jboss.narayana.jta.jms.JmsXAResourceRecoveryHelper;
@@ -45,6 +46,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -62,12 +64,15 @@ class PooledXAConnectionFactoryWrapperTest {
     private MessagingHubConnectionFactoryProperties spyMessagingHubConnectionFactoryProperties;
     @Mock
     private RecoveryCredentialsProperties mockRecoveryCredentialsProperties;
+    @Mock
+    private PoolPrewarmer mockPoolPrewarmer;
     private PooledXAConnectionFactoryWrapper wrapper;
 
     @BeforeEach
     void before() {
         this.wrapper = new PooledXAConnectionFactoryWrapper(this.mockTransactionManager, this.mockXaRecoveryModule,
-                this.spyMessagingHubConnectionFactoryProperties, this.mockRecoveryCredentialsProperties);
+                this.spyMessagingHubConnectionFactoryProperties, this.mockRecoveryCredentialsProperties,
+                this.mockPoolPrewarmer);
     }
 
     @Test
@@ -146,4 +151,14 @@ class PooledXAConnectionFactoryWrapperTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Setting both firstResource and lastResource is not allowed");
     }
+
+    @Test
+    void wrapWithPrewarm() throws Exception {
+        given(this.spyMessagingHubConnectionFactoryProperties.isPrewarm()).willReturn(true);
+        given(this.spyMessagingHubConnectionFactoryProperties.getMinIdle()).willReturn(2);
+        given(this.spyMessagingHubConnectionFactoryProperties.getMaxConnections()).willReturn(4);
+        given(this.mockRecoveryCredentialsProperties.isValid()).willReturn(false);
+        this.wrapper.wrapConnectionFactory(this.mockXaConnectionFactory);
+        verify(this.mockPoolPrewarmer).prewarm(eq("jms"), eq(2), any(PoolPrewarmer.Opener.class));
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+
+import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
+import dev.snowdrop.boot.narayana.core.jdbc.GenericXADataSourceWrapper;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Tests for {@link AgroalPoolMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class AgroalPoolMetricsTests {
+
+    @Mock
+    private XADataSource mockXaDataSource;
+
+    @Mock
+    private XAConnection mockXaConnection;
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private XAResource mockXaResource;
+
+    @Mock
+    private XARecoveryModule mockXaRecoveryModule;
+
+    @Mock
+    private DataSource mockDataSource;
+
+    private AgroalDataSource agroalDataSource;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void before() throws Exception {
+        TransactionalDriverProperties transactionalDriverProperties = new TransactionalDriverProperties();
+        transactionalDriverProperties.getPool().setEnabled(true);
+        transactionalDriverProperties.getPool().setType(TransactionalDriverProperties.Pool.Type.AGROAL);
+        this.agroalDataSource = (AgroalDataSource) new GenericXADataSourceWrapper(this.mockXaRecoveryModule,
+                transactionalDriverProperties).wrapDataSource(this.mockXaDataSource);
+        this.registry = new SimpleMeterRegistry();
+        new AgroalPoolMetrics(() -> Map.of("agroal", this.agroalDataSource, "other", this.mockDataSource))
+                .bindTo(this.registry);
+    }
+
+    @AfterEach
+    void after() {
+        this.agroalDataSource.close();
+    }
+
+    @Test
+    void shouldPublishPoolMetrics() throws SQLException {
+        given(this.mockXaDataSource.getXAConnection()).willReturn(this.mockXaConnection);
+        given(this.mockXaConnection.getConnection()).willReturn(this.mockConnection);
+        given(this.mockXaConnection.getXAResource()).willReturn(this.mockXaResource);
+        try (Connection connection = this.agroalDataSource.getConnection()) {
+            assertThat(gauge("active")).isOne();
+            assertThat(gauge("available")).isZero();
+        }
+        assertThat(gauge("active")).isZero();
+        assertThat(gauge("available")).isOne();
+        assertThat(gauge("max.used")).isOne();
+        assertThat(this.registry.get("narayana.jdbc.connections.created").tag("name", "agroal").functionCounter()
+                .count()).isOne();
+        assertThat(this.registry.get("narayana.jdbc.connections.acquire").tag("name", "agroal").functionTimer()
+                .count()).isOne();
+    }
+
+    @Test
+    void shouldSkipOtherDataSources() {
+        assertThat(this.registry.find("narayana.jdbc.connections.active").tag("name", "other").gauge()).isNull();
+    }
+
+    private double gauge(String name) {
+        return this.registry.get("narayana.jdbc.connections." + name).tag("name", "agroal").gauge().value();
+    }
+}
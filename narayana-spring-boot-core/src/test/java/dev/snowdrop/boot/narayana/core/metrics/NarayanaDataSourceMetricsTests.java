@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.XADataSource;
+
+import dev.snowdrop.boot.narayana.core.jdbc.NarayanaDataSource;
+import dev.snowdrop.boot.narayana.core.properties.TransactionalDriverProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NarayanaDataSourceMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class NarayanaDataSourceMetricsTests {
+
+    @Mock
+    private XADataSource mockXaDataSource;
+
+    private NarayanaDataSource pooledDataSource;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void before() {
+        TransactionalDriverProperties pooledProperties = new TransactionalDriverProperties();
+        pooledProperties.getPool().setEnabled(true);
+        this.pooledDataSource = new NarayanaDataSource(this.mockXaDataSource, pooledProperties);
+        NarayanaDataSource simpleDataSource = new NarayanaDataSource(this.mockXaDataSource,
+                new TransactionalDriverProperties());
+        this.registry = new SimpleMeterRegistry();
+        new NarayanaDataSourceMetrics(() -> Map.of("pooled", this.pooledDataSource, "simple", simpleDataSource))
+                .bindTo(this.registry);
+    }
+
+    @Test
+    void shouldPublishPoolMetrics() throws SQLException {
+        try (Connection connection = this.pooledDataSource.getConnection()) {
+            assertThat(gauge("active")).isOne();
+            assertThat(gauge("available")).isZero();
+        }
+        assertThat(gauge("active")).isZero();
+        assertThat(gauge("available")).isOne();
+        assertThat(gauge("pending")).isZero();
+        assertThat(gauge("max")).isEqualTo(10);
+        assertThat(this.registry.get("narayana.jdbc.connections.timeouts").tag("name", "pooled").functionCounter()
+                .count()).isZero();
+        assertThat(this.registry.get("narayana.jdbc.connections.acquire").tag("name", "pooled").functionTimer()
+                .count()).isOne();
+    }
+
+    @Test
+    void shouldSkipDataSourcesWithoutPool() {
+        assertThat(this.registry.find("narayana.jdbc.connections.active").tag("name", "simple").gauge()).isNull();
+    }
+
+    private double gauge(String name) {
+        return this.registry.get("narayana.jdbc.connections." + name).tag("name", "pooled").gauge().value();
+    }
+}
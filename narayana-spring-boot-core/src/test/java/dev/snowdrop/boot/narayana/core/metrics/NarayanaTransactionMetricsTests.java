@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.AtomicAction;
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NarayanaTransactionMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class NarayanaTransactionMetricsTests {
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void before() {
+        this.registry = new SimpleMeterRegistry();
+        new NarayanaTransactionMetrics().bindTo(this.registry);
+    }
+
+    @AfterEach
+    void after() {
+        arjPropertyManager.getCoordinatorEnvironmentBean().setEnableStatistics(false);
+    }
+
+    @Test
+    void shouldEnableStatistics() {
+        assertThat(arjPropertyManager.getCoordinatorEnvironmentBean().isEnableStatistics()).isTrue();
+    }
+
+    @Test
+    void shouldCountTransactions() {
+        double created = count("narayana.transactions.created");
+        double committed = count("narayana.transactions.committed");
+        double aborted = count("narayana.transactions.aborted");
+        double applicationRollbacks = this.registry.get("narayana.transactions.rollbacks")
+                .tag("cause", "application").functionCounter().count();
+        FunctionTimer commitTimer = this.registry.get("narayana.transactions.commit").functionTimer();
+        double commits = commitTimer.count();
+
+        AtomicAction committedAction = new AtomicAction();
+        committedAction.begin();
+        assertThat(this.registry.get("narayana.transactions.inflight").gauge().value()).isPositive();
+        committedAction.commit();
+        AtomicAction abortedAction = new AtomicAction();
+        abortedAction.begin();
+        abortedAction.abort();
+
+        assertThat(count("narayana.transactions.created")).isEqualTo(created + 2);
+        assertThat(count("narayana.transactions.committed")).isEqualTo(committed + 1);
+        assertThat(count("narayana.transactions.aborted")).isEqualTo(aborted + 1);
+        assertThat(this.registry.get("narayana.transactions.rollbacks").tag("cause", "application")
+                .functionCounter().count()).isEqualTo(applicationRollbacks + 1);
+        assertThat(commitTimer.count()).isEqualTo(commits + 1);
+        assertThat(commitTimer.totalTime(TimeUnit.NANOSECONDS)).isNotNegative();
+    }
+
+    private double count(String name) {
+        return this.registry.get(name).functionCounter().count();
+    }
+}
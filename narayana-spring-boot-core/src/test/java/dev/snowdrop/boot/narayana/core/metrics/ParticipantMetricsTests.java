@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.List;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ParticipantMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class ParticipantMetricsTests {
+
+    private MeterRegistry registry;
+
+    private ParticipantMetrics participantMetrics;
+
+    private JtaTransactionManager transactionManager;
+
+    @BeforeEach
+    void before() {
+        this.registry = new SimpleMeterRegistry();
+        this.participantMetrics = new ParticipantMetrics();
+        this.participantMetrics.bindTo(this.registry);
+        this.transactionManager = new JtaTransactionManager(com.arjuna.ats.jta.UserTransaction.userTransaction(),
+                com.arjuna.ats.jta.TransactionManager.transactionManager());
+        this.transactionManager.setTransactionExecutionListeners(List.of(this.participantMetrics));
+    }
+
+    @AfterEach
+    void after() {
+        this.participantMetrics.close();
+    }
+
+    @Test
+    void shouldCountOnePhaseCommit() {
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(
+                status -> enlist(new NamedXAResource(mock(XAResource.class), "orders")));
+
+        assertThat(this.registry.get("narayana.transactions.participants").summary().totalAmount()).isEqualTo(1);
+        assertThat(commits("one.phase")).isEqualTo(1);
+        assertThat(commits("two.phase")).isZero();
+        assertThat(this.registry.find("narayana.xa.resource.votes").counters()).isEmpty();
+    }
+
+    @Test
+    void shouldCountTwoPhaseCommitAndVotes() throws XAException {
+        XAResource readOnlyResource = mock(XAResource.class);
+        given(readOnlyResource.prepare(any(Xid.class))).willReturn(XAResource.XA_RDONLY);
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            enlist(new NamedXAResource(mock(XAResource.class), "orders"));
+            enlist(new NamedXAResource(readOnlyResource, "payments"));
+        });
+
+        assertThat(this.registry.get("narayana.transactions.participants").summary().totalAmount()).isEqualTo(2);
+        assertThat(commits("one.phase")).isZero();
+        assertThat(commits("two.phase")).isEqualTo(1);
+        assertThat(votes("orders", "XA_OK")).isEqualTo(1);
+        assertThat(votes("payments", "XA_RDONLY")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountHeuristicOutcome() throws XAException {
+        XAResource xaResource = mock(XAResource.class);
+        willThrow(new XAException(XAException.XA_HEURMIX)).given(xaResource).commit(any(Xid.class), anyBoolean());
+
+        assertThatExceptionOfType(HeuristicCompletionException.class).isThrownBy(() ->
+                new TransactionTemplate(this.transactionManager).executeWithoutResult(
+                        status -> enlist(new NamedXAResource(xaResource, "orders"))));
+
+        assertThat(this.registry.get("narayana.transactions.heuristic.outcomes").tag("outcome", "mixed").counter()
+                .count()).isEqualTo(1);
+    }
+
+    private double commits(String protocol) {
+        return this.registry.get("narayana.transactions.commit.protocol").tag("protocol", protocol).counter().count();
+    }
+
+    private double votes(String resource, String vote) {
+        return this.registry.get("narayana.xa.resource.votes").tag("resource", resource).tag("vote", vote).counter()
+                .count();
+    }
+
+    private void enlist(XAResource xaResource) {
+        try {
+            this.transactionManager.getTransactionManager().getTransaction().enlistResource(xaResource);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
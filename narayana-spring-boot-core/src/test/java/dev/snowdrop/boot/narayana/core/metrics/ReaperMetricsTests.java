@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Transaction;
+import jakarta.transaction.TransactionManager;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.transaction.TransactionExecution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ReaperMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class ReaperMetricsTests {
+
+    private MeterRegistry registry;
+
+    private ReaperMetrics reaperMetrics;
+
+    @BeforeEach
+    void before() {
+        this.registry = new SimpleMeterRegistry();
+        this.reaperMetrics = new ReaperMetrics();
+        this.reaperMetrics.bindTo(this.registry);
+    }
+
+    @AfterEach
+    void after() {
+        this.reaperMetrics.close();
+    }
+
+    @Test
+    void shouldTrackTransactionsWithTimeout() throws Exception {
+        TransactionManager transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+        double tracked = this.registry.get("narayana.reaper.transactions").gauge().value();
+
+        transactionManager.setTransactionTimeout(60);
+        transactionManager.begin();
+        try {
+            assertThat(this.registry.get("narayana.reaper.transactions").gauge().value()).isEqualTo(tracked + 1);
+        } finally {
+            transactionManager.rollback();
+            transactionManager.setTransactionTimeout(0);
+        }
+        assertThat(this.registry.get("narayana.reaper.zombies").gauge().value()).isNotNegative();
+    }
+
+    @Test
+    void shouldCountCancellations() throws Exception {
+        TransactionManager transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+        transactionManager.setTransactionTimeout(1);
+        transactionManager.begin();
+        Transaction transaction = transactionManager.getTransaction();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (rolledBack() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            transactionManager.rollback();
+            transactionManager.setTransactionTimeout(0);
+        }
+
+        assertThat(rolledBack()).isEqualTo(1);
+        assertThat(transaction.getStatus()).isNotEqualTo(Status.STATUS_ACTIVE);
+        Timer latency = this.registry.get("narayana.reaper.cancellation.latency").timer();
+        assertThat(latency.count()).isEqualTo(1);
+        assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isPositive();
+    }
+
+    @Test
+    void shouldRecordLatencyFromDeadlineAtBegin() throws Exception {
+        TransactionManager transactionManager = com.arjuna.ats.jta.TransactionManager.transactionManager();
+        transactionManager.setTransactionTimeout(1);
+        transactionManager.begin();
+        TransactionExecution execution = mock(TransactionExecution.class);
+        this.reaperMetrics.afterBegin(execution, null);
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (rolledBack() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            this.reaperMetrics.beforeRollback(execution);
+            transactionManager.rollback();
+            transactionManager.setTransactionTimeout(0);
+        }
+
+        Timer latency = this.registry.get("narayana.reaper.cancellation.latency").timer();
+        assertThat(latency.count()).isEqualTo(1);
+        assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isPositive();
+    }
+
+    private double rolledBack() {
+        return this.registry.get("narayana.reaper.cancellations").tag("outcome", "rolled.back").counter().count();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.AtomicAction;
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import com.arjuna.ats.arjuna.coordinator.ActionStatus;
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of the transaction statistics turned on by {@link NarayanaTransactionMetrics}. Empty transactions
+ * are begun and committed from several threads, first with statistics turned off and then with the metrics bound, so
+ * that the counting is the only work done besides the coordination itself. Results are logged rather than asserted,
+ * because absolute numbers depend on the machine the build runs on.
+ * <p>
+ * Only run by the {@code benchmark} profile.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Tag("benchmark")
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class TransactionStatisticsOverheadIT {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionStatisticsOverheadIT.class);
+
+    private static final int THREADS = 8;
+
+    private static final int TRANSACTIONS_PER_THREAD = 50_000;
+
+    @AfterEach
+    void after() {
+        arjPropertyManager.getCoordinatorEnvironmentBean().setEnableStatistics(false);
+    }
+
+    @Test
+    void measureStatisticsOverhead() throws Exception {
+        arjPropertyManager.getCoordinatorEnvironmentBean().setEnableStatistics(false);
+        // Warm up, so that neither run pays for class loading and compilation
+        measure();
+        double disabled = measure();
+
+        new NarayanaTransactionMetrics().bindTo(new SimpleMeterRegistry());
+        measure();
+        double enabled = measure();
+
+        LOGGER.infof("Empty transactions with statistics: %.0f transactions/s, without: %.0f transactions/s", enabled,
+                disabled);
+        LOGGER.infof("Statistics cost %.0f ns per transaction", (1 / enabled - 1 / disabled) * THREADS * 1_000_000_000d);
+    }
+
+    private double measure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < TRANSACTIONS_PER_THREAD; j++) {
+                        AtomicAction action = new AtomicAction();
+                        action.begin();
+                        assertThat(action.commit()).isEqualTo(ActionStatus.COMMITTED);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            long elapsed = System.nanoTime() - start;
+            return THREADS * TRANSACTIONS_PER_THREAD / (elapsed / 1_000_000_000d);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
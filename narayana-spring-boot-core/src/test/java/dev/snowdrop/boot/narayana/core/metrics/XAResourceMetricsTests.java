@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.metrics;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link XAResourceMetrics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class XAResourceMetricsTests {
+
+    @Mock
+    private XAResource mockXaResource;
+
+    @Mock
+    private Xid mockXid;
+
+    private MeterRegistry registry;
+
+    private XAResourceMetrics xaResourceMetrics;
+
+    @BeforeEach
+    void before() {
+        this.registry = new SimpleMeterRegistry();
+        this.xaResourceMetrics = new XAResourceMetrics();
+        this.xaResourceMetrics.bindTo(this.registry);
+    }
+
+    @AfterEach
+    void after() {
+        this.xaResourceMetrics.close();
+    }
+
+    @Test
+    void shouldTimeJdbcResourceCalls() throws XAException {
+        given(this.mockXaResource.prepare(this.mockXid)).willReturn(XAResource.XA_RDONLY);
+        NamedXAResource namedXaResource = new NamedXAResource(this.mockXaResource, "db");
+
+        namedXaResource.start(this.mockXid, XAResource.TMNOFLAGS);
+        namedXaResource.end(this.mockXid, XAResource.TMSUCCESS);
+        assertThat(namedXaResource.prepare(this.mockXid)).isEqualTo(XAResource.XA_RDONLY);
+
+        assertThat(count("db", "start", "XA_OK")).isOne();
+        assertThat(count("db", "end", "XA_OK")).isOne();
+        assertThat(count("db", "prepare", "XA_RDONLY")).isOne();
+    }
+
+    @Test
+    void shouldTagFailedJmsResourceCallsWithErrorCode() throws XAException {
+        willThrow(new XAException(XAException.XAER_RMFAIL)).given(this.mockXaResource).commit(this.mockXid, false);
+        dev.snowdrop.boot.narayana.core.jms.pool.NamedXAResource namedXaResource =
+                new dev.snowdrop.boot.narayana.core.jms.pool.NamedXAResource(this.mockXaResource, "broker");
+
+        assertThatExceptionOfType(XAException.class).isThrownBy(() -> namedXaResource.commit(this.mockXid, false))
+                .satisfies(e -> assertThat(e.errorCode).isEqualTo(XAException.XAER_RMFAIL));
+
+        assertThat(count("broker", "commit", "XAER_RMFAIL")).isOne();
+    }
+
+    @Test
+    void shouldNotTimeCallsOnceClosed() throws XAException {
+        this.xaResourceMetrics.close();
+        NamedXAResource namedXaResource = new NamedXAResource(this.mockXaResource, "db");
+
+        namedXaResource.rollback(this.mockXid);
+
+        verify(this.mockXaResource).rollback(this.mockXid);
+        assertThat(XAResourceListeners.getListener()).isNull();
+        assertThat(this.registry.find("narayana.xa.resource").timers()).isEmpty();
+    }
+
+    private long count(String resource, String operation, String outcome) {
+        return this.registry.get("narayana.xa.resource")
+                .tags("resource", resource, "operation", operation, "outcome", outcome)
+                .timer()
+                .count();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.coordinator.TxStats;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.common.internal.util.ClassloadingUtility;
+import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link DecoratingObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class DecoratingObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void after() throws NoSuchFieldException, IllegalAccessException {
+        // BeanPopulator holds instances in a static private map, so in order to reset it we need reflection
+        Field beanInstancesField = BeanPopulator.class.getDeclaredField("beanInstances");
+        beanInstancesField.setAccessible(true);
+        ((Map<?, ?>) beanInstancesField.get(null)).clear();
+        // TxStats caches the coordinator environment bean, which would no longer be the one held by BeanPopulator
+        Field txStatsEnvironmentBeanField = TxStats.class.getDeclaredField("_environmentBean");
+        txStatsEnvironmentBeanField.setAccessible(true);
+        txStatsEnvironmentBeanField.set(null, null);
+    }
+
+    @Test
+    void shouldDecorateConfiguredStore() throws Exception {
+        BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class).setObjectStoreDir(this.tempDir.toString());
+        DecoratingObjectStoreEnvironmentBean environmentBean =
+                BeanPopulator.getDefaultInstance(DecoratingObjectStoreEnvironmentBean.class);
+        environmentBean.setObjectStoreType(DeferredSyncShadowNoFileLockStore.class.getName());
+        environmentBean.setDecorators(List.of(DelegatingObjectStore::new, DelegatingObjectStore::new));
+
+        // The same way as Narayana StoreManager creates the action store
+        ObjectStoreAPI store = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                DecoratingObjectStore.class.getName(), null);
+        store.start();
+
+        assertThat(store).isInstanceOf(DecoratingObjectStore.class);
+        ObjectStoreAPI decorator = ((DelegatingObjectStore) store).getDelegate();
+        assertThat(decorator).isInstanceOf(DelegatingObjectStore.class);
+        decorator = ((DelegatingObjectStore) decorator).getDelegate();
+        assertThat(decorator).isInstanceOf(DelegatingObjectStore.class);
+        assertThat(((DelegatingObjectStore) decorator).getDelegate())
+                .isInstanceOf(DeferredSyncShadowNoFileLockStore.class);
+
+        Uid uid = new Uid();
+        assertThat(store.write_committed(uid, TYPE, new OutputObjectState(uid, TYPE))).isTrue();
+        store.sync();
+        assertThat(store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+        assertThat(store.remove_committed(uid, TYPE)).isTrue();
+        store.sync();
+        assertThat(store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        store.stop();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.SyncFailedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link GroupCommitObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class GroupCommitObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void after() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void shouldReturnOnlyDurableRecords() throws Exception {
+        RecordingObjectStore delegate = new RecordingObjectStore(Duration.ofMillis(5));
+        GroupCommitObjectStore store = new GroupCommitObjectStore(delegate, 8, Duration.ofMillis(10));
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(this.executor.submit(() -> {
+                Uid uid = new Uid();
+                assertThat(store.write_committed(uid, TYPE, new OutputObjectState())).isTrue();
+                assertThat(delegate.durable).as("Record should be durable once written").contains(uid);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(delegate.durable).hasSize(200);
+        assertThat(delegate.syncs.get()).as("Concurrent writes should share syncs").isLessThan(200);
+    }
+
+    @Test
+    void shouldNotWaitWithoutConcurrentWrites() throws Exception {
+        RecordingObjectStore delegate = new RecordingObjectStore(Duration.ZERO);
+        GroupCommitObjectStore store = new GroupCommitObjectStore(delegate, 8, Duration.ofSeconds(30));
+
+        long start = System.nanoTime();
+        Uid uid = new Uid();
+        assertThat(store.write_committed(uid, TYPE, new OutputObjectState())).isTrue();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(delegate.durable).containsExactly(uid);
+        assertThat(delegate.syncs.get()).isOne();
+    }
+
+    @Test
+    void shouldFailAllRecordsOfFailedBatch() throws Exception {
+        RecordingObjectStore delegate = new RecordingObjectStore(Duration.ofMillis(50));
+        delegate.failSync.set(true);
+        GroupCommitObjectStore store = new GroupCommitObjectStore(delegate, 100, Duration.ofMillis(10));
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(this.executor.submit(() -> {
+                start.await();
+                return store.write_committed(new Uid(), TYPE, new OutputObjectState());
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            assertThatExceptionOfType(ExecutionException.class)
+                    .isThrownBy(() -> future.get(30, TimeUnit.SECONDS))
+                    .withCauseInstanceOf(ObjectStoreException.class);
+        }
+        assertThat(delegate.durable).isEmpty();
+    }
+
+    @Test
+    void shouldNotSyncFailedWrite() throws Exception {
+        ObjectStoreAPI delegate = mock(ObjectStoreAPI.class);
+        GroupCommitObjectStore store = new GroupCommitObjectStore(delegate, 8, Duration.ofMillis(10));
+
+        assertThat(store.write_committed(new Uid(), TYPE, new OutputObjectState())).isFalse();
+        verify(delegate, never()).sync();
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        ObjectStoreAPI delegate = mock(ObjectStoreAPI.class);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new GroupCommitObjectStore(delegate, 0, Duration.ZERO));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new GroupCommitObjectStore(delegate, 1, Duration.ofMillis(-1)));
+    }
+
+    /**
+     * Store which makes written records durable only when synced.
+     */
+    private static final class RecordingObjectStore extends DelegatingObjectStore {
+
+        private final Set<Uid> written = ConcurrentHashMap.newKeySet();
+
+        private final Set<Uid> durable = ConcurrentHashMap.newKeySet();
+
+        private final AtomicInteger syncs = new AtomicInteger();
+
+        private final AtomicBoolean failSync = new AtomicBoolean();
+
+        private final Duration syncTime;
+
+        RecordingObjectStore(Duration syncTime) {
+            super(null);
+            this.syncTime = syncTime;
+        }
+
+        @Override
+        public boolean write_committed(Uid u, String tn, OutputObjectState buff) {
+            this.written.add(u);
+            return true;
+        }
+
+        @Override
+        public void sync() throws SyncFailedException {
+            this.syncs.incrementAndGet();
+            List<Uid> synced = new ArrayList<>(this.written);
+            try {
+                Thread.sleep(this.syncTime.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.failSync.get()) {
+                throw new SyncFailedException("Test failure");
+            }
+            this.written.removeAll(synced);
+            this.durable.addAll(synced);
+        }
+    }
+}
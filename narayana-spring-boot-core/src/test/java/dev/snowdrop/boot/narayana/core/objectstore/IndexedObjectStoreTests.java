@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link IndexedObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class IndexedObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    @TempDir
+    Path tempDir;
+
+    private ObjectStoreAPI delegate;
+
+    private IndexedObjectStore store;
+
+    @BeforeEach
+    void before() throws Exception {
+        ObjectStoreEnvironmentBean environmentBean = new ObjectStoreEnvironmentBean();
+        environmentBean.setObjectStoreDir(this.tempDir.toString());
+        this.delegate = spy(new ShadowNoFileLockStore(environmentBean));
+        this.store = new IndexedObjectStore(this.delegate, Duration.ZERO);
+    }
+
+    @AfterEach
+    void after() {
+        this.store.stop();
+    }
+
+    @Test
+    void shouldLoadExistingRecordsOnStart() throws Exception {
+        List<Uid> uids = writeRecords(this.delegate, 3);
+
+        this.store.start();
+
+        assertThat(listUids()).containsExactlyInAnyOrderElementsOf(uids);
+        assertThat(listTypes()).contains(TYPE.substring(1));
+        for (Uid uid : uids) {
+            assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo(uid.stringForm());
+        }
+    }
+
+    @Test
+    void shouldListRecordsWithoutScanningDelegate() throws Exception {
+        this.store.start();
+        List<Uid> uids = writeRecords(this.store, 3);
+        Uid removed = uids.remove(0);
+        assertThat(this.store.remove_committed(removed, TYPE)).isTrue();
+
+        assertThat(listUids()).containsExactlyInAnyOrderElementsOf(uids);
+        assertThat(listTypes()).contains(TYPE.substring(1));
+        // Only the initial load scans the delegate, which is empty at that time
+        verify(this.delegate).allTypes(any());
+        verify(this.delegate, never()).allObjUids(any(), any());
+    }
+
+    @Test
+    void shouldListTypesLikeDelegate() throws Exception {
+        String subordinateType = TYPE + "/SubordinateAtomicAction/JCA";
+        writeRecords(this.delegate, 1);
+        this.store.start();
+        Uid uid = new Uid();
+        assertThat(this.store.write_committed(uid, subordinateType, new OutputObjectState(uid, subordinateType)))
+                .isTrue();
+
+        assertThat(listTypes()).containsExactlyInAnyOrderElementsOf(listTypes(this.delegate));
+
+        assertThat(this.store.remove_committed(uid, subordinateType)).isTrue();
+
+        assertThat(listTypes()).containsExactly("StateManager", "StateManager/BasicAction",
+                "StateManager/BasicAction/TwoPhaseCoordinator", TYPE.substring(1));
+    }
+
+    @Test
+    void shouldNotReadMissingRecordsFromDelegate() throws Exception {
+        this.store.start();
+        Uid uid = new Uid();
+
+        assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        assertThat(this.store.read_committed(uid, TYPE)).isNull();
+        assertThat(this.store.read_uncommitted(uid, TYPE)).isNull();
+        verify(this.delegate, never()).currentState(any(), any());
+        verify(this.delegate, never()).read_committed(any(), any());
+        verify(this.delegate, never()).read_uncommitted(any(), any());
+    }
+
+    @Test
+    void shouldForgetRemovedLoadedRecords() throws Exception {
+        List<Uid> uids = writeRecords(this.delegate, 2);
+        this.store.start();
+
+        assertThat(this.store.remove_committed(uids.get(0), TYPE)).isTrue();
+
+        assertThat(listUids()).containsExactly(uids.get(1));
+        assertThat(this.store.currentState(uids.get(0), TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+    }
+
+    @Test
+    void shouldTrackUncommittedStates() throws Exception {
+        this.store.start();
+        Uid uid = new Uid();
+        OutputObjectState state = new OutputObjectState(uid, TYPE);
+        state.packString(uid.stringForm());
+
+        assertThat(this.store.write_uncommitted(uid, TYPE, state)).isTrue();
+        assertThat(listUids()).containsExactly(uid);
+        assertThat(this.store.read_committed(uid, TYPE)).isNull();
+        assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_UNCOMMITTED);
+
+        assertThat(this.store.commit_state(uid, TYPE)).isTrue();
+        assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo(uid.stringForm());
+        assertThat(this.store.read_uncommitted(uid, TYPE)).isNull();
+
+        assertThat(this.store.remove_committed(uid, TYPE)).isTrue();
+        assertThat(listUids()).isEmpty();
+    }
+
+    @Test
+    void shouldReconcileWithDelegate() throws Exception {
+        this.store.start();
+        List<Uid> indexed = writeRecords(this.store, 2);
+        List<Uid> external = writeRecords(this.delegate, 2);
+        assertThat(this.delegate.remove_committed(indexed.get(0), TYPE)).isTrue();
+
+        this.store.reconcile();
+
+        assertThat(listUids()).containsExactlyInAnyOrder(indexed.get(1), external.get(0), external.get(1));
+        assertThat(this.store.currentState(external.get(0), TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+    }
+
+    @Test
+    void shouldKeepRecordWrittenDuringReconciliation() throws Exception {
+        this.store.start();
+        writeRecords(this.store, 1);
+        Uid uid = new Uid();
+        OutputObjectState state = new OutputObjectState(uid, TYPE);
+        state.packString(uid.stringForm());
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch reconciled = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            writing.countDown();
+            assertThat(reconciled.await(10, TimeUnit.SECONDS)).isTrue();
+            return invocation.callRealMethod();
+        }).given(this.delegate).write_committed(eq(uid), any(), any());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> written = executor.submit(() -> this.store.write_committed(uid, TYPE, state));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The delegate is scanned before the record is durable
+            this.store.reconcile();
+            reconciled.countDown();
+
+            assertThat(written.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(listUids()).contains(uid);
+        assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+    }
+
+    private List<Uid> writeRecords(ObjectStoreAPI objectStore, int count) throws Exception {
+        List<Uid> uids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Uid uid = new Uid();
+            OutputObjectState state = new OutputObjectState(uid, TYPE);
+            state.packString(uid.stringForm());
+            assertThat(objectStore.write_committed(uid, TYPE, state)).isTrue();
+            uids.add(uid);
+        }
+        return uids;
+    }
+
+    private List<Uid> listUids() throws Exception {
+        InputObjectState uids = new InputObjectState();
+        assertThat(this.store.allObjUids(TYPE, uids)).isTrue();
+        List<Uid> result = new ArrayList<>();
+        for (Uid uid = UidHelper.unpackFrom(uids); uid.notEquals(Uid.nullUid()); uid = UidHelper.unpackFrom(uids)) {
+            result.add(uid);
+        }
+        return result;
+    }
+
+    private List<String> listTypes() throws Exception {
+        return listTypes(this.store);
+    }
+
+    private List<String> listTypes(ObjectStoreAPI objectStore) throws Exception {
+        InputObjectState types = new InputObjectState();
+        assertThat(objectStore.allTypes(types)).isTrue();
+        List<String> result = new ArrayList<>();
+        for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+            result.add(type);
+        }
+        return result;
+    }
+}
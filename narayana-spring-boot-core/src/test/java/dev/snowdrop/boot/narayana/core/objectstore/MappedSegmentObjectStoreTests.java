@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link MappedSegmentObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class MappedSegmentObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    private MappedSegmentObjectStoreEnvironmentBean environmentBean;
+
+    private MappedSegmentObjectStore store;
+
+    @BeforeEach
+    void before() {
+        this.environmentBean = new MappedSegmentObjectStoreEnvironmentBean();
+        this.environmentBean.setStoreDir(this.tempDir.toString());
+        this.environmentBean.setSegmentSize(SEGMENT_SIZE);
+        this.store = start();
+    }
+
+    @AfterEach
+    void after() {
+        this.store.stop();
+    }
+
+    @Test
+    void shouldWriteReadAndRemoveRecords() throws Exception {
+        Uid uid = new Uid();
+
+        assertThat(this.store.write_committed(uid, TYPE, state(uid, "first"))).isTrue();
+        assertThat(this.store.write_committed(uid, TYPE, state(uid, "second"))).isTrue();
+
+        assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+        assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo("second");
+        assertThat(this.store.remove_committed(uid, TYPE)).isTrue();
+        assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        assertThat(this.store.read_committed(uid, TYPE)).isNull();
+        assertThat(this.store.remove_committed(uid, TYPE)).isFalse();
+    }
+
+    @Test
+    void shouldRecoverRecordsOnStart() throws Exception {
+        Uid kept = new Uid();
+        Uid updated = new Uid();
+        Uid removed = new Uid();
+        this.store.write_committed(kept, TYPE, state(kept, "kept"));
+        this.store.write_committed(updated, TYPE, state(updated, "before"));
+        this.store.write_committed(removed, TYPE, state(removed, "removed"));
+        this.store.write_committed(updated, TYPE, state(updated, "after"));
+        this.store.remove_committed(removed, TYPE);
+        this.store.stop();
+
+        this.store = start();
+
+        assertThat(this.store.read_committed(kept, TYPE).unpackString()).isEqualTo("kept");
+        assertThat(this.store.read_committed(updated, TYPE).unpackString()).isEqualTo("after");
+        assertThat(this.store.currentState(removed, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        assertThat(allObjUids()).containsExactlyInAnyOrder(kept, updated);
+        assertThat(allTypes()).contains("StateManager", "StateManager/BasicAction", TYPE.substring(1));
+    }
+
+    @Test
+    void shouldIgnoreIncompleteRecordOnStart() throws Exception {
+        Uid complete = new Uid();
+        Uid incomplete = new Uid();
+        this.store.write_committed(complete, TYPE, state(complete, "complete"));
+        this.store.write_committed(incomplete, TYPE, state(incomplete, "incomplete"));
+        this.store.stop();
+
+        // Corrupt the last byte of the last record, as if the crash happened while it was being written
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate(SEGMENT_SIZE);
+            channel.read(content, 0);
+            int end = 0;
+            while (content.getInt(end) != 0) {
+                end += 2 * Integer.BYTES + content.getInt(end);
+            }
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~content.get(end - 1)}), end - 1);
+        }
+
+        this.store = start();
+
+        assertThat(this.store.read_committed(complete, TYPE).unpackString()).isEqualTo("complete");
+        assertThat(this.store.currentState(incomplete, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        Uid next = new Uid();
+        assertThat(this.store.write_committed(next, TYPE, state(next, "next"))).isTrue();
+    }
+
+    @Test
+    void shouldDeleteCompletedSegments() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Uid uid = new Uid();
+            this.store.write_committed(uid, TYPE, state(uid, "record " + i));
+            this.store.remove_committed(uid, TYPE);
+        }
+
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    void shouldCompactSegmentsWithRecordsInUse() throws Exception {
+        this.environmentBean.setCompactMinSegments(3);
+        this.store.stop();
+        this.store = start();
+        Uid inDoubt = new Uid();
+        this.store.write_committed(inDoubt, TYPE, state(inDoubt, "in doubt"));
+
+        for (int i = 0; i < 200; i++) {
+            Uid uid = new Uid();
+            this.store.write_committed(uid, TYPE, state(uid, "record " + i));
+            this.store.remove_committed(uid, TYPE);
+        }
+
+        assertThat(segmentFiles()).hasSizeLessThan(3);
+        this.store.stop();
+        this.store = start();
+        assertThat(this.store.read_committed(inDoubt, TYPE).unpackString()).isEqualTo("in doubt");
+    }
+
+    @Test
+    void shouldKeepLatestRecordsWhenCompactingOnRollover() throws Exception {
+        // Every rollover relocates the records in use of the full segment
+        this.environmentBean.setCompactMinSegments(2);
+        this.store.stop();
+        this.store = start();
+        List<Uid> updated = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            Uid uid = new Uid();
+            this.store.write_committed(uid, TYPE, state(uid, "record " + i));
+            // Rollovers also happen in the middle of removals
+            this.store.remove_committed(uid, TYPE);
+            if (i % 10 == 0) {
+                Uid updatedUid = new Uid();
+                this.store.write_committed(updatedUid, TYPE, state(updatedUid, "before"));
+                this.store.write_committed(updatedUid, TYPE, state(updatedUid, "after"));
+                updated.add(updatedUid);
+            }
+        }
+        this.store.stop();
+        this.store = start();
+
+        assertThat(allObjUids()).containsExactlyInAnyOrderElementsOf(updated);
+        for (Uid uid : updated) {
+            assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo("after");
+        }
+    }
+
+    @Test
+    void shouldRejectRecordLargerThanSegment() {
+        Uid uid = new Uid();
+        OutputObjectState state = new OutputObjectState(uid, TYPE);
+
+        assertThatExceptionOfType(ObjectStoreException.class).isThrownBy(() -> {
+            state.packBytes(new byte[SEGMENT_SIZE]);
+            this.store.write_committed(uid, TYPE, state);
+        }).withMessageStartingWith("Record of ");
+    }
+
+    @Test
+    void shouldRejectUncommittedStates() {
+        Uid uid = new Uid();
+
+        assertThatExceptionOfType(ObjectStoreException.class)
+                .isThrownBy(() -> this.store.write_uncommitted(uid, TYPE, state(uid, "uncommitted")));
+    }
+
+    private MappedSegmentObjectStore start() {
+        MappedSegmentObjectStore mappedSegmentObjectStore = new MappedSegmentObjectStore(this.environmentBean);
+        mappedSegmentObjectStore.start();
+        return mappedSegmentObjectStore;
+    }
+
+    private OutputObjectState state(Uid uid, String content) throws IOException {
+        OutputObjectState state = new OutputObjectState(uid, TYPE);
+        state.packString(content);
+        return state;
+    }
+
+    private List<Uid> allObjUids() throws Exception {
+        InputObjectState uids = new InputObjectState();
+        assertThat(this.store.allObjUids(TYPE, uids)).isTrue();
+        List<Uid> result = new ArrayList<>();
+        Uid uid = UidHelper.unpackFrom(uids);
+        while (uid.notEquals(Uid.nullUid())) {
+            result.add(uid);
+            uid = UidHelper.unpackFrom(uids);
+        }
+        return result;
+    }
+
+    private List<String> allTypes() throws Exception {
+        InputObjectState types = new InputObjectState();
+        assertThat(this.store.allTypes(types)).isTrue();
+        List<String> result = new ArrayList<>();
+        for (String type = types.unpackString(); !type.isEmpty(); type = types.unpackString()) {
+            result.add(type);
+        }
+        return result;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.tempDir)) {
+            return files.sorted().toList();
+        }
+    }
+}
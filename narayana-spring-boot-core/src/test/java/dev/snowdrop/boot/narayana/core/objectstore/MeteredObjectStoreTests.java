@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.exceptions.ObjectStoreException;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link MeteredObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class MeteredObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private final ObjectStoreAPI delegate = mock(ObjectStoreAPI.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path tempDir;
+
+    private MeteredObjectStore store;
+
+    @BeforeEach
+    void before() {
+        this.store = new MeteredObjectStore(this.delegate, this.meterRegistry, List.of(this.tempDir),
+                Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldTimeOperationsPerRecordType() throws Exception {
+        Uid uid = new Uid();
+        given(this.delegate.write_committed(eq(uid), eq(TYPE), any())).willReturn(true);
+        given(this.delegate.remove_committed(uid, TYPE)).willReturn(true);
+
+        assertThat(this.store.write_committed(uid, TYPE, new OutputObjectState())).isTrue();
+        this.store.read_committed(uid, TYPE);
+        assertThat(this.store.remove_committed(uid, TYPE)).isTrue();
+
+        assertThat(this.meterRegistry.get("narayana.object.store.write").tag("type", TYPE).timer().count()).isOne();
+        assertThat(this.meterRegistry.get("narayana.object.store.read").tag("type", TYPE).timer().count()).isOne();
+        assertThat(this.meterRegistry.get("narayana.object.store.remove").tag("type", TYPE).timer().count()).isOne();
+    }
+
+    @Test
+    void shouldRecordWrittenBytes() throws Exception {
+        OutputObjectState state = new OutputObjectState();
+        state.packBytes(new byte[100]);
+
+        this.store.write_uncommitted(new Uid(), TYPE, state);
+
+        DistributionSummary recordSize = this.meterRegistry.get("narayana.object.store.record.size")
+                .tag("type", TYPE)
+                .summary();
+        assertThat(recordSize.count()).isOne();
+        assertThat(recordSize.totalAmount()).isEqualTo(state.length());
+    }
+
+    @Test
+    void shouldTimeFailedWrites() throws Exception {
+        given(this.delegate.write_committed(any(), eq(TYPE), any())).willThrow(new ObjectStoreException("test"));
+
+        assertThatExceptionOfType(ObjectStoreException.class)
+                .isThrownBy(() -> this.store.write_committed(new Uid(), TYPE, new OutputObjectState()));
+
+        assertThat(this.meterRegistry.get("narayana.object.store.write").timer().count()).isOne();
+    }
+
+    @Test
+    void shouldExposeDirectorySizeComputedInBackground() throws Exception {
+        Files.write(this.tempDir.resolve("record"), new byte[10]);
+        Files.write(Files.createDirectory(this.tempDir.resolve("type")).resolve("record"), new byte[20]);
+
+        assertThat(directorySize(this.tempDir)).isNaN();
+        this.store.refreshDirectorySizes();
+        assertThat(directorySize(this.tempDir)).isEqualTo(30);
+
+        // Scrapes read the last computed size
+        Files.write(this.tempDir.resolve("another"), new byte[5]);
+        assertThat(directorySize(this.tempDir)).isEqualTo(30);
+        this.store.refreshDirectorySizes();
+        assertThat(directorySize(this.tempDir)).isEqualTo(35);
+
+        this.store.stop();
+
+        assertThat(this.meterRegistry.find("narayana.object.store.directory.size").gauge()).isNull();
+    }
+
+    @Test
+    void shouldExposeSizeOfEveryOutermostDirectory() throws Exception {
+        Path logDir = Files.createDirectory(this.tempDir.resolve("log"));
+        Path stateDir = Files.createDirectory(this.tempDir.resolve("state"));
+        Path nestedDir = Files.createDirectory(logDir.resolve("communication"));
+        Files.write(logDir.resolve("record"), new byte[10]);
+        Files.write(nestedDir.resolve("record"), new byte[20]);
+        Files.write(stateDir.resolve("record"), new byte[40]);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MeteredObjectStore store = new MeteredObjectStore(this.delegate, registry,
+                List.of(logDir, stateDir, nestedDir, this.tempDir.resolve("missing")), Duration.ofHours(1));
+
+        store.refreshDirectorySizes();
+
+        assertThat(registry.get("narayana.object.store.directory.size").gauges()).hasSize(3);
+        assertThat(registry.get("narayana.object.store.directory.size").tag("directory", logDir.toString()).gauge()
+                .value()).isEqualTo(30);
+        assertThat(registry.get("narayana.object.store.directory.size").tag("directory", stateDir.toString()).gauge()
+                .value()).isEqualTo(40);
+        assertThat(registry.get("narayana.object.store.directory.size")
+                .tag("directory", this.tempDir.resolve("missing").toString()).gauge().value()).isZero();
+    }
+
+    private double directorySize(Path directory) {
+        return this.meterRegistry.get("narayana.object.store.directory.size")
+                .tag("directory", directory.toString())
+                .gauge()
+                .value();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqJournalEnvironmentBean;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqObjectStoreAdaptor;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of the default shadowing object store with the journal, group commit and mapped segment
+ * object stores. All stores are exercised with the same log-like workload (write a record, then remove it) from several
+ * threads, with sync enabled. Results are logged rather than asserted, because absolute numbers depend on the disk the
+ * build runs on.
+ * <p>
+ * Only run by the {@code benchmark} profile.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Tag("benchmark")
+class ObjectStoreThroughputIT {
+
+    private static final Logger LOGGER = Logger.getLogger(ObjectStoreThroughputIT.class);
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private static final int THREADS = 8;
+
+    private static final int RECORDS_PER_THREAD = 250;
+
+    private static final byte[] PAYLOAD = new byte[512];
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compareDefaultAndJournalObjectStores() throws Exception {
+        ObjectStoreEnvironmentBean shadowingEnvironmentBean = new ObjectStoreEnvironmentBean();
+        shadowingEnvironmentBean.setObjectStoreDir(this.tempDir.resolve("shadowing").toString());
+        shadowingEnvironmentBean.setObjectStoreSync(true);
+        double shadowing = measure("default", new ShadowNoFileLockStore(shadowingEnvironmentBean));
+
+        HornetqJournalEnvironmentBean journalEnvironmentBean = new HornetqJournalEnvironmentBean();
+        journalEnvironmentBean.setStoreDir(this.tempDir.resolve("journal").toString());
+        journalEnvironmentBean.setAsyncIO(false);
+        journalEnvironmentBean.setSyncWrites(true);
+        journalEnvironmentBean.setSyncDeletes(true);
+        double journal = measure("journal", new HornetqObjectStoreAdaptor(journalEnvironmentBean));
+
+        ObjectStoreEnvironmentBean groupCommitEnvironmentBean = new ObjectStoreEnvironmentBean();
+        groupCommitEnvironmentBean.setObjectStoreDir(this.tempDir.resolve("group-commit").toString());
+        double groupCommit = measure("group commit", new GroupCommitObjectStore(
+                new DeferredSyncShadowNoFileLockStore(groupCommitEnvironmentBean), 64, Duration.ofMillis(2)));
+
+        MappedSegmentObjectStoreEnvironmentBean mappedEnvironmentBean = new MappedSegmentObjectStoreEnvironmentBean();
+        mappedEnvironmentBean.setStoreDir(this.tempDir.resolve("mapped").toString());
+        double mapped = measure("mapped segment", new MappedSegmentObjectStore(mappedEnvironmentBean));
+
+        LOGGER.infof("Journal object store throughput is %.2fx of the default object store", journal / shadowing);
+        LOGGER.infof("Group commit object store throughput is %.2fx of the default object store",
+                groupCommit / shadowing);
+        LOGGER.infof("Mapped segment object store throughput is %.2fx of the default object store", mapped / shadowing);
+    }
+
+    private double measure(String name, ObjectStoreAPI store) throws Exception {
+        store.start();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < RECORDS_PER_THREAD; j++) {
+                        writeAndRemove(store);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            InputObjectState uids = new InputObjectState();
+            assertThat(store.allObjUids(TYPE, uids)).isTrue();
+            assertThat(UidHelper.unpackFrom(uids)).isEqualTo(Uid.nullUid());
+
+            double recordsPerSecond = THREADS * RECORDS_PER_THREAD / (elapsed / 1_000_000_000d);
+            LOGGER.infof("%s object store: %d records in %d ms (%.0f records/s)", name,
+                    THREADS * RECORDS_PER_THREAD, TimeUnit.NANOSECONDS.toMillis(elapsed), recordsPerSecond);
+            return recordsPerSecond;
+        } finally {
+            executor.shutdownNow();
+            store.stop();
+        }
+    }
+
+    private void writeAndRemove(ObjectStoreAPI store) throws Exception {
+        Uid uid = new Uid();
+        OutputObjectState state = new OutputObjectState(uid, TYPE);
+        state.packBytes(PAYLOAD);
+        assertThat(store.write_committed(uid, TYPE, state)).isTrue();
+        assertThat(store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+        assertThat(store.remove_committed(uid, TYPE)).isTrue();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dev.snowdrop.boot.narayana.core.objectstore;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
+import com.arjuna.ats.arjuna.common.Uid;
+import com.arjuna.ats.arjuna.coordinator.TxStats;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.arjuna.objectstore.StateStatus;
+import com.arjuna.ats.arjuna.state.InputObjectState;
+import com.arjuna.ats.arjuna.state.OutputObjectState;
+import com.arjuna.ats.internal.arjuna.common.UidHelper;
+import com.arjuna.ats.internal.arjuna.objectstore.HashedStore;
+import com.arjuna.common.internal.util.ClassloadingUtility;
+import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link StripedObjectStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class StripedObjectStoreTests {
+
+    private static final String TYPE = "/StateManager/BasicAction/TwoPhaseCoordinator/AtomicAction";
+
+    private static final String OTHER_TYPE = "/StateManager/AbstractRecord/XAResourceRecord";
+
+    @TempDir
+    Path tempDir;
+
+    private List<Path> stripeDirs;
+
+    private ObjectStoreAPI store;
+
+    @BeforeEach
+    void before() {
+        this.stripeDirs = List.of(this.tempDir.resolve("a"), this.tempDir.resolve("b"), this.tempDir.resolve("c"));
+        StripedObjectStoreEnvironmentBean environmentBean =
+                BeanPopulator.getDefaultInstance(StripedObjectStoreEnvironmentBean.class);
+        environmentBean.setObjectStoreDirs(this.stripeDirs.stream().map(Path::toString).toList());
+
+        // The same way as Narayana StoreManager creates the action store
+        this.store = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                StripedObjectStore.class.getName(), null);
+        this.store.start();
+    }
+
+    @AfterEach
+    void after() throws NoSuchFieldException, IllegalAccessException {
+        this.store.stop();
+        // BeanPopulator holds instances in a static private map, so in order to reset it we need reflection
+        Field beanInstancesField = BeanPopulator.class.getDeclaredField("beanInstances");
+        beanInstancesField.setAccessible(true);
+        ((Map<?, ?>) beanInstancesField.get(null)).clear();
+        // TxStats caches the coordinator environment bean, which would no longer be the one held by BeanPopulator
+        Field txStatsEnvironmentBeanField = TxStats.class.getDeclaredField("_environmentBean");
+        txStatsEnvironmentBeanField.setAccessible(true);
+        txStatsEnvironmentBeanField.set(null, null);
+    }
+
+    @Test
+    void shouldCreateStripeInEachDirectory() {
+        assertThat(this.store).isInstanceOf(StripedObjectStore.class);
+        assertThat(((StripedObjectStore) this.store).getStripes())
+                .hasSize(3)
+                .allSatisfy(stripe -> assertThat(stripe).isInstanceOf(HashedStore.class));
+    }
+
+    @Test
+    void shouldSpreadRecordsAcrossStripes() throws Exception {
+        List<Uid> uids = writeRecords(TYPE, 60);
+
+        for (Uid uid : uids) {
+            assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+            assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo(uid.stringForm());
+        }
+        for (Path stripeDir : this.stripeDirs) {
+            assertThat(countFiles(stripeDir)).as("Records in %s", stripeDir).isPositive();
+        }
+        assertThat(this.stripeDirs.stream().mapToLong(this::countFiles).sum()).isEqualTo(uids.size());
+
+        for (Uid uid : uids) {
+            assertThat(this.store.remove_committed(uid, TYPE)).isTrue();
+            assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_UNKNOWN);
+        }
+    }
+
+    @Test
+    void shouldListRecordsOfAllStripes() throws Exception {
+        List<Uid> uids = writeRecords(TYPE, 30);
+        writeRecords(OTHER_TYPE, 1);
+
+        InputObjectState foundUids = new InputObjectState();
+        assertThat(this.store.allObjUids(TYPE, foundUids)).isTrue();
+        Set<Uid> found = new HashSet<>();
+        Uid uid = UidHelper.unpackFrom(foundUids);
+        while (uid.notEquals(Uid.nullUid())) {
+            found.add(uid);
+            uid = UidHelper.unpackFrom(foundUids);
+        }
+        assertThat(found).containsExactlyInAnyOrderElementsOf(uids);
+
+        InputObjectState foundTypes = new InputObjectState();
+        assertThat(this.store.allTypes(foundTypes)).isTrue();
+        List<String> types = new ArrayList<>();
+        for (String type = foundTypes.unpackString(); !type.isEmpty(); type = foundTypes.unpackString()) {
+            types.add(type);
+        }
+        assertThat(types).doesNotHaveDuplicates().anyMatch(type -> type.endsWith("AtomicAction"))
+                .anyMatch(type -> type.endsWith("XAResourceRecord"));
+    }
+
+    @Test
+    void shouldFindRecordsAfterDirectoriesChange() throws Exception {
+        List<Uid> uids = writeRecords(TYPE, 60);
+        Uid uncommittedUid = new Uid();
+        OutputObjectState uncommittedState = new OutputObjectState(uncommittedUid, TYPE);
+        uncommittedState.packString(uncommittedUid.stringForm());
+        assertThat(this.store.write_uncommitted(uncommittedUid, TYPE, uncommittedState)).isTrue();
+        Uid hiddenUid = writeRecords(TYPE, 1).get(0);
+        assertThat(this.store.hide_state(hiddenUid, TYPE)).isTrue();
+        this.store.stop();
+
+        // Reordered, with a directory added
+        this.stripeDirs = List.of(this.tempDir.resolve("c"), this.tempDir.resolve("a"), this.tempDir.resolve("d"),
+                this.tempDir.resolve("b"));
+        BeanPopulator.getDefaultInstance(StripedObjectStoreEnvironmentBean.class)
+                .setObjectStoreDirs(this.stripeDirs.stream().map(Path::toString).toList());
+        this.store = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                StripedObjectStore.class.getName(), null);
+        this.store.start();
+
+        for (Uid uid : uids) {
+            assertThat(this.store.currentState(uid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED);
+            assertThat(this.store.read_committed(uid, TYPE).unpackString()).isEqualTo(uid.stringForm());
+        }
+        assertThat(this.store.currentState(uncommittedUid, TYPE)).isEqualTo(StateStatus.OS_UNCOMMITTED);
+        assertThat(this.store.read_uncommitted(uncommittedUid, TYPE).unpackString())
+                .isEqualTo(uncommittedUid.stringForm());
+        assertThat(this.store.currentState(hiddenUid, TYPE)).isEqualTo(StateStatus.OS_COMMITTED_HIDDEN);
+        assertThat(countFiles(this.tempDir.resolve("d"))).isPositive();
+
+        for (Uid uid : uids) {
+            assertThat(this.store.remove_committed(uid, TYPE)).isTrue();
+        }
+        assertThat(this.store.remove_uncommitted(uncommittedUid, TYPE)).isTrue();
+        assertThat(this.store.reveal_state(hiddenUid, TYPE)).isTrue();
+        assertThat(this.store.remove_committed(hiddenUid, TYPE)).isTrue();
+        assertThat(this.stripeDirs.stream().mapToLong(this::countFiles).sum()).isZero();
+    }
+
+    @Test
+    void shouldKeepListingDroppedDirectoryWithRecords() throws Exception {
+        writeRecords(TYPE, 30);
+        this.store.stop();
+
+        restart(this.tempDir.resolve("a"), this.tempDir.resolve("c"));
+
+        // Records of the dropped directory are reported on every start until it is configured again
+        assertThat(readStripeDirs(this.tempDir.resolve("a"))).containsExactly(stripeDir("a"), stripeDir("c"),
+                stripeDir("b"));
+        this.store.stop();
+        restart(this.tempDir.resolve("c"), this.tempDir.resolve("a"));
+        assertThat(readStripeDirs(this.tempDir.resolve("c"))).containsExactly(stripeDir("c"), stripeDir("a"),
+                stripeDir("b"));
+    }
+
+    @Test
+    void shouldForgetDroppedDirectoryWithoutRecords() throws Exception {
+        this.store.stop();
+
+        restart(this.tempDir.resolve("a"), this.tempDir.resolve("c"));
+
+        assertThat(readStripeDirs(this.tempDir.resolve("a"))).containsExactly(stripeDir("a"), stripeDir("c"));
+        assertThat(readStripeDirs(this.tempDir.resolve("c"))).containsExactly(stripeDir("a"), stripeDir("c"));
+    }
+
+    @Test
+    void shouldRequireStripes() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new StripedObjectStore(List.of()));
+    }
+
+    @Test
+    void shouldUseActionStoreConfiguration() {
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean =
+                BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class);
+        objectStoreEnvironmentBean.setLocalOSRoot("customStore");
+
+        ObjectStoreAPI customStore = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                StripedObjectStore.class.getName(), null);
+
+        assertThat(customStore.getStoreName()).isEqualTo("customStore");
+        assertThat(this.stripeDirs).allSatisfy(stripeDir ->
+                assertThat(stripeDir.resolve("HashedStore").resolve("customStore")).isDirectory());
+    }
+
+    private void restart(Path... stripeDirs) {
+        this.stripeDirs = List.of(stripeDirs);
+        BeanPopulator.getDefaultInstance(StripedObjectStoreEnvironmentBean.class)
+                .setObjectStoreDirs(this.stripeDirs.stream().map(Path::toString).toList());
+        this.store = ClassloadingUtility.loadAndInstantiateClass(ObjectStoreAPI.class,
+                StripedObjectStore.class.getName(), null);
+        this.store.start();
+    }
+
+    private List<String> readStripeDirs(Path stripeDir) throws IOException {
+        return Files.readAllLines(stripeDir.resolve(this.store.getStoreName()
+                + StripedObjectStore.STRIPE_DIRS_FILE_SUFFIX));
+    }
+
+    private String stripeDir(String name) {
+        return this.tempDir.resolve(name).toAbsolutePath().normalize().toString();
+    }
+
+    private List<Uid> writeRecords(String type, int count) throws Exception {
+        List<Uid> uids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Uid uid = new Uid();
+            OutputObjectState state = new OutputObjectState(uid, type);
+            state.packString(uid.stringForm());
+            assertThat(this.store.write_committed(uid, type, state)).isTrue();
+            uids.add(uid);
+        }
+        return uids;
+    }
+
+    private long countFiles(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().endsWith(StripedObjectStore.STRIPE_DIRS_FILE_SUFFIX))
+                    .count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
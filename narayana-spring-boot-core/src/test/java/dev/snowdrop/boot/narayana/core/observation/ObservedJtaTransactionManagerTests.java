@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.observation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.transaction.xa.XAResource;
+
+import jakarta.transaction.TransactionManager;
+
+import dev.snowdrop.boot.narayana.core.TemporaryObjectStoreExtension;
+import dev.snowdrop.boot.narayana.core.jdbc.NamedXAResource;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ObservedJtaTransactionManager}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(TemporaryObjectStoreExtension.class)
+class ObservedJtaTransactionManagerTests {
+
+    private final List<Observation.Context> observations = new CopyOnWriteArrayList<>();
+
+    private ObservationRegistry observationRegistry;
+
+    private ObservedJtaTransactionManager transactionManager;
+
+    @BeforeEach
+    void before() {
+        this.observationRegistry = ObservationRegistry.create();
+        this.observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                ObservedJtaTransactionManagerTests.this.observations.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        this.transactionManager = createTransactionManager(1);
+    }
+
+    @AfterEach
+    void after() {
+        this.transactionManager.destroy();
+    }
+
+    @Test
+    void shouldObserveCommitAndParticipants() throws Exception {
+        XAResource firstResource = mock(XAResource.class);
+        XAResource secondResource = mock(XAResource.class);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.setName("order");
+        transactionTemplate.executeWithoutResult(status -> {
+            enlist(new NamedXAResource(firstResource, "orders"));
+            enlist(new NamedXAResource(secondResource, "payments"));
+        });
+
+        assertThat(this.observations).extracting(Observation.Context::getName).containsExactly(
+                ObservedJtaTransactionManager.BEGIN, XAResourceObservations.NAME, XAResourceObservations.NAME,
+                XAResourceObservations.NAME, XAResourceObservations.NAME, ObservedJtaTransactionManager.COMMIT);
+        Observation.Context commit = this.observations.get(5);
+        assertThat(commit.getHighCardinalityKeyValue("transaction.name").getValue()).isEqualTo("order");
+        assertThat(this.observations.subList(1, 5)).allSatisfy(participant -> {
+            assertThat(participant.getParentObservation().getContextView()).isSameAs(commit);
+            assertThat(participant.getLowCardinalityKeyValue("outcome").getValue()).isEqualTo("XA_OK");
+        });
+        assertThat(this.observations.subList(1, 5)).extracting(participant ->
+                participant.getLowCardinalityKeyValue("operation").getValue() + " "
+                        + participant.getLowCardinalityKeyValue("resource").getValue())
+                .containsExactly("prepare orders", "prepare payments", "commit orders", "commit payments");
+    }
+
+    @Test
+    void shouldObserveRollbackAndParticipants() throws Exception {
+        XAResource resource = mock(XAResource.class);
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            enlist(new NamedXAResource(resource, "orders"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(this.observations).extracting(Observation.Context::getName).containsExactly(
+                ObservedJtaTransactionManager.BEGIN, XAResourceObservations.NAME,
+                ObservedJtaTransactionManager.ROLLBACK);
+        assertThat(this.observations.get(1).getLowCardinalityKeyValue("operation").getValue()).isEqualTo("rollback");
+        assertThat(this.observations.get(1).getParentObservation().getContextView()).isSameAs(this.observations.get(2));
+    }
+
+    @Test
+    void shouldNotObserveTransactionsWhichAreNotSampled() throws Exception {
+        this.transactionManager.destroy();
+        this.transactionManager = createTransactionManager(0);
+        XAResource resource = mock(XAResource.class);
+
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status ->
+                enlist(new NamedXAResource(resource, "orders")));
+
+        verify(resource).commit(any(), eq(true));
+        assertThat(this.observations).isEmpty();
+    }
+
+    @Test
+    void shouldRejectInvalidSamplingProbability() {
+        assertThatIllegalArgumentException().isThrownBy(() -> createTransactionManager(1.5));
+    }
+
+    private ObservedJtaTransactionManager createTransactionManager(double samplingProbability) {
+        ObservedJtaTransactionManager observedJtaTransactionManager = new ObservedJtaTransactionManager(
+                com.arjuna.ats.jta.UserTransaction.userTransaction(),
+                com.arjuna.ats.jta.TransactionManager.transactionManager(), this.observationRegistry,
+                samplingProbability);
+        observedJtaTransactionManager.afterPropertiesSet();
+        return observedJtaTransactionManager;
+    }
+
+    private void enlist(XAResource xaResource) {
+        TransactionManager jtaTransactionManager = this.transactionManager.getTransactionManager();
+        try {
+            jtaTransactionManager.getTransaction().enlistResource(xaResource);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
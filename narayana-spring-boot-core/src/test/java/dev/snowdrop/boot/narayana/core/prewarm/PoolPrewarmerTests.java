@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.prewarm;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PoolPrewarmer}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class PoolPrewarmerTests {
+
+    private final PoolPrewarmer poolPrewarmer = new PoolPrewarmer();
+
+    @AfterEach
+    void after() {
+        this.poolPrewarmer.close();
+    }
+
+    @Test
+    void shouldOpenConnectionsInParallelAndCloseThemOnceAllAreOpen() throws Exception {
+        CountDownLatch opening = new CountDownLatch(3);
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        this.poolPrewarmer.prewarm("test", 3, () -> {
+            opening.countDown();
+            // Only completes if all connections are opened at the same time
+            assertThat(opening.await(10, TimeUnit.SECONDS)).isTrue();
+            maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            return open::decrementAndGet;
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(maxOpen).hasValue(3);
+        assertThat(open).hasValue(0);
+        assertThat(this.poolPrewarmer.isComplete()).isTrue();
+    }
+
+    @Test
+    void shouldCloseOpenedConnectionsIfOthersFail() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        this.poolPrewarmer.prewarm("test", 2, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return closed::incrementAndGet;
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(closed).hasValue(1);
+    }
+
+    @Test
+    void shouldTimeOutWaitingForIncompleteWarmUp() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        this.poolPrewarmer.prewarm("test", 1, () -> {
+            release.await();
+            return () -> { };
+        });
+
+        assertThat(this.poolPrewarmer.awaitCompletion(Duration.ofMillis(50))).isFalse();
+        assertThat(this.poolPrewarmer.isComplete()).isFalse();
+        release.countDown();
+        assertThat(this.poolPrewarmer.awaitCompletion(Duration.ofSeconds(10))).isTrue();
+        assertThat(this.poolPrewarmer.isComplete()).isTrue();
+    }
+}
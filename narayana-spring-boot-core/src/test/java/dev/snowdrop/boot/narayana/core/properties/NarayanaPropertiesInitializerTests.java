@@ -16,23 +16,50 @@
 
 package dev.snowdrop.boot.narayana.core.properties;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
+import javax.sql.DataSource;
+
 import com.arjuna.ats.arjuna.common.CoordinatorEnvironmentBean;
 import com.arjuna.ats.arjuna.common.CoreEnvironmentBean;
 import com.arjuna.ats.arjuna.common.ObjectStoreEnvironmentBean;
 import com.arjuna.ats.arjuna.common.RecoveryEnvironmentBean;
+import com.arjuna.ats.arjuna.coordinator.TxStats;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import com.arjuna.ats.internal.arjuna.objectstore.ShadowNoFileLockStore;
+import com.arjuna.ats.internal.arjuna.objectstore.TwoPhaseVolatileStore;
+import com.arjuna.ats.internal.arjuna.objectstore.VolatileStore;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqJournalEnvironmentBean;
+import com.arjuna.ats.internal.arjuna.objectstore.hornetq.HornetqObjectStoreAdaptor;
+import com.arjuna.ats.internal.arjuna.objectstore.jdbc.JDBCStore;
 import com.arjuna.ats.jdbc.common.JDBCEnvironmentBean;
 import com.arjuna.ats.jta.common.JTAEnvironmentBean;
 import com.arjuna.common.internal.util.propertyservice.BeanPopulator;
+import dev.snowdrop.boot.narayana.core.jfr.RecoveryPassEvents;
+import dev.snowdrop.boot.narayana.core.objectstore.DecoratingObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.DecoratingObjectStoreEnvironmentBean;
+import dev.snowdrop.boot.narayana.core.objectstore.DeferredSyncShadowNoFileLockStore;
+import dev.snowdrop.boot.narayana.core.objectstore.DelegatingObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.GroupCommitObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.IndexedObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.MappedSegmentObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.MappedSegmentObjectStoreEnvironmentBean;
+import dev.snowdrop.boot.narayana.core.objectstore.ObjectStoreDecorator;
+import dev.snowdrop.boot.narayana.core.objectstore.StripedObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.StripedObjectStoreEnvironmentBean;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
 
 /**
  * Tests for {@link NarayanaPropertiesInitializer}.
@@ -47,6 +74,10 @@ class NarayanaPropertiesInitializerTests {
         Field beanInstancesField = BeanPopulator.class.getDeclaredField("beanInstances");
         beanInstancesField.setAccessible(true);
         ((Map<?, ?>) beanInstancesField.get(null)).clear();
+        // TxStats caches the coordinator environment bean, which would no longer be the one held by BeanPopulator
+        Field txStatsEnvironmentBeanField = TxStats.class.getDeclaredField("_environmentBean");
+        txStatsEnvironmentBeanField.setAccessible(true);
+        txStatsEnvironmentBeanField.set(null, null);
     }
 
     @Test
@@ -72,6 +103,10 @@ class NarayanaPropertiesInitializerTests {
                 .isCommitOnePhase()).isTrue();
         assertThat(BeanPopulator.getDefaultInstance(CoordinatorEnvironmentBean.class)
                 .getDefaultTimeout()).isEqualTo(60);
+        assertThat(BeanPopulator.getDefaultInstance(CoordinatorEnvironmentBean.class)
+                .getTxReaperMode()).isEqualTo("DYNAMIC");
+        assertThat(BeanPopulator.getDefaultInstance(CoordinatorEnvironmentBean.class)
+                .getTxReaperCancelWaitPeriod()).isEqualTo(500);
         assertThat(BeanPopulator.getDefaultInstance(RecoveryEnvironmentBean.class)
                 .getPeriodicRecoveryPeriod()).isEqualTo(120);
         assertThat(BeanPopulator.getDefaultInstance(RecoveryEnvironmentBean.class)
@@ -171,6 +206,28 @@ class NarayanaPropertiesInitializerTests {
                 .isEqualTo(List.of("test-scanner-1", "test-scanner-2"));
     }
 
+    @Test
+    void shouldSetReaperProperties() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getReaper().setMode(ReaperProperties.Mode.PERIODIC);
+        narayanaProperties.getReaper().setCheckPeriod(Duration.ofSeconds(5));
+        narayanaProperties.getReaper().setCancelWaitPeriod(Duration.ofMillis(100));
+        narayanaProperties.getReaper().setCancelFailWaitPeriod(Duration.ofMillis(200));
+        narayanaProperties.getReaper().setZombieMax(3);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        CoordinatorEnvironmentBean coordinatorEnvironmentBean =
+                BeanPopulator.getDefaultInstance(CoordinatorEnvironmentBean.class);
+        assertThat(coordinatorEnvironmentBean.getTxReaperMode()).isEqualTo("PERIODIC");
+        assertThat(coordinatorEnvironmentBean.getTxReaperTimeout()).isEqualTo(5000);
+        assertThat(coordinatorEnvironmentBean.getTxReaperCancelWaitPeriod()).isEqualTo(100);
+        assertThat(coordinatorEnvironmentBean.getTxReaperCancelFailWaitPeriod()).isEqualTo(200);
+        assertThat(coordinatorEnvironmentBean.getTxReaperZombieMax()).isEqualTo(3);
+    }
+
     @Test
     void shouldSetShortenNodeIdentifier() {
         NarayanaProperties narayanaProperties = new NarayanaProperties();
@@ -184,4 +241,316 @@ class NarayanaPropertiesInitializerTests {
         assertThat(BeanPopulator.getDefaultInstance(CoreEnvironmentBean.class)
                 .getNodeIdentifier().getBytes(StandardCharsets.UTF_8)).hasSize(28);
     }
+
+    @Test
+    void shouldKeepShadowingObjectStoreByDefault() {
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(new NarayanaProperties());
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .getObjectStoreType()).isEqualTo(ShadowNoFileLockStore.class.getName());
+    }
+
+    @Test
+    void shouldSetJournalObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setLogDir("test-dir");
+        ObjectStoreProperties.Journal journal = narayanaProperties.getObjectStore().getJournal();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JOURNAL);
+        journal.setFileSize(DataSize.ofMegabytes(10));
+        journal.setMinFiles(8);
+        journal.setPoolSize(16);
+        journal.setCompactMinFiles(5);
+        journal.setCompactPercentage(50);
+        journal.setBufferSize(DataSize.ofKilobytes(100));
+        journal.setBufferTimeout(Duration.ofMillis(4));
+        journal.setMaxIo(1);
+        journal.setAsyncIo(false);
+        journal.setSyncWrites(false);
+        journal.setSyncDeletes(false);
+        journal.setLogRates(true);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .getObjectStoreType()).isEqualTo(HornetqObjectStoreAdaptor.class.getName());
+        assertThat(BeanPopulator
+                .getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .getObjectStoreType()).isEqualTo(ShadowNoFileLockStore.class.getName());
+        assertThat(BeanPopulator
+                .getNamedInstance(ObjectStoreEnvironmentBean.class, "stateStore")
+                .getObjectStoreType()).isEqualTo(ShadowNoFileLockStore.class.getName());
+
+        HornetqJournalEnvironmentBean journalEnvironmentBean =
+                BeanPopulator.getDefaultInstance(HornetqJournalEnvironmentBean.class);
+        assertThat(journalEnvironmentBean.getStoreDir()).isEqualTo("test-dir" + File.separator + "HornetqJournalStore");
+        assertThat(journalEnvironmentBean.getFileSize()).isEqualTo(10 * 1024 * 1024);
+        assertThat(journalEnvironmentBean.getMinFiles()).isEqualTo(8);
+        assertThat(journalEnvironmentBean.getPoolSize()).isEqualTo(16);
+        assertThat(journalEnvironmentBean.getCompactMinFiles()).isEqualTo(5);
+        assertThat(journalEnvironmentBean.getCompactPercentage()).isEqualTo(50);
+        assertThat(journalEnvironmentBean.getBufferSize()).isEqualTo(100 * 1024);
+        assertThat(journalEnvironmentBean.getBufferFlushesPerSecond()).isEqualTo(250);
+        assertThat(journalEnvironmentBean.getMaxIO()).isEqualTo(1);
+        assertThat(journalEnvironmentBean.isAsyncIO()).isFalse();
+        assertThat(journalEnvironmentBean.isSyncWrites()).isFalse();
+        assertThat(journalEnvironmentBean.isSyncDeletes()).isFalse();
+        assertThat(journalEnvironmentBean.isLogRates()).isTrue();
+    }
+
+    @Test
+    void shouldRejectNonPositiveJournalBufferTimeout() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JOURNAL);
+        narayanaProperties.getObjectStore().getJournal().setBufferTimeout(Duration.ZERO);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+
+        assertThatIllegalArgumentException().isThrownBy(narayanaPropertiesInitializer::afterPropertiesSet);
+    }
+
+    @Test
+    void shouldSetJdbcObjectStore() {
+        DataSource dataSource = mock(DataSource.class);
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JDBC);
+        narayanaProperties.getObjectStore().getJdbc().setTablePrefix("test_");
+        narayanaProperties.getObjectStore().getJdbc().setDropTable(true);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.setObjectStoreDataSource(dataSource);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean =
+                BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class);
+        assertThat(objectStoreEnvironmentBean.getObjectStoreType()).isEqualTo(JDBCStore.class.getName());
+        assertThat(objectStoreEnvironmentBean.getJdbcDataSource()).isSameAs(dataSource);
+        assertThat(objectStoreEnvironmentBean.getTablePrefix()).isEqualTo("test_");
+        assertThat(objectStoreEnvironmentBean.getCreateTable()).isTrue();
+        assertThat(objectStoreEnvironmentBean.getDropTable()).isTrue();
+    }
+
+    @Test
+    void shouldRejectJdbcObjectStoreWithoutDataSource() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JDBC);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+
+        assertThatIllegalArgumentException().isThrownBy(narayanaPropertiesInitializer::afterPropertiesSet);
+    }
+
+    @Test
+    void shouldSetMappedObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setLogDir("test-dir");
+        ObjectStoreProperties.Mapped mapped = narayanaProperties.getObjectStore().getMapped();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.MAPPED);
+        mapped.setSegmentSize(DataSize.ofMegabytes(16));
+        mapped.setSyncWrites(false);
+        mapped.setSyncDeletes(false);
+        mapped.setCompactMinSegments(8);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .getObjectStoreType()).isEqualTo(MappedSegmentObjectStore.class.getName());
+        assertThat(BeanPopulator
+                .getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .getObjectStoreType()).isEqualTo(ShadowNoFileLockStore.class.getName());
+
+        MappedSegmentObjectStoreEnvironmentBean mappedEnvironmentBean =
+                BeanPopulator.getDefaultInstance(MappedSegmentObjectStoreEnvironmentBean.class);
+        assertThat(mappedEnvironmentBean.getStoreDir()).isEqualTo("test-dir" + File.separator + "MappedSegmentStore");
+        assertThat(mappedEnvironmentBean.getSegmentSize()).isEqualTo(16 * 1024 * 1024);
+        assertThat(mappedEnvironmentBean.isSyncWrites()).isFalse();
+        assertThat(mappedEnvironmentBean.isSyncDeletes()).isFalse();
+        assertThat(mappedEnvironmentBean.getCompactMinSegments()).isEqualTo(8);
+    }
+
+    @Test
+    void shouldSetGroupCommitObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().getGroupCommit().setEnabled(true);
+        ObjectStoreDecorator decorator = DelegatingObjectStore::new;
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.setObjectStoreDecorators(List.of(decorator));
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .getObjectStoreType()).isEqualTo(DecoratingObjectStore.class.getName());
+        DecoratingObjectStoreEnvironmentBean decoratingEnvironmentBean =
+                BeanPopulator.getDefaultInstance(DecoratingObjectStoreEnvironmentBean.class);
+        assertThat(decoratingEnvironmentBean.getObjectStoreType())
+                .isEqualTo(DeferredSyncShadowNoFileLockStore.class.getName());
+        assertThat(decoratingEnvironmentBean.getDecorators()).hasSize(2).endsWith(decorator);
+        assertThat(decoratingEnvironmentBean.getDecorators().get(0).decorate(mock(ObjectStoreAPI.class)))
+                .isInstanceOf(GroupCommitObjectStore.class);
+
+        // Initializing again, e.g. by another application context, must not decorate the store twice
+        narayanaPropertiesInitializer.afterPropertiesSet();
+        assertThat(decoratingEnvironmentBean.getObjectStoreType())
+                .isEqualTo(DeferredSyncShadowNoFileLockStore.class.getName());
+    }
+
+    @Test
+    void shouldRejectGroupCommitWithJournalObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JOURNAL);
+        narayanaProperties.getObjectStore().getGroupCommit().setEnabled(true);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+
+        assertThatIllegalArgumentException().isThrownBy(narayanaPropertiesInitializer::afterPropertiesSet);
+    }
+
+    @Test
+    void shouldSetIndexedObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JOURNAL);
+        narayanaProperties.getObjectStore().getIndex().setEnabled(true);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .getObjectStoreType()).isEqualTo(DecoratingObjectStore.class.getName());
+        DecoratingObjectStoreEnvironmentBean decoratingEnvironmentBean =
+                BeanPopulator.getDefaultInstance(DecoratingObjectStoreEnvironmentBean.class);
+        assertThat(decoratingEnvironmentBean.getObjectStoreType())
+                .isEqualTo(HornetqObjectStoreAdaptor.class.getName());
+        assertThat(decoratingEnvironmentBean.getDecorators()).hasSize(1);
+        assertThat(decoratingEnvironmentBean.getDecorators().get(0).decorate(mock(ObjectStoreAPI.class)))
+                .isInstanceOf(IndexedObjectStore.class);
+    }
+
+    @Test
+    void shouldSetVolatileCommunicationAndStateStores() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setLogDir("test-dir");
+        narayanaProperties.getObjectStore().getCommunicationStore().setType(ObjectStoreProperties.StoreType.VOLATILE);
+        narayanaProperties.getObjectStore().getCommunicationStore().setSupportAllObjUids(true);
+        narayanaProperties.getObjectStore().getStateStore().setType(ObjectStoreProperties.StoreType.TWO_PHASE_VOLATILE);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        ObjectStoreEnvironmentBean communicationStoreEnvironmentBean =
+                BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore");
+        assertThat(communicationStoreEnvironmentBean.getObjectStoreType()).isEqualTo(VolatileStore.class.getName());
+        assertThat(communicationStoreEnvironmentBean.isVolatileStoreSupportAllObjUids()).isTrue();
+        ObjectStoreEnvironmentBean stateStoreEnvironmentBean =
+                BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "stateStore");
+        assertThat(stateStoreEnvironmentBean.getObjectStoreType()).isEqualTo(TwoPhaseVolatileStore.class.getName());
+        assertThat(stateStoreEnvironmentBean.isVolatileStoreSupportAllObjUids()).isFalse();
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class).getObjectStoreType())
+                .isEqualTo(ShadowNoFileLockStore.class.getName());
+    }
+
+    @Test
+    void shouldKeepVolatileStoreSupportAllObjUidsIfNotConfigured() {
+        BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .setVolatileStoreSupportAllObjUids(true);
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setLogDir("test-dir");
+        narayanaProperties.getObjectStore().getCommunicationStore().setType(ObjectStoreProperties.StoreType.VOLATILE);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .isVolatileStoreSupportAllObjUids()).isTrue();
+    }
+
+    @Test
+    void shouldSetStoreDirs() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setLogDir("test-dir");
+        narayanaProperties.getObjectStore().getStateStore().setDir("state-dir");
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class).getObjectStoreDir())
+                .isEqualTo("test-dir");
+        assertThat(BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .getObjectStoreDir()).isEqualTo("test-dir");
+        assertThat(BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "stateStore")
+                .getObjectStoreDir()).isEqualTo("state-dir");
+    }
+
+    @Test
+    void shouldRejectVolatileActionStore() {
+        // E.g. configured in jbossts-properties.xml
+        BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class)
+                .setObjectStoreType(VolatileStore.class.getName());
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(new NarayanaProperties());
+
+        assertThatIllegalArgumentException().isThrownBy(narayanaPropertiesInitializer::afterPropertiesSet)
+                .withMessageContaining(VolatileStore.class.getName());
+    }
+
+    @Test
+    void shouldSetStripedObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().getStriping().setLogDirs(List.of("/disk1/logs", "/disk2/logs"));
+        narayanaProperties.getObjectStore().getStriping().setHashedDirectories(64);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        ObjectStoreEnvironmentBean objectStoreEnvironmentBean =
+                BeanPopulator.getDefaultInstance(ObjectStoreEnvironmentBean.class);
+        assertThat(objectStoreEnvironmentBean.getObjectStoreType()).isEqualTo(StripedObjectStore.class.getName());
+        assertThat(objectStoreEnvironmentBean.getHashedDirectories()).isEqualTo(64);
+        assertThat(BeanPopulator.getDefaultInstance(StripedObjectStoreEnvironmentBean.class).getObjectStoreDirs())
+                .containsExactly("/disk1/logs", "/disk2/logs");
+        assertThat(BeanPopulator.getNamedInstance(ObjectStoreEnvironmentBean.class, "communicationStore")
+                .getObjectStoreType()).isNotEqualTo(StripedObjectStore.class.getName());
+    }
+
+    @Test
+    void shouldRejectStripingWithJournalObjectStore() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.getObjectStore().setType(ObjectStoreProperties.Type.JOURNAL);
+        narayanaProperties.getObjectStore().getStriping().setLogDirs(List.of("/disk1/logs", "/disk2/logs"));
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+
+        assertThatIllegalArgumentException().isThrownBy(narayanaPropertiesInitializer::afterPropertiesSet);
+    }
+
+    @Test
+    void shouldSurroundRecoveryModulesWithRecoveryPassEvents() {
+        NarayanaProperties narayanaProperties = new NarayanaProperties();
+        narayanaProperties.setRecoveryModules(List.of("test-module-1", "test-module-2"));
+        narayanaProperties.getJfr().setEnabled(true);
+
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer =
+                new NarayanaPropertiesInitializer(narayanaProperties);
+        narayanaPropertiesInitializer.afterPropertiesSet();
+
+        assertThat(BeanPopulator.getDefaultInstance(RecoveryEnvironmentBean.class).getRecoveryModuleClassNames())
+                .containsExactly(RecoveryPassEvents.Start.class.getName(), "test-module-1", "test-module-2",
+                        RecoveryPassEvents.End.class.getName());
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.core.xa;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link XAResourceListeners}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@ExtendWith(MockitoExtension.class)
+class XAResourceListenersTests {
+
+    @Mock
+    private XAResourceListener failingListener;
+
+    @Mock
+    private XAResourceListener listener;
+
+    @Mock
+    private Xid mockXid;
+
+    @AfterEach
+    void after() {
+        XAResourceListeners.unregister(this.failingListener);
+        XAResourceListeners.unregister(this.listener);
+    }
+
+    @Test
+    void shouldReturnResultIfListenerFails() throws XAException {
+        given(this.failingListener.before("db", XAOperation.PREPARE, this.mockXid))
+                .willThrow(new IllegalStateException("before"));
+        willThrow(new IllegalStateException("after")).given(this.failingListener)
+                .after(eq("db"), eq(XAOperation.PREPARE), eq(this.mockXid), isNull(), anyLong(), anyInt(), isNull());
+
+        assertThat(XAResourceListeners.invoke(this.failingListener, "db", XAOperation.PREPARE, this.mockXid,
+                () -> XAResource.XA_RDONLY)).isEqualTo(XAResource.XA_RDONLY);
+    }
+
+    @Test
+    void shouldThrowResourceFailureIfListenerFails() {
+        XAException failure = new XAException(XAException.XAER_RMFAIL);
+        willThrow(new IllegalStateException("after")).given(this.failingListener)
+                .after(eq("db"), eq(XAOperation.COMMIT), eq(this.mockXid), isNull(), anyLong(), anyInt(), eq(failure));
+
+        assertThatExceptionOfType(XAException.class)
+                .isThrownBy(() -> XAResourceListeners.invoke(this.failingListener, "db", XAOperation.COMMIT,
+                        this.mockXid, () -> {
+                            throw failure;
+                        }))
+                .isSameAs(failure);
+    }
+
+    @Test
+    void shouldCallOtherListenersIfOneFails() throws XAException {
+        Object context = new Object();
+        given(this.failingListener.before("db", XAOperation.COMMIT, this.mockXid))
+                .willThrow(new IllegalStateException("before"));
+        willThrow(new IllegalStateException("after")).given(this.failingListener)
+                .after(eq("db"), eq(XAOperation.COMMIT), eq(this.mockXid), any(), anyLong(), anyInt(), any());
+        given(this.listener.before("db", XAOperation.COMMIT, this.mockXid)).willReturn(context);
+        XAResourceListeners.register(this.failingListener);
+        XAResourceListeners.register(this.listener);
+
+        assertThat(XAResourceListeners.invoke(XAResourceListeners.getListener(), "db", XAOperation.COMMIT,
+                this.mockXid, () -> "committed")).isEqualTo("committed");
+
+        verify(this.listener).after(eq("db"), eq(XAOperation.COMMIT), eq(this.mockXid), eq(context), anyLong(),
+                eq(XAResource.XA_OK), isNull());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.jdbcstore;
+
+import javax.sql.DataSource;
+
+import jakarta.transaction.TransactionManager;
+
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import com.arjuna.ats.internal.arjuna.objectstore.jdbc.JDBCStore;
+import dev.snowdrop.boot.narayana.app.EntriesService;
+import dev.snowdrop.boot.narayana.app.MessagesService;
+import dev.snowdrop.boot.narayana.app.TestApplication;
+import dev.snowdrop.boot.narayana.generic.GenericTransactionalIT;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the generic transactional tests with transaction logs stored in the application database.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@SpringBootTest(classes = {TestApplication.class, JdbcObjectStoreTransactionalIT.ObjectStoreDataSourceConfiguration.class},
+        properties = {
+                "narayana.object-store.type=jdbc",
+                "narayana.object-store.jdbc.data-source=objectStoreDataSource"
+        })
+public class JdbcObjectStoreTransactionalIT extends GenericTransactionalIT {
+
+    @Autowired
+    @Qualifier("objectStoreDataSource")
+    private DataSource objectStoreDataSource;
+
+    @Autowired
+    private TransactionManager transactionManager;
+
+    @Autowired
+    private MessagesService messagesService;
+
+    @Autowired
+    private EntriesService entriesService;
+
+    @Test
+    void shouldStoreTransactionLogsInDatabase() throws Exception {
+        assertThat(arjPropertyManager.getObjectStoreEnvironmentBean().getObjectStoreType())
+                .isEqualTo(JDBCStore.class.getName());
+
+        // Two resources, so that the transaction log is written during the commit
+        this.transactionManager.begin();
+        this.messagesService.sendMessage("test-message");
+        this.entriesService.createEntry("test-value");
+        this.transactionManager.commit();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.objectStoreDataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM JBossTSTxTable", Integer.class))
+                .as("Committed transaction should have been removed from the log table")
+                .isZero();
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    public static class ObjectStoreDataSourceConfiguration {
+
+        /**
+         * Non-XA data source, not a default candidate so that it does not replace the application data source.
+         */
+        @Bean(defaultCandidate = false)
+        public DataSource objectStoreDataSource(JdbcConnectionDetails connectionDetails) {
+            return DataSourceBuilder.create()
+                    .url(connectionDetails.getJdbcUrl())
+                    .username(connectionDetails.getUsername())
+                    .password(connectionDetails.getPassword())
+                    .build();
+        }
+
+    }
+}
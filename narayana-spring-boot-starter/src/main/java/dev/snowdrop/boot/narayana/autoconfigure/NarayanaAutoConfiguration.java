@@ -17,6 +17,12 @@
 package dev.snowdrop.boot.narayana.autoconfigure;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
 
 import jakarta.jms.Message;
 import jakarta.transaction.Transaction;
@@ -28,20 +34,56 @@ import com.arjuna.ats.arjuna.recovery.RecoveryManager;
 import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
 import com.arjuna.ats.jbossatx.jta.RecoveryManagerService;
 import com.arjuna.ats.jta.common.jtaPropertyManager;
+import dev.snowdrop.boot.narayana.core.actuate.NarayanaAuditEndpoint;
+import dev.snowdrop.boot.narayana.core.actuate.NarayanaEndpoint;
+import dev.snowdrop.boot.narayana.core.diagnostics.SlowTransactionDetector;
+import dev.snowdrop.boot.narayana.core.diagnostics.TransactionAuditLog;
+import dev.snowdrop.boot.narayana.core.health.ObjectStoreHealthIndicator;
+import dev.snowdrop.boot.narayana.core.health.RecoveryHealthIndicator;
 import dev.snowdrop.boot.narayana.core.jdbc.GenericXADataSourceWrapper;
+import dev.snowdrop.boot.narayana.core.jdbc.ObjectStoreDataSource;
+import dev.snowdrop.boot.narayana.core.jfr.TransactionEvents;
+import dev.snowdrop.boot.narayana.core.jfr.XAResourceEvents;
 import dev.snowdrop.boot.narayana.core.jms.GenericXAConnectionFactoryWrapper;
 import dev.snowdrop.boot.narayana.core.jms.PooledXAConnectionFactoryWrapper;
+import dev.snowdrop.boot.narayana.core.metrics.AgroalPoolMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.NarayanaDataSourceMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.NarayanaTransactionMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.ParticipantMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.ReaperMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.SlowTransactionMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.XAResourceMetrics;
+import dev.snowdrop.boot.narayana.core.objectstore.MeteredObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.ObjectStoreDecorator;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
+import dev.snowdrop.boot.narayana.core.properties.AuditProperties;
+import dev.snowdrop.boot.narayana.core.properties.HealthProperties;
 import dev.snowdrop.boot.narayana.core.properties.NarayanaProperties;
 import dev.snowdrop.boot.narayana.core.properties.NarayanaPropertiesInitializer;
+import dev.snowdrop.boot.narayana.core.properties.ObjectStoreProperties;
+import dev.snowdrop.boot.narayana.core.properties.ObservationProperties;
+import dev.snowdrop.boot.narayana.core.properties.PrewarmProperties;
+import dev.snowdrop.boot.narayana.core.properties.SlowTransactionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.commons.pool2.PooledObject;
 import org.jboss.tm.XAResourceRecoveryRegistry;
 import org.messaginghub.pooled.jms.JmsPoolConnectionFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.health.autoconfigure.contributor.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.jdbc.XADataSourceWrapper;
 import org.springframework.boot.jms.XAConnectionFactoryWrapper;
 import org.springframework.boot.system.ApplicationHome;
@@ -51,6 +93,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.jta.JtaTransactionManager;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -58,7 +101,10 @@ import org.springframework.util.StringUtils;
  *
  * @author <a href="mailto:gytis@redhat.com">Gytis Trikleris</a>
  */
-@AutoConfiguration(before = JtaAutoConfiguration.class)
+@AutoConfiguration(before = JtaAutoConfiguration.class, afterName = {
+        "org.springframework.boot.micrometer.metrics.autoconfigure.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.micrometer.observation.autoconfigure.ObservationAutoConfiguration"
+})
 @EnableConfigurationProperties(NarayanaProperties.class)
 @ConditionalOnBooleanProperty(name = "spring.jta.enabled", matchIfMissing = true)
 @ConditionalOnClass({
@@ -78,9 +124,15 @@ public class NarayanaAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public NarayanaPropertiesInitializer narayanaPropertiesInitializer(NarayanaProperties properties) {
+    public NarayanaPropertiesInitializer narayanaPropertiesInitializer(NarayanaProperties properties,
+            ObjectProvider<ObjectStoreDataSource> objectStoreDataSource,
+            ObjectProvider<ObjectStoreDecorator> objectStoreDecorators) {
         initLogDir(properties);
-        return new NarayanaPropertiesInitializer(properties);
+        NarayanaPropertiesInitializer narayanaPropertiesInitializer = new NarayanaPropertiesInitializer(properties);
+        objectStoreDataSource.ifAvailable(
+                dataSource -> narayanaPropertiesInitializer.setObjectStoreDataSource(dataSource.getDataSource()));
+        narayanaPropertiesInitializer.setObjectStoreDecorators(objectStoreDecorators.orderedStream().toList());
+        return narayanaPropertiesInitializer;
     }
 
     @Bean
@@ -109,13 +161,34 @@ public class NarayanaAutoConfiguration {
     public JtaTransactionManager transactionManager(UserTransaction userTransaction,
             TransactionManager transactionManager,
             TransactionSynchronizationRegistry transactionSynchronizationRegistry,
-            ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
-        JtaTransactionManager jtaTransactionManager = new JtaTransactionManager(userTransaction, transactionManager);
+            ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers,
+            NarayanaProperties narayanaProperties, ListableBeanFactory beanFactory) {
+        JtaTransactionManager jtaTransactionManager = createJtaTransactionManager(userTransaction, transactionManager,
+                narayanaProperties, beanFactory);
         jtaTransactionManager.setTransactionSynchronizationRegistry(transactionSynchronizationRegistry);
         transactionManagerCustomizers.ifAvailable(customizer -> customizer.customize(jtaTransactionManager));
         return jtaTransactionManager;
     }
 
+    /**
+     * Create an observed transaction manager if observations are enabled and there is an observation registry, or a
+     * plain one otherwise.
+     */
+    private JtaTransactionManager createJtaTransactionManager(UserTransaction userTransaction,
+            TransactionManager transactionManager, NarayanaProperties narayanaProperties,
+            ListableBeanFactory beanFactory) {
+        ObservationProperties observation = narayanaProperties.getObservation();
+        if (observation.isEnabled()
+                && ClassUtils.isPresent("io.micrometer.observation.ObservationRegistry", getClass().getClassLoader())) {
+            JtaTransactionManager jtaTransactionManager = ObservedTransactionManagerFactory.create(userTransaction,
+                    transactionManager, beanFactory, observation.getSamplingProbability());
+            if (jtaTransactionManager != null) {
+                return jtaTransactionManager;
+            }
+        }
+        return new JtaTransactionManager(userTransaction, transactionManager);
+    }
+
     @Bean(destroyMethod = "stop")
     @DependsOn("narayanaPropertiesInitializer")
     @ConditionalOnMissingBean
@@ -134,6 +207,12 @@ public class NarayanaAutoConfiguration {
         return XARecoveryModule.getRegisteredXARecoveryModule();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public PoolPrewarmer narayanaPoolPrewarmer() {
+        return new PoolPrewarmer();
+    }
+
     private void initLogDir(NarayanaProperties properties) {
         if (StringUtils.hasText(properties.getLogDir())) {
             return;
@@ -147,6 +226,24 @@ public class NarayanaAutoConfiguration {
         return new File(home, "transaction-logs");
     }
 
+    /**
+     * Get the directories of the object stores. Journal and mapped segment stores keep their files in the log dir, which
+     * is also used by the communication and state stores unless they are given their own directories.
+     */
+    static List<Path> getObjectStoreDirs(NarayanaProperties narayanaProperties) {
+        ObjectStoreProperties objectStore = narayanaProperties.getObjectStore();
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(Path.of(narayanaProperties.getLogDir()));
+        objectStore.getStriping().getLogDirs().forEach(dir -> dirs.add(Path.of(dir)));
+        if (objectStore.getCommunicationStore().getDir() != null) {
+            dirs.add(Path.of(objectStore.getCommunicationStore().getDir()));
+        }
+        if (objectStore.getStateStore().getDir() != null) {
+            dirs.add(Path.of(objectStore.getStateStore().getDir()));
+        }
+        return dirs;
+    }
+
     /**
      * Generic data source wrapper configuration.
      */
@@ -156,10 +253,283 @@ public class NarayanaAutoConfiguration {
         @Bean
         @ConditionalOnMissingBean(XADataSourceWrapper.class)
         public XADataSourceWrapper xaDataSourceWrapper(NarayanaProperties narayanaProperties,
-                XARecoveryModule xaRecoveryModule) {
+                XARecoveryModule xaRecoveryModule, PoolPrewarmer poolPrewarmer) {
             return new GenericXADataSourceWrapper(xaRecoveryModule,
                     narayanaProperties.getTransactionalDriver(),
-                    narayanaProperties.getRecoveryDbCredentials());
+                    narayanaProperties.getRecoveryDbCredentials(),
+                    poolPrewarmer);
+        }
+
+    }
+
+    /**
+     * JDBC object store data source configuration.
+     */
+    @ConditionalOnProperty(name = "narayana.object-store.type", havingValue = "jdbc")
+    @ConditionalOnClass(DataSourceBuilder.class)
+    static class JdbcObjectStoreConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ObjectStoreDataSource narayanaObjectStoreDataSource(NarayanaProperties narayanaProperties,
+                BeanFactory beanFactory) {
+            ObjectStoreProperties.Jdbc jdbc = narayanaProperties.getObjectStore().getJdbc();
+            if (!StringUtils.hasText(jdbc.getDataSource())) {
+                throw new IllegalArgumentException("JDBC object store requires "
+                        + "narayana.object-store.jdbc.data-source to be set to the name of a non-XA DataSource bean");
+            }
+            // Looked up by name, because the application data sources are usually XA ones which cannot store logs
+            return new ObjectStoreDataSource(beanFactory.getBean(jdbc.getDataSource(), DataSource.class), jdbc.getPool());
+        }
+
+    }
+
+    /**
+     * Object store metrics configuration.
+     */
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    static class ObjectStoreMetricsConfiguration {
+
+        @Bean
+        public ObjectStoreDecorator narayanaObjectStoreMetrics(NarayanaProperties narayanaProperties,
+                MeterRegistry meterRegistry) {
+            // Log dir is resolved when the store is created, because it is only set by the properties initializer
+            return store -> new MeteredObjectStore(store, meterRegistry, getObjectStoreDirs(narayanaProperties),
+                    narayanaProperties.getMetrics().getObjectStoreSizeRefreshInterval());
+        }
+
+    }
+
+    /**
+     * Transaction metrics configuration.
+     */
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    static class TransactionMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public NarayanaTransactionMetrics narayanaTransactionMetrics() {
+            return new NarayanaTransactionMetrics();
+        }
+
+        @Bean
+        @DependsOn("narayanaPropertiesInitializer")
+        @ConditionalOnMissingBean
+        public ReaperMetrics narayanaReaperMetrics() {
+            return new ReaperMetrics();
+        }
+
+    }
+
+    /**
+     * XA resource metrics configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.metrics.xa-resources")
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    static class XAResourceMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public XAResourceMetrics narayanaXAResourceMetrics() {
+            return new XAResourceMetrics();
+        }
+
+    }
+
+    /**
+     * Participant metrics configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.metrics.participants")
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    static class ParticipantMetricsConfiguration {
+
+        @Bean
+        @DependsOn("narayanaPropertiesInitializer")
+        @ConditionalOnMissingBean
+        public ParticipantMetrics narayanaParticipantMetrics() {
+            return new ParticipantMetrics();
+        }
+
+    }
+
+    /**
+     * Transactional driver pool metrics configuration.
+     */
+    @ConditionalOnClass({MeterRegistry.class, XADataSourceWrapper.class})
+    @ConditionalOnBean(MeterRegistry.class)
+    static class NarayanaDataSourceMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public NarayanaDataSourceMetrics narayanaDataSourceMetrics(ListableBeanFactory beanFactory) {
+            return new NarayanaDataSourceMetrics(() -> beanFactory.getBeansOfType(DataSource.class));
+        }
+
+    }
+
+    /**
+     * Agroal pool metrics configuration.
+     */
+    @ConditionalOnClass(value = {MeterRegistry.class, XADataSourceWrapper.class}, name = "io.agroal.api.AgroalDataSource")
+    @ConditionalOnBean(MeterRegistry.class)
+    static class AgroalPoolMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AgroalPoolMetrics narayanaAgroalPoolMetrics(ListableBeanFactory beanFactory) {
+            return new AgroalPoolMetrics(() -> beanFactory.getBeansOfType(DataSource.class));
+        }
+
+    }
+
+    /**
+     * JDK Flight Recorder events configuration. Recovery pass events are set up by the properties initializer.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.jfr.enabled")
+    static class FlightRecorderConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public TransactionEvents narayanaTransactionEvents() {
+            return new TransactionEvents();
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public XAResourceEvents narayanaXAResourceEvents() {
+            return XAResourceEvents.register();
+        }
+
+    }
+
+    /**
+     * Slow transaction detection configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.slow-transactions.enabled")
+    static class SlowTransactionConfiguration {
+
+        @Bean(initMethod = "start")
+        @ConditionalOnMissingBean
+        public SlowTransactionDetector narayanaSlowTransactionDetector(NarayanaProperties narayanaProperties) {
+            SlowTransactionProperties properties = narayanaProperties.getSlowTransactions();
+            if (narayanaProperties.getDefaultTimeout() > 0
+                    && properties.getWarnThreshold().getSeconds() >= narayanaProperties.getDefaultTimeout()) {
+                throw new IllegalArgumentException("narayana.slow-transactions.warn-threshold ("
+                        + properties.getWarnThreshold() + ") must be below narayana.default-timeout ("
+                        + narayanaProperties.getDefaultTimeout() + "s)");
+            }
+            return new SlowTransactionDetector(properties.getWarnThreshold(), properties.getLogInterval());
+        }
+
+    }
+
+    /**
+     * Slow transaction metrics configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.slow-transactions.enabled")
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    static class SlowTransactionMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public SlowTransactionMetrics narayanaSlowTransactionMetrics(SlowTransactionDetector detector) {
+            return new SlowTransactionMetrics(detector);
+        }
+
+    }
+
+    /**
+     * Transaction audit trail configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.audit.enabled")
+    static class AuditConfiguration {
+
+        @Bean(initMethod = "start")
+        @ConditionalOnMissingBean
+        public TransactionAuditLog narayanaTransactionAuditLog(NarayanaProperties narayanaProperties) {
+            AuditProperties properties = narayanaProperties.getAudit();
+            return new TransactionAuditLog(properties.getCapacity(), properties.isDumpOnShutdown());
+        }
+
+    }
+
+    /**
+     * Transaction audit trail actuator endpoint configuration.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.audit.enabled")
+    @ConditionalOnClass(Endpoint.class)
+    @ConditionalOnAvailableEndpoint(NarayanaAuditEndpoint.class)
+    static class AuditEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public NarayanaAuditEndpoint narayanaAuditEndpoint(TransactionAuditLog transactionAuditLog) {
+            return new NarayanaAuditEndpoint(transactionAuditLog);
+        }
+
+    }
+
+    /**
+     * Transaction subsystem health indicators configuration.
+     */
+    @ConditionalOnClass(HealthIndicator.class)
+    @ConditionalOnEnabledHealthIndicator("narayana")
+    static class HealthIndicatorConfiguration {
+
+        @Bean(initMethod = "start")
+        @DependsOn("recoveryManagerService")
+        @ConditionalOnMissingBean
+        public RecoveryHealthIndicator narayanaRecoveryHealthIndicator(NarayanaProperties narayanaProperties) {
+            // Allow one missed pass before reporting periodic recovery as stalled
+            long passSeconds = (long) narayanaProperties.getPeriodicRecoveryPeriod()
+                    + narayanaProperties.getRecoveryBackoffPeriod();
+            return new RecoveryHealthIndicator(Duration.ofSeconds(2 * passSeconds));
+        }
+
+        @Bean(initMethod = "start")
+        @DependsOn("narayanaPropertiesInitializer")
+        @ConditionalOnMissingBean
+        public ObjectStoreHealthIndicator narayanaObjectStoreHealthIndicator(NarayanaProperties narayanaProperties) {
+            HealthProperties properties = narayanaProperties.getHealth();
+            return new ObjectStoreHealthIndicator(getObjectStoreDirs(narayanaProperties),
+                    properties.getMinFreeSpace().toBytes(), properties.getRefreshInterval());
+        }
+
+    }
+
+    /**
+     * Connection pool pre-warming readiness configuration. Application runners complete before the application is
+     * reported as ready to accept traffic, so waiting for pre-warming in a runner delays readiness.
+     */
+    @ConditionalOnBooleanProperty(name = "narayana.prewarm.delay-readiness")
+    static class PrewarmReadinessConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(name = "narayanaPrewarmReadinessRunner")
+        public ApplicationRunner narayanaPrewarmReadinessRunner(PoolPrewarmer poolPrewarmer,
+                NarayanaProperties narayanaProperties) {
+            PrewarmProperties properties = narayanaProperties.getPrewarm();
+            return args -> poolPrewarmer.awaitCompletion(properties.getReadinessTimeout());
+        }
+
+    }
+
+    /**
+     * Actuator endpoint configuration.
+     */
+    @ConditionalOnClass(Endpoint.class)
+    @ConditionalOnAvailableEndpoint(NarayanaEndpoint.class)
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public NarayanaEndpoint narayanaEndpoint() {
+            return new NarayanaEndpoint();
         }
 
     }
@@ -188,10 +558,11 @@ public class NarayanaAutoConfiguration {
         @Bean
         @ConditionalOnMissingBean(XAConnectionFactoryWrapper.class)
         public XAConnectionFactoryWrapper xaConnectionFactoryWrapper(TransactionManager transactionManager,
-                XARecoveryModule xaRecoveryModule, NarayanaProperties narayanaProperties) {
+                XARecoveryModule xaRecoveryModule, NarayanaProperties narayanaProperties, PoolPrewarmer poolPrewarmer) {
             return new PooledXAConnectionFactoryWrapper(transactionManager, xaRecoveryModule,
                     narayanaProperties.getMessaginghub(),
-                    narayanaProperties.getRecoveryJmsCredentials());
+                    narayanaProperties.getRecoveryJmsCredentials(),
+                    poolPrewarmer);
         }
 
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.snowdrop.boot.narayana.autoconfigure;
+
+import jakarta.transaction.TransactionManager;
+import jakarta.transaction.UserTransaction;
+
+import dev.snowdrop.boot.narayana.core.observation.ObservedJtaTransactionManager;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.transaction.jta.JtaTransactionManager;
+
+/**
+ * Creates the {@link ObservedJtaTransactionManager}. Kept apart from {@link NarayanaAutoConfiguration} so that
+ * Micrometer Observation is only loaded when observations are enabled.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class ObservedTransactionManagerFactory {
+
+    private ObservedTransactionManagerFactory() {
+    }
+
+    /**
+     * Create a new {@link ObservedJtaTransactionManager} using the observation registry of the bean factory.
+     *
+     * @param userTransaction     JTA user transaction
+     * @param transactionManager  JTA transaction manager
+     * @param beanFactory         bean factory to look the observation registry up in
+     * @param samplingProbability probability between 0 and 1 of a transaction being observed
+     * @return transaction manager, or {@code null} if there is no unique observation registry
+     */
+    static JtaTransactionManager create(UserTransaction userTransaction, TransactionManager transactionManager,
+            ListableBeanFactory beanFactory, double samplingProbability) {
+        ObservationRegistry observationRegistry = beanFactory.getBeanProvider(ObservationRegistry.class).getIfUnique();
+        if (observationRegistry == null) {
+            return null;
+        }
+        return new ObservedJtaTransactionManager(userTransaction, transactionManager, observationRegistry,
+                samplingProbability);
+    }
+}
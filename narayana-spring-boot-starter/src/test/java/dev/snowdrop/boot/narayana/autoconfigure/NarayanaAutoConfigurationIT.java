@@ -17,29 +17,55 @@
 package dev.snowdrop.boot.narayana.autoconfigure;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
 
+import javax.sql.DataSource;
+
 import jakarta.transaction.TransactionManager;
 import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.UserTransaction;
 
 import com.arjuna.ats.internal.jta.recovery.arjunacore.XARecoveryModule;
 import com.arjuna.ats.jbossatx.jta.RecoveryManagerService;
+import dev.snowdrop.boot.narayana.core.actuate.NarayanaAuditEndpoint;
+import dev.snowdrop.boot.narayana.core.actuate.NarayanaEndpoint;
+import dev.snowdrop.boot.narayana.core.diagnostics.SlowTransactionDetector;
+import dev.snowdrop.boot.narayana.core.diagnostics.TransactionAuditLog;
+import dev.snowdrop.boot.narayana.core.health.ObjectStoreHealthIndicator;
+import dev.snowdrop.boot.narayana.core.health.RecoveryHealthIndicator;
 import dev.snowdrop.boot.narayana.core.jdbc.GenericXADataSourceWrapper;
+import dev.snowdrop.boot.narayana.core.jfr.TransactionEvents;
+import dev.snowdrop.boot.narayana.core.jfr.XAResourceEvents;
 import dev.snowdrop.boot.narayana.core.jms.GenericXAConnectionFactoryWrapper;
 import dev.snowdrop.boot.narayana.core.jms.PooledXAConnectionFactoryWrapper;
+import dev.snowdrop.boot.narayana.core.observation.ObservedJtaTransactionManager;
+import dev.snowdrop.boot.narayana.core.prewarm.PoolPrewarmer;
 import dev.snowdrop.boot.narayana.core.properties.NarayanaProperties;
 import dev.snowdrop.boot.narayana.core.properties.NarayanaPropertiesInitializer;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.observation.ObservationRegistry;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.health.contributor.Status;
 import org.springframework.boot.jdbc.XADataSourceWrapper;
 import org.springframework.boot.jms.XAConnectionFactoryWrapper;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.jta.JtaTransactionManager;
 import org.springframework.util.FileSystemUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author <a href="mailto:gytis@redhat.com">Gytis Trikleris</a>
@@ -69,6 +95,40 @@ class NarayanaAutoConfigurationIT {
         this.context.getBean(JtaTransactionManager.class);
         this.context.getBean(RecoveryManagerService.class);
         this.context.getBean(XARecoveryModule.class);
+        this.context.getBean(PoolPrewarmer.class);
+    }
+
+    @Test
+    void agroalPooledDataSourcesShouldCommitAndRollBackTogether() throws Exception {
+        Properties properties = new Properties();
+        properties.put("narayana.transactional-driver.pool.enabled", "true");
+        properties.put("narayana.transactional-driver.pool.type", "agroal");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        XADataSourceWrapper xaDataSourceWrapper = this.context.getBean(XADataSourceWrapper.class);
+        TransactionManager transactionManager = this.context.getBean(TransactionManager.class);
+        JdbcDataSource firstXaDataSource = createXaDataSource("agroal-first");
+        JdbcDataSource secondXaDataSource = createXaDataSource("agroal-second");
+        try (AgroalDataSource first = (AgroalDataSource) xaDataSourceWrapper.wrapDataSource(firstXaDataSource);
+                AgroalDataSource second = (AgroalDataSource) xaDataSourceWrapper.wrapDataSource(secondXaDataSource)) {
+            transactionManager.begin();
+            insert(first, 1);
+            insert(second, 1);
+            transactionManager.commit();
+
+            transactionManager.begin();
+            insert(first, 2);
+            insert(second, 2);
+            transactionManager.rollback();
+
+            assertThat(selectIds(firstXaDataSource)).containsExactly(1);
+            assertThat(selectIds(secondXaDataSource)).containsExactly(1);
+        }
     }
 
     @Test
@@ -148,4 +208,189 @@ class NarayanaAutoConfigurationIT {
         XAConnectionFactoryWrapper xaConnectionFactoryWrapper = this.context.getBean(XAConnectionFactoryWrapper.class);
         assertThat(xaConnectionFactoryWrapper).isInstanceOf(PooledXAConnectionFactoryWrapper.class);
     }
+
+    @Test
+    void observedTransactionManagerShouldBeLoaded() {
+        Properties properties = new Properties();
+        properties.put("narayana.observation.enabled", "true");
+        properties.put("narayana.observation.sampling-probability", "0.5");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.registerBean(ObservationRegistry.class, ObservationRegistry::create);
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        JtaTransactionManager jtaTransactionManager = this.context.getBean(JtaTransactionManager.class);
+        assertThat(jtaTransactionManager).isInstanceOf(ObservedJtaTransactionManager.class);
+        assertThat(jtaTransactionManager.getTransactionSynchronizationRegistry()).isNotNull();
+    }
+
+    @Test
+    void plainTransactionManagerShouldBeLoadedWithoutObservationRegistry() {
+        Properties properties = new Properties();
+        properties.put("narayana.observation.enabled", "true");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        JtaTransactionManager jtaTransactionManager = this.context.getBean(JtaTransactionManager.class);
+        assertThat(jtaTransactionManager).isNotInstanceOf(ObservedJtaTransactionManager.class);
+        assertThat(jtaTransactionManager.getTransactionSynchronizationRegistry()).isNotNull();
+    }
+
+    @Test
+    void endpointShouldBeLoadedWhenExposed() {
+        Properties properties = new Properties();
+        properties.put("management.endpoints.web.exposure.include", "narayana");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        assertThat(this.context.getBeansOfType(NarayanaEndpoint.class)).hasSize(1);
+    }
+
+    @Test
+    void endpointShouldNotBeLoadedByDefault() {
+        this.context = new AnnotationConfigApplicationContext(NarayanaAutoConfiguration.class);
+
+        assertThat(this.context.getBeansOfType(NarayanaEndpoint.class)).isEmpty();
+    }
+
+    @Test
+    void flightRecorderEventsShouldBeLoaded() {
+        Properties properties = new Properties();
+        properties.put("narayana.jfr.enabled", "true");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        this.context.getBean(TransactionEvents.class);
+        assertThat(XAResourceListeners.getListener()).isSameAs(this.context.getBean(XAResourceEvents.class));
+        this.context.close();
+        assertThat(XAResourceListeners.getListener()).isNull();
+    }
+
+    @Test
+    void prewarmReadinessRunnerShouldBeLoaded() throws Exception {
+        Properties properties = new Properties();
+        properties.put("narayana.prewarm.delay-readiness", "true");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        ApplicationArguments arguments = new DefaultApplicationArguments();
+        this.context.getBean("narayanaPrewarmReadinessRunner", ApplicationRunner.class).run(arguments);
+        assertThat(this.context.getBean(PoolPrewarmer.class).isComplete()).isTrue();
+    }
+
+    @Test
+    void prewarmReadinessRunnerShouldNotBeLoadedByDefault() {
+        this.context = new AnnotationConfigApplicationContext(NarayanaAutoConfiguration.class);
+
+        assertThat(this.context.getBeansOfType(ApplicationRunner.class)).isEmpty();
+    }
+
+    @Test
+    void slowTransactionDetectorShouldBeLoaded() {
+        Properties properties = new Properties();
+        properties.put("narayana.slow-transactions.enabled", "true");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        this.context.getBean(SlowTransactionDetector.class);
+    }
+
+    @Test
+    void slowTransactionWarnThresholdShouldBeBelowDefaultTimeout() {
+        Properties properties = new Properties();
+        properties.put("narayana.slow-transactions.enabled", "true");
+        properties.put("narayana.slow-transactions.warn-threshold", "60s");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+
+        assertThatThrownBy(() -> this.context.refresh()).hasRootCauseInstanceOf(IllegalArgumentException.class)
+                .rootCause().hasMessageContaining("narayana.default-timeout");
+    }
+
+    @Test
+    void auditLogAndEndpointShouldBeLoaded() {
+        Properties properties = new Properties();
+        properties.put("narayana.audit.enabled", "true");
+        properties.put("management.endpoints.web.exposure.include", "narayanaaudit");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        TransactionAuditLog auditLog = this.context.getBean(TransactionAuditLog.class);
+        assertThat(XAResourceListeners.getListener()).isSameAs(auditLog);
+        this.context.getBean(NarayanaAuditEndpoint.class);
+        this.context.close();
+        assertThat(XAResourceListeners.getListener()).isNull();
+    }
+
+    @Test
+    void healthIndicatorsShouldBeLoaded() {
+        this.context = new AnnotationConfigApplicationContext(NarayanaAutoConfiguration.class);
+        RecoveryHealthIndicator recoveryHealthIndicator = this.context.getBean(RecoveryHealthIndicator.class);
+        assertThat(recoveryHealthIndicator.health().getStatus()).isEqualTo(Status.UP);
+        this.context.getBean(ObjectStoreHealthIndicator.class);
+    }
+
+    @Test
+    void healthIndicatorsShouldBeDisabled() {
+        Properties properties = new Properties();
+        properties.put("management.health.narayana.enabled", "false");
+        PropertiesPropertySource propertySource = new PropertiesPropertySource("test", properties);
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.register(NarayanaAutoConfiguration.class);
+        this.context.getEnvironment().getPropertySources().addFirst(propertySource);
+        this.context.refresh();
+
+        assertThat(this.context.getBeansOfType(RecoveryHealthIndicator.class)).isEmpty();
+        assertThat(this.context.getBeansOfType(ObjectStoreHealthIndicator.class)).isEmpty();
+    }
+
+    private JdbcDataSource createXaDataSource(String name) {
+        JdbcDataSource xaDataSource = new JdbcDataSource();
+        xaDataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(xaDataSource).execute("CREATE TABLE IF NOT EXISTS ENTRY (ID INT PRIMARY KEY)");
+        return xaDataSource;
+    }
+
+    private void insert(DataSource dataSource, int id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("INSERT INTO ENTRY (ID) VALUES (?)")) {
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<Integer> selectIds(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForList("SELECT ID FROM ENTRY", Integer.class);
+    }
 }
@@ -17,25 +17,45 @@
 package dev.snowdrop.boot.narayana.autoconfigure;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.stream.Stream;
 
+import javax.sql.DataSource;
+
 import jakarta.transaction.TransactionManager;
 import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.UserTransaction;
 
+import com.arjuna.ats.arjuna.common.arjPropertyManager;
+import com.arjuna.ats.arjuna.objectstore.ObjectStoreAPI;
+import dev.snowdrop.boot.narayana.core.jdbc.ObjectStoreDataSource;
+import dev.snowdrop.boot.narayana.core.metrics.NarayanaTransactionMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.ParticipantMetrics;
+import dev.snowdrop.boot.narayana.core.metrics.ReaperMetrics;
+import dev.snowdrop.boot.narayana.core.objectstore.MeteredObjectStore;
+import dev.snowdrop.boot.narayana.core.objectstore.ObjectStoreDecorator;
+import dev.snowdrop.boot.narayana.core.properties.MetricsProperties;
 import dev.snowdrop.boot.narayana.core.properties.NarayanaProperties;
+import dev.snowdrop.boot.narayana.core.properties.ObjectStoreProperties;
+import dev.snowdrop.boot.narayana.core.xa.XAResourceListeners;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.system.ApplicationHome;
 import org.springframework.boot.transaction.autoconfigure.TransactionManagerCustomizers;
 import org.springframework.transaction.jta.JtaTransactionManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doReturn;
@@ -54,9 +74,27 @@ class NarayanaAutoConfigurationTest {
     @Mock
     private TransactionManagerCustomizers mockTransactionManagerCustomizers;
 
+    @Mock
+    private ObjectProvider<ObjectStoreDataSource> mockObjectStoreDataSourceProvider;
+
+    @Mock
+    private ObjectProvider<ObjectStoreDecorator> mockObjectStoreDecoratorProvider;
+
+    @Mock
+    private ObjectStoreAPI mockObjectStore;
+
     @Mock
     private NarayanaProperties mockNarayanaProperties;
 
+    @Mock
+    private BeanFactory mockBeanFactory;
+
+    @Mock
+    private ListableBeanFactory mockListableBeanFactory;
+
+    @Mock
+    private DataSource mockDataSource;
+
     @Mock
     private UserTransaction mockUserTransaction;
 
@@ -66,6 +104,9 @@ class NarayanaAutoConfigurationTest {
     @Mock
     private TransactionSynchronizationRegistry mockTransactionSynchronizationRegistry;
 
+    @TempDir
+    private Path tempDir;
+
     private NarayanaAutoConfiguration configuration;
 
     @BeforeEach
@@ -76,23 +117,107 @@ class NarayanaAutoConfigurationTest {
     @Test
     void narayanaPropertiesInitializerShouldUseNarayanaLogDir() {
         given(this.mockNarayanaProperties.getLogDir()).willReturn("narayana-log-dir");
-        this.configuration.narayanaPropertiesInitializer(this.mockNarayanaProperties);
+        given(this.mockObjectStoreDecoratorProvider.orderedStream()).willReturn(Stream.empty());
+        this.configuration.narayanaPropertiesInitializer(this.mockNarayanaProperties,
+                this.mockObjectStoreDataSourceProvider, this.mockObjectStoreDecoratorProvider);
         verify(this.mockNarayanaProperties, times(0)).setLogDir(anyString());
     }
 
     @Test
     void narayanaPropertiesInitializerShouldUseDefaultLogDir() {
-        this.configuration.narayanaPropertiesInitializer(this.mockNarayanaProperties);
+        given(this.mockObjectStoreDecoratorProvider.orderedStream()).willReturn(Stream.empty());
+        this.configuration.narayanaPropertiesInitializer(this.mockNarayanaProperties,
+                this.mockObjectStoreDataSourceProvider, this.mockObjectStoreDecoratorProvider);
         File applicationHomeDir = new ApplicationHome().getDir();
         File expectedLogDir = new File(applicationHomeDir, "transaction-logs");
         verify(this.mockNarayanaProperties).setLogDir(expectedLogDir.getAbsolutePath());
     }
 
+    @Test
+    void objectStoreDataSourceShouldUseNamedDataSource() {
+        ObjectStoreProperties objectStoreProperties = new ObjectStoreProperties();
+        objectStoreProperties.getJdbc().setDataSource("logDataSource");
+        objectStoreProperties.getJdbc().getPool().setEnabled(false);
+        given(this.mockNarayanaProperties.getObjectStore()).willReturn(objectStoreProperties);
+        given(this.mockBeanFactory.getBean("logDataSource", DataSource.class)).willReturn(this.mockDataSource);
+        ObjectStoreDataSource objectStoreDataSource = new NarayanaAutoConfiguration.JdbcObjectStoreConfiguration()
+                .narayanaObjectStoreDataSource(this.mockNarayanaProperties, this.mockBeanFactory);
+        assertThat(objectStoreDataSource.getDataSource()).isSameAs(this.mockDataSource);
+    }
+
+    @Test
+    void objectStoreDataSourceShouldRequireDataSourceName() {
+        given(this.mockNarayanaProperties.getObjectStore()).willReturn(new ObjectStoreProperties());
+        NarayanaAutoConfiguration.JdbcObjectStoreConfiguration jdbcObjectStoreConfiguration =
+                new NarayanaAutoConfiguration.JdbcObjectStoreConfiguration();
+        assertThatIllegalArgumentException().isThrownBy(() -> jdbcObjectStoreConfiguration
+                .narayanaObjectStoreDataSource(this.mockNarayanaProperties, this.mockBeanFactory));
+    }
+
+    @Test
+    void objectStoreMetricsShouldDecorateObjectStore() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ObjectStoreProperties objectStoreProperties = new ObjectStoreProperties();
+        objectStoreProperties.getStateStore().setDir(this.tempDir.resolve("state").toString());
+        given(this.mockNarayanaProperties.getLogDir()).willReturn(this.tempDir.resolve("log").toString());
+        given(this.mockNarayanaProperties.getObjectStore()).willReturn(objectStoreProperties);
+        given(this.mockNarayanaProperties.getMetrics()).willReturn(new MetricsProperties());
+        ObjectStoreDecorator objectStoreDecorator = new NarayanaAutoConfiguration.ObjectStoreMetricsConfiguration()
+                .narayanaObjectStoreMetrics(this.mockNarayanaProperties, meterRegistry);
+        ObjectStoreAPI objectStore = objectStoreDecorator.decorate(this.mockObjectStore);
+        assertThat(objectStore).isInstanceOf(MeteredObjectStore.class);
+        assertThat(meterRegistry.get("narayana.object.store.directory.size").gauges())
+                .extracting(gauge -> gauge.getId().getTag("directory"))
+                .containsExactlyInAnyOrder(this.tempDir.resolve("log").toString(),
+                        this.tempDir.resolve("state").toString());
+    }
+
+    @Test
+    void transactionMetricsShouldBePublished() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NarayanaTransactionMetrics transactionMetrics = new NarayanaAutoConfiguration.TransactionMetricsConfiguration()
+                .narayanaTransactionMetrics();
+        try {
+            transactionMetrics.bindTo(meterRegistry);
+            assertThat(arjPropertyManager.getCoordinatorEnvironmentBean().isEnableStatistics()).isTrue();
+            assertThat(meterRegistry.get("narayana.transactions.created").functionCounter()).isNotNull();
+            assertThat(meterRegistry.get("narayana.transactions.commit").functionTimer()).isNotNull();
+        } finally {
+            arjPropertyManager.getCoordinatorEnvironmentBean().setEnableStatistics(false);
+        }
+    }
+
+    @Test
+    void reaperMetricsShouldBePublished() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (ReaperMetrics reaperMetrics = new NarayanaAutoConfiguration.TransactionMetricsConfiguration()
+                .narayanaReaperMetrics()) {
+            reaperMetrics.bindTo(meterRegistry);
+            assertThat(meterRegistry.get("narayana.reaper.transactions").gauge()).isNotNull();
+            assertThat(meterRegistry.get("narayana.reaper.cancellations").counters()).hasSize(2);
+            assertThat(meterRegistry.get("narayana.reaper.cancellation.latency").timer()).isNotNull();
+        }
+    }
+
+    @Test
+    void participantMetricsShouldBePublished() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (ParticipantMetrics participantMetrics = new NarayanaAutoConfiguration.ParticipantMetricsConfiguration()
+                .narayanaParticipantMetrics()) {
+            participantMetrics.bindTo(meterRegistry);
+            assertThat(meterRegistry.get("narayana.transactions.participants").summary()).isNotNull();
+            assertThat(meterRegistry.get("narayana.transactions.commit.protocol").counters()).hasSize(2);
+            assertThat(XAResourceListeners.getListener()).isSameAs(participantMetrics);
+        }
+        assertThat(XAResourceListeners.getListener()).isNull();
+    }
+
     @Test
     void jtaTransactionManagerShouldBeCreatedAndCustomized() {
         doReturn(Stream.of(this.mockTransactionManagerCustomizers)).when(this.mockTransactionManagerCustomizersProvider).stream();
         JtaTransactionManager jtaTransactionManager = this.configuration.transactionManager(
-                this.mockUserTransaction, this.mockTransactionManager, this.mockTransactionSynchronizationRegistry, this.mockTransactionManagerCustomizersProvider);
+                this.mockUserTransaction, this.mockTransactionManager, this.mockTransactionSynchronizationRegistry, this.mockTransactionManagerCustomizersProvider,
+                new NarayanaProperties(), this.mockListableBeanFactory);
         assertThat(jtaTransactionManager.getUserTransaction()).isEqualTo(this.mockUserTransaction);
         assertThat(jtaTransactionManager.getTransactionManager()).isEqualTo(this.mockTransactionManager);
         assertThat(jtaTransactionManager.getTransactionSynchronizationRegistry())